@@ -0,0 +1,88 @@
+package com.wefky.RESTfulWeb.benchmarks;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import com.wefky.RESTfulWeb.benchmarks.support.Fixtures;
+import com.wefky.RESTfulWeb.config.ApiTokenConfig;
+import com.wefky.RESTfulWeb.config.TimedBCryptPasswordEncoder;
+import com.wefky.RESTfulWeb.entity.Role;
+import com.wefky.RESTfulWeb.entity.User;
+import com.wefky.RESTfulWeb.service.ApiTokenService;
+import com.wefky.RESTfulWeb.service.MyUserDetailsService;
+import com.wefky.RESTfulWeb.service.UserDetailsCache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Authentication cost per API request.
+ *
+ * bearerToken verifies a token's HMAC signature and claims and resolves its user from the
+ * UserDetailsCache, which is what every token request does. passwordCheck is HTTP Basic or a
+ * login with the application's BCrypt encoder, with the user already cached; without the
+ * cache a database query for the user and its roles comes on top.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApiTokenBenchmark {
+
+    private JwtDecoder decoder;
+    private ApiTokenService tokenService;
+    private DaoAuthenticationProvider authenticationProvider;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        TimedBCryptPasswordEncoder passwordEncoder = new TimedBCryptPasswordEncoder(registry, 10, null);
+        User user = User.builder()
+                .username("benchmark")
+                .password(passwordEncoder.encode("secret"))
+                .enabled(true)
+                .roles(Set.of(Role.builder().name("ROLE_USER").build()))
+                .build();
+        MyUserDetailsService userDetailsService = new MyUserDetailsService(Fixtures.userRepository(user), event -> { });
+        UserDetailsCache cache = new UserDetailsCache(registry);
+
+        ApiTokenConfig tokenConfig = new ApiTokenConfig("");
+        decoder = tokenConfig.apiTokenDecoder();
+        tokenService = new ApiTokenService(tokenConfig.apiTokenEncoder(), userDetailsService, cache,
+                Duration.ofMinutes(15));
+        token = tokenService.issue(userDetailsService.loadUserByUsername("benchmark")).accessToken();
+
+        authenticationProvider = new DaoAuthenticationProvider(passwordEncoder);
+        authenticationProvider.setUserDetailsService(userDetailsService);
+        authenticationProvider.setUserCache(cache);
+    }
+
+    @Benchmark
+    public Authentication bearerToken() {
+        return tokenService.authenticate(decoder.decode(token));
+    }
+
+    @Benchmark
+    public Authentication passwordCheck() {
+        return authenticationProvider.authenticate(
+                UsernamePasswordAuthenticationToken.unauthenticated("benchmark", "secret"));
+    }
+}
@@ -0,0 +1,63 @@
+package com.wefky.RESTfulWeb.benchmarks;
+
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.wefky.RESTfulWeb.benchmarks.support.Fixtures;
+import com.wefky.RESTfulWeb.entity.Image;
+import com.wefky.RESTfulWeb.service.ImageService;
+
+/**
+ * Cost of the Base64 data URI that ImageService populates for every image it returns,
+ * by payload size. encoderOnly is the lower bound set by the JDK encoder.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Base64Benchmark {
+
+    @Param({ "1024", "65536", "1048576", "8388608" })
+    int payloadBytes;
+
+    private byte[] payload;
+    private ImageService imageService;
+
+    @Setup
+    public void setUp() {
+        payload = Fixtures.payload(payloadBytes);
+        Image image = Image.builder()
+                .imageId(1L)
+                .owner("benchmark")
+                .contentType("image/png")
+                .data(payload)
+                .uploadDate(LocalDateTime.now())
+                .build();
+        imageService = new ImageService(Fixtures.imageRepository(image), event -> { });
+    }
+
+    @Benchmark
+    public String encoderOnly() {
+        return Base64.getEncoder().encodeToString(payload);
+    }
+
+    @Benchmark
+    public String imageServicePopulateBase64() {
+        return imageService.getImageById(1L).orElseThrow().getBase64Data();
+    }
+}
@@ -0,0 +1,26 @@
+package com.wefky.RESTfulWeb.benchmarks;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Entry point of benchmarks.jar.
+ * Passes all arguments to the JMH runner and, unless a result format is given,
+ * writes the results as JSON (jmh-result-yyyyMMdd-HHmmss.json) so runs can be compared.
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> jmhArgs = new ArrayList<>(List.of(args));
+        if (!jmhArgs.contains("-rf")) {
+            String stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+            jmhArgs.addAll(List.of("-rf", "json", "-rff", "jmh-result-" + stamp + ".json"));
+        }
+        org.openjdk.jmh.Main.main(jmhArgs.toArray(String[]::new));
+    }
+}
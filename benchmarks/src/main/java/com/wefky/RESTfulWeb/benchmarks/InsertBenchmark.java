@@ -0,0 +1,76 @@
+package com.wefky.RESTfulWeb.benchmarks;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.wefky.RESTfulWeb.benchmarks.support.BenchmarkContext;
+import com.wefky.RESTfulWeb.benchmarks.support.Fixtures;
+import com.wefky.RESTfulWeb.entity.Location;
+import com.wefky.RESTfulWeb.repository.LocationRepository;
+import com.wefky.RESTfulWeb.repository.MeasurementRepository;
+
+/**
+ * Insert throughput of saveAll for one transaction of new measurements.
+ *
+ * batchSize=0 sends one INSERT per row, which is what the IDENTITY ids forced before the
+ * entities moved to sequences; batchSize=50 is the configured JDBC batching (with the
+ * driver's multi-row INSERT rewrite). Score is transactions per second; multiply by rows
+ * for rows per second. The table is emptied after each iteration so it does not grow.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InsertBenchmark {
+
+    @Param({ "0", "50" })
+    int batchSize;
+
+    @Param({ "1000" })
+    int rows;
+
+    private BenchmarkContext context;
+    private MeasurementRepository measurementRepository;
+    private List<Location> locations;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = BenchmarkContext.start(
+                "--spring.jpa.properties.hibernate.jdbc.batch_size=" + batchSize,
+                "--spring.datasource.hikari.data-source-properties.reWriteBatchedInserts=" + (batchSize > 0));
+        measurementRepository = context.bean(MeasurementRepository.class);
+        locations = context.bean(LocationRepository.class).saveAll(Fixtures.locations(100, 0, false));
+    }
+
+    @TearDown(Level.Iteration)
+    public void emptyTable() {
+        measurementRepository.deleteAllInBatch();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+    }
+
+    @Benchmark
+    public List<com.wefky.RESTfulWeb.entity.Measurement> insertMeasurements() {
+        return measurementRepository.saveAll(Fixtures.measurements(rows, locations, 0));
+    }
+}
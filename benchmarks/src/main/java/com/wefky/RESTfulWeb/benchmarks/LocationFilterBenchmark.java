@@ -0,0 +1,91 @@
+package com.wefky.RESTfulWeb.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.wefky.RESTfulWeb.benchmarks.support.Fixtures;
+import com.wefky.RESTfulWeb.entity.Location;
+import com.wefky.RESTfulWeb.repository.LocationRepository;
+import com.wefky.RESTfulWeb.service.LocationSearchIndex;
+import com.wefky.RESTfulWeb.service.LocationSpatialIndex;
+
+/**
+ * In-memory location filtering.
+ *
+ * javaStreamFilter is the trash filter LocationService used before it moved into the
+ * database (a full scan with per-row lower-casing); it is kept as the reference for
+ * RepositoryBenchmark.locationTrashPage. The index benchmarks cover the in-memory
+ * structures behind /api/locations/near and /api/locations/autocomplete.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LocationFilterBenchmark {
+
+    @Param({ "1000", "100000" })
+    int locations;
+
+    private List<Location> all;
+    private LocationSpatialIndex spatialIndex;
+    private LocationSearchIndex searchIndex;
+
+    @Setup
+    public void setUp() {
+        all = Fixtures.locations(locations, 0.2, true);
+        LocationRepository repository = Fixtures.locationRepository(all);
+        spatialIndex = new LocationSpatialIndex(repository, true);
+        spatialIndex.load();
+        searchIndex = new LocationSearchIndex(repository);
+        searchIndex.load();
+    }
+
+    @Benchmark
+    public List<Location> javaStreamFilter() {
+        String cityName = "hel";
+        String postalCode = null;
+        Float latMin = 50f;
+        Float latMax = 60f;
+        return all.stream()
+                .filter(Location::isDeleted)
+                .filter(loc -> (cityName == null || loc.getCityName().toLowerCase().contains(cityName.toLowerCase())))
+                .filter(loc -> (postalCode == null || loc.getPostalCode().toLowerCase().contains(postalCode.toLowerCase())))
+                .filter(loc -> (latMin == null || loc.getLatitude() >= latMin))
+                .filter(loc -> (latMax == null || loc.getLatitude() <= latMax))
+                .toList();
+    }
+
+    @Benchmark
+    public List<LocationSpatialIndex.Neighbour> spatialIndexNearest10() {
+        return spatialIndex.nearest(60.17, 24.94, 10, null);
+    }
+
+    @Benchmark
+    public List<LocationSpatialIndex.Neighbour> spatialIndexWithin50km() {
+        return spatialIndex.withinRadius(48.85, 2.35, 50_000);
+    }
+
+    @Benchmark
+    public List<LocationSearchIndex.Suggestion> searchIndexPrefix() {
+        return searchIndex.suggest("hel", 10);
+    }
+
+    @Benchmark
+    public List<LocationSearchIndex.Suggestion> searchIndexTypo() {
+        return searchIndex.suggest("helsinkki", 10);
+    }
+}
@@ -0,0 +1,101 @@
+package com.wefky.RESTfulWeb.benchmarks;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.wefky.RESTfulWeb.benchmarks.support.Fixtures;
+import com.wefky.RESTfulWeb.config.BinaryFormatConfig;
+import com.wefky.RESTfulWeb.dto.MeasurementView;
+import com.wefky.RESTfulWeb.entity.Location;
+
+/**
+ * Encode and decode cost of measurement lists in the API's formats: encoding the views returned
+ * by GET /api/measurements and /export, and decoding the entities read by POST /batch.
+ * JSON is configured like Spring Boot's (ISO dates); CBOR and Smile use the application's binary
+ * mappers (numeric dates), or ISO dates with -p isoDates=true. The encoded size of each payload
+ * is printed at setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MeasurementFormatBenchmark {
+
+    @Param({ "json", "cbor", "smile" })
+    String format;
+
+    @Param({ "1000", "10000" })
+    int measurements;
+
+    @Param({ "false" })
+    boolean isoDates;
+
+    private List<MeasurementView> views;
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<Location> locations = Fixtures.locations(25, 0, true);
+        List<com.wefky.RESTfulWeb.entity.Measurement> entities = Fixtures.measurements(measurements, locations, 0);
+        for (int i = 0; i < entities.size(); i++) {
+            entities.get(i).setMeasurementId(i + 1L);
+        }
+        views = entities.stream().map(MeasurementView::from).toList();
+
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        ObjectMapper mapper = switch (format) {
+            case "json" -> builder.build();
+            case "cbor" -> binary(builder, new CBORFactory());
+            case "smile" -> binary(builder, new SmileFactory());
+            default -> throw new IllegalArgumentException("Unknown format: " + format);
+        };
+        writer = mapper.writerFor(new TypeReference<List<MeasurementView>>() { });
+        reader = mapper.readerFor(new TypeReference<List<com.wefky.RESTfulWeb.entity.Measurement>>() { });
+        encoded = writer.writeValueAsBytes(views);
+        System.out.printf(Locale.ROOT, "%n%s (isoDates=%s), %d measurements: %d bytes, %.1f per measurement%n",
+                format, isoDates, measurements, encoded.length, (double) encoded.length / measurements);
+    }
+
+    private ObjectMapper binary(Jackson2ObjectMapperBuilder builder, JsonFactory factory) {
+        ObjectMapper mapper = BinaryFormatConfig.binaryMapper(builder, factory);
+        return isoDates ? mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS) : mapper;
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return writer.writeValueAsBytes(views);
+    }
+
+    @Benchmark
+    public List<com.wefky.RESTfulWeb.entity.Measurement> decode() throws IOException {
+        return reader.readValue(encoded);
+    }
+}
@@ -0,0 +1,68 @@
+package com.wefky.RESTfulWeb.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.wefky.RESTfulWeb.benchmarks.support.Fixtures;
+import com.wefky.RESTfulWeb.entity.Location;
+
+/**
+ * Jackson serialization of measurement lists as returned by GET /api/measurements.
+ * The mapper is configured like Spring Boot's (Java time module, ISO dates).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MeasurementJsonBenchmark {
+
+    @Param({ "10", "100", "1000", "10000" })
+    int measurements;
+
+    @Param({ "25" })
+    int distinctLocations;
+
+    private List<com.wefky.RESTfulWeb.entity.Measurement> payload;
+    private ObjectMapper mapper;
+    private ObjectWriter listWriter;
+
+    @Setup
+    public void setUp() {
+        List<Location> locations = Fixtures.locations(distinctLocations, 0, true);
+        payload = Fixtures.measurements(measurements, locations, 0);
+        mapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        listWriter = mapper.writerFor(new TypeReference<List<com.wefky.RESTfulWeb.entity.Measurement>>() { });
+    }
+
+    @Benchmark
+    public byte[] objectMapper() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(payload);
+    }
+
+    @Benchmark
+    public byte[] typedWriter() throws JsonProcessingException {
+        return listWriter.writeValueAsBytes(payload);
+    }
+}
@@ -0,0 +1,134 @@
+package com.wefky.RESTfulWeb.benchmarks;
+
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.wefky.RESTfulWeb.benchmarks.support.BenchmarkContext;
+import com.wefky.RESTfulWeb.benchmarks.support.Fixtures;
+import com.wefky.RESTfulWeb.repository.ImageRepository;
+import com.wefky.RESTfulWeb.service.FragmentCache;
+import com.wefky.RESTfulWeb.service.ImageService;
+
+/**
+ * Page render time with and without the prod profile's caches: templateCache is
+ * spring.thymeleaf.cache (parsed templates kept in memory), fragmentCache is
+ * app.web.fragment-cache.enabled (rendered content-type suggestions reused until an image changes).
+ *
+ * homePage and imagesPage are full GET requests of a signed-in admin against the running
+ * application, so they include security and the listing query; contentTypeOptions is the
+ * fragment alone, i.e. the DISTINCT query and its render on a miss.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PageRenderBenchmark {
+
+    private static final Pattern CSRF_INPUT = Pattern.compile("name=\"_csrf\"\\s+value=\"([^\"]+)\"");
+
+    @Param({ "false", "true" })
+    boolean templateCache;
+
+    @Param({ "false", "true" })
+    boolean fragmentCache;
+
+    @Param({ "200" })
+    int images;
+
+    private BenchmarkContext context;
+    private FragmentCache cache;
+    private ImageService imageService;
+    private HttpClient client;
+    private URI baseUri;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException {
+        context = BenchmarkContext.start(
+                "--spring.thymeleaf.cache=" + templateCache,
+                "--app.web.fragment-cache.enabled=" + fragmentCache);
+        cache = context.bean(FragmentCache.class);
+        imageService = context.bean(ImageService.class);
+        context.bean(ImageRepository.class).saveAll(Fixtures.images(images, 1024, 0.2));
+
+        baseUri = URI.create("http://localhost:" + context.port());
+        client = HttpClient.newBuilder()
+                .cookieHandler(new CookieManager())
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+        login("admin", "admin");
+    }
+
+    private void login(String username, String password) throws IOException, InterruptedException {
+        Matcher csrf = CSRF_INPUT.matcher(get("/login"));
+        if (!csrf.find()) {
+            throw new IOException("No CSRF token on /login.");
+        }
+        String form = "username=" + URLEncoder.encode(username, StandardCharsets.UTF_8)
+                + "&password=" + URLEncoder.encode(password, StandardCharsets.UTF_8)
+                + "&_csrf=" + URLEncoder.encode(csrf.group(1), StandardCharsets.UTF_8);
+        HttpResponse<Void> response = client.send(HttpRequest.newBuilder(baseUri.resolve("/login"))
+                        .header("Content-Type", "application/x-www-form-urlencoded")
+                        .POST(HttpRequest.BodyPublishers.ofString(form))
+                        .build(),
+                HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 302 || response.headers().firstValue("Location").orElse("").contains("error")) {
+            throw new IOException("Login as " + username + " failed (status " + response.statusCode() + ").");
+        }
+    }
+
+    private String get(String path) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(baseUri.resolve(path)).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("GET " + path + " returned " + response.statusCode() + ".");
+        }
+        return response.body();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+    }
+
+    @Benchmark
+    public String homePage() throws IOException, InterruptedException {
+        return get("/");
+    }
+
+    @Benchmark
+    public String imagesPage() throws IOException, InterruptedException {
+        return get("/web/images");
+    }
+
+    @Benchmark
+    public String contentTypeOptions() {
+        return cache.get(FragmentCache.CONTENT_TYPES,
+                () -> Map.of("contentTypes", imageService.getDistinctContentTypes()));
+    }
+}
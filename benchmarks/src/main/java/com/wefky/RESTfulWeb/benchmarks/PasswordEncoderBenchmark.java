@@ -0,0 +1,58 @@
+package com.wefky.RESTfulWeb.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.wefky.RESTfulWeb.config.TimedBCryptPasswordEncoder;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Cost of the BCrypt cost factor (app.security.bcrypt.strength): one password check at login
+ * and one hash at registration or rehash, on the calling thread. Each step doubles the time;
+ * divide the hashing pool's threads by the score for the logins per second an instance can
+ * absorb.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PasswordEncoderBenchmark {
+
+    private static final String PASSWORD = "correct horse battery staple";
+
+    @Param({ "8", "10", "12" })
+    int strength;
+
+    private TimedBCryptPasswordEncoder passwordEncoder;
+    private String hash;
+
+    @Setup
+    public void setUp() {
+        passwordEncoder = new TimedBCryptPasswordEncoder(new SimpleMeterRegistry(), strength, null);
+        hash = passwordEncoder.encode(PASSWORD);
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return passwordEncoder.matches(PASSWORD, hash);
+    }
+
+    @Benchmark
+    public String encode() {
+        return passwordEncoder.encode(PASSWORD);
+    }
+}
@@ -0,0 +1,169 @@
+package com.wefky.RESTfulWeb.benchmarks;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.wefky.RESTfulWeb.benchmarks.support.BenchmarkContext;
+import com.wefky.RESTfulWeb.benchmarks.support.Fixtures;
+import com.wefky.RESTfulWeb.dto.ImageView;
+import com.wefky.RESTfulWeb.dto.KeysetPage;
+import com.wefky.RESTfulWeb.dto.KeysetRequest;
+import com.wefky.RESTfulWeb.dto.LocationView;
+import com.wefky.RESTfulWeb.dto.MeasurementView;
+import com.wefky.RESTfulWeb.entity.Image;
+import com.wefky.RESTfulWeb.entity.Location;
+import com.wefky.RESTfulWeb.repository.ImageRepository;
+import com.wefky.RESTfulWeb.repository.LocationRepository;
+import com.wefky.RESTfulWeb.repository.MeasurementRepository;
+import com.wefky.RESTfulWeb.service.ImageService;
+import com.wefky.RESTfulWeb.service.LocationService;
+import com.wefky.RESTfulWeb.service.MeasurementService;
+
+/**
+ * Repository and service queries against PostgreSQL (embedded unless -Dbenchmark.jdbc.url is set),
+ * on a seeded dataset of the given size. 20% of every table is soft-deleted.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryBenchmark {
+
+    /** Page of the measurements listing that measurementsDeepPage reads (of 800 with the default data). */
+    private static final int DEEP_PAGE = 500;
+
+    @Param({ "1000" })
+    int locations;
+
+    @Param({ "20000" })
+    int measurements;
+
+    @Param({ "200" })
+    int images;
+
+    private BenchmarkContext context;
+    private LocationService locationService;
+    private MeasurementService measurementService;
+    private ImageService imageService;
+    private MeasurementRepository measurementRepository;
+
+    private final KeysetRequest firstPage = KeysetRequest.firstPage("locationId", false, 20);
+    private final KeysetRequest firstMeasurementPage = KeysetRequest.firstPage("timestamp", true, 20);
+    private KeysetRequest deepMeasurementPage;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = BenchmarkContext.start();
+        locationService = context.bean(LocationService.class);
+        measurementService = context.bean(MeasurementService.class);
+        imageService = context.bean(ImageService.class);
+        measurementRepository = context.bean(MeasurementRepository.class);
+
+        List<Location> savedLocations = context.bean(LocationRepository.class)
+                .saveAll(Fixtures.locations(locations, 0.2, false));
+        measurementRepository.saveAll(Fixtures.measurements(measurements, savedLocations, 0.2));
+        ImageRepository imageRepository = context.bean(ImageRepository.class);
+        for (Image image : Fixtures.images(images, 16 * 1024, 0.2)) {
+            imageRepository.save(image);
+        }
+
+        KeysetPage<MeasurementView> page = measurementService.getActiveMeasurementsPage(
+                null, null, null, null, firstMeasurementPage);
+        for (int i = 1; i < DEEP_PAGE - 1 && !page.isLast(); i++) {
+            page = measurementService.getActiveMeasurementsPage(null, null, null, null,
+                    new KeysetRequest("timestamp", true, 20, page.next(), null));
+        }
+        deepMeasurementPage = new KeysetRequest("timestamp", true, 20, page.next(), null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Location> locationFilter() {
+        return locationService.filterLocations("hel", null, 50f, 60f);
+    }
+
+    @Benchmark
+    public List<LocationView> locationFilterViews() {
+        return locationService.getActiveLocationViews("hel", null, 50f, 60f, null, null);
+    }
+
+    @Benchmark
+    public KeysetPage<LocationView> locationTrashPage() {
+        return locationService.getDeletedLocationsPage("hel", null, 50f, 60f, firstPage);
+    }
+
+    @Benchmark
+    public List<com.wefky.RESTfulWeb.entity.Measurement> filterMeasurementsNative() {
+        return measurementService.filterMeasurements("hpa",
+                LocalDateTime.of(2024, 3, 1, 0, 0), LocalDateTime.of(2024, 3, 31, 23, 59), "paris");
+    }
+
+    @Benchmark
+    public List<com.wefky.RESTfulWeb.entity.Measurement> measurementsAllActive() {
+        return measurementService.getAllActiveMeasurements();
+    }
+
+    /**
+     * What GET /api/measurements runs: one query with the location
+     * joined, compared with {@link #measurementsAllActive()} which loads the location per row.
+     */
+    @Benchmark
+    public List<MeasurementView> measurementsAllActiveViews() {
+        return measurementService.getActiveMeasurementViews(null, null, null, null);
+    }
+
+    /**
+     * The first page of the measurements listing, newest first, with its count; compare with
+     * {@link #measurementsDeepPage()}, which seeks to page 500 instead of skipping 9980 rows.
+     */
+    @Benchmark
+    public KeysetPage<MeasurementView> measurementsFirstPage() {
+        return measurementService.getActiveMeasurementsPage(null, null, null, null, firstMeasurementPage);
+    }
+
+    @Benchmark
+    public KeysetPage<MeasurementView> measurementsDeepPage() {
+        return measurementService.getActiveMeasurementsPage(null, null, null, null, deepMeasurementPage);
+    }
+
+    @Benchmark
+    public KeysetPage<MeasurementView> measurementTrashPage() {
+        return measurementService.getDeletedMeasurementsPage(null, null, null, null, firstMeasurementPage);
+    }
+
+    @Benchmark
+    public List<Image> searchImagesByOwner() {
+        return imageService.searchImages("owner7");
+    }
+
+    /**
+     * What the images page runs: metadata only, compared with {@link #searchImagesByOwner()}
+     * which loads and Base64-encodes every file.
+     */
+    @Benchmark
+    public List<ImageView> searchImageViewsByOwner() {
+        return imageService.searchImageViews("owner7");
+    }
+}
@@ -0,0 +1,88 @@
+package com.wefky.RESTfulWeb.benchmarks.support;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.wefky.RESTfulWeb.ResTfulWebApplication;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+/**
+ * Starts the real application against a throw-away embedded PostgreSQL, for benchmarks
+ * that need repositories, transactions and the Hibernate caches.
+ *
+ * Set -Dbenchmark.jdbc.url (plus benchmark.jdbc.user / benchmark.jdbc.password) to use an
+ * existing database instead; it must be a dedicated, empty database because benchmarks seed it.
+ */
+public final class BenchmarkContext implements AutoCloseable {
+
+    private final EmbeddedPostgres postgres;
+    private final ConfigurableApplicationContext context;
+
+    private BenchmarkContext(EmbeddedPostgres postgres, ConfigurableApplicationContext context) {
+        this.postgres = postgres;
+        this.context = context;
+    }
+
+    /**
+     * Starts the database (unless an external one is configured) and the application.
+     *
+     * @param extraArgs additional --property=value arguments for the application
+     */
+    public static BenchmarkContext start(String... extraArgs) throws IOException {
+        String url = System.getProperty("benchmark.jdbc.url");
+        String user = System.getProperty("benchmark.jdbc.user", "postgres");
+        String password = System.getProperty("benchmark.jdbc.password", "postgres");
+        EmbeddedPostgres postgres = null;
+        if (url == null) {
+            postgres = EmbeddedPostgres.builder().start();
+            url = postgres.getJdbcUrl("postgres", "postgres");
+        }
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.datasource.url=" + url,
+                "--spring.datasource.username=" + user,
+                "--spring.datasource.password=" + password,
+                "--server.port=0",
+                "--spring.main.banner-mode=off",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN",
+                "--logging.level.org.springframework=WARN",
+                "--logging.level.org.hibernate.SQL=WARN",
+                "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+                "--logging.level.com.wefky.RESTfulWeb=WARN"));
+        args.addAll(List.of(extraArgs));
+        try {
+            ConfigurableApplicationContext context =
+                    SpringApplication.run(ResTfulWebApplication.class, args.toArray(String[]::new));
+            return new BenchmarkContext(postgres, context);
+        } catch (RuntimeException e) {
+            if (postgres != null) {
+                postgres.close();
+            }
+            throw e;
+        }
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /**
+     * @return the port the embedded web server listens on
+     */
+    public int port() {
+        return Integer.parseInt(context.getEnvironment().getProperty("local.server.port", "0"));
+    }
+
+    @Override
+    public void close() throws IOException {
+        context.close();
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+}
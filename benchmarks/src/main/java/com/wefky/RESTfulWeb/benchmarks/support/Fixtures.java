@@ -0,0 +1,151 @@
+package com.wefky.RESTfulWeb.benchmarks.support;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.function.Function;
+
+import com.wefky.RESTfulWeb.entity.Image;
+import com.wefky.RESTfulWeb.entity.Location;
+import com.wefky.RESTfulWeb.entity.Measurement;
+import com.wefky.RESTfulWeb.entity.User;
+import com.wefky.RESTfulWeb.repository.ImageRepository;
+import com.wefky.RESTfulWeb.repository.LocationRepository;
+import com.wefky.RESTfulWeb.repository.UserRepository;
+
+/**
+ * Deterministic test data and in-memory repository stubs for the benchmarks.
+ * The same seed always produces the same data, so results from different runs are comparable.
+ */
+public final class Fixtures {
+
+    public static final long SEED = 42L;
+
+    static final String[] CITIES = {
+            "Paris", "Helsinki", "Berlin", "Madrid", "Rome", "Vienna", "Oslo", "Lisbon",
+            "Prague", "Warsaw", "Dublin", "Athens", "Tampere", "Espoo", "Zürich", "Saint-Étienne"
+    };
+
+    static final String[] UNITS = { "°C", "hPa", "mm", "km/h", "%", "ppm" };
+
+    private Fixtures() {
+    }
+
+    /**
+     * Random bytes of the given size (same content for the same size).
+     */
+    public static byte[] payload(int bytes) {
+        byte[] data = new byte[bytes];
+        new SplittableRandom(SEED).nextBytes(data);
+        return data;
+    }
+
+    /**
+     * Locations spread over Europe; when withIds is set they get IDs 1..count as if loaded from the database.
+     * The first deletedFraction of every hundred locations is marked deleted.
+     */
+    public static List<Location> locations(int count, double deletedFraction, boolean withIds) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        List<Location> locations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Location location = new Location();
+            if (withIds) {
+                location.setLocationId((long) i + 1);
+            }
+            location.setCityName(CITIES[i % CITIES.length] + (i / CITIES.length));
+            location.setPostalCode(String.format("%05d", random.nextInt(100_000)));
+            location.setLatitude((float) (35 + random.nextDouble() * 30));
+            location.setLongitude((float) (-10 + random.nextDouble() * 40));
+            location.setDeleted(i % 100 < deletedFraction * 100);
+            locations.add(location);
+        }
+        return locations;
+    }
+
+    /**
+     * Measurements over the last year, each pointing at one of the given locations.
+     */
+    public static List<Measurement> measurements(int count, List<Location> locations, double deletedFraction) {
+        SplittableRandom random = new SplittableRandom(SEED + 1);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        List<Measurement> measurements = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Measurement measurement = new Measurement();
+            measurement.setMeasurementUnit(UNITS[i % UNITS.length]);
+            measurement.setAmount(Math.round(random.nextDouble(0.1, 1000) * 100) / 100.0);
+            measurement.setTimestamp(start.plusMinutes(random.nextInt(365 * 24 * 60)));
+            measurement.setLocation(locations.get(random.nextInt(locations.size())));
+            measurement.setDeleted(i % 100 < deletedFraction * 100);
+            measurements.add(measurement);
+        }
+        return measurements;
+    }
+
+    /**
+     * Images with payloads of the given size, owned by 50 different users.
+     */
+    public static List<Image> images(int count, int payloadBytes, double deletedFraction) {
+        byte[] data = payload(payloadBytes);
+        List<Image> images = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            images.add(Image.builder()
+                    .owner("owner" + (i % 50))
+                    .title("Image " + i)
+                    .description("Synthetic benchmark image " + i)
+                    .contentType(i % 10 == 0 ? "application/pdf" : "image/png")
+                    .data(data)
+                    .uploadDate(LocalDateTime.of(2024, 1, 1, 0, 0).plusHours(i))
+                    .deleted(i % 100 < deletedFraction * 100)
+                    .build());
+        }
+        return images;
+    }
+
+    /**
+     * A location repository that only answers findAllActive, from memory.
+     */
+    public static LocationRepository locationRepository(List<Location> locations) {
+        List<Location> active = locations.stream().filter(l -> !l.isDeleted()).toList();
+        return stub(LocationRepository.class, Map.of("findAllActive", args -> active));
+    }
+
+    /**
+     * An image repository whose findById always returns the given image.
+     */
+    public static ImageRepository imageRepository(Image image) {
+        return stub(ImageRepository.class, Map.of("findById", args -> Optional.of(image)));
+    }
+
+    /**
+     * A user repository whose findByUsername always returns the given user.
+     */
+    public static UserRepository userRepository(User user) {
+        return stub(UserRepository.class, Map.of("findByUsername", args -> Optional.of(user)));
+    }
+
+    /**
+     * Implements a repository interface with the given answers; any other call fails,
+     * so a benchmark can never silently measure an unstubbed method.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T stub(Class<T> type, Map<String, Function<Object[], Object>> answers) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+            Function<Object[], Object> answer = answers.get(method.getName());
+            if (answer != null) {
+                return answer.apply(args);
+            }
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> type.getSimpleName() + " stub";
+                };
+            }
+            throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName() + " is not stubbed");
+        });
+    }
+}
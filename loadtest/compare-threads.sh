@@ -0,0 +1,31 @@
+#!/usr/bin/env bash
+# Highest sustainable request rate with platform threads vs virtual threads, at the same Hikari pool size.
+#
+#   loadtest/compare-threads.sh --db.url=jdbc:postgresql://localhost:5432/restfulweb_loadtest --reset=true
+#
+# Environment: POOL (Hikari pool size, default 10), RATES (open-loop steps), THREADS (client sessions,
+# must exceed Tomcat's 200 platform threads to saturate them), SLO (p99 in ms). Extra arguments are
+# passed to both runs; --reset=true only reseeds on the first run.
+set -euo pipefail
+
+JAR=${JAR:-$(dirname "$0")/target/loadtest.jar}
+POOL=${POOL:-10}
+RATES=${RATES:-50,100,200,400,800,1600,3200}
+THREADS=${THREADS:-400}
+SLO=${SLO:-500}
+OUT=${OUT:-loadtest-results/threads-$(date +%Y%m%d-%H%M%S)}
+
+first=true
+for virtual in false true; do
+    args=("$@")
+    if [ "$first" = false ]; then
+        args=("${args[@]/--reset=true/--reset=false}")
+    fi
+    first=false
+    echo "=== spring.threads.virtual.enabled=$virtual, hikari.maximum-pool-size=$POOL ==="
+    java -jar "$JAR" --threads="$THREADS" --users=50 --warmup=10 --duration=30 \
+        --rates="$RATES" --slo-p99-ms="$SLO" --out="$OUT/virtual-$virtual" \
+        --app.spring.threads.virtual.enabled="$virtual" \
+        --app.spring.datasource.hikari.maximum-pool-size="$POOL" \
+        "${args[@]}" | grep -E '^( *target|[ 0-9]+ |Max sustainable)'
+done
@@ -0,0 +1,189 @@
+package com.wefky.RESTfulWeb.loadtest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.wefky.RESTfulWeb.entity.Image;
+import com.wefky.RESTfulWeb.entity.Location;
+import com.wefky.RESTfulWeb.entity.Measurement;
+import com.wefky.RESTfulWeb.repository.ImageRepository;
+import com.wefky.RESTfulWeb.repository.LocationRepository;
+import com.wefky.RESTfulWeb.repository.MeasurementRepository;
+import com.wefky.RESTfulWeb.service.UserService;
+
+/**
+ * Seeds a synthetic dataset through the application's repositories.
+ *
+ * The same seed and volumes always produce the same rows (only the generated IDs differ),
+ * so runs against a reset database are comparable. Rows are saved in chunks, one transaction
+ * per chunk, to keep the persistence context small.
+ */
+final class DatasetSeeder {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatasetSeeder.class);
+
+    static final String[] CITIES = {
+            "Paris", "Helsinki", "Berlin", "Madrid", "Rome", "Vienna", "Oslo", "Lisbon",
+            "Prague", "Warsaw", "Dublin", "Athens", "Tampere", "Espoo", "Zürich", "Saint-Étienne"
+    };
+
+    static final String[] UNITS = { "°C", "hPa", "mm", "km/h", "%", "ppm" };
+
+    static final String USER_PREFIX = "loaduser";
+
+    private static final int CHUNK_SIZE = 1_000;
+
+    /**
+     * What the workers need to know about the seeded data.
+     *
+     * @param locationIds    IDs of active locations
+     * @param measurementIds IDs of active measurements
+     * @param imageIds       IDs of active images
+     */
+    record Dataset(long[] locationIds, long[] measurementIds, long[] imageIds) {
+    }
+
+    private final LocationRepository locationRepository;
+    private final MeasurementRepository measurementRepository;
+    private final ImageRepository imageRepository;
+    private final UserService userService;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+
+    DatasetSeeder(LocationRepository locationRepository, MeasurementRepository measurementRepository,
+                  ImageRepository imageRepository, UserService userService,
+                  TransactionTemplate transactionTemplate, JdbcTemplate jdbcTemplate) {
+        this.locationRepository = locationRepository;
+        this.measurementRepository = measurementRepository;
+        this.imageRepository = imageRepository;
+        this.userService = userService;
+        this.transactionTemplate = transactionTemplate;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Creates the load-test users, then seeds locations, measurements and images unless the
+     * database already holds locations and no reset was requested.
+     */
+    Dataset seed(LoadTestOptions options) {
+        for (int i = 0; i < options.users(); i++) {
+            userService.registerUser(USER_PREFIX + i, options.password(), Set.of("ROLE_USER"));
+        }
+
+        if (options.reset()) {
+            transactionTemplate.executeWithoutResult(status -> {
+                measurementRepository.deleteAllInBatch();
+                // The file data are large objects that a row DELETE would leave behind.
+                jdbcTemplate.queryForObject("SELECT count(lo_unlink(i.data)) FROM images i WHERE EXISTS "
+                        + "(SELECT 1 FROM pg_largeobject_metadata m WHERE m.oid = i.data)", Long.class);
+                imageRepository.deleteAllInBatch();
+                locationRepository.deleteAllInBatch();
+            });
+            logger.info("Deleted all locations, measurements and images.");
+        }
+
+        if (locationRepository.count() > 0) {
+            logger.info("Database already holds data; reusing it (pass --reset=true to reseed).");
+        } else {
+            long started = System.nanoTime();
+            List<Location> locations = seedLocations(options);
+            seedMeasurements(options, locations);
+            seedImages(options);
+            logger.info("Seeded {} locations, {} measurements and {} images in {} s.",
+                    options.locations(), options.measurements(), options.images(),
+                    (System.nanoTime() - started) / 1_000_000_000);
+        }
+
+        return new Dataset(
+                ids("SELECT location_id FROM locations WHERE deleted = false ORDER BY location_id"),
+                ids("SELECT measurement_id FROM measurements WHERE deleted = false ORDER BY measurement_id"),
+                ids("SELECT image_id FROM images WHERE deleted = false ORDER BY image_id"));
+    }
+
+    private List<Location> seedLocations(LoadTestOptions options) {
+        SplittableRandom random = new SplittableRandom(options.seed());
+        List<Location> chunk = new ArrayList<>(CHUNK_SIZE);
+        List<Location> saved = new ArrayList<>(options.locations());
+        for (int i = 0; i < options.locations(); i++) {
+            Location location = new Location();
+            location.setCityName(CITIES[i % CITIES.length] + (i < CITIES.length ? "" : " " + (i / CITIES.length)));
+            location.setPostalCode(String.format("%05d", random.nextInt(100_000)));
+            location.setLatitude((float) (35 + random.nextDouble() * 30));
+            location.setLongitude((float) (-10 + random.nextDouble() * 40));
+            location.setDeleted(isDeleted(i, options));
+            chunk.add(location);
+            if (chunk.size() == CHUNK_SIZE || i == options.locations() - 1) {
+                saved.addAll(saveChunk(locationRepository::saveAll, chunk));
+                chunk.clear();
+            }
+        }
+        return saved;
+    }
+
+    private void seedMeasurements(LoadTestOptions options, List<Location> locations) {
+        SplittableRandom random = new SplittableRandom(options.seed() + 1);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        List<Measurement> chunk = new ArrayList<>(CHUNK_SIZE);
+        for (int i = 0; i < options.measurements(); i++) {
+            Measurement measurement = new Measurement();
+            measurement.setMeasurementUnit(UNITS[i % UNITS.length]);
+            measurement.setAmount(Math.round(random.nextDouble(0.1, 1000) * 100) / 100.0);
+            measurement.setTimestamp(start.plusMinutes(random.nextInt(365 * 24 * 60)));
+            measurement.setLocation(locations.get(random.nextInt(locations.size())));
+            measurement.setDeleted(isDeleted(i, options));
+            chunk.add(measurement);
+            if (chunk.size() == CHUNK_SIZE || i == options.measurements() - 1) {
+                saveChunk(measurementRepository::saveAll, chunk);
+                chunk.clear();
+            }
+            if ((i + 1) % 10_000 == 0) {
+                logger.info("Seeded {} of {} measurements.", i + 1, options.measurements());
+            }
+        }
+    }
+
+    private void seedImages(LoadTestOptions options) {
+        SplittableRandom random = new SplittableRandom(options.seed() + 2);
+        byte[] data = new byte[options.imageBytes()];
+        random.nextBytes(data);
+        // Images are large, so they are saved in small chunks.
+        List<Image> chunk = new ArrayList<>();
+        for (int i = 0; i < options.images(); i++) {
+            chunk.add(Image.builder()
+                    .owner(USER_PREFIX + (i % options.users()))
+                    .title("Load test image " + i)
+                    .description("Synthetic image " + i + " for the load test")
+                    .contentType(i % 10 == 0 ? "application/pdf" : "image/png")
+                    .data(data)
+                    .uploadDate(LocalDateTime.of(2024, 1, 1, 0, 0).plusHours(i))
+                    .deleted(isDeleted(i, options))
+                    .build());
+            if (chunk.size() == 20 || i == options.images() - 1) {
+                saveChunk(imageRepository::saveAll, chunk);
+                chunk.clear();
+            }
+        }
+    }
+
+    private <T> List<T> saveChunk(Function<List<T>, List<T>> saveAll, List<T> chunk) {
+        return transactionTemplate.execute(status -> saveAll.apply(chunk));
+    }
+
+    /** Marks the first deletedPercent rows of every hundred as deleted. */
+    private static boolean isDeleted(int index, LoadTestOptions options) {
+        return index % 100 < options.deletedPercent();
+    }
+
+    private long[] ids(String sql) {
+        return jdbcTemplate.queryForList(sql, Long.class).stream().mapToLong(Long::longValue).toArray();
+    }
+}
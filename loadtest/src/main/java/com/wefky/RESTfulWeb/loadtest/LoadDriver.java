@@ -0,0 +1,129 @@
+package com.wefky.RESTfulWeb.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.wefky.RESTfulWeb.loadtest.DatasetSeeder.Dataset;
+
+/**
+ * Runs one worker (virtual) thread per session for the warm-up and the measured window.
+ *
+ * Closed loop (rate 0): each worker sends its next request as soon as the previous one finished.
+ * Open loop (rate > 0): each worker sends on a fixed schedule and latency is measured from the
+ * scheduled start, so a slow response also counts against the requests queued behind it
+ * (no coordinated omission).
+ */
+final class LoadDriver {
+
+    private final LoadTestOptions options;
+    private final Dataset dataset;
+    private final Scenario[] scenarios;
+    private final int[] cumulativeWeights;
+
+    LoadDriver(LoadTestOptions options, Dataset dataset) {
+        this.options = options;
+        this.dataset = dataset;
+        List<Scenario> enabled = new ArrayList<>();
+        List<Integer> cumulative = new ArrayList<>();
+        int total = 0;
+        for (Map.Entry<Scenario, Integer> entry : options.mix().entrySet()) {
+            if (entry.getValue() > 0) {
+                total += entry.getValue();
+                enabled.add(entry.getKey());
+                cumulative.add(total);
+            }
+        }
+        this.scenarios = enabled.toArray(Scenario[]::new);
+        this.cumulativeWeights = cumulative.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Runs the load and returns the merged report of the measured window.
+     *
+     * @param rate total requests per second, or 0 for closed loop
+     */
+    LoadReport run(List<Session> sessions, double rate) throws InterruptedException {
+        long start = System.nanoTime();
+        long recordFrom = start + TimeUnit.SECONDS.toNanos(options.warmupSeconds());
+        long end = recordFrom + TimeUnit.SECONDS.toNanos(options.durationSeconds());
+        long intervalNanos = rate > 0 ? (long) (sessions.size() * 1e9 / rate) : 0;
+
+        List<LoadReport> reports = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < sessions.size(); i++) {
+            Session session = sessions.get(i);
+            LoadReport report = new LoadReport();
+            SplittableRandom random = new SplittableRandom(options.seed() + 1_000 + i);
+            // Stagger open-loop workers so their schedules do not all fire at once.
+            long firstSend = start + (intervalNanos * i) / sessions.size();
+            reports.add(report);
+            // Workers block on HTTP, so virtual threads let the generator run thousands of sessions.
+            threads.add(Thread.ofVirtual().name("load-worker-" + i).start(() ->
+                    work(session, report, random, firstSend, intervalNanos, recordFrom, end)));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        LoadReport merged = new LoadReport();
+        reports.forEach(merged::add);
+        return merged;
+    }
+
+    private void work(Session session, LoadReport report, SplittableRandom random,
+                      long firstSend, long intervalNanos, long recordFrom, long end) {
+        long nextSend = firstSend;
+        while (true) {
+            long intendedStart;
+            if (intervalNanos > 0) {
+                intendedStart = nextSend;
+                nextSend += intervalNanos;
+                long wait;
+                while ((wait = intendedStart - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            } else {
+                intendedStart = System.nanoTime();
+            }
+            if (intendedStart >= end || Thread.currentThread().isInterrupted()) {
+                return;
+            }
+
+            Scenario scenario = pick(random);
+            boolean record = intendedStart >= recordFrom;
+            try {
+                int status = session.send(scenario.build(dataset, random));
+                long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedStart);
+                if (!record) {
+                    continue;
+                }
+                if (status >= 200 && status < 300) {
+                    report.recordSuccess(scenario, latencyMicros);
+                } else {
+                    report.recordError(scenario);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                if (record) {
+                    report.recordError(scenario);
+                }
+            }
+        }
+    }
+
+    private Scenario pick(SplittableRandom random) {
+        int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return scenarios[i];
+            }
+        }
+        return scenarios[scenarios.length - 1];
+    }
+}
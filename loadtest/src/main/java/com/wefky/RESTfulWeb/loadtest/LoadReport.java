@@ -0,0 +1,128 @@
+package com.wefky.RESTfulWeb.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * Latency histograms and error counts per scenario.
+ *
+ * Latencies are recorded in microseconds. Each worker fills its own report, and the reports
+ * are merged when the run ends, so recording never contends between workers.
+ */
+final class LoadReport {
+
+    /** Highest trackable latency: one minute, in microseconds. */
+    private static final long MAX_LATENCY_MICROS = 60_000_000L;
+
+    private final Map<Scenario, Histogram> histograms = new EnumMap<>(Scenario.class);
+    /** Requests sent, including failed ones (the histograms only hold successful requests). */
+    private final Map<Scenario, Long> requests = new EnumMap<>(Scenario.class);
+    private final Map<Scenario, Long> errors = new EnumMap<>(Scenario.class);
+
+    void recordSuccess(Scenario scenario, long latencyMicros) {
+        requests.merge(scenario, 1L, Long::sum);
+        histograms.computeIfAbsent(scenario, s -> new Histogram(MAX_LATENCY_MICROS, 3))
+                .recordValue(Math.min(Math.max(latencyMicros, 1), MAX_LATENCY_MICROS));
+    }
+
+    void recordError(Scenario scenario) {
+        requests.merge(scenario, 1L, Long::sum);
+        errors.merge(scenario, 1L, Long::sum);
+    }
+
+    void add(LoadReport other) {
+        other.histograms.forEach((scenario, histogram) ->
+                histograms.computeIfAbsent(scenario, s -> new Histogram(MAX_LATENCY_MICROS, 3)).add(histogram));
+        other.requests.forEach((scenario, count) -> requests.merge(scenario, count, Long::sum));
+        other.errors.forEach((scenario, count) -> errors.merge(scenario, count, Long::sum));
+    }
+
+    /**
+     * Prints throughput and percentiles per scenario.
+     *
+     * @param seconds length of the recorded window
+     */
+    void print(PrintStream out, double seconds) {
+        out.printf(Locale.ROOT, "%-48s %9s %7s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        long totalRequests = 0, totalErrors = 0;
+        for (Scenario scenario : Scenario.values()) {
+            long count = requests.getOrDefault(scenario, 0L);
+            if (count == 0) {
+                continue;
+            }
+            Histogram histogram = histograms.get(scenario);
+            long errorCount = errors.getOrDefault(scenario, 0L);
+            totalRequests += count;
+            totalErrors += errorCount;
+            out.printf(Locale.ROOT, "%-48s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n",
+                    scenario.endpoint(), count, errorCount, count / seconds,
+                    percentile(histogram, 50), percentile(histogram, 99), percentile(histogram, 99.9),
+                    histogram == null ? 0 : histogram.getMaxValue() / 1000.0);
+        }
+        out.printf(Locale.ROOT, "%-48s %9d %7d %9.1f%n", "total", totalRequests, totalErrors, totalRequests / seconds);
+    }
+
+    /**
+     * Writes one HdrHistogram percentile distribution (.hgrm, in milliseconds) per scenario
+     * and a summary.csv to the directory.
+     */
+    void write(Path directory, double seconds) throws IOException {
+        Files.createDirectories(directory);
+        try (PrintStream summary = new PrintStream(Files.newOutputStream(directory.resolve("summary.csv")), true, "UTF-8")) {
+            summary.println("scenario,endpoint,requests,errors,throughput_per_s,p50_ms,p99_ms,p999_ms,max_ms");
+            for (Map.Entry<Scenario, Long> entry : requests.entrySet()) {
+                Scenario scenario = entry.getKey();
+                Histogram histogram = histograms.get(scenario);
+                if (histogram != null) {
+                    try (PrintStream hgrm = new PrintStream(
+                            Files.newOutputStream(directory.resolve(scenario.optionName() + ".hgrm")), true, "UTF-8")) {
+                        histogram.outputPercentileDistribution(hgrm, 1000.0);
+                    }
+                }
+                long count = entry.getValue();
+                summary.printf(Locale.ROOT, "%s,%s,%d,%d,%.2f,%.3f,%.3f,%.3f,%.3f%n",
+                        scenario.optionName(), scenario.endpoint(), count, errors.getOrDefault(scenario, 0L),
+                        count / seconds, percentile(histogram, 50), percentile(histogram, 99),
+                        percentile(histogram, 99.9), histogram == null ? 0 : histogram.getMaxValue() / 1000.0);
+            }
+        }
+    }
+
+    /**
+     * Totals over all scenarios.
+     *
+     * @param requests   requests sent
+     * @param errors     failed requests
+     * @param throughput requests per second
+     * @param p50Millis  median latency of successful requests
+     * @param p99Millis  99th percentile latency
+     * @param p999Millis 99.9th percentile latency
+     */
+    record Totals(long requests, long errors, double throughput, double p50Millis, double p99Millis, double p999Millis) {
+
+        double errorRate() {
+            return requests == 0 ? 0 : (double) errors / requests;
+        }
+    }
+
+    Totals totals(double seconds) {
+        Histogram all = new Histogram(MAX_LATENCY_MICROS, 3);
+        histograms.values().forEach(all::add);
+        long count = requests.values().stream().mapToLong(Long::longValue).sum();
+        long errorCount = errors.values().stream().mapToLong(Long::longValue).sum();
+        return new Totals(count, errorCount, count / seconds,
+                percentile(all, 50), percentile(all, 99), percentile(all, 99.9));
+    }
+
+    private static double percentile(Histogram histogram, double percentile) {
+        return histogram == null ? 0 : histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+}
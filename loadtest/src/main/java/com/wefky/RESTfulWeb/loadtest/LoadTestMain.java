@@ -0,0 +1,165 @@
+package com.wefky.RESTfulWeb.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.wefky.RESTfulWeb.ResTfulWebApplication;
+import com.wefky.RESTfulWeb.loadtest.DatasetSeeder.Dataset;
+import com.wefky.RESTfulWeb.repository.ImageRepository;
+import com.wefky.RESTfulWeb.repository.LocationRepository;
+import com.wefky.RESTfulWeb.repository.MeasurementRepository;
+import com.wefky.RESTfulWeb.service.UserService;
+
+/**
+ * Entry point of the load test.
+ *
+ * 1. Seeds the dataset and the users through the application's repositories (web server off).
+ * 2. Starts the application in-process, unless --target points at a running one.
+ * 3. Logs in one session per worker and drives the scenario mix for warm-up plus duration.
+ * 4. Prints throughput and latency percentiles per endpoint and writes the HDR histograms;
+ *    with --rates, steps through open-loop rates and reports the highest sustainable one.
+ *    With --mode=wire, steps 3 and 4 are replaced by {@link WireBenchmark}.
+ */
+public final class LoadTestMain {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadTestMain.class);
+
+    private LoadTestMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options;
+        try {
+            options = LoadTestOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.printf(LoadTestOptions.USAGE, Arrays.stream(Scenario.values())
+                    .map(Scenario::optionName).collect(Collectors.joining(", ")));
+            System.exit(2);
+            return;
+        }
+
+        Dataset dataset;
+        try (ConfigurableApplicationContext context = startApplication(options, -1)) {
+            dataset = new DatasetSeeder(
+                    context.getBean(LocationRepository.class),
+                    context.getBean(MeasurementRepository.class),
+                    context.getBean(ImageRepository.class),
+                    context.getBean(UserService.class),
+                    context.getBean(TransactionTemplate.class),
+                    context.getBean(JdbcTemplate.class)).seed(options);
+        }
+        logger.info("Dataset: {} active locations, {} active measurements, {} active images.",
+                dataset.locationIds().length, dataset.measurementIds().length, dataset.imageIds().length);
+        if (dataset.locationIds().length == 0 || dataset.measurementIds().length == 0
+                || (dataset.imageIds().length == 0 && options.mix().get(Scenario.API_IMAGE_FILE) > 0)) {
+            throw new IllegalStateException("The dataset needs active locations, measurements and images "
+                    + "(or disable the image scenario with --mix=api_image_file=0).");
+        }
+
+        ConfigurableApplicationContext target = null;
+        try {
+            URI baseUri;
+            if (options.target() != null) {
+                baseUri = URI.create(options.target());
+            } else {
+                target = startApplication(options, options.port());
+                baseUri = URI.create("http://localhost:" + target.getEnvironment().getProperty("local.server.port"));
+            }
+            if (options.mode() == LoadTestOptions.Mode.WIRE) {
+                logger.info("Measuring bytes on the wire and page loads against {}.", baseUri);
+                new WireBenchmark(options, baseUri, dataset).run();
+                logger.info("Results written to {}.", options.out().toAbsolutePath());
+                return;
+            }
+            logger.info("Logging in {} sessions against {}.", options.threads(), baseUri);
+            HttpClient client = Session.newClient();
+            List<Session> sessions = new ArrayList<>();
+            for (int i = 0; i < options.threads(); i++) {
+                sessions.add(Session.login(client, baseUri,
+                        DatasetSeeder.USER_PREFIX + (i % options.users()), options.password()));
+            }
+
+            LoadDriver driver = new LoadDriver(options, dataset);
+            if (options.rates().isEmpty()) {
+                logger.info("Running {} s warm-up and {} s measured load with {} workers ({}).",
+                        options.warmupSeconds(), options.durationSeconds(), options.threads(),
+                        options.rate() > 0 ? options.rate() + " req/s open loop" : "closed loop");
+                LoadReport report = driver.run(sessions, options.rate());
+                report.print(System.out, options.durationSeconds());
+                report.write(options.out(), options.durationSeconds());
+            } else {
+                sweep(options, driver, sessions);
+            }
+            logger.info("Histograms written to {}.", options.out().toAbsolutePath());
+        } finally {
+            if (target != null) {
+                target.close();
+            }
+        }
+    }
+
+    /**
+     * Runs the open-loop rates in ascending order until one is not sustainable: it must reach
+     * 95% of the target rate with under 1% errors and a p99 within the SLO.
+     */
+    private static void sweep(LoadTestOptions options, LoadDriver driver, List<Session> sessions) throws Exception {
+        double seconds = options.durationSeconds();
+        List<String> lines = new ArrayList<>();
+        double maxSustainable = 0;
+        for (double rate : options.rates().stream().sorted().toList()) {
+            logger.info("Step at {} req/s: {} s warm-up, {} s measured.", rate, options.warmupSeconds(), options.durationSeconds());
+            LoadReport report = driver.run(sessions, rate);
+            report.write(options.out().resolve(String.format(Locale.ROOT, "rate-%.0f", rate)), seconds);
+            LoadReport.Totals totals = report.totals(seconds);
+            boolean sustainable = totals.throughput() >= 0.95 * rate && totals.errorRate() < 0.01
+                    && totals.p99Millis() <= options.sloP99Millis();
+            lines.add(String.format(Locale.ROOT, "%10.0f %12.1f %8.2f %9.2f %9.2f %9.2f  %s", rate, totals.throughput(),
+                    totals.errorRate() * 100, totals.p50Millis(), totals.p99Millis(), totals.p999Millis(),
+                    sustainable ? "yes" : "no"));
+            if (!sustainable) {
+                break;
+            }
+            maxSustainable = rate;
+        }
+        System.out.printf(Locale.ROOT, "%10s %12s %8s %9s %9s %9s  %s%n",
+                "target/s", "achieved/s", "errors%", "p50 ms", "p99 ms", "p99.9 ms", "sustainable");
+        lines.forEach(System.out::println);
+        System.out.printf(Locale.ROOT, "Max sustainable rate: %.0f req/s (p99 <= %.0f ms)%n", maxSustainable, options.sloP99Millis());
+    }
+
+    /**
+     * Starts the application against the load-test database.
+     *
+     * @param port the HTTP port, 0 for a free one or -1 for no web server (seeding only)
+     */
+    private static ConfigurableApplicationContext startApplication(LoadTestOptions options, int port) {
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.datasource.url=" + options.dbUrl(),
+                "--spring.datasource.username=" + options.dbUser(),
+                "--spring.datasource.password=" + options.dbPassword(),
+                "--server.port=" + port,
+                "--spring.main.banner-mode=off",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN",
+                "--logging.level.org.springframework=WARN",
+                "--logging.level.org.hibernate.SQL=WARN",
+                "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+                "--logging.level.com.wefky.RESTfulWeb=WARN",
+                "--logging.level.com.wefky.RESTfulWeb.loadtest=INFO"));
+        args.addAll(options.appArgs());
+        return SpringApplication.run(ResTfulWebApplication.class, args.toArray(String[]::new));
+    }
+}
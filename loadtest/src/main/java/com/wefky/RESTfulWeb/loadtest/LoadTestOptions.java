@@ -0,0 +1,167 @@
+package com.wefky.RESTfulWeb.loadtest;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Command line options of the load test, given as --name=value.
+ *
+ * @param dbUrl         JDBC URL of the database to seed (and of the in-process application)
+ * @param dbUser        database user
+ * @param dbPassword    database password
+ * @param target        base URL of an already running application; null starts one in-process on {@code port}
+ * @param port          port of the in-process application (0 picks a free port)
+ * @param reset         delete all locations, measurements and images before seeding
+ * @param seed          random seed of the dataset and of the request mix
+ * @param locations     number of locations to seed
+ * @param measurements  number of measurements to seed
+ * @param images        number of images to seed
+ * @param imageBytes    size of each seeded image payload
+ * @param deletedPercent share of seeded rows that start in the trash
+ * @param users         number of seeded users the workers log in as
+ * @param password      password of the seeded users
+ * @param threads       number of concurrent workers, each with its own session
+ * @param rate          total requests per second (open loop); 0 runs closed loop as fast as possible
+ * @param rates         open-loop rates to step through to find the highest sustainable one; empty for a single run
+ * @param sloP99Millis  p99 latency a step may not exceed to count as sustainable
+ * @param warmupSeconds seconds of load before recording starts
+ * @param durationSeconds seconds of recorded load
+ * @param mix           weight per scenario
+ * @param out           directory for the .hgrm files and the summary
+ * @param appArgs       extra --name=value arguments for the in-process application (given as --app.name=value)
+ * @param mode          load runs the scenario mix; wire compares bytes on the wire and page load times
+ */
+record LoadTestOptions(String dbUrl, String dbUser, String dbPassword, String target, int port, boolean reset,
+                       long seed, int locations, int measurements, int images, int imageBytes, int deletedPercent,
+                       int users, String password, int threads, double rate, List<Double> rates,
+                       double sloP99Millis, int warmupSeconds, int durationSeconds, Map<Scenario, Integer> mix,
+                       Path out, List<String> appArgs, Mode mode) {
+
+    enum Mode {
+        /** Drives the scenario mix (default). */
+        LOAD,
+        /** Compares response sizes with and without gzip and page loads over HTTP/1.1 and h2c. */
+        WIRE
+    }
+
+    static final String USAGE = """
+            Usage: java -jar loadtest.jar [--name=value ...]
+              --db.url=jdbc:postgresql://localhost:5432/restfulweb_loadtest
+              --db.user=postgres --db.password=postgres
+              --target=http://localhost:8080   drive a running application instead of starting one in-process
+              --port=0                         port of the in-process application
+              --reset=false                    delete existing locations, measurements and images, then seed
+              --seed=42
+              --locations=1000 --measurements=100000 --images=100 --image-bytes=32768 --deleted-percent=5
+              --users=20 --password=loadtest
+              --threads=16 --rate=0 --warmup=15 --duration=60
+              --rates=100,200,400 --slo-p99-ms=500   step through open-loop rates, report the highest sustainable one
+              --app.spring.threads.virtual.enabled=true   any --app.<property> is passed to the in-process application
+              --mix=api_image_file=30,web_images=0   override scenario weights (0 disables a scenario)
+              --mode=load                      wire: bytes on the wire (identity vs gzip) and page loads (HTTP/1.1 vs h2c)
+              --out=loadtest-results/<timestamp>
+            Scenarios: %s
+            """;
+
+    static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        List<String> appArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            if (arg.startsWith("--app.")) {
+                appArgs.add("--" + arg.substring("--app.".length()));
+                continue;
+            }
+            int eq = arg.indexOf('=');
+            values.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        List<Double> rates = new ArrayList<>();
+        String ratesValue = values.remove("rates");
+        if (ratesValue != null && !ratesValue.isBlank()) {
+            for (String rate : ratesValue.split(",")) {
+                rates.add(Double.parseDouble(rate.trim()));
+            }
+            if (rates.stream().anyMatch(r -> r <= 0)) {
+                throw new IllegalArgumentException("Rates must be positive.");
+            }
+        }
+
+        Map<Scenario, Integer> mix = new EnumMap<>(Scenario.class);
+        for (Scenario scenario : Scenario.values()) {
+            mix.put(scenario, scenario.defaultWeight());
+        }
+        String mixValue = values.remove("mix");
+        if (mixValue != null && !mixValue.isBlank()) {
+            for (String entry : mixValue.split(",")) {
+                String[] parts = entry.split("=", 2);
+                if (parts.length != 2) {
+                    throw new IllegalArgumentException("Expected scenario=weight in --mix but got: " + entry);
+                }
+                int weight = Integer.parseInt(parts[1].trim());
+                if (weight < 0) {
+                    throw new IllegalArgumentException("Scenario weights must not be negative: " + entry);
+                }
+                mix.put(Scenario.byName(parts[0].trim()), weight);
+            }
+        }
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("At least one scenario needs a positive weight.");
+        }
+
+        String stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        LoadTestOptions options = new LoadTestOptions(
+                text(values, "db.url", "jdbc:postgresql://localhost:5432/restfulweb_loadtest"),
+                text(values, "db.user", "postgres"),
+                text(values, "db.password", "postgres"),
+                text(values, "target", null),
+                number(values, "port", 0),
+                Boolean.parseBoolean(text(values, "reset", "false")),
+                Long.parseLong(text(values, "seed", "42")),
+                number(values, "locations", 1_000),
+                number(values, "measurements", 100_000),
+                number(values, "images", 100),
+                number(values, "image-bytes", 32 * 1024),
+                number(values, "deleted-percent", 5),
+                number(values, "users", 20),
+                text(values, "password", "loadtest"),
+                number(values, "threads", 16),
+                Double.parseDouble(text(values, "rate", "0")),
+                List.copyOf(rates),
+                Double.parseDouble(text(values, "slo-p99-ms", "500")),
+                number(values, "warmup", 15),
+                number(values, "duration", 60),
+                mix,
+                Path.of(text(values, "out", "loadtest-results/" + stamp)),
+                List.copyOf(appArgs),
+                Mode.valueOf(text(values, "mode", "load").toUpperCase(Locale.ROOT)));
+        if (!values.isEmpty()) {
+            throw new IllegalArgumentException("Unknown options: " + values.keySet());
+        }
+        if (options.locations() < 1 || options.users() < 1 || options.threads() < 1 || options.durationSeconds() < 1) {
+            throw new IllegalArgumentException("locations, users, threads and duration must be at least 1.");
+        }
+        if (options.deletedPercent() < 0 || options.deletedPercent() > 100) {
+            throw new IllegalArgumentException("deleted-percent must be between 0 and 100.");
+        }
+        return options;
+    }
+
+    private static String text(Map<String, String> values, String name, String defaultValue) {
+        String value = values.remove(name);
+        return value == null ? defaultValue : value;
+    }
+
+    private static int number(Map<String, String> values, String name, int defaultValue) {
+        String value = values.remove(name);
+        return value == null ? defaultValue : Integer.parseInt(value.replace("_", ""));
+    }
+}
@@ -0,0 +1,179 @@
+package com.wefky.RESTfulWeb.loadtest;
+
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+import com.wefky.RESTfulWeb.loadtest.DatasetSeeder.Dataset;
+
+/**
+ * The requests a worker can send, with their default share of the mix.
+ *
+ * Each scenario builds one request against the seeded data; reads dominate the default
+ * mix, as they do for the web pages and the REST clients in production.
+ */
+enum Scenario {
+
+    API_MEASUREMENTS_LIST("GET /api/measurements", 2) {
+        @Override
+        Request build(Dataset data, SplittableRandom random) {
+            return Request.get("/api/measurements");
+        }
+    },
+    API_MEASUREMENTS_FILTER("GET /api/measurements?cityName&measurementUnit", 15) {
+        @Override
+        Request build(Dataset data, SplittableRandom random) {
+            return Request.get("/api/measurements?cityName=" + encode(pick(DatasetSeeder.CITIES, random))
+                    + "&measurementUnit=" + encode(pick(DatasetSeeder.UNITS, random)));
+        }
+    },
+    API_MEASUREMENT_GET("GET /api/measurements/{id}", 15) {
+        @Override
+        Request build(Dataset data, SplittableRandom random) {
+            return Request.get("/api/measurements/" + pick(data.measurementIds(), random));
+        }
+    },
+    API_MEASUREMENT_CREATE("POST /api/measurements", 5) {
+        @Override
+        Request build(Dataset data, SplittableRandom random) {
+            return Request.json("POST", "/api/measurements", measurementJson(data, random));
+        }
+    },
+    API_MEASUREMENT_UPDATE("PUT /api/measurements/{id}", 3) {
+        @Override
+        Request build(Dataset data, SplittableRandom random) {
+            return Request.json("PUT", "/api/measurements/" + pick(data.measurementIds(), random),
+                    measurementJson(data, random));
+        }
+    },
+    API_LOCATIONS_LIST("GET /api/locations", 5) {
+        @Override
+        Request build(Dataset data, SplittableRandom random) {
+            return Request.get("/api/locations");
+        }
+    },
+    API_LOCATION_GET("GET /api/locations/{id}", 15) {
+        @Override
+        Request build(Dataset data, SplittableRandom random) {
+            return Request.get("/api/locations/" + pick(data.locationIds(), random));
+        }
+    },
+    API_LOCATION_CREATE("POST /api/locations", 2) {
+        @Override
+        Request build(Dataset data, SplittableRandom random) {
+            String body = String.format(Locale.ROOT,
+                    "{\"cityName\":\"%s\",\"postalCode\":\"%05d\",\"latitude\":%.5f,\"longitude\":%.5f}",
+                    pick(DatasetSeeder.CITIES, random) + " load", random.nextInt(100_000),
+                    35 + random.nextDouble() * 30, -10 + random.nextDouble() * 40);
+            return Request.json("POST", "/api/locations", body);
+        }
+    },
+    API_IMAGE_FILE("GET /api/images/{id}/file", 15) {
+        @Override
+        Request build(Dataset data, SplittableRandom random) {
+            return Request.get("/api/images/" + pick(data.imageIds(), random) + "/file");
+        }
+    },
+    WEB_MEASUREMENTS("GET /web/measurements", 8) {
+        @Override
+        Request build(Dataset data, SplittableRandom random) {
+            return Request.get("/web/measurements?cityName=" + encode(pick(DatasetSeeder.CITIES, random)));
+        }
+    },
+    WEB_LOCATIONS("GET /web/locations", 6) {
+        @Override
+        Request build(Dataset data, SplittableRandom random) {
+            return Request.get("/web/locations");
+        }
+    },
+    WEB_IMAGES("GET /web/images", 2) {
+        @Override
+        Request build(Dataset data, SplittableRandom random) {
+            return Request.get("/web/images");
+        }
+    },
+    WEB_MEASUREMENTS_TRASH("GET /web/measurements/trash", 2) {
+        @Override
+        Request build(Dataset data, SplittableRandom random) {
+            return Request.get("/web/measurements/trash");
+        }
+    };
+
+    /**
+     * A request relative to the target's base URL.
+     *
+     * @param method HTTP method
+     * @param path   path and query
+     * @param body   JSON body, or null
+     */
+    record Request(String method, String path, String body) {
+
+        static Request get(String path) {
+            return new Request("GET", path, null);
+        }
+
+        static Request json(String method, String path, String body) {
+            return new Request(method, path, body);
+        }
+
+        HttpRequest.BodyPublisher publisher() {
+            return body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body);
+        }
+    }
+
+    private final String endpoint;
+    private final int defaultWeight;
+
+    Scenario(String endpoint, int defaultWeight) {
+        this.endpoint = endpoint;
+        this.defaultWeight = defaultWeight;
+    }
+
+    abstract Request build(Dataset data, SplittableRandom random);
+
+    /** The endpoint as shown in the report. */
+    String endpoint() {
+        return endpoint;
+    }
+
+    int defaultWeight() {
+        return defaultWeight;
+    }
+
+    /** The option name of the scenario, e.g. api_image_file. */
+    String optionName() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    static Scenario byName(String name) {
+        for (Scenario scenario : values()) {
+            if (scenario.optionName().equals(name.toLowerCase(Locale.ROOT))) {
+                return scenario;
+            }
+        }
+        throw new IllegalArgumentException("Unknown scenario: " + name);
+    }
+
+    private static String measurementJson(Dataset data, SplittableRandom random) {
+        LocalDateTime timestamp = LocalDateTime.of(2024, 1, 1, 0, 0).plusMinutes(random.nextInt(365 * 24 * 60));
+        return String.format(Locale.ROOT,
+                "{\"measurementUnit\":\"%s\",\"amount\":%.2f,\"timestamp\":\"%s\",\"location\":{\"locationId\":%d}}",
+                pick(DatasetSeeder.UNITS, random), random.nextDouble(0.1, 1000), timestamp,
+                pick(data.locationIds(), random));
+    }
+
+    private static String pick(String[] values, SplittableRandom random) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static long pick(long[] ids, SplittableRandom random) {
+        return ids[random.nextInt(ids.length)];
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,134 @@
+package com.wefky.RESTfulWeb.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.wefky.RESTfulWeb.loadtest.Scenario.Request;
+
+/**
+ * One logged-in user. Sessions share one HTTP client (and its connection pool) and keep
+ * their own session cookie, so thousands of sessions do not need thousands of clients.
+ */
+final class Session {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private static final Pattern CSRF_INPUT = Pattern.compile("name=\"_csrf\"\\s+value=\"([^\"]+)\"");
+
+    private static final Pattern SESSION_COOKIE = Pattern.compile("^(JSESSIONID=[^;]+)");
+
+    private final URI baseUri;
+    private final HttpClient client;
+    private volatile String cookie;
+
+    private Session(URI baseUri, HttpClient client) {
+        this.baseUri = baseUri;
+        this.client = client;
+    }
+
+    /**
+     * A client for all sessions: HTTP/1.1, no redirects (a redirect to /login is an error)
+     * and virtual threads for its internal tasks.
+     */
+    static HttpClient newClient() {
+        return newClient(HttpClient.Version.HTTP_1_1);
+    }
+
+    /**
+     * Like {@link #newClient()} with the given protocol; HTTP_2 on an http:// URI upgrades to h2c.
+     */
+    static HttpClient newClient(HttpClient.Version version) {
+        return HttpClient.newBuilder()
+                .version(version)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(TIMEOUT)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
+
+    /**
+     * Logs in through the form login (GET /login for the CSRF token, then POST /login).
+     *
+     * @throws IOException if the login page cannot be read or the credentials are rejected
+     */
+    static Session login(HttpClient client, URI baseUri, String username, String password)
+            throws IOException, InterruptedException {
+        Session session = new Session(baseUri, client);
+        HttpResponse<String> page = session.exchange(
+                HttpRequest.newBuilder(baseUri.resolve("/login")).GET(), HttpResponse.BodyHandlers.ofString());
+        Matcher csrf = CSRF_INPUT.matcher(page.body());
+        if (page.statusCode() != 200 || !csrf.find()) {
+            throw new IOException("Could not read the CSRF token from /login (status " + page.statusCode() + ").");
+        }
+
+        String form = "username=" + URLEncoder.encode(username, StandardCharsets.UTF_8)
+                + "&password=" + URLEncoder.encode(password, StandardCharsets.UTF_8)
+                + "&_csrf=" + URLEncoder.encode(csrf.group(1), StandardCharsets.UTF_8);
+        HttpResponse<Void> login = session.exchange(
+                HttpRequest.newBuilder(baseUri.resolve("/login"))
+                        .header("Content-Type", "application/x-www-form-urlencoded")
+                        .POST(HttpRequest.BodyPublishers.ofString(form)),
+                HttpResponse.BodyHandlers.discarding());
+        String location = login.headers().firstValue("Location").orElse("");
+        if (login.statusCode() != 302 || location.contains("error")) {
+            throw new IOException("Login failed for " + username + " (status " + login.statusCode()
+                    + ", redirect " + location + ").");
+        }
+        return session;
+    }
+
+    /**
+     * Sends the request and reads the whole response body, so latency covers the full transfer.
+     *
+     * @return the HTTP status code
+     */
+    int send(Request request) throws IOException, InterruptedException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(baseUri.resolve(request.path()))
+                .method(request.method(), request.publisher());
+        if (request.body() != null) {
+            builder.header("Content-Type", "application/json");
+        }
+        return exchange(builder, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    /**
+     * Sends a GET and returns the body as received, without decoding any Content-Encoding.
+     *
+     * @param acceptEncoding the Accept-Encoding header, or null to send none
+     */
+    HttpResponse<byte[]> get(String path, String acceptEncoding) throws IOException, InterruptedException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(baseUri.resolve(path)).GET();
+        if (acceptEncoding != null) {
+            builder.header("Accept-Encoding", acceptEncoding);
+        }
+        return exchange(builder, HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    /**
+     * Sends with the session cookie and keeps the cookie the server sets (a new one after login).
+     */
+    private <T> HttpResponse<T> exchange(HttpRequest.Builder builder, HttpResponse.BodyHandler<T> handler)
+            throws IOException, InterruptedException {
+        builder.timeout(TIMEOUT);
+        if (cookie != null) {
+            builder.header("Cookie", cookie);
+        }
+        HttpResponse<T> response = client.send(builder.build(), handler);
+        for (String setCookie : response.headers().allValues("Set-Cookie")) {
+            Matcher matcher = SESSION_COOKIE.matcher(setCookie);
+            if (matcher.find()) {
+                cookie = matcher.group(1);
+            }
+        }
+        return response;
+    }
+}
@@ -0,0 +1,227 @@
+package com.wefky.RESTfulWeb.loadtest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+import com.wefky.RESTfulWeb.loadtest.DatasetSeeder.Dataset;
+
+/**
+ * The --mode=wire run: what response compression and HTTP/2 change for the heavy responses.
+ *
+ * Bytes on the wire: each endpoint is fetched with Accept-Encoding identity and gzip; reports
+ * the transferred body size, the Content-Encoding the server chose and the median time.
+ *
+ * Page load: a page plus every same-origin script, style sheet, image and frame it references,
+ * fetched the way a browser would: over HTTP/1.1 with at most six connections, or over h2c with
+ * all requests multiplexed on one connection. Reports the median and p90 of the whole load.
+ */
+final class WireBenchmark {
+
+    private static final int WARMUP_RUNS = 5;
+    private static final int RUNS = 20;
+
+    /** Browsers open at most six HTTP/1.1 connections per host. */
+    private static final int HTTP1_CONNECTIONS = 6;
+
+    private static final Pattern SUBRESOURCE = Pattern.compile("(?:\\bsrc=|<link[^>]*\\bhref=)\"(/[^\"]*)\"");
+
+    private static final List<String> PAGES = List.of("/web/images", "/web/measurements", "/web/locations");
+
+    record Transfer(String path, String acceptEncoding, String contentEncoding, long bytes, double medianMillis) {
+    }
+
+    record PageLoad(String page, String protocol, int requests, long bytes, double medianMillis, double p90Millis) {
+    }
+
+    private final LoadTestOptions options;
+    private final URI baseUri;
+    private final Dataset dataset;
+
+    WireBenchmark(LoadTestOptions options, URI baseUri, Dataset dataset) {
+        this.options = options;
+        this.baseUri = baseUri;
+        this.dataset = dataset;
+    }
+
+    void run() throws IOException, InterruptedException {
+        String username = DatasetSeeder.USER_PREFIX + 0;
+        Session http1 = Session.login(Session.newClient(HttpClient.Version.HTTP_1_1), baseUri, username,
+                options.password());
+        Session http2 = Session.login(Session.newClient(HttpClient.Version.HTTP_2), baseUri, username,
+                options.password());
+
+        List<String> paths = new ArrayList<>(List.of("/api/measurements", "/api/locations"));
+        paths.addAll(PAGES);
+        if (dataset.imageIds().length > 0) {
+            paths.add("/api/images/" + dataset.imageIds()[0] + "/file");
+        }
+        List<Transfer> transfers = new ArrayList<>();
+        for (String path : paths) {
+            transfers.add(transfer(http1, path, "identity"));
+            transfers.add(transfer(http1, path, "gzip"));
+        }
+
+        List<PageLoad> pageLoads = new ArrayList<>();
+        for (String page : PAGES) {
+            pageLoads.add(pageLoad(http1, page, HTTP1_CONNECTIONS));
+            pageLoads.add(pageLoad(http2, page, Integer.MAX_VALUE));
+        }
+
+        print(System.out, transfers, pageLoads);
+        write(options.out(), transfers, pageLoads);
+    }
+
+    private Transfer transfer(Session session, String path, String acceptEncoding)
+            throws IOException, InterruptedException {
+        long[] nanos = new long[RUNS];
+        HttpResponse<byte[]> response = null;
+        for (int run = -WARMUP_RUNS; run < RUNS; run++) {
+            long start = System.nanoTime();
+            response = ok(session.get(path, acceptEncoding), path);
+            if (run >= 0) {
+                nanos[run] = System.nanoTime() - start;
+            }
+        }
+        Arrays.sort(nanos);
+        return new Transfer(path, acceptEncoding, response.headers().firstValue("Content-Encoding").orElse("-"),
+                response.body().length, percentileMillis(nanos, 0.5));
+    }
+
+    private PageLoad pageLoad(Session session, String page, int maxConcurrent)
+            throws IOException, InterruptedException {
+        long[] nanos = new long[RUNS];
+        int requests = 0;
+        long bytes = 0;
+        HttpClient.Version protocol = null;
+        for (int run = -WARMUP_RUNS; run < RUNS; run++) {
+            long start = System.nanoTime();
+            HttpResponse<byte[]> html = ok(session.get(page, "gzip"), page);
+            Set<String> resources = subresources(decode(html));
+            List<HttpResponse<byte[]>> responses = fetchAll(session, resources, maxConcurrent);
+            if (run >= 0) {
+                nanos[run] = System.nanoTime() - start;
+            }
+            requests = 1 + responses.size();
+            bytes = html.body().length + responses.stream().mapToLong(r -> r.body().length).sum();
+            protocol = responses.isEmpty() ? html.version() : responses.get(responses.size() - 1).version();
+        }
+        Arrays.sort(nanos);
+        return new PageLoad(page, protocol.toString(), requests, bytes,
+                percentileMillis(nanos, 0.5), percentileMillis(nanos, 0.9));
+    }
+
+    /**
+     * Fetches the resources in parallel, at most maxConcurrent at a time.
+     */
+    private static List<HttpResponse<byte[]>> fetchAll(Session session, Set<String> paths, int maxConcurrent)
+            throws IOException, InterruptedException {
+        Semaphore permits = new Semaphore(maxConcurrent);
+        List<Future<HttpResponse<byte[]>>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (String path : paths) {
+                futures.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        return ok(session.get(path, "gzip"), path);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+        }
+        List<HttpResponse<byte[]>> responses = new ArrayList<>();
+        for (Future<HttpResponse<byte[]>> future : futures) {
+            try {
+                responses.add(future.get());
+            } catch (ExecutionException e) {
+                throw new IOException("Subresource request failed.", e.getCause());
+            }
+        }
+        return responses;
+    }
+
+    private static Set<String> subresources(String html) {
+        Set<String> paths = new LinkedHashSet<>();
+        Matcher matcher = SUBRESOURCE.matcher(html);
+        while (matcher.find()) {
+            paths.add(matcher.group(1).replace("&amp;", "&"));
+        }
+        return paths;
+    }
+
+    private static String decode(HttpResponse<byte[]> response) throws IOException {
+        boolean gzip = response.headers().firstValue("Content-Encoding").filter("gzip"::equalsIgnoreCase).isPresent();
+        try (InputStream in = gzip
+                ? new GZIPInputStream(new ByteArrayInputStream(response.body()))
+                : new ByteArrayInputStream(response.body())) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static HttpResponse<byte[]> ok(HttpResponse<byte[]> response, String path) throws IOException {
+        if (response.statusCode() != 200) {
+            throw new IOException("GET " + path + " returned " + response.statusCode() + ".");
+        }
+        return response;
+    }
+
+    private static double percentileMillis(long[] sortedNanos, double percentile) {
+        int index = Math.max(0, (int) Math.ceil(percentile * sortedNanos.length) - 1);
+        return sortedNanos[index] / 1_000_000.0;
+    }
+
+    private static void print(PrintStream out, List<Transfer> transfers, List<PageLoad> pageLoads) {
+        out.println("Bytes on the wire (median of " + RUNS + " requests)");
+        out.printf(Locale.ROOT, "%-32s %-9s %-9s %12s %10s%n", "endpoint", "accept", "encoding", "bytes", "median ms");
+        for (Transfer t : transfers) {
+            out.printf(Locale.ROOT, "%-32s %-9s %-9s %12d %10.2f%n",
+                    t.path(), t.acceptEncoding(), t.contentEncoding(), t.bytes(), t.medianMillis());
+        }
+        out.println();
+        out.println("Page load: page plus same-origin subresources (" + RUNS + " loads)");
+        out.printf(Locale.ROOT, "%-20s %-9s %9s %12s %10s %10s%n",
+                "page", "protocol", "requests", "bytes", "median ms", "p90 ms");
+        for (PageLoad p : pageLoads) {
+            out.printf(Locale.ROOT, "%-20s %-9s %9d %12d %10.2f %10.2f%n",
+                    p.page(), p.protocol(), p.requests(), p.bytes(), p.medianMillis(), p.p90Millis());
+        }
+    }
+
+    private static void write(Path dir, List<Transfer> transfers, List<PageLoad> pageLoads) throws IOException {
+        Files.createDirectories(dir);
+        List<String> transferLines = new ArrayList<>(List.of("endpoint,accept_encoding,content_encoding,bytes,median_ms"));
+        for (Transfer t : transfers) {
+            transferLines.add(String.format(Locale.ROOT, "%s,%s,%s,%d,%.3f",
+                    t.path(), t.acceptEncoding(), t.contentEncoding(), t.bytes(), t.medianMillis()));
+        }
+        Files.write(dir.resolve("wire-transfer.csv"), transferLines);
+        List<String> pageLines = new ArrayList<>(List.of("page,protocol,requests,bytes,median_ms,p90_ms"));
+        for (PageLoad p : pageLoads) {
+            pageLines.add(String.format(Locale.ROOT, "%s,%s,%d,%d,%.3f,%.3f",
+                    p.page(), p.protocol(), p.requests(), p.bytes(), p.medianMillis(), p.p90Millis()));
+        }
+        Files.write(dir.resolve("wire-pageload.csv"), pageLines);
+    }
+}
@@ -0,0 +1,69 @@
+package com.wefky.RESTfulWeb.config;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+
+import com.nimbusds.jose.jwk.source.ImmutableSecret;
+
+/**
+ * ApiTokenConfig creates the signer and the verifier of the API's bearer tokens: JWTs signed
+ * with HMAC-SHA256 under one secret key, so tokens are issued and checked in process, without
+ * a key server. API_TOKEN_SECRET (Base64, at least 32 bytes) keeps tokens valid across restarts
+ * and instances; without it a random key is generated at startup.
+ */
+@Configuration
+public class ApiTokenConfig {
+
+    /** Issuer claim of the tokens; tokens from any other issuer are rejected. */
+    public static final String ISSUER = "RESTfulWeb";
+
+    private static final Logger logger = LoggerFactory.getLogger(ApiTokenConfig.class);
+
+    private final SecretKey key;
+
+    public ApiTokenConfig(@Value("${app.security.token.secret:}") String secret) {
+        byte[] keyBytes;
+        if (secret.isBlank()) {
+            keyBytes = new byte[32];
+            new SecureRandom().nextBytes(keyBytes);
+            logger.warn("No API token secret configured (API_TOKEN_SECRET); tokens are signed with a random key "
+                    + "and stop working when the application restarts.");
+        } else {
+            keyBytes = Base64.getDecoder().decode(secret.trim());
+            if (keyBytes.length < 32) {
+                throw new IllegalStateException("The API token secret must be at least 32 bytes (Base64 encoded).");
+            }
+        }
+        this.key = new SecretKeySpec(keyBytes, "HmacSHA256");
+    }
+
+    @Bean
+    public JwtEncoder apiTokenEncoder() {
+        return new NimbusJwtEncoder(new ImmutableSecret<>(key));
+    }
+
+    @Bean
+    public JwtDecoder apiTokenDecoder() {
+        NimbusJwtDecoder decoder = NimbusJwtDecoder.withSecretKey(key)
+                .macAlgorithm(MacAlgorithm.HS256)
+                .build();
+        // Checks the signature, the expiry (60 s clock skew) and the issuer.
+        decoder.setJwtValidator(JwtValidators.createDefaultWithIssuer(ISSUER));
+        return decoder;
+    }
+}
@@ -0,0 +1,50 @@
+package com.wefky.RESTfulWeb.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * BinaryFormatConfig sets up the CBOR (application/cbor) and Smile (application/x-jackson-smile)
+ * encodings of the REST API. Clients choose one with the Accept header for responses and the
+ * Content-Type header for request bodies; JSON stays the default, also for Accept: *&#47;*.
+ *
+ * Both mappers start from Spring Boot's Jackson builder, so they use the same modules and settings
+ * as the JSON mapper, except that dates are written as numbers (a LocalDateTime becomes a short
+ * array of integers instead of an ISO string). The converters replace Spring's default CBOR and
+ * Smile converters, which are built without Boot's settings.
+ */
+@Configuration
+public class BinaryFormatConfig {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(binaryMapper(builder, new CBORFactory()));
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(binaryMapper(builder, new SmileFactory()));
+    }
+
+    /**
+     * Builds the mapper of a binary format; also used by the format benchmark.
+     *
+     * @param builder a Jackson builder configured like the JSON mapper
+     * @param factory the CBOR or Smile factory
+     * @return the mapper for the format
+     */
+    public static ObjectMapper binaryMapper(Jackson2ObjectMapperBuilder builder, JsonFactory factory) {
+        return builder.factory(factory)
+                .featuresToEnable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+    }
+}
@@ -0,0 +1,34 @@
+package com.wefky.RESTfulWeb.config;
+
+import java.io.IOException;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+
+/**
+ * CacheConfig creates the JCache (Ehcache) cache manager from ehcache.xml and hands it
+ * to Hibernate as the second-level cache. The file is resolved by Spring, so it is found
+ * the same way from the IDE, the test class path and the packaged jar.
+ */
+@Configuration
+public class CacheConfig {
+
+    @Bean(destroyMethod = "close")
+    public CacheManager jcacheCacheManager(@Value("classpath:ehcache.xml") Resource config) throws IOException {
+        return Caching.getCachingProvider(EhcacheCachingProvider.class.getName())
+                .getCacheManager(config.getURI(), getClass().getClassLoader());
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager jcacheCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, jcacheCacheManager);
+    }
+}
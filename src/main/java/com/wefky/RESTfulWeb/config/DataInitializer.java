@@ -8,6 +8,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.wefky.RESTfulWeb.entity.Image;
 import com.wefky.RESTfulWeb.entity.Location;
@@ -17,6 +18,7 @@ import com.wefky.RESTfulWeb.repository.LocationRepository;
 import com.wefky.RESTfulWeb.repository.RoleRepository;
 import com.wefky.RESTfulWeb.repository.UserRepository;
 import com.wefky.RESTfulWeb.service.UserService;
+import com.wefky.RESTfulWeb.util.GeoHash;
 
 import lombok.RequiredArgsConstructor;
 
@@ -29,6 +31,7 @@ public class DataInitializer {
     private final UserRepository userRepository;
     private final ImageRepository imageRepository;
     private final LocationRepository locationRepository;
+    private final TransactionTemplate transactionTemplate;
     
     private static final Logger logger = LoggerFactory.getLogger(DataInitializer.class);
 
@@ -64,8 +67,7 @@ public class DataInitializer {
             userRepository.findAll().forEach(user -> {
                 if ((user.getRoles() == null || user.getRoles().isEmpty())
                         && !user.getUsername().equalsIgnoreCase("admin")) {
-                    user.setRoles(Set.of(userRole));
-                    userRepository.save(user);
+                    userService.updateRoles(user, Set.of(userRole));
                     logger.info("Assigned ROLE_USER to user '{}'.", user.getUsername());
                 }
             });
@@ -81,6 +83,19 @@ public class DataInitializer {
                         image.getContentType());
             });
 
+            // --- Backfill geohashes for locations created before the column existed ---
+            // The locations stay managed inside one transaction, so the commit flushes them
+            // as batched UPDATEs instead of merging them one by one.
+            Integer backfilled = transactionTemplate.execute(status -> {
+                List<Location> withoutGeohash = locationRepository.findByGeohashIsNull();
+                withoutGeohash.forEach(location -> location.setGeohash(
+                        GeoHash.encode(location.getLatitude(), location.getLongitude(), GeoHash.MAX_PRECISION)));
+                return withoutGeohash.size();
+            });
+            if (backfilled != null && backfilled > 0) {
+                logger.info("Backfilled geohash for {} locations.", backfilled);
+            }
+
             // --- Log Existing Location Data ---
             List<Location> locations = locationRepository.findAll();
             logger.info("Found {} locations in the database.", locations.size());
@@ -0,0 +1,81 @@
+package com.wefky.RESTfulWeb.config;
+
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Moves databases created with IDENTITY columns over to the ID sequences of
+ * Measurement, Location and Image.
+ *
+ * The schema update creates the sequences starting at 1, so without this step the first
+ * inserts would reuse existing IDs. For each table the identity (or serial default) is
+ * dropped so IDs only come from the sequence, and the sequence is moved to the highest
+ * existing ID. Runs after the schema update and before the web server accepts requests;
+ * a table that is already migrated is left alone.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class IdSequenceMigration {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdSequenceMigration.class);
+
+    private static final List<Target> TARGETS = List.of(
+            new Target("locations", "location_id", "locations_seq"),
+            new Target("measurements", "measurement_id", "measurements_seq"),
+            new Target("images", "image_id", "images_seq"));
+
+    private record Target(String table, String idColumn, String sequence) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public IdSequenceMigration(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @PostConstruct
+    void migrate() {
+        transactionTemplate.executeWithoutResult(status -> TARGETS.forEach(this::migrate));
+    }
+
+    private void migrate(Target target) {
+        Map<String, Object> column = jdbcTemplate.queryForMap("""
+                SELECT is_identity, column_default FROM information_schema.columns
+                WHERE table_schema = current_schema() AND table_name = ? AND column_name = ?
+                """, target.table(), target.idColumn());
+        if ("YES".equals(column.get("is_identity"))) {
+            jdbcTemplate.execute("ALTER TABLE " + target.table() + " ALTER COLUMN " + target.idColumn()
+                    + " DROP IDENTITY");
+            logger.info("Dropped the identity of {}.{}.", target.table(), target.idColumn());
+        } else if (column.get("column_default") != null) {
+            jdbcTemplate.execute("ALTER TABLE " + target.table() + " ALTER COLUMN " + target.idColumn()
+                    + " DROP DEFAULT");
+            logger.info("Dropped the default of {}.{}.", target.table(), target.idColumn());
+        }
+
+        long maxId = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(MAX(" + target.idColumn() + "), 0) FROM " + target.table(), Long.class);
+        Map<String, Object> sequence = jdbcTemplate.queryForMap(
+                "SELECT last_value, is_called FROM " + target.sequence());
+        long lastValue = ((Number) sequence.get("last_value")).longValue();
+        // Hibernate's pooled optimizer hands out the block ending at the value it reads,
+        // so the sequence must stand at (or past) the highest ID already in use.
+        long highestHandedOut = Boolean.TRUE.equals(sequence.get("is_called")) ? lastValue : lastValue - 1;
+        if (maxId > highestHandedOut) {
+            jdbcTemplate.queryForObject("SELECT setval(CAST(? AS regclass), ?, true)", Long.class,
+                    target.sequence(), maxId);
+            logger.info("Moved {} to {}, the highest ID in {}.", target.sequence(), maxId, target.table());
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.wefky.RESTfulWeb.config;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.wefky.RESTfulWeb.exception.PasswordHashingBusyException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+/**
+ * Runs BCrypt hashing and verification on a small, fixed pool of platform threads.
+ *
+ * BCrypt is CPU-bound by design, so on request threads a burst of logins or a credential-stuffing
+ * run could occupy every core and starve other requests. Here at most {@code threads} hashes run
+ * at once and at most {@code queueCapacity} wait; further requests are rejected at once with
+ * {@link PasswordHashingBusyException}. The calling thread waits for its result, which costs
+ * nothing on virtual threads.
+ *
+ * Metrics: executor.*{name=passwordHashing} and app.security.password.rejected.
+ */
+public class PasswordHashingExecutor implements AutoCloseable {
+
+    private final ThreadPoolExecutor pool;
+    private final ExecutorService executor;
+    private final Counter rejected;
+
+    /**
+     * @param threads       hashing threads; 0 uses half of the available processors (at least one)
+     * @param queueCapacity hashes that may wait for a thread
+     * @param meterRegistry registry for the executor metrics
+     */
+    public PasswordHashingExecutor(int threads, int queueCapacity, MeterRegistry meterRegistry) {
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.pool = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                Thread.ofPlatform().name("password-hashing-", 0).daemon().factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor = ExecutorServiceMetrics.monitor(meterRegistry, pool, "passwordHashing");
+        this.rejected = Counter.builder("app.security.password.rejected")
+                .description("Password hashes rejected because the hashing queue was full")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs the task on the hashing pool and waits for its result.
+     *
+     * @throws PasswordHashingBusyException if the queue is full or the caller is interrupted
+     */
+    public <T> T run(Supplier<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task::get);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new PasswordHashingBusyException("Too many password checks in progress; try again shortly.", e);
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingBusyException("Interrupted while waiting for a password check.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Password hashing failed.", e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,72 @@
+package com.wefky.RESTfulWeb.config;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Records how many rows each repository query returns (app.repository.rows).
+ *
+ * Query timings come from Spring Boot's spring.data.repository.invocations timer; together
+ * they show whether a slow query is slow per row or simply returns too much, e.g.
+ * filterMeasurementsNative without filters.
+ */
+@Aspect
+@Component
+public class RepositoryMetricsAspect {
+
+    private static final String REPOSITORY_PACKAGE = "com.wefky.RESTfulWeb.repository";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+    public RepositoryMetricsAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("execution(* com.wefky.RESTfulWeb.repository.*Repository.*(..))")
+    public Object countRows(ProceedingJoinPoint joinPoint) throws Throwable {
+        Object result = joinPoint.proceed();
+        int rows;
+        if (result instanceof Collection<?> collection) {
+            rows = collection.size();
+        } else if (result instanceof Slice<?> slice) {
+            rows = slice.getNumberOfElements();
+        } else {
+            return result;
+        }
+        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+        String repository = repositoryName(joinPoint.getTarget(), signature);
+        String method = signature.getName();
+        summaries.computeIfAbsent(repository + "." + method, key -> DistributionSummary.builder("app.repository.rows")
+                        .description("Rows returned per repository query")
+                        .tag("repository", repository)
+                        .tag("method", method)
+                        .publishPercentiles(0.5, 0.99)
+                        .register(meterRegistry))
+                .record(rows);
+        return result;
+    }
+
+    /**
+     * The application repository interface, also for inherited methods such as findAll.
+     */
+    private static String repositoryName(Object target, MethodSignature signature) {
+        for (Class<?> type : target.getClass().getInterfaces()) {
+            if (type.getPackageName().equals(REPOSITORY_PACKAGE)) {
+                return type.getSimpleName();
+            }
+        }
+        return signature.getDeclaringType().getSimpleName();
+    }
+}
@@ -0,0 +1,14 @@
+package com.wefky.RESTfulWeb.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables {@code @Scheduled} background jobs (the trash retention purge, see TrashRetentionService).
+ * They run on Spring Boot's auto-configured task scheduler, on virtual threads when
+ * spring.threads.virtual.enabled is set.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
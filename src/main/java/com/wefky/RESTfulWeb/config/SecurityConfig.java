@@ -1,45 +1,137 @@
 package com.wefky.RESTfulWeb.config;
 
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpMethod;
-import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.ProviderManager;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.access.AccessDeniedHandler;
+import org.springframework.security.web.authentication.AuthenticationFailureHandler;
+import org.springframework.security.web.authentication.ExceptionMappingAuthenticationFailureHandler;
 import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 
+import com.wefky.RESTfulWeb.exception.LoginThrottledException;
+import com.wefky.RESTfulWeb.exception.PasswordHashingBusyException;
+import com.wefky.RESTfulWeb.service.ApiTokenService;
+import com.wefky.RESTfulWeb.service.LoginThrottle;
 import com.wefky.RESTfulWeb.service.MyUserDetailsService;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletResponse;
+
 @Configuration
 @EnableGlobalMethodSecurity(securedEnabled = true, prePostEnabled = true)
 public class SecurityConfig {
 
     private final MyUserDetailsService myUserDetailsService;
+    private final MeterRegistry meterRegistry;
 
-    public SecurityConfig(MyUserDetailsService myUserDetailsService) {
+    public SecurityConfig(MyUserDetailsService myUserDetailsService, MeterRegistry meterRegistry) {
         this.myUserDetailsService = myUserDetailsService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    // BCrypt runs on its own bounded pool (see PasswordHashingExecutor), not on request threads.
+    @Bean(destroyMethod = "close")
+    public PasswordHashingExecutor passwordHashingExecutor(
+            @Value("${app.security.bcrypt.threads:0}") int threads,
+            @Value("${app.security.bcrypt.queue-capacity:50}") int queueCapacity) {
+        return new PasswordHashingExecutor(threads, queueCapacity, meterRegistry);
     }
 
     @Bean
-    public BCryptPasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public BCryptPasswordEncoder passwordEncoder(@Value("${app.security.bcrypt.strength:10}") int strength,
+                                                 PasswordHashingExecutor passwordHashingExecutor) {
+        return new TimedBCryptPasswordEncoder(meterRegistry, strength, passwordHashingExecutor);
     }
 
+    // Username/password logins of the form, HTTP Basic and POST /api/auth/token. Wired into the chains
+    // explicitly instead of publishing the provider as a bean: with an AuthenticationProvider bean next to
+    // the MyUserDetailsService bean, Spring Security warns at startup that it ignores the latter.
     @Bean
-    public AuthenticationProvider authenticationProvider() {
+    public AuthenticationManager authenticationManager(BCryptPasswordEncoder passwordEncoder,
+                                                       LoginThrottle loginThrottle) {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(myUserDetailsService);
-        authProvider.setPasswordEncoder(passwordEncoder());
-        return authProvider;
+        authProvider.setPasswordEncoder(passwordEncoder);
+        // No UserCache here: with one, a wrong password against a cached user reloads the user and
+        // runs BCrypt a second time, doubling the cost of the failures LoginThrottle absorbs.
+        // Hashes made with another cost factor are replaced at the next successful login.
+        authProvider.setUserDetailsPasswordService(myUserDetailsService);
+        // The form login and HTTP Basic chains use this manager instead of the global one, which Spring
+        // Security builds from MyUserDetailsService without the throttle; a wrong password is checked once.
+        return new ProviderManager(new ThrottledAuthenticationProvider(authProvider, loginThrottle));
+    }
+
+    // Form login failures: throttled and busy attempts get their own message on the login page.
+    @Bean
+    public AuthenticationFailureHandler loginFailureHandler() {
+        ExceptionMappingAuthenticationFailureHandler handler = new ExceptionMappingAuthenticationFailureHandler();
+        handler.setDefaultFailureUrl("/login?error");
+        handler.setExceptionMappings(Map.of(
+                LoginThrottledException.class.getName(), "/login?throttled",
+                PasswordHashingBusyException.class.getName(), "/login?busy"));
+        return handler;
     }
 
+    // Actuator endpoints: health is public, everything else (metrics, Prometheus scrape) needs an admin.
+    // HTTP Basic and no session, so a Prometheus scrape job can authenticate with basic_auth.
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
-        http.authenticationProvider(authenticationProvider());
+    @Order(1)
+    public SecurityFilterChain actuatorSecurityFilterChain(HttpSecurity http,
+                                                           AuthenticationManager authenticationManager)
+            throws Exception {
+        http.securityMatcher("/actuator/**")
+                .authenticationManager(authenticationManager)
+                .authorizeHttpRequests(auth -> auth
+                        .requestMatchers("/actuator/health", "/actuator/health/**").permitAll()
+                        .anyRequest().hasRole("ADMIN"))
+                // Answer 401 directly: sendError would dispatch to /error, which the web chain redirects to /login.
+                .httpBasic(basic -> basic.authenticationEntryPoint((request, response, authException) -> {
+                    response.setHeader("WWW-Authenticate", "Basic realm=\"actuator\"");
+                    response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+                }))
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .csrf(csrf -> csrf.disable());
+        return http.build();
+    }
+
+    // API: signed bearer tokens from POST /api/auth/token, verified in memory (see ApiTokenConfig),
+    // or the session of a logged-in browser. Token requests create no session; CSRF protection
+    // is off for the API as before. Unauthenticated calls get 401 instead of the login page.
+    // No password login here: POST /api/auth/token checks the password with the AuthenticationManager bean.
+    @Bean
+    @Order(2)
+    public SecurityFilterChain apiSecurityFilterChain(HttpSecurity http, JwtDecoder apiTokenDecoder,
+                                                      ApiTokenService apiTokenService) throws Exception {
+        http.securityMatcher("/api/**")
+                .authorizeHttpRequests(auth -> auth
+                        .requestMatchers(HttpMethod.POST, "/api/auth/token").permitAll()
+                        .anyRequest().authenticated())
+                .oauth2ResourceServer(oauth2 -> oauth2.jwt(jwt -> jwt
+                        .decoder(apiTokenDecoder)
+                        .jwtAuthenticationConverter(apiTokenService::authenticate)))
+                .csrf(csrf -> csrf.disable());
+        return http.build();
+    }
+
+    @Bean
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, AuthenticationManager authenticationManager,
+                                                   AuthenticationFailureHandler loginFailureHandler)
+            throws Exception {
+
+        http.authenticationManager(authenticationManager);
 
         http.authorizeHttpRequests(auth -> auth
                 // Public routes including access-denied (for proper redirection)
@@ -61,9 +153,6 @@ public class SecurityConfig {
                         "/web/locations/delete/**",
                         "/web/measurements/delete/**").authenticated()
 
-                // API routes (including file retrieval endpoints) require authentication
-                .requestMatchers("/api/**").authenticated()
-
                 // Web routes require authentication
                 .requestMatchers("/web/**").authenticated()
 
@@ -76,6 +165,7 @@ public class SecurityConfig {
                 .loginPage("/login")
                 .permitAll()
                 .defaultSuccessUrl("/", true)
+                .failureHandler(loginFailureHandler)
         );
 
         // Configure logout
@@ -90,11 +180,6 @@ public class SecurityConfig {
                 .accessDeniedHandler(accessDeniedHandler())
         );
 
-        // Disable CSRF protection for API endpoints (e.g., file retrieval)
-        http.csrf(csrf -> csrf
-                .ignoringRequestMatchers("/api/**")
-        );
-
         return http.build();
     }
     // Redirect to /access-denied on access denied
@@ -0,0 +1,49 @@
+package com.wefky.RESTfulWeb.config;
+
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
+
+import com.wefky.RESTfulWeb.service.LoginThrottle;
+
+/**
+ * Checks the {@link LoginThrottle} before handing a username and password to the delegate,
+ * so throttled attempts cost no BCrypt work. Wrong passwords and unknown usernames count as
+ * failures; a successful login clears the username's failures.
+ */
+public class ThrottledAuthenticationProvider implements AuthenticationProvider {
+
+    private final AuthenticationProvider delegate;
+    private final LoginThrottle loginThrottle;
+
+    public ThrottledAuthenticationProvider(AuthenticationProvider delegate, LoginThrottle loginThrottle) {
+        this.delegate = delegate;
+        this.loginThrottle = loginThrottle;
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) {
+        String username = authentication.getName();
+        String remoteAddress = authentication.getDetails() instanceof WebAuthenticationDetails details
+                ? details.getRemoteAddress()
+                : null;
+        loginThrottle.check(username, remoteAddress);
+        Authentication result;
+        try {
+            result = delegate.authenticate(authentication);
+        } catch (BadCredentialsException e) {
+            loginThrottle.recordFailure(username, remoteAddress);
+            throw e;
+        }
+        if (result != null) {
+            loginThrottle.recordSuccess(username);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return delegate.supports(authentication);
+    }
+}
@@ -0,0 +1,87 @@
+package com.wefky.RESTfulWeb.config;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * BCrypt encoder that times every hash and verification.
+ *
+ * BCrypt is deliberately slow, so these timers show how much of a login (or registration)
+ * is spent hashing and when the cost factor needs revisiting. The work runs on the
+ * {@link PasswordHashingExecutor}, if one is given, and the timers cover only the hashing,
+ * not the wait for a hashing thread.
+ *
+ * A stored hash whose cost differs from the configured strength (in either direction) is
+ * reported by {@link #upgradeEncoding(String)}, so it is rehashed at the user's next login.
+ */
+public class TimedBCryptPasswordEncoder extends BCryptPasswordEncoder {
+
+    private static final Pattern COST = Pattern.compile("\\$2[abxy]?\\$(\\d\\d)\\$");
+
+    private final int strength;
+    private final PasswordHashingExecutor executor;
+    private final Timer encodeTimer;
+    private final Timer verifySuccessTimer;
+    private final Timer verifyFailureTimer;
+
+    /**
+     * @param meterRegistry registry for the timers
+     * @param strength      BCrypt cost factor (log2 of the rounds, 4 to 31)
+     * @param executor      pool to hash on, or null to hash on the calling thread
+     */
+    public TimedBCryptPasswordEncoder(MeterRegistry meterRegistry, int strength, PasswordHashingExecutor executor) {
+        super(strength);
+        this.strength = strength;
+        this.executor = executor;
+        this.encodeTimer = Timer.builder("app.security.password.encode")
+                .description("Time spent hashing passwords with BCrypt")
+                .tag("strength", String.valueOf(strength))
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.verifySuccessTimer = verifyTimer(meterRegistry, "match");
+        this.verifyFailureTimer = verifyTimer(meterRegistry, "mismatch");
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return offload(() -> encodeTimer.record(() -> super.encode(rawPassword)));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return offload(() -> {
+            long start = System.nanoTime();
+            boolean matches = super.matches(rawPassword, encodedPassword);
+            (matches ? verifySuccessTimer : verifyFailureTimer).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return matches;
+        });
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null) {
+            return false;
+        }
+        Matcher matcher = COST.matcher(encodedPassword);
+        return matcher.lookingAt() && Integer.parseInt(matcher.group(1)) != strength;
+    }
+
+    private <T> T offload(Supplier<T> task) {
+        return executor != null ? executor.run(task) : task.get();
+    }
+
+    private static Timer verifyTimer(MeterRegistry meterRegistry, String result) {
+        return Timer.builder("app.security.password.verify")
+                .description("Time spent verifying passwords with BCrypt")
+                .tag("result", result)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+}
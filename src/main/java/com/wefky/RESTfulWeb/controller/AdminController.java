@@ -2,9 +2,14 @@ package com.wefky.RESTfulWeb.controller;
 
 import org.springframework.security.access.annotation.Secured;
 import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 
+import com.wefky.RESTfulWeb.service.TrashRetentionService;
+
+import lombok.RequiredArgsConstructor;
+
 /**
  * AdminController is a Spring MVC controller that handles HTTP requests
  * for the "/admin" URL path. It is secured to be accessible only by users
@@ -17,17 +22,22 @@ import org.springframework.web.bind.annotation.RequestMapping;
  * - @GetMapping: Maps HTTP GET requests to the adminHome method.
  * 
  * Methods:
- * - adminHome: Handles GET requests to the /admin URL and returns the name of the view to be rendered, which is "admin".
+ * - adminHome: Handles GET requests to the /admin URL and returns the name of the view to be rendered, which is "admin",
+ *   with the trash retention policy and the last purge of each entity.
  * 
  * @return The name of the view to be rendered, "admin".
  */
 @Controller
 @RequestMapping("/admin")
+@RequiredArgsConstructor
 public class AdminController {
 
+    private final TrashRetentionService trashRetentionService;
+
     @Secured("ROLE_ADMIN")
     @GetMapping
-    public String adminHome() {
+    public String adminHome(Model model) {
+        model.addAttribute("retention", trashRetentionService.getStats());
         return "admin";
     }
 }
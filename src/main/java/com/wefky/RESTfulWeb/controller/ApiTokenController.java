@@ -0,0 +1,71 @@
+package com.wefky.RESTfulWeb.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.wefky.RESTfulWeb.dto.ApiToken;
+import com.wefky.RESTfulWeb.dto.TokenRequest;
+import com.wefky.RESTfulWeb.exception.LoginThrottledException;
+import com.wefky.RESTfulWeb.exception.PasswordHashingBusyException;
+import com.wefky.RESTfulWeb.service.ApiTokenService;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/auth")
+@RequiredArgsConstructor
+public class ApiTokenController {
+
+    private static final WebAuthenticationDetailsSource DETAILS_SOURCE = new WebAuthenticationDetailsSource();
+
+    private final AuthenticationManager authenticationManager;
+    private final ApiTokenService apiTokenService;
+
+    /**
+     * Exchanges a username and password for a short-lived bearer token.
+     *
+     * The password is checked once here (BCrypt); later API calls send the token as
+     * "Authorization: Bearer &lt;token&gt;" and are verified in memory.
+     *
+     * @param request     the user's credentials
+     * @param httpRequest the HTTP request, whose client address counts towards the login throttle
+     * @return a ResponseEntity containing the token,
+     *         a ResponseEntity with a 429 Too Many Requests status and Retry-After if the username or address
+     *         has failed too often recently,
+     *         a ResponseEntity with a 503 Service Unavailable status if the password checks are saturated,
+     *         or a ResponseEntity with a 401 Unauthorized status if the credentials are wrong or the user is disabled
+     */
+    @PostMapping("/token")
+    public ResponseEntity<ApiToken> issueToken(@RequestBody TokenRequest request, HttpServletRequest httpRequest) {
+        UsernamePasswordAuthenticationToken credentials =
+                UsernamePasswordAuthenticationToken.unauthenticated(request.username(), request.password());
+        credentials.setDetails(DETAILS_SOURCE.buildDetails(httpRequest));
+        Authentication authentication;
+        try {
+            authentication = authenticationManager.authenticate(credentials);
+        } catch (LoginThrottledException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .build();
+        } catch (PasswordHashingBusyException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .build();
+        } catch (AuthenticationException e) {
+            return ResponseEntity.status(401).build();
+        }
+        return ResponseEntity.ok(apiTokenService.issue((UserDetails) authentication.getPrincipal()));
+    }
+}
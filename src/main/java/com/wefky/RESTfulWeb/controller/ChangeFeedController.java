@@ -0,0 +1,65 @@
+package com.wefky.RESTfulWeb.controller;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.wefky.RESTfulWeb.dto.ChangePage;
+import com.wefky.RESTfulWeb.service.ChangeOutboxService;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * REST controller for the change feed: every committed create, update, soft delete, restore and
+ * permanent delete of locations, measurements and images, in commit order.
+ *
+ * Endpoints:
+ * - GET /api/changes?since=&limit=: Retrieve the changes after a position.
+ *
+ * A client syncs by loading the lists once, then repeatedly asking for the changes since the
+ * {@code next} position of the previous page; it starts with since=0-0 to read the whole feed.
+ */
+@RestController
+@RequestMapping("/api/changes")
+@RequiredArgsConstructor
+public class ChangeFeedController {
+
+    private static final int DEFAULT_LIMIT = 500;
+    private static final int MAX_LIMIT = 5000;
+
+    private final ChangeOutboxService changeOutboxService;
+
+    /**
+     * Retrieves the committed changes after a position, oldest first.
+     *
+     * @param since the {@code next} position of the previous page, formatted txid-eventId (default: the start)
+     * @param limit the maximum number of changes (1-5000, default 500)
+     * @return a ResponseEntity containing the changes, the position to continue from and whether more are
+     *         available, or 400 Bad Request if the position or limit is malformed
+     */
+    @GetMapping
+    public ResponseEntity<ChangePage> getChanges(@RequestParam(defaultValue = ChangePage.START) String since,
+                                                 @RequestParam(defaultValue = "" + DEFAULT_LIMIT) int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            return ResponseEntity.badRequest().build();
+        }
+        String[] parts = since.split("-", -1);
+        if (parts.length != 2) {
+            return ResponseEntity.badRequest().build();
+        }
+        long txid;
+        long eventId;
+        try {
+            txid = Long.parseLong(parts[0]);
+            eventId = Long.parseLong(parts[1]);
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (txid < 0 || eventId < 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(changeOutboxService.getChanges(txid, eventId, limit));
+    }
+}
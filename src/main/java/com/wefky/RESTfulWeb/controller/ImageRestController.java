@@ -1,6 +1,7 @@
 package com.wefky.RESTfulWeb.controller;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import org.slf4j.Logger;
@@ -13,11 +14,21 @@ import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.wefky.RESTfulWeb.dto.BulkRequest;
+import com.wefky.RESTfulWeb.dto.BulkResult;
+import com.wefky.RESTfulWeb.dto.Fieldset;
+import com.wefky.RESTfulWeb.dto.ImageView;
+import com.wefky.RESTfulWeb.dto.KeysetPage;
+import com.wefky.RESTfulWeb.dto.KeysetRequest;
+import com.wefky.RESTfulWeb.dto.MultiGetResult;
 import com.wefky.RESTfulWeb.entity.Image;
+import com.wefky.RESTfulWeb.repository.ImageRepositoryCustom;
+import com.wefky.RESTfulWeb.service.ImageMetrics;
 import com.wefky.RESTfulWeb.service.ImageService;
 
 import lombok.RequiredArgsConstructor;
@@ -29,11 +40,31 @@ public class ImageRestController {
 
     private static final Logger logger = LoggerFactory.getLogger(ImageRestController.class);
     private final ImageService imageService;
+    private final ImageMetrics imageMetrics;
 
+    /**
+     * Endpoint to retrieve the metadata of the active images, optionally searched.
+     * @param search the search term (numeric ID or text), or null for all images
+     * @param fields the properties to return, e.g. imageId,title (optional); only their columns are selected
+     * @param embed the resources to embed; images have none (the file is served by /{id}/file)
+     * @return the images (with fields, one object with the requested properties per image),
+     *         or 400 Bad Request for an unknown field
+     */
     @GetMapping
-    public ResponseEntity<List<Image>> getAllImages(@RequestParam(required = false) String search) {
+    public ResponseEntity<List<?>> getAllImages(@RequestParam(required = false) String search,
+                                                @RequestParam(required = false) String fields,
+                                                @RequestParam(required = false) String embed) {
+        Fieldset fieldset;
+        try {
+            fieldset = Fieldset.of(fields, embed, ImageRepositoryCustom.FIELDS, Map.of());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
         try {
-            List<Image> images = imageService.searchImages(search);
+            if (fieldset != null) {
+                return ResponseEntity.ok(imageService.searchImageFields(search, fieldset));
+            }
+            List<ImageView> images = imageService.searchImageViews(search);
             return ResponseEntity.ok(images);
         } catch (Exception e) {
             logger.error("Error fetching images via REST API: ", e);
@@ -41,16 +72,78 @@ public class ImageRestController {
         }
     }
     /**
-     * Endpoint to retrieve an image by ID.
-     * @param id
-     * @return
+     * Endpoint to retrieve the metadata of many active images by ID with one query, without the files.
+     * @param ids the IDs, comma separated
+     * @return the images found in the order of the IDs and the IDs that are unknown or deleted,
+     *         or 400 Bad Request for more than {@link MultiGetResult#MAX_IDS} IDs
      */
+    @GetMapping(params = "ids")
+    public ResponseEntity<MultiGetResult<ImageView>> getImages(@RequestParam List<Long> ids) {
+        if (ids.size() > MultiGetResult.MAX_IDS) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(imageService.getImageViews(ids));
+        } catch (Exception e) {
+            logger.error("Error fetching images by IDs via REST API: ", e);
+            return ResponseEntity.status(500).build();
+        }
+    }
 
+    /**
+     * Endpoint to retrieve one keyset page of image metadata, without file data. The gallery and
+     * trash pages render their first page and fetch the next ones from here while scrolling, using
+     * the same search, sort and cursor parameters as the web listings.
+     * @param search the search term (numeric ID or text), or null for all images
+     * @param deleted whether to list the trash instead of the active images
+     * @return the page, with the cursor of the next one
+     */
+    @GetMapping("/page")
+    public ResponseEntity<KeysetPage<ImageView>> getImagesPage(
+            @RequestParam(required = false) String search,
+            @RequestParam(defaultValue = "false") boolean deleted,
+            @RequestParam(defaultValue = "" + PageSupport.DEFAULT_PAGE_SIZE) int size,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String dir,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) String before) {
+        try {
+            KeysetRequest keyset = PageSupport.keyset(size, sort, dir, after, before, ImagesWebController.SORT);
+            return ResponseEntity.ok(deleted
+                    ? imageService.searchDeletedImagesPage(search, keyset)
+                    : imageService.searchImagesPage(search, keyset));
+        } catch (Exception e) {
+            logger.error("Error fetching a page of images via REST API: ", e);
+            return ResponseEntity.status(500).build();
+        }
+    }
+
+    /**
+     * Endpoint to retrieve an image by ID, with its file as base64Data. With fields or embed only the
+     * requested metadata is selected and the file is not read.
+     * @param id the ID of the image
+     * @param fields the properties to return, e.g. title,contentType (optional)
+     * @param embed the resources to embed; images have none
+     * @return the image, 404 if it is not found or deleted, or 400 Bad Request for an unknown field
+     */
     @GetMapping("/{id}")
-    public ResponseEntity<Image> getImageById(@PathVariable Long id) {
+    public ResponseEntity<?> getImageById(@PathVariable Long id,
+                                          @RequestParam(required = false) String fields,
+                                          @RequestParam(required = false) String embed) {
+        Fieldset fieldset;
         try {
+            fieldset = Fieldset.of(fields, embed, ImageRepositoryCustom.FIELDS, Map.of());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            if (fieldset != null) {
+                return imageService.getImageFields(id, fieldset)
+                        .map(ResponseEntity::ok)
+                        .orElse(ResponseEntity.notFound().build());
+            }
             Optional<Image> opt = imageService.getImageById(id);
-            return opt.map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+            return opt.map(ImageView::from).map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
         } catch (Exception e) {
             logger.error("Error fetching image by ID: ", e);
             return ResponseEntity.status(500).build();
@@ -65,6 +158,7 @@ public class ImageRestController {
         Optional<Image> opt = imageService.getImageById(id);
         if (opt.isPresent()) {
             Image image = opt.get();
+            imageMetrics.served(image, "file");
             return ResponseEntity.ok()
                     .contentType(MediaType.parseMediaType(image.getContentType()))
                     .header(HttpHeaders.CONTENT_DISPOSITION,
@@ -83,6 +177,7 @@ public class ImageRestController {
         Optional<Image> opt = imageService.getImageByIdIncludingDeleted(id);
         if (opt.isPresent()) {
             Image image = opt.get();
+            imageMetrics.served(image, "file-all");
             return ResponseEntity.ok()
                     .contentType(MediaType.parseMediaType(image.getContentType()))
                     .header(HttpHeaders.CONTENT_DISPOSITION,
@@ -119,11 +214,11 @@ public class ImageRestController {
      *         or a 500 Internal Server Error status if an error occurs during restoration
      */
     @PostMapping("/{id}/restore")
-    public ResponseEntity<Image> restoreImage(@PathVariable Long id) {
+    public ResponseEntity<ImageView> restoreImage(@PathVariable Long id) {
         try {
             imageService.restoreImage(id);
             Optional<Image> restored = imageService.getImageById(id);
-            return restored.map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+            return restored.map(ImageView::from).map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
         } catch (Exception e) {
             logger.error("Error restoring image: ", e);
             return ResponseEntity.status(500).build();
@@ -150,4 +245,69 @@ public class ImageRestController {
             return ResponseEntity.status(500).build();
         }
     }
+
+    /**
+     * Soft deletes many images at once: the IDs in the body, or else all active images matching
+     * the search (numeric ID or text, as in GET /api/images). No file is read.
+     *
+     * @param request the IDs to soft delete (optional)
+     * @param search the search term (optional)
+     * @return a ResponseEntity with the number of matched and soft deleted images,
+     *         or a 400 Bad Request status if neither IDs nor a search are given
+     */
+    @PostMapping("/bulk/delete")
+    public ResponseEntity<BulkResult> softDeleteImages(@RequestBody(required = false) BulkRequest request,
+                                                       @RequestParam(required = false) String search) {
+        if (request != null && request.hasIds()) {
+            return ResponseEntity.ok(imageService.softDeleteImages(request.ids()));
+        }
+        if (search == null || search.isBlank()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(imageService.softDeleteMatchingImages(search));
+    }
+
+    /**
+     * Restores many images at once: the IDs in the body, or else all deleted images matching the search.
+     *
+     * @param request the IDs to restore (optional)
+     * @param search the search term (optional)
+     * @return a ResponseEntity with the number of matched and restored images,
+     *         or a 400 Bad Request status if neither IDs nor a search are given
+     */
+    @PostMapping("/bulk/restore")
+    public ResponseEntity<BulkResult> restoreImages(@RequestBody(required = false) BulkRequest request,
+                                                    @RequestParam(required = false) String search) {
+        if (request != null && request.hasIds()) {
+            return ResponseEntity.ok(imageService.restoreImages(request.ids()));
+        }
+        if (search == null || search.isBlank()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(imageService.restoreMatchingImages(search));
+    }
+
+    /**
+     * Permanently deletes many images at once: the IDs in the body (active or deleted),
+     * or else all deleted images matching the search.
+     *
+     * This endpoint is secured and requires the user to have the "ROLE_ADMIN" authority.
+     *
+     * @param request the IDs to permanently delete (optional)
+     * @param search the search term (optional)
+     * @return a ResponseEntity with the number of matched and deleted images,
+     *         or a 400 Bad Request status if neither IDs nor a search are given
+     */
+    @Secured("ROLE_ADMIN")
+    @PostMapping("/bulk/permanent")
+    public ResponseEntity<BulkResult> permanentlyDeleteImages(@RequestBody(required = false) BulkRequest request,
+                                                              @RequestParam(required = false) String search) {
+        if (request != null && request.hasIds()) {
+            return ResponseEntity.ok(imageService.permanentlyDeleteImages(request.ids()));
+        }
+        if (search == null || search.isBlank()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(imageService.permanentlyDeleteMatchingImages(search));
+    }
 }
@@ -2,8 +2,11 @@ package com.wefky.RESTfulWeb.controller;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,8 +27,14 @@ import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 import org.springframework.web.util.UriUtils;
 
+import com.wefky.RESTfulWeb.dto.ImageView;
+import com.wefky.RESTfulWeb.dto.KeysetPage;
+import com.wefky.RESTfulWeb.dto.KeysetRequest;
 import com.wefky.RESTfulWeb.entity.Image;
+import com.wefky.RESTfulWeb.service.ImageMetrics;
+import com.wefky.RESTfulWeb.service.FragmentCache;
 import com.wefky.RESTfulWeb.service.ImageService;
+import com.wefky.RESTfulWeb.service.ReferenceDataCache;
 
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
@@ -38,6 +47,14 @@ public class ImagesWebController {
 
     private static final Logger logger = LoggerFactory.getLogger(ImagesWebController.class);
     private final ImageService imageService;
+    private final ImageMetrics imageMetrics;
+    private final FragmentCache fragmentCache;
+    private final ReferenceDataCache referenceData;
+
+    // Also the order of GET /api/images/page, which continues these listings on scroll.
+    static final PageSupport.SortOptions SORT = new PageSupport.SortOptions(
+            Set.of("imageId", "owner", "title", "contentType", "uploadDate"),
+            "uploadDate", true, "imageId");
 
     /**
      * Helper method to build the search query parameter.
@@ -49,20 +66,34 @@ public class ImagesWebController {
         return "?search=" + UriUtils.encode(search, StandardCharsets.UTF_8);
     }
 
+    /**
+     * Adds the content-type search suggestions, rendered once and cached until an image changes.
+     */
+    private void addContentTypeOptions(Model model) {
+        model.addAttribute("contentTypeOptions", fragmentCache.get(FragmentCache.CONTENT_TYPES,
+                () -> Map.of("contentTypes", referenceData.getContentTypes())));
+    }
+
     /**
      * Handles GET requests to list images.
      */
     @GetMapping
     public String listImages(@RequestParam(required = false) String search,
+                             @RequestParam(defaultValue = "0") int page,
+                             @RequestParam(defaultValue = "" + PageSupport.DEFAULT_PAGE_SIZE) int size,
+                             @RequestParam(required = false) String sort,
+                             @RequestParam(required = false) String dir,
+                             @RequestParam(required = false) String after,
+                             @RequestParam(required = false) String before,
                              HttpServletRequest request,
                              Model model) {
         model.addAttribute("currentUri", request.getRequestURI());
-        List<Image> images = imageService.searchImages(search);
-        model.addAttribute("images", images);
+        KeysetRequest keyset = PageSupport.keyset(size, sort, dir, after, before, SORT);
+        KeysetPage<ImageView> images = imageService.searchImagesPage(search, keyset);
+        PageSupport.addPageAttributes(model, images, page, keyset);
+        model.addAttribute("images", images.content());
         model.addAttribute("search", search);
-        List<String> possibleContentTypes = imageService.getDistinctContentTypes();
-        possibleContentTypes.add(0, "");
-        model.addAttribute("possibleContentTypes", possibleContentTypes);
+        addContentTypeOptions(model);
         return "images";
     }
 
@@ -71,15 +102,21 @@ public class ImagesWebController {
      */
     @GetMapping("/trash")
     public String viewTrash(@RequestParam(required = false) String search,
+                            @RequestParam(defaultValue = "0") int page,
+                            @RequestParam(defaultValue = "" + PageSupport.DEFAULT_PAGE_SIZE) int size,
+                            @RequestParam(required = false) String sort,
+                            @RequestParam(required = false) String dir,
+                            @RequestParam(required = false) String after,
+                            @RequestParam(required = false) String before,
                             HttpServletRequest request,
                             Model model) {
         model.addAttribute("currentUri", request.getRequestURI());
-        List<Image> images = imageService.searchDeletedImages(search);
-        model.addAttribute("images", images);
+        KeysetRequest keyset = PageSupport.keyset(size, sort, dir, after, before, SORT);
+        KeysetPage<ImageView> images = imageService.searchDeletedImagesPage(search, keyset);
+        PageSupport.addPageAttributes(model, images, page, keyset);
+        model.addAttribute("images", images.content());
         model.addAttribute("search", search);
-        List<String> possibleContentTypes = imageService.getDistinctContentTypes();
-        possibleContentTypes.add(0, "");
-        model.addAttribute("possibleContentTypes", possibleContentTypes);
+        addContentTypeOptions(model);
         return "imagesTrash";
     }
 
@@ -124,7 +161,7 @@ public class ImagesWebController {
                             Model model) throws IOException {
         if (bindingResult.hasErrors()) {
             model.addAttribute("mode", image.getImageId() != null ? "edit" : "new");
-            List<String> possibleContentTypes = imageService.getDistinctContentTypes();
+            List<String> possibleContentTypes = new ArrayList<>(referenceData.getContentTypes());
             possibleContentTypes.add(0, "");
             model.addAttribute("possibleContentTypes", possibleContentTypes);
             model.addAttribute("search", search);
@@ -146,6 +183,7 @@ public class ImagesWebController {
         img.setContentType(image.getContentType());
         if (file != null && !file.isEmpty()) {
             img.setData(file.getBytes());
+            imageMetrics.uploaded(file.getSize());
             if (file.getContentType() != null && !file.getContentType().isEmpty()) {
                 img.setContentType(file.getContentType());
             }
@@ -200,6 +238,7 @@ public class ImagesWebController {
         Optional<Image> opt = imageService.getImageByIdIncludingDeleted(id);
         if (opt.isPresent()) {
             Image image = opt.get();
+            imageMetrics.served(image, "file-all");
             return ResponseEntity.ok()
                     .contentType(MediaType.parseMediaType(image.getContentType()))
                     .header(HttpHeaders.CONTENT_DISPOSITION,
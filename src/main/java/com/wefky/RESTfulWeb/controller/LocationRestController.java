@@ -1,6 +1,7 @@
 package com.wefky.RESTfulWeb.controller;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import org.slf4j.Logger;
@@ -17,8 +18,16 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.wefky.RESTfulWeb.dto.BulkRequest;
+import com.wefky.RESTfulWeb.dto.BulkResult;
+import com.wefky.RESTfulWeb.dto.Fieldset;
+import com.wefky.RESTfulWeb.dto.LocationView;
+import com.wefky.RESTfulWeb.dto.MultiGetResult;
 import com.wefky.RESTfulWeb.entity.Location;
-import com.wefky.RESTfulWeb.repository.LocationRepository;
+import com.wefky.RESTfulWeb.repository.LocationRepositoryCustom;
+import com.wefky.RESTfulWeb.service.LocationClusterService;
+import com.wefky.RESTfulWeb.service.LocationSearchIndex;
+import com.wefky.RESTfulWeb.service.LocationService;
 
 import lombok.RequiredArgsConstructor;
 
@@ -31,15 +40,24 @@ import lombok.RequiredArgsConstructor;
  * 
  * Endpoints:
  * - GET /api/locations: Retrieve all active locations with optional filters.
+ * - GET /api/locations?ids=1,2,3: Retrieve many active locations by ID, in the order given, with the missing IDs.
+ * - GET /api/locations/near: Retrieve active locations near a point (radius and/or k nearest).
+ * - GET /api/locations/clusters: Retrieve map marker clusters for a bounding box and zoom level.
+ * - GET /api/locations/autocomplete: Suggest locations by city name or postal code as the user types.
  * - GET /api/locations/{id}: Retrieve a location by its ID.
  * - POST /api/locations: Create a new location.
  * - PUT /api/locations/{id}: Update an existing location.
  * - DELETE /api/locations/{id}: Soft delete a location.
  * - POST /api/locations/{id}/restore: Restore a soft-deleted location.
  * - DELETE /api/locations/{id}/permanent: Permanently delete a location (Admin only).
+ * - POST /api/locations/bulk/delete, /bulk/restore, /bulk/permanent (Admin only): Change many locations
+ *   at once, given by IDs in the body or by the filters of GET /api/locations.
  * 
  * Dependencies:
- * - LocationRepository: Repository for accessing location data.
+ * - LocationService: Service for accessing location data; all writes go through it so that
+ *   the in-memory spatial index stays in sync.
+ * - LocationClusterService: Per-tile cache of geohash clusters for map views.
+ * - LocationSearchIndex: In-memory prefix/trigram index for autocomplete.
  * - Logger: Logger for logging information and errors.
  * 
  * Annotations:
@@ -49,13 +67,18 @@ import lombok.RequiredArgsConstructor;
  * - @Secured("ROLE_ADMIN"): Secures the endpoint to be accessible only by users with ROLE_ADMIN.
  * 
  * Methods:
- * - getAllLocations: Retrieves all active locations with optional filters for city name, postal code, latitude minimum, and latitude maximum.
+ * - getAllLocations: Retrieves all active locations with optional filters for city name, postal code, latitude range, and longitude range. With fields, only the requested properties are selected.
+ * - getLocations: Retrieves the active locations with the given IDs with one query at most. Returns 400 for more than MultiGetResult.MAX_IDS IDs.
+ * - getNearbyLocations: Retrieves active locations within a radius of a point and/or its k nearest neighbours.
+ * - getClusters: Retrieves pre-aggregated cluster centroids and counts for the tiles covering a bounding box.
+ * - autocomplete: Returns the top matches for a partial city name or postal code, ranked by match quality.
  * - getLocation: Retrieves a location by its ID. Returns 404 if the location is not found or is deleted.
  * - createLocation: Creates a new location. Sets the location ID to null and deleted flag to false before saving.
  * - updateLocation: Updates an existing location by its ID. Returns 404 if the location is not found or is deleted.
  * - softDeleteLocation: Soft deletes a location by setting its deleted flag to true. Returns 404 if the location is not found or is already deleted.
  * - restoreLocation: Restores a soft-deleted location by setting its deleted flag to false. Returns 404 if the location is not found or is not deleted.
  * - permanentlyDeleteLocation: Permanently deletes a location by its ID. Returns 404 if the location is not found. Accessible only by users with ROLE_ADMIN.
+ * - softDeleteLocations, restoreLocations, permanentlyDeleteLocations: Bulk variants with set-based statements. Return the matched and affected counts, or 400 if neither IDs nor a filter are given.
  */
 @RestController
 @RequestMapping("/api/locations")
@@ -64,7 +87,15 @@ public class LocationRestController {
 
     private static final Logger logger = LoggerFactory.getLogger(LocationRestController.class);
 
-    private final LocationRepository locationRepository;
+    /** Upper bound on k for nearest-neighbour queries. */
+    private static final int MAX_NEIGHBOURS = 1000;
+
+    /** Upper bound on the number of autocomplete suggestions. */
+    private static final int MAX_SUGGESTIONS = 50;
+
+    private final LocationService locationService;
+    private final LocationClusterService locationClusterService;
+    private final LocationSearchIndex locationSearchIndex;
 
     /**
      * GET active locations with optional filters.
@@ -77,31 +108,150 @@ public class LocationRestController {
      * @param postalCode Optional filter by postal code.
      * @param latMin     Optional filter by minimum latitude.
      * @param latMax     Optional filter by maximum latitude.
-     * @return A list of locations matching the provided filters, or all active locations if no filters are provided.
+     * @param lonMin     Optional filter by minimum longitude.
+     * @param lonMax     Optional filter by maximum longitude.
+     * @param fields     Optional properties to return, e.g. cityName,latitude,longitude; only their columns are selected.
+     * @param embed      Optional resources to embed; locations have none.
+     * @return A list of locations matching the provided filters, or all active locations if no filters are provided
+     *         (with fields, one object with the requested properties per location), or 400 Bad Request for an unknown field.
      */
     @GetMapping
-    public List<Location> getAllLocations(
+    public ResponseEntity<List<?>> getAllLocations(
             @RequestParam(required = false) String cityName,
             @RequestParam(required = false) String postalCode,
             @RequestParam(required = false) Float latMin,
-            @RequestParam(required = false) Float latMax
+            @RequestParam(required = false) Float latMax,
+            @RequestParam(required = false) Float lonMin,
+            @RequestParam(required = false) Float lonMax,
+            @RequestParam(required = false) String fields,
+            @RequestParam(required = false) String embed
     ) {
+        Fieldset fieldset;
+        try {
+            fieldset = Fieldset.of(fields, embed, LocationRepositoryCustom.FIELDS, Map.of());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (fieldset != null) {
+            return ResponseEntity.ok(locationService.getActiveLocationFields(emptyToNull(cityName),
+                    emptyToNull(postalCode), latMin, latMax, lonMin, lonMax, fieldset));
+        }
         boolean noFilters = (cityName == null || cityName.isEmpty())
                             && (postalCode == null || postalCode.isEmpty())
                             && latMin == null
-                            && latMax == null;
+                            && latMax == null
+                            && lonMin == null
+                            && lonMax == null;
         if (noFilters) {
-            return locationRepository.findAllActive();
-        } else {
-            return locationRepository.filterLocations(
-                    cityName == null || cityName.isEmpty() ? null : cityName,
-                    postalCode == null || postalCode.isEmpty() ? null : postalCode,
-                    latMin,
-                    latMax
-            );
+            return ResponseEntity.ok(locationService.getActiveLocationViews(null, null, null, null, null, null));
+        }
+        boolean boxOnly = (cityName == null || cityName.isEmpty())
+                          && (postalCode == null || postalCode.isEmpty())
+                          && latMin != null && latMax != null && lonMin != null && lonMax != null;
+        if (boxOnly) {
+            return ResponseEntity.ok(locationService.findInBoundingBox(latMin, lonMin, latMax, lonMax).stream()
+                    .map(LocationView::from)
+                    .toList());
+        }
+        return ResponseEntity.ok(locationService.getActiveLocationViews(
+                cityName == null || cityName.isEmpty() ? null : cityName,
+                postalCode == null || postalCode.isEmpty() ? null : postalCode,
+                latMin,
+                latMax,
+                lonMin,
+                lonMax
+        ));
+    }
+
+    /**
+     * Retrieves the active locations with the given IDs, so a client that renders many rows asks once
+     * instead of once per row. Locations in the second-level cache are not read again.
+     *
+     * @param ids the IDs, comma separated
+     * @return a ResponseEntity containing the locations found in the order of the IDs and the IDs that
+     *         are unknown or deleted, or 400 Bad Request for more than {@link MultiGetResult#MAX_IDS} IDs
+     */
+    @GetMapping(params = "ids")
+    public ResponseEntity<MultiGetResult<LocationView>> getLocations(@RequestParam List<Long> ids) {
+        if (ids.size() > MultiGetResult.MAX_IDS) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(locationService.getLocationViews(ids));
+    }
+
+    /**
+     * Retrieves active locations near a point, nearest first.
+     * At least one of {@code radius} and {@code k} is required; when both are given,
+     * the k nearest locations within the radius are returned.
+     *
+     * @param lat    latitude of the query point
+     * @param lon    longitude of the query point
+     * @param radius maximum distance in metres (optional)
+     * @param k      maximum number of locations to return (optional)
+     * @return a ResponseEntity containing the matching locations ordered by distance,
+     *         or 400 Bad Request if the parameters are out of range
+     */
+    @GetMapping("/near")
+    public ResponseEntity<List<LocationView>> getNearbyLocations(
+            @RequestParam double lat,
+            @RequestParam double lon,
+            @RequestParam(required = false) Double radius,
+            @RequestParam(required = false) Integer k
+    ) {
+        boolean invalid = lat < -90 || lat > 90 || lon < -180 || lon > 180
+                || (radius == null && k == null)
+                || (radius != null && radius <= 0)
+                || (k != null && (k <= 0 || k > MAX_NEIGHBOURS));
+        if (invalid) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(locationService.findNearby(lat, lon, radius, k).stream()
+                .map(LocationView::from)
+                .toList());
+    }
+
+    /**
+     * Retrieves marker clusters for a map viewport.
+     * The response size depends on the zoom level and viewport, not on the number of locations.
+     *
+     * @param bbox the viewport as {@code minLon,minLat,maxLon,maxLat}; minLon is greater than maxLon
+     *             when the viewport crosses the antimeridian
+     * @param zoom the map zoom level (0-20)
+     * @return a ResponseEntity containing the clusters, or 400 Bad Request if the viewport is invalid
+     *         or covers more than 64 tiles at the requested zoom
+     */
+    @GetMapping("/clusters")
+    public ResponseEntity<List<LocationClusterService.Cluster>> getClusters(@RequestParam String bbox,
+                                                                            @RequestParam int zoom) {
+        String[] parts = bbox.split(",");
+        if (parts.length != 4) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            double lonMin = Double.parseDouble(parts[0].trim());
+            double latMin = Double.parseDouble(parts[1].trim());
+            double lonMax = Double.parseDouble(parts[2].trim());
+            double latMax = Double.parseDouble(parts[3].trim());
+            return ResponseEntity.ok(locationClusterService.clusters(lonMin, latMin, lonMax, latMax, zoom));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Rejected cluster request bbox={} zoom={}: {}", bbox, zoom, e.getMessage());
+            return ResponseEntity.badRequest().build();
         }
     }
 
+    /**
+     * Suggests active locations for a partial city name or postal code.
+     *
+     * @param q     the text typed so far
+     * @param limit maximum number of suggestions (default 10, at most 50)
+     * @return the best matches ordered by descending score
+     */
+    @GetMapping("/autocomplete")
+    public List<LocationSearchIndex.Suggestion> autocomplete(@RequestParam String q,
+                                                             @RequestParam(defaultValue = "10") int limit) {
+        return locationSearchIndex.suggest(q, Math.max(1, Math.min(limit, MAX_SUGGESTIONS)));
+    }
+
     /**
      * GET location by ID.
      */
@@ -113,12 +263,12 @@ public class LocationRestController {
      *         or a ResponseEntity with a 404 Not Found status if the location is not found or is deleted
      */
     @GetMapping("/{id}")
-    public ResponseEntity<Location> getLocation(@PathVariable Long id) {
-        Optional<Location> opt = locationRepository.findById(id);
+    public ResponseEntity<LocationView> getLocation(@PathVariable Long id) {
+        Optional<Location> opt = locationService.getLocationById(id);
         if (opt.isEmpty() || opt.get().isDeleted()) {
             return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.ok(opt.get());
+        return ResponseEntity.ok(LocationView.from(opt.get()));
     }
 
     /**
@@ -135,11 +285,11 @@ public class LocationRestController {
      * @return a ResponseEntity containing the saved location
      */
     @PostMapping
-    public ResponseEntity<Location> createLocation(@RequestBody Location location) {
+    public ResponseEntity<LocationView> createLocation(@RequestBody Location location) {
         location.setLocationId(null);
         location.setDeleted(false);
-        Location saved = locationRepository.save(location);
-        return ResponseEntity.ok(saved);
+        Location saved = locationService.saveLocation(location);
+        return ResponseEntity.ok(LocationView.from(saved));
     }
 
     /**
@@ -153,8 +303,8 @@ public class LocationRestController {
      * @return a ResponseEntity containing the updated location if found, or a 404 Not Found status if the location does not exist or is marked as deleted
      */
     @PutMapping("/{id}")
-    public ResponseEntity<Location> updateLocation(@PathVariable Long id, @RequestBody Location updated) {
-        Optional<Location> opt = locationRepository.findById(id);
+    public ResponseEntity<LocationView> updateLocation(@PathVariable Long id, @RequestBody Location updated) {
+        Optional<Location> opt = locationService.getLocationById(id);
         if (opt.isEmpty() || opt.get().isDeleted()) {
             return ResponseEntity.notFound().build();
         }
@@ -163,8 +313,7 @@ public class LocationRestController {
         existing.setCityName(updated.getCityName());
         existing.setLatitude(updated.getLatitude());
         existing.setLongitude(updated.getLongitude());
-        locationRepository.save(existing);
-        return ResponseEntity.ok(existing);
+        return ResponseEntity.ok(LocationView.from(locationService.saveLocation(existing)));
     }
 
     /**
@@ -179,13 +328,11 @@ public class LocationRestController {
      */
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> softDeleteLocation(@PathVariable Long id) {
-        Optional<Location> opt = locationRepository.findById(id);
+        Optional<Location> opt = locationService.getLocationById(id);
         if (opt.isEmpty() || opt.get().isDeleted()) {
             return ResponseEntity.notFound().build();
         }
-        Location location = opt.get();
-        location.setDeleted(true);
-        locationRepository.save(location);
+        locationService.softDeleteLocation(id);
         return ResponseEntity.noContent().build();
     }
 
@@ -200,15 +347,15 @@ public class LocationRestController {
      *         or a 404 Not Found status if the location does not exist or is not marked as deleted
      */
     @PostMapping("/{id}/restore")
-    public ResponseEntity<Location> restoreLocation(@PathVariable Long id) {
-        Optional<Location> opt = locationRepository.findById(id);
+    public ResponseEntity<LocationView> restoreLocation(@PathVariable Long id) {
+        Optional<Location> opt = locationService.getLocationById(id);
         if (opt.isEmpty() || !opt.get().isDeleted()) {
             return ResponseEntity.notFound().build();
         }
+        locationService.restoreLocation(id);
         Location location = opt.get();
         location.setDeleted(false);
-        locationRepository.save(location);
-        return ResponseEntity.ok(location);
+        return ResponseEntity.ok(LocationView.from(location));
     }
 
     /**
@@ -228,10 +375,126 @@ public class LocationRestController {
     @Secured("ROLE_ADMIN")
     @DeleteMapping("/{id}/permanent")
     public ResponseEntity<Void> permanentlyDeleteLocation(@PathVariable Long id) {
-        if (!locationRepository.existsById(id)) {
+        if (locationService.getLocationById(id).isEmpty()) {
             return ResponseEntity.notFound().build();
         }
-        locationRepository.deleteById(id);
+        locationService.permanentlyDeleteLocation(id);
         return ResponseEntity.noContent().build();
     }
+
+    /**
+     * Soft deletes many locations at once: the IDs in the body, or else all active locations
+     * matching the filters (same filters as {@link #getAllLocations}).
+     *
+     * @param request    the IDs to soft delete (optional)
+     * @param cityName   Optional filter by city name.
+     * @param postalCode Optional filter by postal code.
+     * @param latMin     Optional filter by minimum latitude.
+     * @param latMax     Optional filter by maximum latitude.
+     * @param lonMin     Optional filter by minimum longitude.
+     * @param lonMax     Optional filter by maximum longitude.
+     * @return a ResponseEntity with the number of matched and soft deleted locations,
+     *         or 400 Bad Request if neither IDs nor a filter are given
+     */
+    @PostMapping("/bulk/delete")
+    public ResponseEntity<BulkResult> softDeleteLocations(
+            @RequestBody(required = false) BulkRequest request,
+            @RequestParam(required = false) String cityName,
+            @RequestParam(required = false) String postalCode,
+            @RequestParam(required = false) Float latMin,
+            @RequestParam(required = false) Float latMax,
+            @RequestParam(required = false) Float lonMin,
+            @RequestParam(required = false) Float lonMax
+    ) {
+        if (request != null && request.hasIds()) {
+            return ResponseEntity.ok(locationService.softDeleteLocations(request.ids()));
+        }
+        if (noFilter(cityName, postalCode, latMin, latMax, lonMin, lonMax)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(locationService.softDeleteMatchingLocations(emptyToNull(cityName),
+                emptyToNull(postalCode), latMin, latMax, lonMin, lonMax));
+    }
+
+    /**
+     * Restores many locations at once: the IDs in the body, or else all deleted locations matching the filters.
+     *
+     * @param request    the IDs to restore (optional)
+     * @param cityName   Optional filter by city name.
+     * @param postalCode Optional filter by postal code.
+     * @param latMin     Optional filter by minimum latitude.
+     * @param latMax     Optional filter by maximum latitude.
+     * @param lonMin     Optional filter by minimum longitude.
+     * @param lonMax     Optional filter by maximum longitude.
+     * @return a ResponseEntity with the number of matched and restored locations,
+     *         or 400 Bad Request if neither IDs nor a filter are given
+     */
+    @PostMapping("/bulk/restore")
+    public ResponseEntity<BulkResult> restoreLocations(
+            @RequestBody(required = false) BulkRequest request,
+            @RequestParam(required = false) String cityName,
+            @RequestParam(required = false) String postalCode,
+            @RequestParam(required = false) Float latMin,
+            @RequestParam(required = false) Float latMax,
+            @RequestParam(required = false) Float lonMin,
+            @RequestParam(required = false) Float lonMax
+    ) {
+        if (request != null && request.hasIds()) {
+            return ResponseEntity.ok(locationService.restoreLocations(request.ids()));
+        }
+        if (noFilter(cityName, postalCode, latMin, latMax, lonMin, lonMax)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(locationService.restoreMatchingLocations(emptyToNull(cityName),
+                emptyToNull(postalCode), latMin, latMax, lonMin, lonMax));
+    }
+
+    /**
+     * Permanently deletes many locations at once: the IDs in the body (active or deleted), or else
+     * all deleted locations matching the filters. Nothing is deleted if a measurement still refers
+     * to one of them. Accessible only by users with ROLE_ADMIN.
+     *
+     * @param request    the IDs to permanently delete (optional)
+     * @param cityName   Optional filter by city name.
+     * @param postalCode Optional filter by postal code.
+     * @param latMin     Optional filter by minimum latitude.
+     * @param latMax     Optional filter by maximum latitude.
+     * @param lonMin     Optional filter by minimum longitude.
+     * @param lonMax     Optional filter by maximum longitude.
+     * @return a ResponseEntity with the number of matched and deleted locations,
+     *         or 400 Bad Request if neither IDs nor a filter are given
+     */
+    @Secured("ROLE_ADMIN")
+    @PostMapping("/bulk/permanent")
+    public ResponseEntity<BulkResult> permanentlyDeleteLocations(
+            @RequestBody(required = false) BulkRequest request,
+            @RequestParam(required = false) String cityName,
+            @RequestParam(required = false) String postalCode,
+            @RequestParam(required = false) Float latMin,
+            @RequestParam(required = false) Float latMax,
+            @RequestParam(required = false) Float lonMin,
+            @RequestParam(required = false) Float lonMax
+    ) {
+        if (request != null && request.hasIds()) {
+            return ResponseEntity.ok(locationService.permanentlyDeleteLocations(request.ids()));
+        }
+        if (noFilter(cityName, postalCode, latMin, latMax, lonMin, lonMax)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(locationService.permanentlyDeleteMatchingLocations(emptyToNull(cityName),
+                emptyToNull(postalCode), latMin, latMax, lonMin, lonMax));
+    }
+
+    /**
+     * A bulk change without IDs needs at least one filter, so an empty request never changes every row.
+     */
+    private static boolean noFilter(String cityName, String postalCode, Float latMin, Float latMax,
+                                    Float lonMin, Float lonMax) {
+        return emptyToNull(cityName) == null && emptyToNull(postalCode) == null
+                && latMin == null && latMax == null && lonMin == null && lonMax == null;
+    }
+
+    private static String emptyToNull(String value) {
+        return (value == null || value.isEmpty()) ? null : value;
+    }
 }
@@ -1,7 +1,7 @@
 package com.wefky.RESTfulWeb.controller;
 
-import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import org.springframework.security.access.annotation.Secured;
 import org.springframework.stereotype.Controller;
@@ -14,6 +14,9 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import com.wefky.RESTfulWeb.dto.KeysetPage;
+import com.wefky.RESTfulWeb.dto.KeysetRequest;
+import com.wefky.RESTfulWeb.dto.LocationView;
 import com.wefky.RESTfulWeb.entity.Location;
 import com.wefky.RESTfulWeb.service.LocationService;
 
@@ -27,25 +30,33 @@ public class LocationWebController {
 
     private final LocationService locationService;
 
+    private static final PageSupport.SortOptions SORT = new PageSupport.SortOptions(
+            Set.of("locationId", "postalCode", "cityName", "latitude", "longitude"),
+            "locationId", false, "locationId");
+
     @GetMapping
     public String listLocations(@RequestParam(required = false) String cityNameSearch,
                                 @RequestParam(required = false) String postalCodeSearch,
                                 @RequestParam(required = false) Float latMin,
                                 @RequestParam(required = false) Float latMax,
+                                @RequestParam(defaultValue = "0") int page,
+                                @RequestParam(defaultValue = "" + PageSupport.DEFAULT_PAGE_SIZE) int size,
+                                @RequestParam(required = false) String sort,
+                                @RequestParam(required = false) String dir,
+                                @RequestParam(required = false) String after,
+                                @RequestParam(required = false) String before,
                                 HttpServletRequest request,
                                 Model model) {
         model.addAttribute("currentUri", request.getRequestURI());
-        boolean noFilters = (cityNameSearch == null || cityNameSearch.isBlank())
-                && (postalCodeSearch == null || postalCodeSearch.isBlank())
-                && latMin == null
-                && latMax == null;
-        List<Location> locations;
-        if (noFilters) {
-            locations = locationService.getAllActiveLocations();
-        } else {
-            locations = locationService.filterLocations(cityNameSearch, postalCodeSearch, latMin, latMax);
-        }
-        model.addAttribute("locations", locations);
+        KeysetRequest keyset = PageSupport.keyset(size, sort, dir, after, before, SORT);
+        KeysetPage<LocationView> locations = locationService.getActiveLocationsPage(
+                (cityNameSearch == null || cityNameSearch.isBlank()) ? null : cityNameSearch,
+                (postalCodeSearch == null || postalCodeSearch.isBlank()) ? null : postalCodeSearch,
+                latMin,
+                latMax,
+                keyset);
+        PageSupport.addPageAttributes(model, locations, page, keyset);
+        model.addAttribute("locations", locations.content());
         model.addAttribute("cityNameSearch", cityNameSearch);
         model.addAttribute("postalCodeSearch", postalCodeSearch);
         model.addAttribute("latMin", latMin);
@@ -102,20 +113,24 @@ public class LocationWebController {
                             @RequestParam(required = false) String postalCodeSearch,
                             @RequestParam(required = false) Float latMin,
                             @RequestParam(required = false) Float latMax,
+                            @RequestParam(defaultValue = "0") int page,
+                            @RequestParam(defaultValue = "" + PageSupport.DEFAULT_PAGE_SIZE) int size,
+                            @RequestParam(required = false) String sort,
+                            @RequestParam(required = false) String dir,
+                            @RequestParam(required = false) String after,
+                            @RequestParam(required = false) String before,
                             HttpServletRequest request,
                             Model model) {
         model.addAttribute("currentUri", request.getRequestURI());
-        boolean noFilters = (cityNameSearch == null || cityNameSearch.isBlank())
-                && (postalCodeSearch == null || postalCodeSearch.isBlank())
-                && latMin == null
-                && latMax == null;
-        List<Location> locations;
-        if (noFilters) {
-            locations = locationService.getAllDeletedLocations();
-        } else {
-            locations = locationService.filterDeletedLocations(cityNameSearch, postalCodeSearch, latMin, latMax);
-        }
-        model.addAttribute("locations", locations);
+        KeysetRequest keyset = PageSupport.keyset(size, sort, dir, after, before, SORT);
+        KeysetPage<LocationView> locations = locationService.getDeletedLocationsPage(
+                (cityNameSearch == null || cityNameSearch.isBlank()) ? null : cityNameSearch,
+                (postalCodeSearch == null || postalCodeSearch.isBlank()) ? null : postalCodeSearch,
+                latMin,
+                latMax,
+                keyset);
+        PageSupport.addPageAttributes(model, locations, page, keyset);
+        model.addAttribute("locations", locations.content());
         model.addAttribute("cityNameSearch", cityNameSearch);
         model.addAttribute("postalCodeSearch", postalCodeSearch);
         model.addAttribute("latMin", latMin);
@@ -1,13 +1,24 @@
 package com.wefky.RESTfulWeb.controller;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Optional;
 
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
 import org.springframework.security.access.annotation.Secured;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -15,13 +26,28 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.wefky.RESTfulWeb.dto.BulkRequest;
+import com.wefky.RESTfulWeb.dto.BulkResult;
+import com.wefky.RESTfulWeb.dto.Fieldset;
+import com.wefky.RESTfulWeb.dto.MeasurementBatchResult;
+import com.wefky.RESTfulWeb.dto.MeasurementView;
+import com.wefky.RESTfulWeb.dto.MultiGetResult;
 import com.wefky.RESTfulWeb.entity.Measurement;
-import com.wefky.RESTfulWeb.repository.MeasurementRepository;
+import com.wefky.RESTfulWeb.repository.MeasurementRepositoryCustom;
+import com.wefky.RESTfulWeb.service.MeasurementService;
+import com.wefky.RESTfulWeb.service.MeasurementStreamHub;
 
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 
 @RestController
@@ -29,7 +55,14 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class MeasurementRestController {
 
-    private final MeasurementRepository measurementRepository;
+    /** Media type of Smile, Jackson's binary JSON. */
+    static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+    private final MeasurementService measurementService;
+    private final MeasurementStreamHub measurementStreamHub;
+    private final MappingJackson2HttpMessageConverter jsonConverter;
+    private final MappingJackson2CborHttpMessageConverter cborConverter;
+    private final MappingJackson2SmileHttpMessageConverter smileConverter;
 
     /**
      * Retrieves a list of measurements based on the provided filters.
@@ -39,49 +72,196 @@ public class MeasurementRestController {
      * @param start the start date to filter by (optional, format: dd/MM/yyyy)
      * @param end the end date to filter by (optional, format: dd/MM/yyyy)
      * @param cityName the name of the city to filter by (optional)
-     * @return a ResponseEntity containing the list of measurements
+     * @param fields the properties to return, e.g. timestamp,amount,location.cityName (optional);
+     *               only their columns are selected
+     * @param embed the resources to embed with all their properties, i.e. location (optional)
+     * @return a ResponseEntity containing the list of measurements (with fields or embed, one object
+     *         with the requested properties per measurement), or 400 Bad Request for an unknown field
      */
     @GetMapping
-    public ResponseEntity<List<Measurement>> getAllMeasurements(
+    public ResponseEntity<List<?>> getAllMeasurements(
             @RequestParam(required = false) String measurementUnit,
             @RequestParam(required = false) @DateTimeFormat(pattern="dd/MM/yyyy") LocalDate start,
             @RequestParam(required = false) @DateTimeFormat(pattern="dd/MM/yyyy") LocalDate end,
-            @RequestParam(required = false) String cityName
+            @RequestParam(required = false) String cityName,
+            @RequestParam(required = false) String fields,
+            @RequestParam(required = false) String embed
     ) {
         LocalDateTime startDateTime = (start != null) ? start.atStartOfDay() : null;
         LocalDateTime endDateTime = (end != null) ? end.atTime(LocalTime.MAX) : null;
-        boolean noFilters = (measurementUnit == null || measurementUnit.isEmpty())
-                && startDateTime == null
-                && endDateTime == null
-                && (cityName == null || cityName.isEmpty());
-        if (noFilters) {
-            List<Measurement> measurements = measurementRepository.findAllActive();
-            return ResponseEntity.ok(measurements);
-        } else {
-            List<Measurement> measurements = measurementRepository.filterMeasurementsNative(
+        Fieldset fieldset;
+        try {
+            fieldset = Fieldset.of(fields, embed, MeasurementRepositoryCustom.FIELDS,
+                    MeasurementRepositoryCustom.EMBEDDABLE);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (fieldset != null) {
+            return ResponseEntity.ok(measurementService.getActiveMeasurementFields(
                     (measurementUnit == null || measurementUnit.isEmpty()) ? null : measurementUnit,
                     startDateTime,
                     endDateTime,
-                    (cityName == null || cityName.isEmpty()) ? null : cityName
-            );
-            return ResponseEntity.ok(measurements);
+                    (cityName == null || cityName.isEmpty()) ? null : cityName,
+                    fieldset));
+        }
+        List<MeasurementView> measurements = measurementService.getActiveMeasurementViews(
+                (measurementUnit == null || measurementUnit.isEmpty()) ? null : measurementUnit,
+                startDateTime,
+                endDateTime,
+                (cityName == null || cityName.isEmpty()) ? null : cityName
+        );
+        return ResponseEntity.ok(measurements);
+    }
+
+    /**
+     * Exports the active measurements matching the filters as a file, in ID order.
+     * Takes the same filters as {@link #getAllMeasurements}. The format follows the Accept header:
+     * JSON (default), CBOR (application/cbor) or Smile (application/x-jackson-smile). Rows are
+     * written while they are read from the database, so the export size is not bounded by memory.
+     *
+     * @param measurementUnit the unit of measurement to filter by (optional)
+     * @param start the start date to filter by (optional, format: dd/MM/yyyy)
+     * @param end the end date to filter by (optional, format: dd/MM/yyyy)
+     * @param cityName the name of the city to filter by (optional)
+     * @param accept the Accept header of the request
+     * @param response the response the array of measurements is written to
+     * @throws IOException if writing the response fails
+     */
+    @GetMapping(value = "/export",
+            produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE })
+    public void exportMeasurements(
+            @RequestParam(required = false) String measurementUnit,
+            @RequestParam(required = false) @DateTimeFormat(pattern="dd/MM/yyyy") LocalDate start,
+            @RequestParam(required = false) @DateTimeFormat(pattern="dd/MM/yyyy") LocalDate end,
+            @RequestParam(required = false) String cityName,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            HttpServletResponse response
+    ) throws IOException {
+        AbstractJackson2HttpMessageConverter converter = negotiate(accept);
+        MediaType mediaType = converter.getSupportedMediaTypes().get(0);
+        String extension = switch (mediaType.getSubtype()) {
+            case "cbor" -> "cbor";
+            case "x-jackson-smile" -> "sml";
+            default -> "json";
+        };
+        response.setContentType(mediaType.toString());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename("measurements." + extension).build().toString());
+
+        ObjectMapper mapper = converter.getObjectMapper();
+        // One flush per row would defeat the output buffer.
+        ObjectWriter writer = mapper.writerFor(MeasurementView.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(response.getOutputStream())) {
+            generator.writeStartArray();
+            try {
+                measurementService.forEachActiveMeasurementView(
+                        (measurementUnit == null || measurementUnit.isEmpty()) ? null : measurementUnit,
+                        (start != null) ? start.atStartOfDay() : null,
+                        (end != null) ? end.atTime(LocalTime.MAX) : null,
+                        (cityName == null || cityName.isEmpty()) ? null : cityName,
+                        view -> {
+                            try {
+                                writer.writeValue(generator, view);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    /**
+     * Picks the export converter for the Accept header: the first acceptable format by quality,
+     * with JSON preferred when several formats are equally acceptable.
+     */
+    private AbstractJackson2HttpMessageConverter negotiate(String accept) {
+        List<AbstractJackson2HttpMessageConverter> converters = List.of(jsonConverter, cborConverter, smileConverter);
+        if (accept == null || accept.isBlank()) {
+            return jsonConverter;
         }
+        List<MediaType> accepted = new ArrayList<>(MediaType.parseMediaTypes(accept));
+        accepted.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed());
+        for (MediaType type : accepted) {
+            for (AbstractJackson2HttpMessageConverter converter : converters) {
+                if (converter.getSupportedMediaTypes().stream().anyMatch(type::includes)) {
+                    return converter;
+                }
+            }
+        }
+        return jsonConverter;
     }
 
     /**
-     * Retrieves a measurement by its ID.
+     * Streams committed measurement changes as Server-Sent Events, instead of polling GET /api/measurements.
+     *
+     * Each event is named after the change (created, updated, soft_deleted, restored, purged), carries
+     * {"measurementId","type","measurement"} as data and an ID; a reconnecting EventSource sends the
+     * last ID as Last-Event-ID and receives the changes it missed. A {@code reset} event means those
+     * changes are no longer available and the client should reload the list.
+     *
+     * @param measurementUnit only changes of measurements whose unit contains this text (optional)
+     * @param cityName only changes of measurements whose location's city contains this text (optional)
+     * @param locationId only changes of measurements at this location (optional)
+     * @param lastEventId the ID of the last event received, sent by the browser on reconnect (optional)
+     * @return a ResponseEntity with the event stream,
+     *         or a ResponseEntity with a 503 Service Unavailable status if too many streams are open
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamMeasurements(
+            @RequestParam(required = false) String measurementUnit,
+            @RequestParam(required = false) String cityName,
+            @RequestParam(required = false) Long locationId,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId
+    ) {
+        Long resumeAfter = null;
+        if (lastEventId != null && !lastEventId.isBlank()) {
+            try {
+                resumeAfter = Long.valueOf(lastEventId.trim());
+            } catch (NumberFormatException e) {
+                // Not one of ours; stream live events only.
+            }
+        }
+        MeasurementStreamHub.Filter filter = new MeasurementStreamHub.Filter(
+                (measurementUnit == null || measurementUnit.isEmpty()) ? null : measurementUnit,
+                (cityName == null || cityName.isEmpty()) ? null : cityName,
+                locationId);
+        return measurementStreamHub.subscribe(filter, resumeAfter)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+    }
+
+    /**
+     * Retrieves the active measurements with the given IDs with one query, so a client that renders
+     * many rows asks once instead of once per row.
+     *
+     * @param ids the IDs, comma separated
+     * @return a ResponseEntity containing the measurements found in the order of the IDs and the IDs
+     *         that are unknown or deleted, or 400 Bad Request for more than {@link MultiGetResult#MAX_IDS} IDs
+     */
+    @GetMapping(params = "ids")
+    public ResponseEntity<MultiGetResult<MeasurementView>> getMeasurements(@RequestParam List<Long> ids) {
+        if (ids.size() > MultiGetResult.MAX_IDS) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(measurementService.getMeasurementViews(ids));
+    }
+
+    /**
+     * Retrieves a measurement by its ID. Concurrent requests for single measurements share one query.
      *
      * @param id the ID of the measurement to retrieve
      * @return a ResponseEntity containing the measurement if found and not deleted,
      *         or a ResponseEntity with a 404 Not Found status if the measurement is not found or is deleted
      */
     @GetMapping("/{id}")
-    public ResponseEntity<Measurement> getMeasurement(@PathVariable Long id) {
-        Optional<Measurement> opt = measurementRepository.findById(id);
-        if (opt.isEmpty() || opt.get().isDeleted()) {
-            return ResponseEntity.notFound().build();
-        }
-        return ResponseEntity.ok(opt.get());
+    public ResponseEntity<MeasurementView> getMeasurement(@PathVariable Long id) {
+        return measurementService.getActiveMeasurementView(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
     }
 
     /**
@@ -95,15 +275,35 @@ public class MeasurementRestController {
      * @return ResponseEntity containing the created Measurement object and HTTP status 201 (Created)
      */
     @PostMapping
-    public ResponseEntity<Measurement> createMeasurement(@RequestBody Measurement measurement) {
+    public ResponseEntity<MeasurementView> createMeasurement(@RequestBody Measurement measurement) {
       
         if (measurement.getTimestamp() == null) {
             measurement.setTimestamp(LocalDateTime.now());
         }
         measurement.setMeasurementId(null);
         measurement.setDeleted(false);
-        Measurement saved = measurementRepository.save(measurement);
-        return ResponseEntity.status(201).body(saved);
+        Measurement saved = measurementService.saveMeasurement(measurement);
+        return ResponseEntity.status(201).body(MeasurementView.from(saved));
+    }
+
+    /**
+     * Creates a batch of new Measurements in one transaction.
+     *
+     * The body is an array of measurements in any of the API's formats (JSON, CBOR or Smile, given
+     * by Content-Type); each location is referenced by its locationId. The batch is saved completely
+     * or not at all.
+     *
+     * @param measurements the Measurement objects to be created
+     * @return ResponseEntity with the new IDs in request order and HTTP status 201 (Created),
+     *         or HTTP status 400 (Bad Request) with one message per invalid measurement
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<MeasurementBatchResult> createMeasurements(@RequestBody List<Measurement> measurements) {
+        MeasurementBatchResult result = measurementService.ingestMeasurements(measurements);
+        if (result.isRejected()) {
+            return ResponseEntity.badRequest().body(result);
+        }
+        return ResponseEntity.status(201).body(result);
     }
 
     /**
@@ -115,18 +315,10 @@ public class MeasurementRestController {
      *         or a ResponseEntity with a 404 Not Found status if the Measurement does not exist or is deleted
      */
     @PutMapping("/{id}")
-    public ResponseEntity<Measurement> updateMeasurement(@PathVariable Long id, @RequestBody Measurement updated) {
-        Optional<Measurement> opt = measurementRepository.findById(id);
-        if (opt.isEmpty() || opt.get().isDeleted()) {
-            return ResponseEntity.notFound().build();
-        }
-        Measurement existing = opt.get();
-        existing.setMeasurementUnit(updated.getMeasurementUnit());
-        existing.setAmount(updated.getAmount());
-        existing.setTimestamp(updated.getTimestamp());
-        existing.setLocation(updated.getLocation());
-        measurementRepository.save(existing);
-        return ResponseEntity.ok(existing);
+    public ResponseEntity<MeasurementView> updateMeasurement(@PathVariable Long id, @RequestBody Measurement updated) {
+        return measurementService.updateMeasurement(id, updated)
+                .map(measurement -> ResponseEntity.ok(MeasurementView.from(measurement)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     /**
@@ -138,13 +330,9 @@ public class MeasurementRestController {
      */
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> softDeleteMeasurement(@PathVariable Long id) {
-        Optional<Measurement> opt = measurementRepository.findById(id);
-        if (opt.isEmpty() || opt.get().isDeleted()) {
+        if (!measurementService.softDeleteMeasurement(id)) {
             return ResponseEntity.notFound().build();
         }
-        Measurement measurement = opt.get();
-        measurement.setDeleted(true);
-        measurementRepository.save(measurement);
         return ResponseEntity.noContent().build();
     }
 
@@ -156,15 +344,10 @@ public class MeasurementRestController {
      *         or ResponseEntity with not found status if the measurement does not exist or is not deleted
      */
     @PostMapping("/{id}/restore")
-    public ResponseEntity<Measurement> restoreMeasurement(@PathVariable Long id) {
-        Optional<Measurement> opt = measurementRepository.findById(id);
-        if (opt.isEmpty() || !opt.get().isDeleted()) {
-            return ResponseEntity.notFound().build();
-        }
-        Measurement measurement = opt.get();
-        measurement.setDeleted(false);
-        measurementRepository.save(measurement);
-        return ResponseEntity.ok(measurement);
+    public ResponseEntity<MeasurementView> restoreMeasurement(@PathVariable Long id) {
+        return measurementService.restoreMeasurement(id)
+                .map(measurement -> ResponseEntity.ok(MeasurementView.from(measurement)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     /**
@@ -180,10 +363,122 @@ public class MeasurementRestController {
     @Secured("ROLE_ADMIN")
     @DeleteMapping("/{id}/permanent")
     public ResponseEntity<Void> permanentlyDeleteMeasurement(@PathVariable Long id) {
-        if (!measurementRepository.existsById(id)) {
+        if (!measurementService.permanentlyDeleteMeasurement(id)) {
             return ResponseEntity.notFound().build();
         }
-        measurementRepository.deleteById(id);
         return ResponseEntity.noContent().build();
     }
+
+    /**
+     * Soft deletes many measurements at once: the IDs in the body, or else all active measurements
+     * matching the filters (same filters as {@link #getAllMeasurements}). The rows are changed with
+     * set-based statements, and each one still appears in the stream and the change feed.
+     *
+     * @param request the IDs to soft delete (optional)
+     * @param measurementUnit the unit of measurement to filter by (optional)
+     * @param start the start date to filter by (optional, format: dd/MM/yyyy)
+     * @param end the end date to filter by (optional, format: dd/MM/yyyy)
+     * @param cityName the name of the city to filter by (optional)
+     * @return a ResponseEntity with the number of matched and soft deleted measurements,
+     *         or a ResponseEntity with a 400 Bad Request status if neither IDs nor a filter are given
+     */
+    @PostMapping("/bulk/delete")
+    public ResponseEntity<BulkResult> softDeleteMeasurements(
+            @RequestBody(required = false) BulkRequest request,
+            @RequestParam(required = false) String measurementUnit,
+            @RequestParam(required = false) @DateTimeFormat(pattern="dd/MM/yyyy") LocalDate start,
+            @RequestParam(required = false) @DateTimeFormat(pattern="dd/MM/yyyy") LocalDate end,
+            @RequestParam(required = false) String cityName
+    ) {
+        if (request != null && request.hasIds()) {
+            return ResponseEntity.ok(measurementService.softDeleteMeasurements(request.ids()));
+        }
+        if (noFilter(measurementUnit, start, end, cityName)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(measurementService.softDeleteMatchingMeasurements(
+                (measurementUnit == null || measurementUnit.isEmpty()) ? null : measurementUnit,
+                (start != null) ? start.atStartOfDay() : null,
+                (end != null) ? end.atTime(LocalTime.MAX) : null,
+                (cityName == null || cityName.isEmpty()) ? null : cityName));
+    }
+
+    /**
+     * Restores many measurements at once: the IDs in the body, or else all deleted measurements
+     * matching the filters.
+     *
+     * @param request the IDs to restore (optional)
+     * @param measurementUnit the unit of measurement to filter by (optional)
+     * @param start the start date to filter by (optional, format: dd/MM/yyyy)
+     * @param end the end date to filter by (optional, format: dd/MM/yyyy)
+     * @param cityName the name of the city to filter by (optional)
+     * @return a ResponseEntity with the number of matched and restored measurements,
+     *         or a ResponseEntity with a 400 Bad Request status if neither IDs nor a filter are given
+     */
+    @PostMapping("/bulk/restore")
+    public ResponseEntity<BulkResult> restoreMeasurements(
+            @RequestBody(required = false) BulkRequest request,
+            @RequestParam(required = false) String measurementUnit,
+            @RequestParam(required = false) @DateTimeFormat(pattern="dd/MM/yyyy") LocalDate start,
+            @RequestParam(required = false) @DateTimeFormat(pattern="dd/MM/yyyy") LocalDate end,
+            @RequestParam(required = false) String cityName
+    ) {
+        if (request != null && request.hasIds()) {
+            return ResponseEntity.ok(measurementService.restoreMeasurements(request.ids()));
+        }
+        if (noFilter(measurementUnit, start, end, cityName)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(measurementService.restoreMatchingMeasurements(
+                (measurementUnit == null || measurementUnit.isEmpty()) ? null : measurementUnit,
+                (start != null) ? start.atStartOfDay() : null,
+                (end != null) ? end.atTime(LocalTime.MAX) : null,
+                (cityName == null || cityName.isEmpty()) ? null : cityName));
+    }
+
+    /**
+     * Permanently deletes many measurements at once: the IDs in the body (active or deleted),
+     * or else all deleted measurements matching the filters.
+     *
+     * This method is secured and can only be accessed by users with the "ROLE_ADMIN" authority.
+     *
+     * @param request the IDs to permanently delete (optional)
+     * @param measurementUnit the unit of measurement to filter by (optional)
+     * @param start the start date to filter by (optional, format: dd/MM/yyyy)
+     * @param end the end date to filter by (optional, format: dd/MM/yyyy)
+     * @param cityName the name of the city to filter by (optional)
+     * @return a ResponseEntity with the number of matched and deleted measurements,
+     *         or a ResponseEntity with a 400 Bad Request status if neither IDs nor a filter are given
+     */
+    @Secured("ROLE_ADMIN")
+    @PostMapping("/bulk/permanent")
+    public ResponseEntity<BulkResult> permanentlyDeleteMeasurements(
+            @RequestBody(required = false) BulkRequest request,
+            @RequestParam(required = false) String measurementUnit,
+            @RequestParam(required = false) @DateTimeFormat(pattern="dd/MM/yyyy") LocalDate start,
+            @RequestParam(required = false) @DateTimeFormat(pattern="dd/MM/yyyy") LocalDate end,
+            @RequestParam(required = false) String cityName
+    ) {
+        if (request != null && request.hasIds()) {
+            return ResponseEntity.ok(measurementService.permanentlyDeleteMeasurements(request.ids()));
+        }
+        if (noFilter(measurementUnit, start, end, cityName)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(measurementService.permanentlyDeleteMatchingMeasurements(
+                (measurementUnit == null || measurementUnit.isEmpty()) ? null : measurementUnit,
+                (start != null) ? start.atStartOfDay() : null,
+                (end != null) ? end.atTime(LocalTime.MAX) : null,
+                (cityName == null || cityName.isEmpty()) ? null : cityName));
+    }
+
+    /**
+     * A bulk change without IDs needs at least one filter, so an empty request never changes every row.
+     */
+    private static boolean noFilter(String measurementUnit, LocalDate start, LocalDate end, String cityName) {
+        return (measurementUnit == null || measurementUnit.isEmpty())
+                && start == null
+                && end == null
+                && (cityName == null || cityName.isEmpty());
+    }
 }
@@ -5,8 +5,8 @@ import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
-import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,9 +21,12 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import com.wefky.RESTfulWeb.dto.KeysetPage;
+import com.wefky.RESTfulWeb.dto.KeysetRequest;
+import com.wefky.RESTfulWeb.dto.MeasurementView;
 import com.wefky.RESTfulWeb.entity.Measurement;
-import com.wefky.RESTfulWeb.service.LocationService;
 import com.wefky.RESTfulWeb.service.MeasurementService;
+import com.wefky.RESTfulWeb.service.ReferenceDataCache;
 
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
@@ -35,7 +38,11 @@ public class MeasurementWebController {
 
     private static final Logger logger = LoggerFactory.getLogger(MeasurementWebController.class);
     private final MeasurementService measurementService;
-    private final LocationService locationService;
+    private final ReferenceDataCache referenceData;
+
+    private static final PageSupport.SortOptions SORT = new PageSupport.SortOptions(
+            Set.of("measurementId", "measurementUnit", "amount", "timestamp"),
+            "timestamp", true, "measurementId");
 
     // Date formatter for dates only (dd/MM/yyyy)
     private final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
@@ -46,6 +53,12 @@ public class MeasurementWebController {
             @RequestParam(required = false) String startDate, // expecting dd/MM/yyyy
             @RequestParam(required = false) String endDate,   // expecting dd/MM/yyyy
             @RequestParam(required = false) String cityName,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "" + PageSupport.DEFAULT_PAGE_SIZE) int size,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String dir,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) String before,
             HttpServletRequest request,
             Model model,
             RedirectAttributes redirectAttributes) {
@@ -70,24 +83,17 @@ public class MeasurementWebController {
             }
         }
 
-        boolean noFilters = (measurementUnit == null || measurementUnit.isBlank())
-                && startDateTime == null
-                && endDateTime == null
-                && (cityName == null || cityName.isBlank());
-        List<Measurement> measurements;
-        if (noFilters) {
-            measurements = measurementService.getAllActiveMeasurements();
-        } else {
-            measurements = measurementService.filterMeasurements(
-                    (measurementUnit == null || measurementUnit.isBlank()) ? null : measurementUnit,
-                    startDateTime,
-                    endDateTime,
-                    (cityName == null || cityName.isBlank()) ? null : cityName
-            );
-        }
-
-        model.addAttribute("measurements", measurements);
+        KeysetRequest keyset = PageSupport.keyset(size, sort, dir, after, before, SORT);
+        KeysetPage<MeasurementView> measurements = measurementService.getActiveMeasurementsPage(
+                (measurementUnit == null || measurementUnit.isBlank()) ? null : measurementUnit,
+                startDateTime,
+                endDateTime,
+                (cityName == null || cityName.isBlank()) ? null : cityName,
+                keyset);
+        PageSupport.addPageAttributes(model, measurements, page, keyset);
+        model.addAttribute("measurements", measurements.content());
         model.addAttribute("measurementUnit", measurementUnit);
+        model.addAttribute("measurementUnits", referenceData.getMeasurementUnits());
         model.addAttribute("startDate", startDate);
         model.addAttribute("endDate", endDate);
         model.addAttribute("cityName", cityName);
@@ -101,7 +107,8 @@ public class MeasurementWebController {
         measurement.setTimestamp(LocalDateTime.now());
         model.addAttribute("measurement", measurement);
         model.addAttribute("mode", "new");
-        model.addAttribute("allLocations", locationService.getAllActiveLocations());
+        model.addAttribute("allLocations", referenceData.getActiveLocations());
+        model.addAttribute("measurementUnits", referenceData.getMeasurementUnits());
         return "measurementForm";  // renders measurementForm.html
     }
 
@@ -117,7 +124,8 @@ public class MeasurementWebController {
         }
         model.addAttribute("measurement", opt.get());
         model.addAttribute("mode", "edit");
-        model.addAttribute("allLocations", locationService.getAllActiveLocations());
+        model.addAttribute("allLocations", referenceData.getActiveLocations());
+        model.addAttribute("measurementUnits", referenceData.getMeasurementUnits());
         return "measurementForm";  // renders measurementForm.html
     }
 
@@ -152,6 +160,12 @@ public class MeasurementWebController {
             @RequestParam(required = false) String startDate,
             @RequestParam(required = false) String endDate,
             @RequestParam(required = false) String cityName,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "" + PageSupport.DEFAULT_PAGE_SIZE) int size,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String dir,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) String before,
             HttpServletRequest request,
             Model model,
             RedirectAttributes redirectAttributes) {
@@ -174,22 +188,15 @@ public class MeasurementWebController {
                 throw new RuntimeException("Invalid date format for endDate. Please use dd/MM/yyyy.");
             }
         }
-        boolean noFilters = (measurementUnit == null || measurementUnit.isBlank())
-                && startDateTime == null
-                && endDateTime == null
-                && (cityName == null || cityName.isBlank());
-        List<Measurement> deletedMeasurements;
-        if (noFilters) {
-            deletedMeasurements = measurementService.getAllDeletedMeasurements();
-        } else {
-            deletedMeasurements = measurementService.filterDeletedMeasurements(
-                    (measurementUnit == null || measurementUnit.isBlank()) ? null : measurementUnit,
-                    startDateTime,
-                    endDateTime,
-                    (cityName == null || cityName.isBlank()) ? null : cityName
-            );
-        }
-        model.addAttribute("deletedMeasurements", deletedMeasurements);
+        KeysetRequest keyset = PageSupport.keyset(size, sort, dir, after, before, SORT);
+        KeysetPage<MeasurementView> deletedMeasurements = measurementService.getDeletedMeasurementsPage(
+                (measurementUnit == null || measurementUnit.isBlank()) ? null : measurementUnit,
+                startDateTime,
+                endDateTime,
+                (cityName == null || cityName.isBlank()) ? null : cityName,
+                keyset);
+        PageSupport.addPageAttributes(model, deletedMeasurements, page, keyset);
+        model.addAttribute("deletedMeasurements", deletedMeasurements.content());
         model.addAttribute("measurementUnit", measurementUnit);
         model.addAttribute("startDate", startDate);
         model.addAttribute("endDate", endDate);
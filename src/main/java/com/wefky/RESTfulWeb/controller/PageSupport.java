@@ -0,0 +1,79 @@
+package com.wefky.RESTfulWeb.controller;
+
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.ui.Model;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import com.wefky.RESTfulWeb.dto.KeysetPage;
+import com.wefky.RESTfulWeb.dto.KeysetRequest;
+
+/**
+ * Helpers shared by the paginated web listings.
+ * Turns the size/sort/dir/after/before request parameters into a bounded {@link KeysetRequest} that
+ * only sorts by whitelisted properties, and exposes the page plus link bases to the
+ * fragments/pagination template. The page parameter is only the number shown to the user; the
+ * cursors decide which rows a page holds.
+ */
+final class PageSupport {
+
+    static final int DEFAULT_PAGE_SIZE = 20;
+    static final int MAX_PAGE_SIZE = 100;
+    static final List<Integer> PAGE_SIZES = List.of(10, 20, 50, 100);
+
+    /**
+     * The sortable properties of a listing.
+     *
+     * @param properties        entity properties a user may sort by
+     * @param defaultSort       property used when no (valid) sort is requested
+     * @param defaultDescending whether the default order is descending
+     * @param idProperty        unique tie-breaker appended to every order so pages are stable
+     */
+    record SortOptions(Set<String> properties, String defaultSort, boolean defaultDescending, String idProperty) {
+    }
+
+    private PageSupport() {
+    }
+
+    static KeysetRequest keyset(int size, String sort, String dir, String after, String before,
+                                SortOptions options) {
+        int boundedSize = Math.max(1, Math.min(MAX_PAGE_SIZE, size));
+        if (sort != null && options.properties().contains(sort)) {
+            return new KeysetRequest(sort, "desc".equalsIgnoreCase(dir), boundedSize, after, before);
+        }
+        return new KeysetRequest(options.defaultSort(), options.defaultDescending(), boundedSize, after, before);
+    }
+
+    /**
+     * Adds the page and the attributes the pagination fragments need: the page number to show,
+     * the order in effect, and the current URL without its paging parameters (for the page links),
+     * also without sort/dir (for column headers) and without size (for the page-size links).
+     */
+    static void addPageAttributes(Model model, KeysetPage<?> page, int pageNumber, KeysetRequest request) {
+        model.addAttribute("page", page);
+        // A stale cursor falls back to the first page, whatever number the link carried.
+        model.addAttribute("pageNumber", page.isFirst() ? 0 : Math.max(1, pageNumber));
+        model.addAttribute("pageSizes", PAGE_SIZES);
+        model.addAttribute("sort", request.sort());
+        model.addAttribute("dir", request.descending() ? "desc" : "asc");
+        model.addAttribute("pageUrl", ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("page")
+                .replaceQueryParam("after")
+                .replaceQueryParam("before")
+                .build().toUriString());
+        model.addAttribute("sortUrl", ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("page")
+                .replaceQueryParam("after")
+                .replaceQueryParam("before")
+                .replaceQueryParam("sort")
+                .replaceQueryParam("dir")
+                .build().toUriString());
+        model.addAttribute("sizeUrl", ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("page")
+                .replaceQueryParam("after")
+                .replaceQueryParam("before")
+                .replaceQueryParam("size")
+                .build().toUriString());
+    }
+}
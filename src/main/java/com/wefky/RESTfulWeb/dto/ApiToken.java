@@ -0,0 +1,15 @@
+package com.wefky.RESTfulWeb.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * A bearer token for the API, in the shape of an OAuth 2.0 token response.
+ *
+ * @param accessToken the signed token, sent as "Authorization: Bearer <token>"
+ * @param tokenType   always "Bearer"
+ * @param expiresIn   seconds until the token expires
+ */
+public record ApiToken(@JsonProperty("access_token") String accessToken,
+                       @JsonProperty("token_type") String tokenType,
+                       @JsonProperty("expires_in") long expiresIn) {
+}
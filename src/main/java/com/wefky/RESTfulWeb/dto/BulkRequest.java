@@ -0,0 +1,16 @@
+package com.wefky.RESTfulWeb.dto;
+
+import java.util.List;
+
+/**
+ * Body of the bulk soft delete, restore and permanent delete endpoints: the IDs to change.
+ * Without a body (or without IDs) the endpoints change the rows matching their filter parameters.
+ *
+ * @param ids the IDs of the rows to change; unknown IDs and rows already in the target state are skipped
+ */
+public record BulkRequest(List<Long> ids) {
+
+    public boolean hasIds() {
+        return ids != null && !ids.isEmpty();
+    }
+}
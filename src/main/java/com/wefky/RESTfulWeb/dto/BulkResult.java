@@ -0,0 +1,10 @@
+package com.wefky.RESTfulWeb.dto;
+
+/**
+ * Result of a bulk soft delete, restore or permanent delete.
+ *
+ * @param matched  the number of distinct IDs given, or of rows matching the filter
+ * @param affected the number of rows changed; rows that were missing or already in the target state are not counted
+ */
+public record BulkResult(int matched, int affected) {
+}
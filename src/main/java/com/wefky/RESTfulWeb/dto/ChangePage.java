@@ -0,0 +1,23 @@
+package com.wefky.RESTfulWeb.dto;
+
+import java.util.List;
+
+/**
+ * One page of the change feed (GET /api/changes).
+ *
+ * @param changes the changes after the requested position, oldest first
+ * @param next    the position to request next: the last change's, or the requested one if there were none
+ * @param more    whether further changes are already available
+ */
+public record ChangePage(List<ChangeView> changes, String next, boolean more) {
+
+    /** Position before the first change. */
+    public static final String START = "0-0";
+
+    /**
+     * Formats a position of the feed: the writing transaction's ID and the event ID.
+     */
+    public static String position(long txid, long eventId) {
+        return txid + "-" + eventId;
+    }
+}
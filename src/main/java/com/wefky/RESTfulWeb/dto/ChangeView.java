@@ -0,0 +1,26 @@
+package com.wefky.RESTfulWeb.dto;
+
+import java.time.LocalDateTime;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.wefky.RESTfulWeb.entity.OutboxEvent;
+import com.wefky.RESTfulWeb.event.ChangeType;
+
+/**
+ * One entry of the change feed (GET /api/changes).
+ *
+ * @param position   cursor of this change; pass it as since= to continue after it
+ * @param entityType location, measurement or image
+ * @param entityId   the changed entity's ID
+ * @param type       what happened to it
+ * @param occurredAt when the change was written
+ * @param data       the entity's view after the change, or null when it was purged
+ */
+public record ChangeView(String position, String entityType, Long entityId, ChangeType type,
+                         LocalDateTime occurredAt, JsonNode data) {
+
+    public static ChangeView from(OutboxEvent event) {
+        return new ChangeView(ChangePage.position(event.getTxid(), event.getEventId()), event.getEntityType(),
+                event.getEntityId(), event.getChangeType(), event.getOccurredAt(), event.getPayload());
+    }
+}
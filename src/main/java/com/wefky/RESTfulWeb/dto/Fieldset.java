@@ -0,0 +1,86 @@
+package com.wefky.RESTfulWeb.dto;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The properties of a resource a client asked for with the fields= and embed= parameters. They
+ * become the columns the query selects, so unrequested columns (and joins) are never read.
+ *
+ * fields= names properties of the resource and, with a prefix, of an embedded resource
+ * (fields=amount,location.cityName); embed= names embedded resources to include with all their
+ * properties (embed=location). When fields= names no property of the resource itself, all of
+ * them are selected.
+ *
+ * @param fields   the properties of the resource, in response order
+ * @param embedded the embedded resources, each with its properties in response order
+ */
+public record Fieldset(List<String> fields, Map<String, List<String>> embedded) {
+
+    /**
+     * Resolves the parameters against the properties a resource offers.
+     *
+     * @param fields     the fields parameter, comma separated, or null
+     * @param embed      the embed parameter, comma separated, or null
+     * @param properties the properties of the resource, in the order of its full representation
+     * @param embeddable the resources that can be embedded, with their properties
+     * @return the fieldset, or null when neither parameter is given (the full representation is wanted)
+     * @throws IllegalArgumentException if a property or embedded resource is unknown
+     */
+    public static Fieldset of(String fields, String embed, List<String> properties,
+                              Map<String, List<String>> embeddable) {
+        if (fields == null && embed == null) {
+            return null;
+        }
+        Set<String> selected = new LinkedHashSet<>();
+        Map<String, Set<String>> embeds = new LinkedHashMap<>();
+        for (String field : split(fields)) {
+            int dot = field.indexOf('.');
+            String resource = dot < 0 ? field : field.substring(0, dot);
+            if (dot < 0 && properties.contains(field)) {
+                selected.add(field);
+            } else if (embeddable.containsKey(resource)) {
+                Set<String> embedded = embeds.computeIfAbsent(resource, key -> new LinkedHashSet<>());
+                if (dot >= 0) {
+                    String property = field.substring(dot + 1);
+                    if (!embeddable.get(resource).contains(property)) {
+                        throw new IllegalArgumentException("Unknown field " + field);
+                    }
+                    embedded.add(property);
+                }
+            } else {
+                throw new IllegalArgumentException("Unknown field " + field);
+            }
+        }
+        for (String resource : split(embed)) {
+            if (!embeddable.containsKey(resource)) {
+                throw new IllegalArgumentException("Cannot embed " + resource);
+            }
+            embeds.computeIfAbsent(resource, key -> new LinkedHashSet<>());
+        }
+        if (selected.isEmpty()) {
+            selected.addAll(properties);
+        }
+        Map<String, List<String>> resolved = new LinkedHashMap<>();
+        embeds.forEach((resource, embedded) ->
+                resolved.put(resource, List.copyOf(embedded.isEmpty() ? embeddable.get(resource) : embedded)));
+        return new Fieldset(List.copyOf(selected), Collections.unmodifiableMap(resolved));
+    }
+
+    private static List<String> split(String parameter) {
+        List<String> values = new ArrayList<>();
+        if (parameter != null) {
+            for (String value : parameter.split(",")) {
+                if (!value.isBlank()) {
+                    values.add(value.trim());
+                }
+            }
+        }
+        return values;
+    }
+}
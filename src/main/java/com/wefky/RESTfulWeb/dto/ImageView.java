@@ -0,0 +1,30 @@
+package com.wefky.RESTfulWeb.dto;
+
+import java.time.LocalDateTime;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.wefky.RESTfulWeb.entity.Image;
+
+/**
+ * Read-only view of an image's metadata for listings and REST responses.
+ *
+ * Listings never select the file itself: pages and clients fetch it through
+ * /api/images/{id}/file. Only a single image read by ID carries base64Data.
+ */
+public record ImageView(Long imageId, String owner, String contentType, String title, String description,
+                        LocalDateTime uploadDate, boolean deleted,
+                        @JsonInclude(JsonInclude.Include.NON_NULL) String base64Data) {
+
+    /**
+     * Used by the JPQL constructor expressions, which leave out the data column.
+     */
+    public ImageView(Long imageId, String owner, String contentType, String title, String description,
+                     LocalDateTime uploadDate, boolean deleted) {
+        this(imageId, owner, contentType, title, description, uploadDate, deleted, null);
+    }
+
+    public static ImageView from(Image image) {
+        return new ImageView(image.getImageId(), image.getOwner(), image.getContentType(), image.getTitle(),
+                image.getDescription(), image.getUploadDate(), image.isDeleted(), image.getBase64Data());
+    }
+}
@@ -0,0 +1,29 @@
+package com.wefky.RESTfulWeb.dto;
+
+import java.util.List;
+
+/**
+ * A page of a keyset-paginated listing.
+ *
+ * The cursors are opaque tokens for {@link KeysetRequest#after()} and {@link KeysetRequest#before()};
+ * a null cursor means there is no page in that direction. The count is exact up to a limit and
+ * only a lower bound above it, so counting costs the same however large the table grows.
+ *
+ * @param content    the rows of the page
+ * @param size       the requested page size
+ * @param previous   cursor of the previous page, or null on the first page
+ * @param next       cursor of the next page, or null on the last page
+ * @param count      the number of matching rows, or the count limit when there are more
+ * @param countExact whether count is exact (false when more rows match than the limit)
+ */
+public record KeysetPage<T>(List<T> content, int size, String previous, String next, long count,
+                            boolean countExact) {
+
+    public boolean isFirst() {
+        return previous == null;
+    }
+
+    public boolean isLast() {
+        return next == null;
+    }
+}
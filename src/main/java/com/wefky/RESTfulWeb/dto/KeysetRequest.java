@@ -0,0 +1,19 @@
+package com.wefky.RESTfulWeb.dto;
+
+/**
+ * One page of a keyset-paginated listing: the sort property (already checked against the listing's
+ * sortable properties), its direction, the page size and at most one of the cursors of the
+ * neighbouring page. Without a cursor the first page is returned.
+ *
+ * @param sort       the entity property to sort by; the ID breaks ties in the same direction
+ * @param descending whether to sort in descending order
+ * @param size       the number of rows per page
+ * @param after      cursor of the last row of the previous page (to page forward), or null
+ * @param before     cursor of the first row of the next page (to page back), or null
+ */
+public record KeysetRequest(String sort, boolean descending, int size, String after, String before) {
+
+    public static KeysetRequest firstPage(String sort, boolean descending, int size) {
+        return new KeysetRequest(sort, descending, size, null, null);
+    }
+}
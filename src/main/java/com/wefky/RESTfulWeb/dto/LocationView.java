@@ -0,0 +1,22 @@
+package com.wefky.RESTfulWeb.dto;
+
+import com.wefky.RESTfulWeb.entity.Location;
+
+/**
+ * Read-only view of a location for listings and REST responses.
+ *
+ * Built either by a JPQL constructor expression (only the listed columns are selected)
+ * or from an already loaded entity, so nothing lazy is left to load after the
+ * transaction has ended.
+ */
+public record LocationView(Long locationId, String postalCode, String cityName, Float latitude, Float longitude,
+                           boolean deleted, String geohash) {
+
+    public static LocationView from(Location location) {
+        if (location == null) {
+            return null;
+        }
+        return new LocationView(location.getLocationId(), location.getPostalCode(), location.getCityName(),
+                location.getLatitude(), location.getLongitude(), location.isDeleted(), location.getGeohash());
+    }
+}
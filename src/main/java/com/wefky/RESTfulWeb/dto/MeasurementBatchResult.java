@@ -0,0 +1,26 @@
+package com.wefky.RESTfulWeb.dto;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Result of a measurement batch upload: the IDs of the saved measurements in request order,
+ * or, when the batch was rejected, one message per problem (prefixed with the item's index).
+ * A batch is saved completely or not at all.
+ */
+public record MeasurementBatchResult(List<Long> ids, List<String> errors) {
+
+    public static MeasurementBatchResult created(List<Long> ids) {
+        return new MeasurementBatchResult(ids, List.of());
+    }
+
+    public static MeasurementBatchResult rejected(List<String> errors) {
+        return new MeasurementBatchResult(List.of(), errors);
+    }
+
+    @JsonIgnore
+    public boolean isRejected() {
+        return !errors.isEmpty();
+    }
+}
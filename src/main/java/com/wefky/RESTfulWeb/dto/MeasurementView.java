@@ -0,0 +1,33 @@
+package com.wefky.RESTfulWeb.dto;
+
+import java.time.LocalDateTime;
+
+import com.wefky.RESTfulWeb.entity.Measurement;
+
+/**
+ * Read-only view of a measurement with its location for listings and REST responses.
+ * Keeps the JSON shape of the entity (the location is nested).
+ */
+public record MeasurementView(Long measurementId, String measurementUnit, Double amount, LocalDateTime timestamp,
+                              LocationView location, boolean deleted) {
+
+    /**
+     * Used by the JPQL constructor expressions, which select the measurement and its
+     * (left joined) location in one row instead of loading the location per measurement.
+     * A null locationId means the measurement has no location.
+     */
+    public MeasurementView(Long measurementId, String measurementUnit, Double amount, LocalDateTime timestamp,
+                           boolean deleted, Long locationId, String postalCode, String cityName,
+                           Float latitude, Float longitude, Boolean locationDeleted, String geohash) {
+        this(measurementId, measurementUnit, amount, timestamp,
+                locationId == null ? null : new LocationView(locationId, postalCode, cityName, latitude, longitude,
+                        Boolean.TRUE.equals(locationDeleted), geohash),
+                deleted);
+    }
+
+    public static MeasurementView from(Measurement measurement) {
+        return new MeasurementView(measurement.getMeasurementId(), measurement.getMeasurementUnit(),
+                measurement.getAmount(), measurement.getTimestamp(), LocationView.from(measurement.getLocation()),
+                measurement.isDeleted());
+    }
+}
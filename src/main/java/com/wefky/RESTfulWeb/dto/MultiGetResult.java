@@ -0,0 +1,40 @@
+package com.wefky.RESTfulWeb.dto;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of a multi-get (GET ...?ids=1,2,3): the rows found, in the order their IDs were requested,
+ * and the requested IDs that do not exist or are not visible there. An ID given twice is answered once.
+ *
+ * @param content the rows found, in request order
+ * @param missing the requested IDs without a row, in request order
+ */
+public record MultiGetResult<T>(List<T> content, List<Long> missing) {
+
+    /** The most IDs one multi-get may ask for. */
+    public static final int MAX_IDS = 1000;
+
+    /**
+     * Orders the rows found by one query as the IDs were requested.
+     *
+     * @param ids   the requested IDs
+     * @param found the rows found, by ID
+     */
+    public static <T> MultiGetResult<T> of(Collection<Long> ids, Map<Long, T> found) {
+        List<T> content = new ArrayList<>(found.size());
+        List<Long> missing = new ArrayList<>();
+        for (Long id : new LinkedHashSet<>(ids)) {
+            T row = found.get(id);
+            if (row != null) {
+                content.add(row);
+            } else {
+                missing.add(id);
+            }
+        }
+        return new MultiGetResult<>(content, missing);
+    }
+}
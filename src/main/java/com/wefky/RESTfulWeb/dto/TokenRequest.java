@@ -0,0 +1,10 @@
+package com.wefky.RESTfulWeb.dto;
+
+/**
+ * Credentials exchanged for an API token at POST /api/auth/token.
+ *
+ * @param username the user's name
+ * @param password the user's password
+ */
+public record TokenRequest(String username, String password) {
+}
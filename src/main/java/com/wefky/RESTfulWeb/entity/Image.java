@@ -1,5 +1,7 @@
 package com.wefky.RESTfulWeb.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import java.time.LocalDateTime;
@@ -7,9 +9,14 @@ import lombok.*;
 
 /**
  * Represents a file entity that can be an image, PDF, or Word document.
+ * The (deleted, upload_date) index serves the active and trash listings; the deleted_at index
+ * serves the retention purge.
  */
 @Entity
-@Table(name = "images")
+@Table(name = "images", indexes = {
+        @Index(name = "idx_images_deleted_upload_date", columnList = "deleted, upload_date"),
+        @Index(name = "idx_images_deleted_at", columnList = "deleted_at")
+})
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -18,10 +25,11 @@ public class Image {
 
     /**
      * Represents the unique identifier for the image entity.
-     * This field is automatically generated using the identity strategy.
+     * Generated from the images_seq sequence in blocks of 50, like {@link Measurement}.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "images_seq")
+    @SequenceGenerator(name = "images_seq", sequenceName = "images_seq", allocationSize = 50)
     @Column(name = "image_id")
     private Long imageId;
 
@@ -63,6 +71,15 @@ public class Image {
     @Column(name = "deleted", nullable = false)
     private boolean deleted = false;
 
+    /**
+     * When the image was soft deleted; null while it is active.
+     * The retention purge permanently deletes images (and their files) whose deletedAt is older
+     * than app.retention.images.days.
+     */
+    @JsonIgnore
+    @Column(name = "deleted_at")
+    private LocalDateTime deletedAt;
+
     /**
      * The content type of the image.
      * This field is required and cannot be blank.
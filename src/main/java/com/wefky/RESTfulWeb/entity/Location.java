@@ -1,10 +1,20 @@
 package com.wefky.RESTfulWeb.entity;
 
+import java.time.LocalDateTime;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import jakarta.validation.constraints.DecimalMax;
 import jakarta.validation.constraints.DecimalMin;
@@ -14,6 +24,9 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.wefky.RESTfulWeb.util.GeoHash;
+
 /**
  * Entity representing a Location.
  */
@@ -35,9 +48,24 @@ import lombok.NoArgsConstructor;
  * - latitude: Latitude of the location, must be between -90 and 90, cannot be null.
  * - longitude: Longitude of the location, must be between -180 and 180, cannot be null.
  * - deleted: Flag indicating whether the location is deleted, defaults to false.
+ * - deletedAt: When the location was soft deleted, null while it is active.
+ * - geohash: Geohash of the coordinates, maintained automatically and indexed for proximity queries.
+ *
+ * The (deleted, location_id) index serves the active and trash listings; the deleted_at index
+ * serves the retention purge.
+ *
+ * Locations are held in the Hibernate second-level cache (region configured in ehcache.xml),
+ * so measurements resolve their location from memory. Hibernate evicts the entry whenever
+ * a location is saved, soft-deleted, restored or removed.
  */
 @Entity
-@Table(name = "locations")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Table(name = "locations", indexes = {
+        @Index(name = "idx_locations_geohash", columnList = "geohash"),
+        @Index(name = "idx_locations_deleted", columnList = "deleted, location_id"),
+        @Index(name = "idx_locations_deleted_at", columnList = "deleted_at")
+})
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -45,10 +73,11 @@ public class Location {
 
     /**
      * Represents the unique identifier for the location entity.
-     * This field is automatically generated using the IDENTITY strategy.
+     * Generated from the locations_seq sequence in blocks of 50, like {@link Measurement}.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "locations_seq")
+    @SequenceGenerator(name = "locations_seq", sequenceName = "locations_seq", allocationSize = 50)
     @Column(name = "location_id")
     private Long locationId;
 
@@ -111,4 +140,32 @@ public class Location {
      */
     @Column(name = "deleted", nullable = false)
     private boolean deleted = false;
+
+    /**
+     * When the location was soft deleted; null while it is active.
+     * The retention purge permanently deletes locations whose deletedAt is older than
+     * app.retention.locations.days.
+     */
+    @JsonIgnore
+    @Column(name = "deleted_at")
+    private LocalDateTime deletedAt;
+
+    /**
+     * Geohash of the latitude/longitude pair.
+     * Recomputed on every insert and update; used as the database-side fallback
+     * for bounding-box, radius and nearest-neighbour queries.
+     */
+    @Column(name = "geohash", length = GeoHash.MAX_PRECISION)
+    private String geohash;
+
+    /**
+     * Keeps the geohash column in sync with the coordinates.
+     */
+    @PrePersist
+    @PreUpdate
+    void updateGeohash() {
+        if (latitude != null && longitude != null) {
+            geohash = GeoHash.encode(latitude, longitude, GeoHash.MAX_PRECISION);
+        }
+    }
 }
@@ -2,14 +2,21 @@ package com.wefky.RESTfulWeb.entity;
 
 import java.time.LocalDateTime;
 
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotBlank;
@@ -28,7 +35,9 @@ import lombok.NoArgsConstructor;
  * 
  * Annotations:
  * - @Entity: Specifies that the class is an entity and is mapped to a database table.
- * - @Table: Specifies the name of the database table to be used for mapping.
+ * - @Table: Specifies the name of the database table to be used for mapping, and the
+ *   (deleted, timestamp) index behind the active and trash listings, and the deleted_at index
+ *   behind the retention purge.
  * - @Data: Lombok annotation to generate getters, setters, toString, equals, and hashCode methods.
  * - @AllArgsConstructor: Lombok annotation to generate a constructor with all fields.
  * - @NoArgsConstructor: Lombok annotation to generate a no-argument constructor.
@@ -40,6 +49,7 @@ import lombok.NoArgsConstructor;
  * - timestamp: The date and time when the measurement was taken, cannot be null.
  * - location: The location associated with the measurement, fetched eagerly.
  * - deleted: A flag indicating if the measurement has been marked as deleted, defaults to false.
+ * - deletedAt: When the measurement was soft deleted, null while it is active.
  * 
  * Constraints:
  * - measurementUnit: Must not be blank.
@@ -47,7 +57,10 @@ import lombok.NoArgsConstructor;
  * - timestamp: Must not be null.
  */
 @Entity
-@Table(name = "measurements")
+@Table(name = "measurements", indexes = {
+        @Index(name = "idx_measurements_deleted_timestamp", columnList = "deleted, timestamp"),
+        @Index(name = "idx_measurements_deleted_at", columnList = "deleted_at")
+})
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -55,10 +68,13 @@ public class Measurement {
 
     /**
      * Represents the unique identifier for the measurement entity.
-     * This field is automatically generated using the IDENTITY strategy.
+     * This field is generated from the measurements_seq sequence. Hibernate reserves 50 IDs per
+     * sequence call (pooled optimizer), so new rows can be inserted in JDBC batches,
+     * which IDENTITY columns prevent.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "measurements_seq")
+    @SequenceGenerator(name = "measurements_seq", sequenceName = "measurements_seq", allocationSize = 50)
     @Column(name = "measurement_id")
     private Long measurementId;
     /**
@@ -103,8 +119,11 @@ public class Measurement {
      * 
      * @ManyToOne specifies the many-to-one relationship with the Location entity.
      * @JoinColumn specifies the mapping between the field and the database column.
+     * @Fetch(SELECT) loads the location by ID instead of joining it, so it is served
+     * from the second-level location cache.
      */
     @ManyToOne(fetch = FetchType.EAGER)
+    @Fetch(FetchMode.SELECT)
     @JoinColumn(name = "location_id", referencedColumnName = "location_id")
     private Location location;
     /**
@@ -116,4 +135,13 @@ public class Measurement {
      */
     @Column(name = "deleted", nullable = false)
     private boolean deleted = false;
+
+    /**
+     * When the measurement was soft deleted; null while it is active.
+     * The retention purge permanently deletes measurements whose deletedAt is older than
+     * app.retention.measurements.days. Not read from request bodies.
+     */
+    @JsonIgnore
+    @Column(name = "deleted_at")
+    private LocalDateTime deletedAt;
 }
@@ -0,0 +1,78 @@
+package com.wefky.RESTfulWeb.entity;
+
+import java.time.LocalDateTime;
+
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.wefky.RESTfulWeb.event.ChangeType;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One committed change of a location, measurement or image, written to the outbox in the
+ * same transaction as the change itself (see {@code ChangeOutboxService}).
+ *
+ * txid is the ID of the writing transaction, filled in by the database. The change feed is
+ * ordered by (txid, event_id) and only returns rows of transactions older than the oldest
+ * one still running, so a cursor never skips a change that commits later; the
+ * (txid, event_id) index serves that scan; the occurred_at index serves the retention purge
+ * (app.retention.outbox.days).
+ */
+@Entity
+@Table(name = "outbox_events", indexes = {
+        @Index(name = "idx_outbox_events_position", columnList = "txid, event_id"),
+        @Index(name = "idx_outbox_events_occurred_at", columnList = "occurred_at")
+})
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OutboxEvent {
+
+    /**
+     * Generated from the outbox_events_seq sequence in blocks of 50, like {@link Measurement}.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_events_seq")
+    @SequenceGenerator(name = "outbox_events_seq", sequenceName = "outbox_events_seq", allocationSize = 50)
+    @Column(name = "event_id")
+    private Long eventId;
+
+    @Column(name = "txid", insertable = false, updatable = false,
+            columnDefinition = "bigint NOT NULL DEFAULT txid_current()")
+    private Long txid;
+
+    /** location, measurement or image. */
+    @Column(name = "entity_type", length = 32, nullable = false)
+    private String entityType;
+
+    @Column(name = "entity_id", nullable = false)
+    private Long entityId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "change_type", length = 16, nullable = false)
+    private ChangeType changeType;
+
+    @Column(name = "occurred_at", nullable = false)
+    private LocalDateTime occurredAt;
+
+    /** The entity's view after the change, as JSON; null when it was purged. */
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "payload")
+    private JsonNode payload;
+}
@@ -0,0 +1,17 @@
+package com.wefky.RESTfulWeb.event;
+
+/**
+ * Kinds of mutation an entity can go through.
+ */
+public enum ChangeType {
+    /** A new row was inserted. */
+    CREATED,
+    /** An existing row was modified. */
+    UPDATED,
+    /** The row was moved to the trash (deleted flag set). */
+    SOFT_DELETED,
+    /** The row was taken out of the trash (deleted flag cleared). */
+    RESTORED,
+    /** The row was removed from the database. */
+    PURGED
+}
@@ -0,0 +1,13 @@
+package com.wefky.RESTfulWeb.event;
+
+import com.wefky.RESTfulWeb.dto.ImageView;
+
+/**
+ * Published by {@code ImageService} whenever an image is written.
+ *
+ * @param imageId the affected image
+ * @param type    what happened to it
+ * @param image   the image's metadata after the change (never the file), or {@code null} when purged
+ */
+public record ImageChangedEvent(Long imageId, ChangeType type, ImageView image) {
+}
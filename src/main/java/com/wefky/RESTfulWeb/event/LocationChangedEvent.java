@@ -0,0 +1,16 @@
+package com.wefky.RESTfulWeb.event;
+
+import com.wefky.RESTfulWeb.entity.Location;
+
+/**
+ * Published by {@code LocationService} whenever a location is written.
+ *
+ * Listeners that keep in-memory views of the locations table (spatial index, caches) should
+ * consume it with {@code @TransactionalEventListener} so they only see committed changes.
+ *
+ * @param locationId the affected location
+ * @param type       what happened to it
+ * @param location   a snapshot of the location after the change, or {@code null} when purged
+ */
+public record LocationChangedEvent(Long locationId, ChangeType type, Location location) {
+}
@@ -0,0 +1,16 @@
+package com.wefky.RESTfulWeb.event;
+
+import com.wefky.RESTfulWeb.dto.MeasurementView;
+
+/**
+ * Published by {@code MeasurementService} whenever a measurement is written.
+ *
+ * Listeners should consume it with {@code @TransactionalEventListener} so they only see
+ * committed changes. The snapshot is a detached view, safe to use after the transaction.
+ *
+ * @param measurementId the affected measurement
+ * @param type          what happened to it
+ * @param measurement   a snapshot of the measurement after the change, or as it was before it was purged
+ */
+public record MeasurementChangedEvent(Long measurementId, ChangeType type, MeasurementView measurement) {
+}
@@ -0,0 +1,12 @@
+package com.wefky.RESTfulWeb.event;
+
+/**
+ * Published by {@code UserService} whenever a user, its password or its roles are written.
+ *
+ * Caches of authentication details consume it with {@code @TransactionalEventListener} and drop
+ * the user, so the next request sees the committed password hash, roles and enabled flag.
+ *
+ * @param username the affected user
+ */
+public record UserChangedEvent(String username) {
+}
@@ -8,6 +8,7 @@ import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.servlet.ModelAndView;
 import org.springframework.web.servlet.NoHandlerFoundException;
+import org.springframework.web.util.DisconnectedClientHelper;
 
 @ControllerAdvice
 public class GlobalExceptionHandler {
@@ -37,6 +38,11 @@ public class GlobalExceptionHandler {
     // Catch-all handler for any other exceptions (500)
     @ExceptionHandler(Exception.class)
     public ModelAndView handleAllExceptions(Exception ex) {
+        // The client closed the connection (e.g. left an event stream); there is nobody left to answer
+        if (DisconnectedClientHelper.isClientDisconnectedException(ex)) {
+            logger.debug("Client disconnected: {}", ex.getMessage());
+            return null;
+        }
         logger.error("An unexpected error occurred", ex);
         ModelAndView mav = new ModelAndView("error/500"); // renders templates/error/500.html
         mav.setStatus(HttpStatus.INTERNAL_SERVER_ERROR);
@@ -0,0 +1,24 @@
+package com.wefky.RESTfulWeb.exception;
+
+import org.springframework.security.core.AuthenticationException;
+
+/**
+ * Thrown instead of checking a password when the username or the client address has failed
+ * to log in too often recently (see {@code LoginThrottle}).
+ */
+public class LoginThrottledException extends AuthenticationException {
+
+    private final long retryAfterSeconds;
+
+    public LoginThrottledException(String msg, long retryAfterSeconds) {
+        super(msg);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * @return seconds until the next attempt is let through
+     */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,18 @@
+package com.wefky.RESTfulWeb.exception;
+
+import org.springframework.security.authentication.AuthenticationServiceException;
+
+/**
+ * Thrown when a password cannot be hashed or verified because the hashing pool and its queue
+ * are full (see {@code PasswordHashingExecutor}). The request should be retried shortly.
+ */
+public class PasswordHashingBusyException extends AuthenticationServiceException {
+
+    public PasswordHashingBusyException(String msg) {
+        super(msg);
+    }
+
+    public PasswordHashingBusyException(String msg, Throwable cause) {
+        super(msg, cause);
+    }
+}
@@ -0,0 +1,94 @@
+package com.wefky.RESTfulWeb.repository;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import com.wefky.RESTfulWeb.dto.Fieldset;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import jakarta.persistence.metamodel.EntityType;
+
+/**
+ * Sparse listings of an entity with the Criteria API: only the columns of the requested
+ * {@link Fieldset} are selected (as a tuple), and an embedded association is left joined only
+ * when it is requested or a filter needs it.
+ *
+ * Each row becomes a map from property to value in the order of the fieldset; an embedded
+ * resource is a nested map, or null when the row has none. Its ID is always selected to tell the
+ * two apart, since all its requested columns may be null, and is shown only when requested.
+ *
+ * @param <E> the entity type
+ */
+final class FieldsetQuery<E> {
+
+    private final EntityManager entityManager;
+    private final Class<E> entityType;
+    private final String idProperty;
+
+    FieldsetQuery(EntityManager entityManager, Class<E> entityType, String idProperty) {
+        this.entityManager = entityManager;
+        this.entityType = entityType;
+        this.idProperty = idProperty;
+    }
+
+    /**
+     * Returns the requested properties of the rows matching the filter, in ID order.
+     */
+    List<Map<String, Object>> list(Specification<E> filter, Fieldset fieldset) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<E> root = query.from(entityType);
+
+        List<Selection<?>> selections = new ArrayList<>();
+        fieldset.fields().forEach(field -> selections.add(root.get(field)));
+        fieldset.embedded().forEach((association, properties) -> {
+            Join<E, ?> join = KeysetQuery.leftJoin(root, association);
+            properties.forEach(property -> selections.add(join.get(property)));
+            selections.add(join.get(idProperty(join)));
+        });
+        query.multiselect(selections);
+        Predicate filtered = filter.toPredicate(root, query, cb);
+        if (filtered != null) {
+            query.where(filtered);
+        }
+        query.orderBy(cb.asc(root.get(idProperty)));
+        return entityManager.createQuery(query)
+                .getResultList()
+                .stream()
+                .map(tuple -> toMap(tuple, fieldset))
+                .toList();
+    }
+
+    private static Map<String, Object> toMap(Tuple tuple, Fieldset fieldset) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        int column = 0;
+        for (String field : fieldset.fields()) {
+            row.put(field, tuple.get(column++));
+        }
+        for (Map.Entry<String, List<String>> embedded : fieldset.embedded().entrySet()) {
+            Map<String, Object> values = new LinkedHashMap<>();
+            for (String property : embedded.getValue()) {
+                values.put(property, tuple.get(column++));
+            }
+            boolean present = tuple.get(column++) != null;
+            row.put(embedded.getKey(), present ? values : null);
+        }
+        return row;
+    }
+
+    private String idProperty(Join<E, ?> join) {
+        EntityType<?> type = entityManager.getMetamodel().entity(join.getJavaType());
+        return type.getId(type.getIdType().getJavaType()).getName();
+    }
+}
@@ -1,14 +1,17 @@
 package com.wefky.RESTfulWeb.repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import com.wefky.RESTfulWeb.dto.ImageView;
 import com.wefky.RESTfulWeb.entity.Image;
 
-public interface ImageRepository extends JpaRepository<Image, Long> {
+public interface ImageRepository extends JpaRepository<Image, Long>, ImageRepositoryCustom {
 
     /**
      * Retrieves all active images.
@@ -17,13 +20,6 @@ public interface ImageRepository extends JpaRepository<Image, Long> {
     @Query("SELECT i FROM Image i WHERE i.deleted = false")
     List<Image> findAllActive();
 
-    /**
-     * Retrieves all deleted images.
-     * @return a list of deleted images
-     */
-    @Query("SELECT i FROM Image i WHERE i.deleted = true")
-    List<Image> findAllDeleted();
-
     /**
      * Searches for images based on the provided filters.
      * @param id the ID of the image to search for (optional)
@@ -41,25 +37,168 @@ public interface ImageRepository extends JpaRepository<Image, Long> {
     List<Image> searchImages(@Param("id") Long id, @Param("text") String text);
 
     /**
-     * Searches for deleted images based on the provided filters.
+     * Retrieves a list of distinct content types for active images.
+     * @return a list of distinct content types
+     */
+    @Query("SELECT DISTINCT i.contentType FROM Image i WHERE i.deleted = false")
+    List<String> findDistinctContentTypes();
+
+    /**
+     * Retrieves all active images without their file data.
+     * @return the active images as views, ordered by ID
+     */
+    @Query("""
+        SELECT new com.wefky.RESTfulWeb.dto.ImageView(
+            i.imageId, i.owner, i.contentType, i.title, i.description, i.uploadDate, i.deleted)
+        FROM Image i
+        WHERE i.deleted = false
+        ORDER BY i.imageId
+    """)
+    List<ImageView> findActiveViews();
+
+    /**
+     * Searches active images like {@link #searchImages}, without their file data.
      * @param id the ID of the image to search for (optional)
      * @param text the text to search for in the owner or content type (optional)
-     * @return a list of deleted images that match the search criteria
+     * @return the matching images as views, ordered by ID
      */
     @Query("""
-        SELECT i FROM Image i 
-        WHERE i.deleted = true AND (
-            (:id IS NOT NULL AND i.imageId = :id) OR 
-            (:text IS NOT NULL AND LOWER(i.owner) LIKE LOWER(CONCAT('%', :text, '%'))) OR 
+        SELECT new com.wefky.RESTfulWeb.dto.ImageView(
+            i.imageId, i.owner, i.contentType, i.title, i.description, i.uploadDate, i.deleted)
+        FROM Image i
+        WHERE i.deleted = false AND (
+            (:id IS NOT NULL AND i.imageId = :id) OR
+            (:text IS NOT NULL AND LOWER(i.owner) LIKE LOWER(CONCAT('%', :text, '%'))) OR
             (:text IS NOT NULL AND LOWER(i.contentType) = LOWER(:text))
         )
+        ORDER BY i.imageId
     """)
-    List<Image> searchDeletedImages(@Param("id") Long id, @Param("text") String text);
+    List<ImageView> searchImageViews(@Param("id") Long id, @Param("text") String text);
 
     /**
-     * Retrieves a list of distinct content types for active images.
-     * @return a list of distinct content types
+     * Retrieves the IDs of the images in the given state that match the search of {@link #searchImages}, in ID order.
+     * Used to select the rows of a bulk soft delete, restore or permanent delete.
+     * @param deleted whether to match deleted (true) or active (false) images
+     * @param id the ID of the image to search for (optional)
+     * @param text the text to search for in the owner or content type (optional)
+     * @return the IDs of the matching images
      */
-    @Query("SELECT DISTINCT i.contentType FROM Image i WHERE i.deleted = false")
-    List<String> findDistinctContentTypes();
+    @Query("""
+        SELECT i.imageId FROM Image i
+        WHERE i.deleted = :deleted AND (
+            (:id IS NOT NULL AND i.imageId = :id) OR
+            (:text IS NOT NULL AND LOWER(i.owner) LIKE LOWER(CONCAT('%', :text, '%'))) OR
+            (:text IS NOT NULL AND LOWER(i.contentType) = LOWER(:text))
+        )
+        ORDER BY i.imageId
+    """)
+    List<Long> findIds(@Param("deleted") boolean deleted, @Param("id") Long id, @Param("text") String text);
+
+    /**
+     * Locks the given images that are in the given state until the transaction ends.
+     * @param ids the candidate IDs
+     * @param deleted the state the rows must be in
+     * @return the IDs of the locked rows, in ID order
+     */
+    @Query(value = """
+        SELECT image_id FROM images
+        WHERE image_id IN (:ids) AND deleted = :deleted
+        ORDER BY image_id
+        FOR UPDATE
+    """, nativeQuery = true)
+    List<Long> lockIds(@Param("ids") List<Long> ids, @Param("deleted") boolean deleted);
+
+    /**
+     * Locks the given images, whatever their state, until the transaction ends.
+     * @param ids the candidate IDs
+     * @return the IDs of the existing rows, in ID order
+     */
+    @Query(value = """
+        SELECT image_id FROM images
+        WHERE image_id IN (:ids)
+        ORDER BY image_id
+        FOR UPDATE
+    """, nativeQuery = true)
+    List<Long> lockIds(@Param("ids") List<Long> ids);
+
+    /**
+     * Sets the deleted flag of the given images with one UPDATE statement, stamping or clearing deletedAt.
+     * @param ids the IDs of the images
+     * @param deleted the new value of the flag
+     * @param deletedAt the deletion time, or null when restoring
+     * @return the number of rows updated
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Image i SET i.deleted = :deleted, i.deletedAt = :deletedAt WHERE i.imageId IN :ids")
+    int updateDeleted(@Param("ids") List<Long> ids, @Param("deleted") boolean deleted,
+                      @Param("deletedAt") LocalDateTime deletedAt);
+
+    /**
+     * Unlinks the large objects holding the file data of the given images. On PostgreSQL a @Lob
+     * column stores only the object's oid, and deleting the row leaves the object behind in
+     * pg_largeobject, so this must run before the rows are deleted, in the same transaction.
+     * Objects that no longer exist are skipped.
+     * @param ids the IDs of the images
+     * @return the number of large objects unlinked
+     */
+    @Query(value = """
+        SELECT count(lo_unlink(i.data)) FROM images i
+        WHERE i.image_id IN (:ids)
+          AND EXISTS (SELECT 1 FROM pg_largeobject_metadata m WHERE m.oid = i.data)
+    """, nativeQuery = true)
+    int unlinkData(@Param("ids") List<Long> ids);
+
+    /**
+     * Deletes the given images with one DELETE statement. Unlink their data first ({@link #unlinkData}).
+     * @param ids the IDs of the images
+     * @return the number of rows deleted
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Image i WHERE i.imageId IN :ids")
+    int deleteByIds(@Param("ids") List<Long> ids);
+
+    /**
+     * Retrieves the given images without their file data, in ID order.
+     * @param ids the IDs of the images
+     * @return the existing images as views
+     */
+    @Query("""
+        SELECT new com.wefky.RESTfulWeb.dto.ImageView(
+            i.imageId, i.owner, i.contentType, i.title, i.description, i.uploadDate, i.deleted)
+        FROM Image i
+        WHERE i.imageId IN :ids
+        ORDER BY i.imageId
+    """)
+    List<ImageView> findViewsByIds(@Param("ids") List<Long> ids);
+
+    /**
+     * Locks up to {@code limit} images that were soft deleted before the cutoff, oldest deletion first.
+     * Rows locked by another transaction are skipped.
+     * @param cutoff the deletion time before which images are purged
+     * @param limit the maximum number of rows to lock
+     * @return the IDs of the locked rows
+     */
+    @Query(value = """
+        SELECT image_id FROM images
+        WHERE deleted = true AND deleted_at < :cutoff
+        ORDER BY deleted_at
+        LIMIT :limit
+        FOR UPDATE SKIP LOCKED
+    """, nativeQuery = true)
+    List<Long> lockDeletedBefore(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+
+    /**
+     * Stamps images deleted before deletedAt existed with the given time.
+     * @param now the time to stamp
+     * @return the number of rows stamped
+     */
+    @Modifying
+    @Query("UPDATE Image i SET i.deletedAt = :now WHERE i.deleted = true AND i.deletedAt IS NULL")
+    int stampUntimedDeletions(@Param("now") LocalDateTime now);
+
+    /**
+     * Counts the images in the trash.
+     * @return the number of deleted images
+     */
+    long countByDeletedTrue();
 }
@@ -0,0 +1,44 @@
+package com.wefky.RESTfulWeb.repository;
+
+import java.util.List;
+import java.util.Map;
+
+import com.wefky.RESTfulWeb.dto.Fieldset;
+import com.wefky.RESTfulWeb.dto.ImageView;
+import com.wefky.RESTfulWeb.dto.KeysetPage;
+import com.wefky.RESTfulWeb.dto.KeysetRequest;
+
+/**
+ * Keyset-paginated and sparse image listings without file data, built with the Criteria API
+ * (see {@link KeysetQuery} and {@link FieldsetQuery}).
+ */
+public interface ImageRepositoryCustom {
+
+    /**
+     * Properties of an image that a {@link Fieldset} can select, in the order of the full view. The file
+     * is not among them; it is served by /api/images/{id}/file.
+     */
+    List<String> FIELDS = List.of("imageId", "owner", "contentType", "title", "description", "uploadDate", "deleted");
+
+    /**
+     * Retrieves one page of the images in the given state, as views. With an ID or text it matches like
+     * {@link ImageRepository#searchImages}; with neither, every image in that state is listed.
+     * @param deleted whether to list deleted (true) or active (false) images
+     * @param id the ID of the image to search for (optional)
+     * @param text the text to search for in the owner or content type (optional)
+     * @param request the sort order, page size and cursor
+     * @return the page of image views
+     */
+    KeysetPage<ImageView> findViewPage(boolean deleted, Long id, String text, KeysetRequest request);
+
+    /**
+     * Retrieves only the requested properties of the images in the given state, matched like
+     * {@link #findViewPage}, in ID order.
+     * @param deleted whether to list deleted (true) or active (false) images
+     * @param id the ID of the image to search for (optional)
+     * @param text the text to search for in the owner or content type (optional)
+     * @param fieldset the properties to select
+     * @return one map of property to value per image
+     */
+    List<Map<String, Object>> findFields(boolean deleted, Long id, String text, Fieldset fieldset);
+}
@@ -0,0 +1,61 @@
+package com.wefky.RESTfulWeb.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.domain.Specification;
+
+import com.wefky.RESTfulWeb.dto.Fieldset;
+import com.wefky.RESTfulWeb.dto.ImageView;
+import com.wefky.RESTfulWeb.dto.KeysetPage;
+import com.wefky.RESTfulWeb.dto.KeysetRequest;
+import com.wefky.RESTfulWeb.entity.Image;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.Predicate;
+
+class ImageRepositoryCustomImpl implements ImageRepositoryCustom {
+
+    private final KeysetQuery<Image, ImageView> views;
+    private final FieldsetQuery<Image> fields;
+
+    ImageRepositoryCustomImpl(EntityManager entityManager,
+                              @Value("${app.web.pagination.count-limit:1000}") int countLimit) {
+        this.views = new KeysetQuery<>(entityManager, Image.class, ImageView.class, "imageId",
+                (cb, i) -> cb.construct(ImageView.class,
+                        i.get("imageId"), i.get("owner"), i.get("contentType"), i.get("title"),
+                        i.get("description"), i.get("uploadDate"), i.get("deleted")),
+                countLimit);
+        this.fields = new FieldsetQuery<>(entityManager, Image.class, "imageId");
+    }
+
+    @Override
+    public KeysetPage<ImageView> findViewPage(boolean deleted, Long id, String text, KeysetRequest request) {
+        return views.page(filter(deleted, id, text), request);
+    }
+
+    @Override
+    public List<Map<String, Object>> findFields(boolean deleted, Long id, String text, Fieldset fieldset) {
+        return fields.list(filter(deleted, id, text), fieldset);
+    }
+
+    private static Specification<Image> filter(boolean deleted, Long id, String text) {
+        Specification<Image> filter = (i, query, cb) -> cb.equal(i.get("deleted"), deleted);
+        if (id != null || text != null) {
+            filter = filter.and((i, query, cb) -> {
+                List<Predicate> matches = new ArrayList<>();
+                if (id != null) {
+                    matches.add(cb.equal(i.get("imageId"), id));
+                }
+                if (text != null) {
+                    matches.add(cb.like(cb.lower(i.get("owner")), "%" + text.toLowerCase() + "%"));
+                    matches.add(cb.equal(cb.lower(i.get("contentType")), text.toLowerCase()));
+                }
+                return cb.or(matches.toArray(Predicate[]::new));
+            });
+        }
+        return filter;
+    }
+}
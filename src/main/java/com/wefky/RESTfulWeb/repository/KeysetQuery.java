@@ -0,0 +1,285 @@
+package com.wefky.RESTfulWeb.repository;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import java.lang.reflect.RecordComponent;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import com.wefky.RESTfulWeb.dto.KeysetPage;
+import com.wefky.RESTfulWeb.dto.KeysetRequest;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Id;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.From;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+
+/**
+ * Keyset ("seek") pagination of an entity's views with the Criteria API.
+ *
+ * Rows are ordered by the requested property and then by the ID in the same direction, and a page
+ * continues after (or before) the sort value and ID of the last row shown instead of skipping an
+ * OFFSET, so page 1000 costs what page 1 does. Nulls sort after all values, as in a PostgreSQL
+ * index, and the ascending and descending scans are the same index read in both directions.
+ * The seek condition repeats its range bound on its own (sort >= value AND (...)) so the planner
+ * can start the index scan there.
+ *
+ * The total is counted by selecting at most countLimit + 1 IDs, so it is exact for small results
+ * and a lower bound ("more than countLimit") for large ones, at a bounded cost.
+ *
+ * @param <E> the entity type
+ * @param <V> the view (record) type; its components are named like the sortable entity properties
+ */
+final class KeysetQuery<E, V> {
+
+    /**
+     * Builds the selection of a view from the root; filters that need the same join get it
+     * from {@link KeysetQuery#leftJoin(From, String)}.
+     */
+    @FunctionalInterface
+    interface ViewSelection<E, V> {
+        Selection<V> select(CriteriaBuilder cb, Root<E> root);
+    }
+
+    private record Cursor(Object value, Long id) {
+    }
+
+    private final EntityManager entityManager;
+    private final Class<E> entityType;
+    private final Class<V> viewType;
+    private final String idProperty;
+    private final ViewSelection<E, V> selection;
+    private final int countLimit;
+
+    KeysetQuery(EntityManager entityManager, Class<E> entityType, Class<V> viewType, String idProperty,
+                ViewSelection<E, V> selection, int countLimit) {
+        this.entityManager = entityManager;
+        this.entityType = entityType;
+        this.viewType = viewType;
+        this.idProperty = idProperty;
+        this.selection = selection;
+        this.countLimit = Math.max(0, countLimit);
+    }
+
+    /**
+     * Returns the requested page of the views matching the filter. An unreadable cursor, or one
+     * whose page has meanwhile become empty, returns the first page.
+     */
+    KeysetPage<V> page(Specification<E> filter, KeysetRequest request) {
+        Cursor after = decode(request.after(), request.sort());
+        Cursor before = after == null ? decode(request.before(), request.sort()) : null;
+        if (before != null) {
+            List<V> rows = fetch(filter, request, before, false);
+            if (rows.size() > request.size()) {
+                List<V> content = new ArrayList<>(rows.subList(0, request.size()));
+                Collections.reverse(content);
+                return toPage(filter, request, content, true, true);
+            }
+        } else if (after != null) {
+            List<V> rows = fetch(filter, request, after, true);
+            if (!rows.isEmpty()) {
+                boolean more = rows.size() > request.size();
+                return toPage(filter, request, more ? rows.subList(0, request.size()) : rows, true, more);
+            }
+        }
+        List<V> rows = fetch(filter, request, null, true);
+        boolean more = rows.size() > request.size();
+        if (!more) {
+            return new KeysetPage<>(rows, request.size(), null, null, rows.size(), true);
+        }
+        return toPage(filter, request, rows.subList(0, request.size()), false, true);
+    }
+
+    private KeysetPage<V> toPage(Specification<E> filter, KeysetRequest request, List<V> content,
+                                 boolean hasPrevious, boolean hasNext) {
+        long count = count(filter);
+        return new KeysetPage<>(List.copyOf(content), request.size(),
+                hasPrevious ? encode(content.get(0), request.sort()) : null,
+                hasNext ? encode(content.get(content.size() - 1), request.sort()) : null,
+                Math.min(count, countLimit), count <= countLimit);
+    }
+
+    /**
+     * Reads up to size + 1 rows from the cursor on, in page order when moving forward and in
+     * reverse order when moving back.
+     */
+    private List<V> fetch(Specification<E> filter, KeysetRequest request, Cursor cursor, boolean forward) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<V> query = cb.createQuery(viewType);
+        Root<E> root = query.from(entityType);
+        query.select(selection.select(cb, root));
+
+        // Whether the scan moves toward larger values (nulls count as larger than any value).
+        boolean towardLarger = request.descending() != forward;
+        Path<?> sortPath = root.get(request.sort());
+        Path<?> idPath = root.get(idProperty);
+        List<Predicate> predicates = new ArrayList<>();
+        Predicate filtered = filter.toPredicate(root, query, cb);
+        if (filtered != null) {
+            predicates.add(filtered);
+        }
+        if (cursor != null) {
+            predicates.add(seek(cb, sortPath, idPath, request.sort(), cursor, towardLarger));
+        }
+        query.where(predicates.toArray(Predicate[]::new));
+        List<Order> order = new ArrayList<>();
+        order.add(towardLarger ? cb.asc(sortPath) : cb.desc(sortPath));
+        if (!request.sort().equals(idProperty)) {
+            order.add(towardLarger ? cb.asc(idPath) : cb.desc(idPath));
+        }
+        query.orderBy(order);
+        return entityManager.createQuery(query)
+                .setMaxResults(request.size() + 1)
+                .getResultList();
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Predicate seek(CriteriaBuilder cb, Path<?> sortPath, Path<?> idPath, String sort, Cursor cursor,
+                           boolean towardLarger) {
+        Expression<Long> id = (Expression<Long>) idPath;
+        Predicate idBeyond = towardLarger ? cb.greaterThan(id, cursor.id()) : cb.lessThan(id, cursor.id());
+        if (sort.equals(idProperty)) {
+            return idBeyond;
+        }
+        if (cursor.value() == null) {
+            return towardLarger
+                    ? cb.and(cb.isNull(sortPath), idBeyond)
+                    : cb.or(cb.isNotNull(sortPath), cb.and(cb.isNull(sortPath), idBeyond));
+        }
+        Expression<Comparable> path = (Expression<Comparable>) sortPath;
+        Comparable value = (Comparable) cursor.value();
+        Predicate beyond = towardLarger ? cb.greaterThan(path, value) : cb.lessThan(path, value);
+        Predicate tie = cb.and(cb.equal(path, value), idBeyond);
+        if (towardLarger && isNullable(sort)) {
+            return cb.or(beyond, cb.isNull(path), tie);
+        }
+        Predicate bound = towardLarger ? cb.greaterThanOrEqualTo(path, value) : cb.lessThanOrEqualTo(path, value);
+        return cb.and(bound, cb.or(beyond, tie));
+    }
+
+    /**
+     * Counts the matching rows up to countLimit + 1.
+     */
+    private long count(Specification<E> filter) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Object> query = cb.createQuery();
+        Root<E> root = query.from(entityType);
+        query.select(root.get(idProperty));
+        Predicate filtered = filter.toPredicate(root, query, cb);
+        if (filtered != null) {
+            query.where(filtered);
+        }
+        return entityManager.createQuery(query)
+                .setMaxResults(countLimit + 1)
+                .getResultList()
+                .size();
+    }
+
+    /**
+     * Returns the left join of the association, reusing one already made on the same root, so a
+     * view and a filter that both read the joined entity share one join.
+     */
+    @SuppressWarnings("unchecked")
+    static <X, Y> Join<X, Y> leftJoin(From<?, X> from, String attribute) {
+        for (Join<X, ?> join : from.getJoins()) {
+            if (join.getAttribute().getName().equals(attribute) && join.getJoinType() == JoinType.LEFT) {
+                return (Join<X, Y>) join;
+            }
+        }
+        return from.join(attribute, JoinType.LEFT);
+    }
+
+    private boolean isNullable(String property) {
+        Member member = entityManager.getMetamodel().entity(entityType).getAttribute(property).getJavaMember();
+        if (member instanceof Field field) {
+            if (field.isAnnotationPresent(Id.class)) {
+                return false;
+            }
+            Column column = field.getAnnotation(Column.class);
+            return column == null || column.nullable();
+        }
+        return true;
+    }
+
+    private String encode(V view, String sort) {
+        Object value;
+        Long id;
+        try {
+            value = component(sort).getAccessor().invoke(view);
+            id = (Long) component(idProperty).getAccessor().invoke(view);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Cannot read " + sort + " of " + viewType.getSimpleName(), e);
+        }
+        String token = id + ":" + (value == null ? "-" : "=" + value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Cursor decode(String token, String sort) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String text = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = text.indexOf(':');
+            Long id = Long.valueOf(text.substring(0, separator));
+            String value = text.substring(separator + 1);
+            if (value.equals("-")) {
+                return new Cursor(null, id);
+            }
+            if (!value.startsWith("=")) {
+                return null;
+            }
+            Class<?> type = entityManager.getMetamodel().entity(entityType).getAttribute(sort).getJavaType();
+            return new Cursor(parse(type, value.substring(1)), id);
+        } catch (RuntimeException e) {
+            // A cursor from another sort order or a mangled URL; start from the first page.
+            return null;
+        }
+    }
+
+    private RecordComponent component(String name) {
+        for (RecordComponent component : viewType.getRecordComponents()) {
+            if (component.getName().equals(name)) {
+                return component;
+            }
+        }
+        throw new IllegalStateException(viewType.getSimpleName() + " has no component " + name);
+    }
+
+    private static Object parse(Class<?> type, String text) {
+        if (type == String.class) {
+            return text;
+        } else if (type == Long.class || type == long.class) {
+            return Long.valueOf(text);
+        } else if (type == Integer.class || type == int.class) {
+            return Integer.valueOf(text);
+        } else if (type == Double.class || type == double.class) {
+            return Double.valueOf(text);
+        } else if (type == Float.class || type == float.class) {
+            return Float.valueOf(text);
+        } else if (type == LocalDateTime.class) {
+            return LocalDateTime.parse(text);
+        } else if (type == LocalDate.class) {
+            return LocalDate.parse(text);
+        }
+        throw new IllegalArgumentException("Unsupported sort type " + type.getName());
+    }
+}
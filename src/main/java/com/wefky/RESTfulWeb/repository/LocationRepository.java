@@ -1,14 +1,17 @@
 package com.wefky.RESTfulWeb.repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import com.wefky.RESTfulWeb.dto.LocationView;
 import com.wefky.RESTfulWeb.entity.Location;
 
-public interface LocationRepository extends JpaRepository<Location, Long> {
+public interface LocationRepository extends JpaRepository<Location, Long>, LocationRepositoryCustom {
 
     /**
      * Retrieves all active locations.
@@ -23,27 +26,194 @@ public interface LocationRepository extends JpaRepository<Location, Long> {
      * @param postalCode the postal code to search for (optional)
      * @param latMin the minimum latitude to search for (optional)
      * @param latMax the maximum latitude to search for (optional)
+     * @param lonMin the minimum longitude to search for (optional)
+     * @param lonMax the maximum longitude to search for (optional)
      * @return a list of locations that match the search criteria
      */
     @Query("""
            SELECT l FROM Location l
            WHERE l.deleted = false
-             AND (:cityName IS NULL OR LOWER(l.cityName) LIKE LOWER(CONCAT('%', :cityName, '%')))
-             AND (:postalCode IS NULL OR LOWER(l.postalCode) LIKE LOWER(CONCAT('%', :postalCode, '%')))
+             AND (:cityName IS NULL OR LOWER(l.cityName) LIKE LOWER(CONCAT('%', CAST(:cityName AS String), '%')))
+             AND (:postalCode IS NULL OR LOWER(l.postalCode) LIKE LOWER(CONCAT('%', CAST(:postalCode AS String), '%')))
              AND (:latMin IS NULL OR l.latitude >= :latMin)
              AND (:latMax IS NULL OR l.latitude <= :latMax)
+             AND (:lonMin IS NULL OR l.longitude >= :lonMin)
+             AND (:lonMax IS NULL OR l.longitude <= :lonMax)
            """)
     List<Location> filterLocations(
             @Param("cityName") String cityName,
             @Param("postalCode") String postalCode,
             @Param("latMin") Float latMin,
-            @Param("latMax") Float latMax
+            @Param("latMax") Float latMax,
+            @Param("lonMin") Float lonMin,
+            @Param("lonMax") Float lonMax
     );
 
     /**
-     * Retrieves all deleted locations.
-     * @return a list of deleted locations
+     * Retrieves active locations whose geohash falls in the half-open range [lower, upper).
+     * A geohash prefix maps to such a range, which lets the geohash index serve
+     * proximity lookups with a plain B-tree range scan.
+     * @param lower inclusive lower bound (the prefix itself)
+     * @param upper exclusive upper bound, or null for an open-ended range
+     * @return a list of active locations inside the geohash cell
      */
-    @Query("SELECT l FROM Location l WHERE l.deleted = true")
-    List<Location> findAllDeleted();
+    @Query("""
+           SELECT l FROM Location l
+           WHERE l.deleted = false
+             AND l.geohash >= :lower
+             AND (:upper IS NULL OR l.geohash < :upper)
+           """)
+    List<Location> findActiveByGeohashRange(@Param("lower") String lower, @Param("upper") String upper);
+
+    /**
+     * Retrieves locations that have not been assigned a geohash yet (rows created before the column existed).
+     * @return a list of locations without a geohash
+     */
+    List<Location> findByGeohashIsNull();
+
+    /**
+     * Searches active locations with the same filters as {@link #filterLocations}, selecting
+     * only the columns of {@link LocationView}. All filters null returns every active location.
+     * @param cityName the name of the city to search for (optional)
+     * @param postalCode the postal code to search for (optional)
+     * @param latMin the minimum latitude to search for (optional)
+     * @param latMax the maximum latitude to search for (optional)
+     * @param lonMin the minimum longitude to search for (optional)
+     * @param lonMax the maximum longitude to search for (optional)
+     * @return the matching locations as views, ordered by ID
+     */
+    @Query("""
+           SELECT new com.wefky.RESTfulWeb.dto.LocationView(
+               l.locationId, l.postalCode, l.cityName, l.latitude, l.longitude, l.deleted, l.geohash)
+           FROM Location l
+           WHERE l.deleted = false
+             AND (:cityName IS NULL OR LOWER(l.cityName) LIKE LOWER(CONCAT('%', CAST(:cityName AS String), '%')))
+             AND (:postalCode IS NULL OR LOWER(l.postalCode) LIKE LOWER(CONCAT('%', CAST(:postalCode AS String), '%')))
+             AND (:latMin IS NULL OR l.latitude >= :latMin)
+             AND (:latMax IS NULL OR l.latitude <= :latMax)
+             AND (:lonMin IS NULL OR l.longitude >= :lonMin)
+             AND (:lonMax IS NULL OR l.longitude <= :lonMax)
+           ORDER BY l.locationId
+           """)
+    List<LocationView> findActiveViews(
+            @Param("cityName") String cityName,
+            @Param("postalCode") String postalCode,
+            @Param("latMin") Float latMin,
+            @Param("latMax") Float latMax,
+            @Param("lonMin") Float lonMin,
+            @Param("lonMax") Float lonMax
+    );
+
+    /**
+     * Retrieves the IDs of the locations in the given state that match the filters of {@link #filterLocations},
+     * in ID order. Used to select the rows of a bulk soft delete, restore or permanent delete.
+     * @param deleted whether to match deleted (true) or active (false) locations
+     * @param cityName the name of the city to search for (optional)
+     * @param postalCode the postal code to search for (optional)
+     * @param latMin the minimum latitude to search for (optional)
+     * @param latMax the maximum latitude to search for (optional)
+     * @param lonMin the minimum longitude to search for (optional)
+     * @param lonMax the maximum longitude to search for (optional)
+     * @return the IDs of the matching locations
+     */
+    @Query("""
+           SELECT l.locationId FROM Location l
+           WHERE l.deleted = :deleted
+             AND (:cityName IS NULL OR LOWER(l.cityName) LIKE LOWER(CONCAT('%', CAST(:cityName AS String), '%')))
+             AND (:postalCode IS NULL OR LOWER(l.postalCode) LIKE LOWER(CONCAT('%', CAST(:postalCode AS String), '%')))
+             AND (:latMin IS NULL OR l.latitude >= :latMin)
+             AND (:latMax IS NULL OR l.latitude <= :latMax)
+             AND (:lonMin IS NULL OR l.longitude >= :lonMin)
+             AND (:lonMax IS NULL OR l.longitude <= :lonMax)
+           ORDER BY l.locationId
+           """)
+    List<Long> findIds(
+            @Param("deleted") boolean deleted,
+            @Param("cityName") String cityName,
+            @Param("postalCode") String postalCode,
+            @Param("latMin") Float latMin,
+            @Param("latMax") Float latMax,
+            @Param("lonMin") Float lonMin,
+            @Param("lonMax") Float lonMax
+    );
+
+    /**
+     * Locks the given locations that are in the given state until the transaction ends.
+     * @param ids the candidate IDs
+     * @param deleted the state the rows must be in
+     * @return the IDs of the locked rows, in ID order
+     */
+    @Query(value = """
+           SELECT location_id FROM locations
+           WHERE location_id IN (:ids) AND deleted = :deleted
+           ORDER BY location_id
+           FOR UPDATE
+           """, nativeQuery = true)
+    List<Long> lockIds(@Param("ids") List<Long> ids, @Param("deleted") boolean deleted);
+
+    /**
+     * Locks the given locations, whatever their state, until the transaction ends.
+     * @param ids the candidate IDs
+     * @return the IDs of the existing rows, in ID order
+     */
+    @Query(value = """
+           SELECT location_id FROM locations
+           WHERE location_id IN (:ids)
+           ORDER BY location_id
+           FOR UPDATE
+           """, nativeQuery = true)
+    List<Long> lockIds(@Param("ids") List<Long> ids);
+
+    /**
+     * Sets the deleted flag of the given locations with one UPDATE statement, stamping or clearing deletedAt.
+     * @param ids the IDs of the locations
+     * @param deleted the new value of the flag
+     * @param deletedAt the deletion time, or null when restoring
+     * @return the number of rows updated
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Location l SET l.deleted = :deleted, l.deletedAt = :deletedAt WHERE l.locationId IN :ids")
+    int updateDeleted(@Param("ids") List<Long> ids, @Param("deleted") boolean deleted,
+                      @Param("deletedAt") LocalDateTime deletedAt);
+
+    /**
+     * Deletes the given locations with one DELETE statement.
+     * @param ids the IDs of the locations
+     * @return the number of rows deleted
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Location l WHERE l.locationId IN :ids")
+    int deleteByIds(@Param("ids") List<Long> ids);
+
+    /**
+     * Locks up to {@code limit} locations that were soft deleted before the cutoff and that no measurement
+     * refers to any more, oldest deletion first. Rows locked by another transaction are skipped.
+     * @param cutoff the deletion time before which locations are purged
+     * @param limit the maximum number of rows to lock
+     * @return the IDs of the locked rows
+     */
+    @Query(value = """
+           SELECT l.location_id FROM locations l
+           WHERE l.deleted = true AND l.deleted_at < :cutoff
+             AND NOT EXISTS (SELECT 1 FROM measurements m WHERE m.location_id = l.location_id)
+           ORDER BY l.deleted_at
+           LIMIT :limit
+           FOR UPDATE SKIP LOCKED
+           """, nativeQuery = true)
+    List<Long> lockDeletedBefore(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+
+    /**
+     * Stamps locations deleted before deletedAt existed with the given time.
+     * @param now the time to stamp
+     * @return the number of rows stamped
+     */
+    @Modifying
+    @Query("UPDATE Location l SET l.deletedAt = :now WHERE l.deleted = true AND l.deletedAt IS NULL")
+    int stampUntimedDeletions(@Param("now") LocalDateTime now);
+
+    /**
+     * Counts the locations in the trash.
+     * @return the number of deleted locations
+     */
+    long countByDeletedTrue();
 }
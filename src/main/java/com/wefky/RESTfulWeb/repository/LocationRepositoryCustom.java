@@ -0,0 +1,63 @@
+package com.wefky.RESTfulWeb.repository;
+
+import java.util.List;
+import java.util.Map;
+
+import com.wefky.RESTfulWeb.dto.Fieldset;
+import com.wefky.RESTfulWeb.dto.KeysetPage;
+import com.wefky.RESTfulWeb.dto.KeysetRequest;
+import com.wefky.RESTfulWeb.dto.LocationView;
+import com.wefky.RESTfulWeb.entity.Location;
+
+/**
+ * Keyset-paginated and sparse location listings, built with the Criteria API (see {@link KeysetQuery}
+ * and {@link FieldsetQuery}), and lookups of many locations by ID through the second-level cache.
+ */
+public interface LocationRepositoryCustom {
+
+    /** Properties of a location that a {@link Fieldset} can select, in the order of the full view. */
+    List<String> FIELDS = List.of("locationId", "postalCode", "cityName", "latitude", "longitude", "deleted",
+            "geohash");
+
+    /**
+     * Retrieves one page of the locations in the given state that match the optional filters, as views.
+     * Same filters as {@link LocationRepository#filterLocations}, but only the given ones become
+     * conditions of the query, so the (deleted, location_id) index serves the default order.
+     * @param deleted whether to list deleted (true) or active (false) locations
+     * @param cityName the name of the city to search for (optional)
+     * @param postalCode the postal code to search for (optional)
+     * @param latMin the minimum latitude to search for (optional)
+     * @param latMax the maximum latitude to search for (optional)
+     * @param lonMin the minimum longitude to search for (optional)
+     * @param lonMax the maximum longitude to search for (optional)
+     * @param request the sort order, page size and cursor
+     * @return the page of location views
+     */
+    KeysetPage<LocationView> findViewPage(boolean deleted, String cityName, String postalCode, Float latMin,
+                                          Float latMax, Float lonMin, Float lonMax, KeysetRequest request);
+
+    /**
+     * Retrieves only the requested properties of the locations in the given state that match the
+     * optional filters (same filters as {@link #findViewPage}), in ID order.
+     * @param deleted whether to list deleted (true) or active (false) locations
+     * @param cityName the name of the city to search for (optional)
+     * @param postalCode the postal code to search for (optional)
+     * @param latMin the minimum latitude to search for (optional)
+     * @param latMax the maximum latitude to search for (optional)
+     * @param lonMin the minimum longitude to search for (optional)
+     * @param lonMax the maximum longitude to search for (optional)
+     * @param fieldset the properties to select
+     * @return one map of property to value per location
+     */
+    List<Map<String, Object>> findFields(boolean deleted, String cityName, String postalCode, Float latMin,
+                                         Float latMax, Float lonMin, Float lonMax, Fieldset fieldset);
+
+    /**
+     * Loads the locations with the given IDs, active or deleted. Locations held by the persistence
+     * context or the second-level cache are taken from there and the others are read with one query
+     * (id = ANY(array) on PostgreSQL). Must be called within a transaction.
+     * @param ids the IDs of the locations
+     * @return the locations found, in the order of the IDs; missing IDs are left out
+     */
+    List<Location> loadAllById(List<Long> ids);
+}
@@ -0,0 +1,85 @@
+package com.wefky.RESTfulWeb.repository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.domain.Specification;
+
+import com.wefky.RESTfulWeb.dto.Fieldset;
+import com.wefky.RESTfulWeb.dto.KeysetPage;
+import com.wefky.RESTfulWeb.dto.KeysetRequest;
+import com.wefky.RESTfulWeb.dto.LocationView;
+import com.wefky.RESTfulWeb.entity.Location;
+
+import jakarta.persistence.EntityManager;
+
+class LocationRepositoryCustomImpl implements LocationRepositoryCustom {
+
+    private final EntityManager entityManager;
+    private final KeysetQuery<Location, LocationView> views;
+    private final FieldsetQuery<Location> fields;
+
+    LocationRepositoryCustomImpl(EntityManager entityManager,
+                                 @Value("${app.web.pagination.count-limit:1000}") int countLimit) {
+        this.entityManager = entityManager;
+        this.views = new KeysetQuery<>(entityManager, Location.class, LocationView.class, "locationId",
+                (cb, l) -> cb.construct(LocationView.class,
+                        l.get("locationId"), l.get("postalCode"), l.get("cityName"), l.get("latitude"),
+                        l.get("longitude"), l.get("deleted"), l.get("geohash")),
+                countLimit);
+        this.fields = new FieldsetQuery<>(entityManager, Location.class, "locationId");
+    }
+
+    @Override
+    public KeysetPage<LocationView> findViewPage(boolean deleted, String cityName, String postalCode, Float latMin,
+                                                 Float latMax, Float lonMin, Float lonMax, KeysetRequest request) {
+        return views.page(filter(deleted, cityName, postalCode, latMin, latMax, lonMin, lonMax), request);
+    }
+
+    @Override
+    public List<Map<String, Object>> findFields(boolean deleted, String cityName, String postalCode, Float latMin,
+                                                Float latMax, Float lonMin, Float lonMax, Fieldset fieldset) {
+        return fields.list(filter(deleted, cityName, postalCode, latMin, latMax, lonMin, lonMax), fieldset);
+    }
+
+    private static Specification<Location> filter(boolean deleted, String cityName, String postalCode, Float latMin,
+                                                  Float latMax, Float lonMin, Float lonMax) {
+        Specification<Location> filter = (l, query, cb) -> cb.equal(l.get("deleted"), deleted);
+        if (cityName != null) {
+            filter = filter.and((l, query, cb) -> cb.like(cb.lower(l.get("cityName")),
+                    "%" + cityName.toLowerCase() + "%"));
+        }
+        if (postalCode != null) {
+            filter = filter.and((l, query, cb) -> cb.like(cb.lower(l.get("postalCode")),
+                    "%" + postalCode.toLowerCase() + "%"));
+        }
+        if (latMin != null) {
+            filter = filter.and((l, query, cb) -> cb.greaterThanOrEqualTo(l.get("latitude"), latMin));
+        }
+        if (latMax != null) {
+            filter = filter.and((l, query, cb) -> cb.lessThanOrEqualTo(l.get("latitude"), latMax));
+        }
+        if (lonMin != null) {
+            filter = filter.and((l, query, cb) -> cb.greaterThanOrEqualTo(l.get("longitude"), lonMin));
+        }
+        if (lonMax != null) {
+            filter = filter.and((l, query, cb) -> cb.lessThanOrEqualTo(l.get("longitude"), lonMax));
+        }
+        return filter;
+    }
+
+    @Override
+    public List<Location> loadAllById(List<Long> ids) {
+        return entityManager.unwrap(Session.class)
+                .byMultipleIds(Location.class)
+                .with(CacheMode.NORMAL)
+                .multiLoad(ids)
+                .stream()
+                .filter(Objects::nonNull)
+                .toList();
+    }
+}
@@ -2,14 +2,21 @@ package com.wefky.RESTfulWeb.repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import com.wefky.RESTfulWeb.dto.MeasurementView;
 import com.wefky.RESTfulWeb.entity.Measurement;
 
-public interface MeasurementRepository extends JpaRepository<Measurement, Long> {
+import jakarta.persistence.QueryHint;
+
+public interface MeasurementRepository extends JpaRepository<Measurement, Long>, MeasurementRepositoryCustom {
 
 /**
  * Retrieves all active (non-deleted) Measurement entities.
@@ -18,6 +25,14 @@ public interface MeasurementRepository extends JpaRepository<Measurement, Long>
  */
     @Query("SELECT m FROM Measurement m WHERE m.deleted = false")
     List<Measurement> findAllActive();
+
+/**
+ * Retrieves the distinct measurement units of the active measurements.
+ *
+ * @return the units in alphabetical order
+ */
+    @Query("SELECT DISTINCT m.measurementUnit FROM Measurement m WHERE m.deleted = false ORDER BY m.measurementUnit")
+    List<String> findDistinctMeasurementUnits();
    
 /**
  * Retrieves a list of measurements that match the provided filtering criteria.
@@ -52,42 +67,194 @@ public interface MeasurementRepository extends JpaRepository<Measurement, Long>
             @Param("cityName") String cityName);
 
 /**
- * Retrieves all measurements that are marked as deleted.
+ * Retrieves active measurements matching the optional filters as read-only views.
  *
- * This method executes a JPQL query to find and return a list of measurements where the
- * deletion flag is set to true.
+ * The location is left joined and selected in the same row, so a listing is one query
+ * instead of one query plus a location lookup per measurement. Measurements without a
+ * location are kept unless a city name is given.
  *
- * @return a list of deleted measurements.
+ * @param measurementUnit optional filter for the measurement unit (supports partial, case-insensitive matching)
+ * @param start           optional filter for the start timestamp (inclusive)
+ * @param end             optional filter for the end timestamp (inclusive)
+ * @param cityName        optional filter for the city name (supports partial, case-insensitive matching)
+ * @return the matching measurements as views
  */
-    @Query("SELECT m FROM Measurement m WHERE m.deleted = true")
-    List<Measurement> findAllDeleted();
+    @Query("""
+        SELECT new com.wefky.RESTfulWeb.dto.MeasurementView(
+            m.measurementId, m.measurementUnit, m.amount, m.timestamp, m.deleted,
+            l.locationId, l.postalCode, l.cityName, l.latitude, l.longitude, l.deleted, l.geohash)
+        FROM Measurement m LEFT JOIN m.location l
+        WHERE m.deleted = false
+          AND (:measurementUnit IS NULL OR LOWER(m.measurementUnit) LIKE LOWER(CONCAT('%', CAST(:measurementUnit AS String), '%')))
+          AND m.timestamp >= COALESCE(:start, m.timestamp)
+          AND m.timestamp <= COALESCE(:end, m.timestamp)
+          AND (:cityName IS NULL OR LOWER(l.cityName) LIKE LOWER(CONCAT('%', CAST(:cityName AS String), '%')))
+    """)
+    List<MeasurementView> findActiveViews(@Param("measurementUnit") String measurementUnit,
+                                          @Param("start") LocalDateTime start,
+                                          @Param("end") LocalDateTime end,
+                                          @Param("cityName") String cityName);
 
 /**
- * Retrieves a list of deleted measurements based on optional filtering criteria.
+ * Streams the active measurements matching the optional filters as read-only views, in ID order.
+ * Same filters as {@link #findActiveViews(String, LocalDateTime, LocalDateTime, String)}. Rows are
+ * read from a database cursor 1000 at a time, so an export never holds the whole result; the
+ * stream must be consumed and closed inside the transaction.
  *
- * This method returns measurements that have been marked as deleted. The filtering parameters are applied
- * in a case-insensitive manner and can be omitted (null) to bypass the corresponding filter:
- * - measurementUnit: If provided, filters measurements whose measurement unit contains the specified value.
- * - start: If provided, filters measurements with a timestamp greater than or equal to the specified start time.
- * - end: If provided, filters measurements with a timestamp less than or equal to the specified end time.
- * - cityName: If provided, filters measurements based on a case-insensitive search for the specified city name in the location.
+ * @param measurementUnit optional filter for the measurement unit (supports partial, case-insensitive matching)
+ * @param start           optional filter for the start timestamp (inclusive)
+ * @param end             optional filter for the end timestamp (inclusive)
+ * @param cityName        optional filter for the city name (supports partial, case-insensitive matching)
+ * @return the matching measurements as views
+ */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("""
+        SELECT new com.wefky.RESTfulWeb.dto.MeasurementView(
+            m.measurementId, m.measurementUnit, m.amount, m.timestamp, m.deleted,
+            l.locationId, l.postalCode, l.cityName, l.latitude, l.longitude, l.deleted, l.geohash)
+        FROM Measurement m LEFT JOIN m.location l
+        WHERE m.deleted = false
+          AND (:measurementUnit IS NULL OR LOWER(m.measurementUnit) LIKE LOWER(CONCAT('%', CAST(:measurementUnit AS String), '%')))
+          AND m.timestamp >= COALESCE(:start, m.timestamp)
+          AND m.timestamp <= COALESCE(:end, m.timestamp)
+          AND (:cityName IS NULL OR LOWER(l.cityName) LIKE LOWER(CONCAT('%', CAST(:cityName AS String), '%')))
+        ORDER BY m.measurementId
+    """)
+    Stream<MeasurementView> streamActiveViews(@Param("measurementUnit") String measurementUnit,
+                                              @Param("start") LocalDateTime start,
+                                              @Param("end") LocalDateTime end,
+                                              @Param("cityName") String cityName);
+
+/**
+ * Retrieves the IDs of the measurements in the given state that match the optional filters, in ID order.
+ * Same filters as {@link #findActiveViews(String, LocalDateTime, LocalDateTime, String)}; used to select
+ * the rows of a bulk soft delete, restore or permanent delete.
  *
+ * @param deleted         whether to match deleted (true) or active (false) measurements
  * @param measurementUnit optional filter for the measurement unit (supports partial, case-insensitive matching)
  * @param start           optional filter for the start timestamp (inclusive)
  * @param end             optional filter for the end timestamp (inclusive)
  * @param cityName        optional filter for the city name (supports partial, case-insensitive matching)
- * @return a list of measurements that are marked as deleted and match the provided criteria
+ * @return the IDs of the matching measurements
+ */
+    @Query("""
+        SELECT m.measurementId FROM Measurement m LEFT JOIN m.location l
+        WHERE m.deleted = :deleted
+          AND (:measurementUnit IS NULL OR LOWER(m.measurementUnit) LIKE LOWER(CONCAT('%', CAST(:measurementUnit AS String), '%')))
+          AND m.timestamp >= COALESCE(:start, m.timestamp)
+          AND m.timestamp <= COALESCE(:end, m.timestamp)
+          AND (:cityName IS NULL OR LOWER(l.cityName) LIKE LOWER(CONCAT('%', CAST(:cityName AS String), '%')))
+        ORDER BY m.measurementId
+    """)
+    List<Long> findIds(@Param("deleted") boolean deleted,
+                       @Param("measurementUnit") String measurementUnit,
+                       @Param("start") LocalDateTime start,
+                       @Param("end") LocalDateTime end,
+                       @Param("cityName") String cityName);
+
+/**
+ * Locks the given measurements that are in the given state and returns their IDs.
+ * The rows stay locked until the transaction ends, so a concurrent bulk change of the same rows
+ * waits instead of counting and publishing them a second time.
+ *
+ * @param ids     the candidate IDs
+ * @param deleted the state the rows must be in
+ * @return the IDs of the locked rows, in ID order
+ */
+    @Query(value = """
+        SELECT measurement_id FROM measurements
+        WHERE measurement_id IN (:ids) AND deleted = :deleted
+        ORDER BY measurement_id
+        FOR UPDATE
+    """, nativeQuery = true)
+    List<Long> lockIds(@Param("ids") List<Long> ids, @Param("deleted") boolean deleted);
+
+/**
+ * Locks the given measurements, whatever their state, and returns their IDs.
+ *
+ * @param ids the candidate IDs
+ * @return the IDs of the existing rows, in ID order
+ */
+    @Query(value = """
+        SELECT measurement_id FROM measurements
+        WHERE measurement_id IN (:ids)
+        ORDER BY measurement_id
+        FOR UPDATE
+    """, nativeQuery = true)
+    List<Long> lockIds(@Param("ids") List<Long> ids);
+
+/**
+ * Sets the deleted flag of the given measurements with one UPDATE statement, stamping or clearing deletedAt.
+ *
+ * @param ids       the IDs of the measurements
+ * @param deleted   the new value of the flag
+ * @param deletedAt the deletion time, or null when restoring
+ * @return the number of rows updated
+ */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Measurement m SET m.deleted = :deleted, m.deletedAt = :deletedAt WHERE m.measurementId IN :ids")
+    int updateDeleted(@Param("ids") List<Long> ids, @Param("deleted") boolean deleted,
+                      @Param("deletedAt") LocalDateTime deletedAt);
+
+/**
+ * Deletes the given measurements with one DELETE statement.
+ *
+ * @param ids the IDs of the measurements
+ * @return the number of rows deleted
+ */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Measurement m WHERE m.measurementId IN :ids")
+    int deleteByIds(@Param("ids") List<Long> ids);
+
+/**
+ * Retrieves the given measurements as read-only views, in ID order.
+ *
+ * @param ids the IDs of the measurements
+ * @return the views of the existing measurements
  */
     @Query("""
-        SELECT m FROM Measurement m
-        WHERE m.deleted = true
-          AND (:measurementUnit IS NULL OR LOWER(m.measurementUnit) LIKE LOWER(CONCAT('%', :measurementUnit, '%')))
-          AND (:start IS NULL OR m.timestamp >= :start)
-          AND (:end IS NULL OR m.timestamp <= :end)
-          AND (:cityName IS NULL OR LOWER(m.location.cityName) LIKE LOWER(CONCAT('%', :cityName, '%')))
+        SELECT new com.wefky.RESTfulWeb.dto.MeasurementView(
+            m.measurementId, m.measurementUnit, m.amount, m.timestamp, m.deleted,
+            l.locationId, l.postalCode, l.cityName, l.latitude, l.longitude, l.deleted, l.geohash)
+        FROM Measurement m LEFT JOIN m.location l
+        WHERE m.measurementId IN :ids
+        ORDER BY m.measurementId
     """)
-    List<Measurement> findAllDeleted(@Param("measurementUnit") String measurementUnit,
-                                     @Param("start") LocalDateTime start,
-                                     @Param("end") LocalDateTime end,
-                                     @Param("cityName") String cityName);
+    List<MeasurementView> findViewsByIds(@Param("ids") List<Long> ids);
+
+/**
+ * Locks up to {@code limit} measurements that were soft deleted before the cutoff, oldest deletion first.
+ * Rows locked by another transaction are skipped rather than waited for, so the retention purge never
+ * queues behind (or blocks) a request; it picks them up on a later run.
+ *
+ * @param cutoff the deletion time before which measurements are purged
+ * @param limit  the maximum number of rows to lock
+ * @return the IDs of the locked rows
+ */
+    @Query(value = """
+        SELECT measurement_id FROM measurements
+        WHERE deleted = true AND deleted_at < :cutoff
+        ORDER BY deleted_at
+        LIMIT :limit
+        FOR UPDATE SKIP LOCKED
+    """, nativeQuery = true)
+    List<Long> lockDeletedBefore(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+
+/**
+ * Stamps measurements deleted before deletedAt existed with the given time, so their retention
+ * period starts now instead of never.
+ *
+ * @param now the time to stamp
+ * @return the number of rows stamped
+ */
+    @Modifying
+    @Query("UPDATE Measurement m SET m.deletedAt = :now WHERE m.deleted = true AND m.deletedAt IS NULL")
+    int stampUntimedDeletions(@Param("now") LocalDateTime now);
+
+/**
+ * Counts the measurements in the trash.
+ *
+ * @return the number of deleted measurements
+ */
+    long countByDeletedTrue();
 }
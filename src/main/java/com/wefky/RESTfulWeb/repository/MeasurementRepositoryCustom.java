@@ -0,0 +1,55 @@
+package com.wefky.RESTfulWeb.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import com.wefky.RESTfulWeb.dto.Fieldset;
+import com.wefky.RESTfulWeb.dto.KeysetPage;
+import com.wefky.RESTfulWeb.dto.KeysetRequest;
+import com.wefky.RESTfulWeb.dto.MeasurementView;
+
+/**
+ * Keyset-paginated and sparse measurement listings, built with the Criteria API
+ * (see {@link KeysetQuery} and {@link FieldsetQuery}).
+ */
+public interface MeasurementRepositoryCustom {
+
+    /** Properties of a measurement that a {@link Fieldset} can select, in the order of the full view. */
+    List<String> FIELDS = List.of("measurementId", "measurementUnit", "amount", "timestamp", "deleted");
+
+    /** Resources a {@link Fieldset} can embed in a measurement, with their properties. */
+    Map<String, List<String>> EMBEDDABLE = Map.of("location", LocationRepositoryCustom.FIELDS);
+
+    /**
+     * Retrieves one page of the measurements in the given state that match the optional filters, as views
+     * with their location. Same filters as {@link MeasurementRepository#findActiveViews}, but only the given
+     * ones become conditions of the query, so the (deleted, timestamp) index serves the default order.
+     *
+     * @param deleted         whether to list deleted (true) or active (false) measurements
+     * @param measurementUnit optional filter for the measurement unit (supports partial, case-insensitive matching)
+     * @param start           optional filter for the start timestamp (inclusive)
+     * @param end             optional filter for the end timestamp (inclusive)
+     * @param cityName        optional filter for the city name (supports partial, case-insensitive matching)
+     * @param request         the sort order, page size and cursor
+     * @return the page of measurement views
+     */
+    KeysetPage<MeasurementView> findViewPage(boolean deleted, String measurementUnit, LocalDateTime start,
+                                             LocalDateTime end, String cityName, KeysetRequest request);
+
+    /**
+     * Retrieves only the requested properties of the measurements in the given state that match the
+     * optional filters (same filters as {@link #findViewPage}), in ID order. The location is joined only
+     * when it is embedded or filtered by city.
+     *
+     * @param deleted         whether to list deleted (true) or active (false) measurements
+     * @param measurementUnit optional filter for the measurement unit (supports partial, case-insensitive matching)
+     * @param start           optional filter for the start timestamp (inclusive)
+     * @param end             optional filter for the end timestamp (inclusive)
+     * @param cityName        optional filter for the city name (supports partial, case-insensitive matching)
+     * @param fieldset        the properties to select
+     * @return one map of property to value per measurement
+     */
+    List<Map<String, Object>> findFields(boolean deleted, String measurementUnit, LocalDateTime start,
+                                         LocalDateTime end, String cityName, Fieldset fieldset);
+}
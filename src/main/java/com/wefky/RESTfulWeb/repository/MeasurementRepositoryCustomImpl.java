@@ -0,0 +1,71 @@
+package com.wefky.RESTfulWeb.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.domain.Specification;
+
+import com.wefky.RESTfulWeb.dto.Fieldset;
+import com.wefky.RESTfulWeb.dto.KeysetPage;
+import com.wefky.RESTfulWeb.dto.KeysetRequest;
+import com.wefky.RESTfulWeb.dto.MeasurementView;
+import com.wefky.RESTfulWeb.entity.Location;
+import com.wefky.RESTfulWeb.entity.Measurement;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.Join;
+
+class MeasurementRepositoryCustomImpl implements MeasurementRepositoryCustom {
+
+    private final KeysetQuery<Measurement, MeasurementView> views;
+    private final FieldsetQuery<Measurement> fields;
+
+    MeasurementRepositoryCustomImpl(EntityManager entityManager,
+                                    @Value("${app.web.pagination.count-limit:1000}") int countLimit) {
+        this.views = new KeysetQuery<>(entityManager, Measurement.class, MeasurementView.class, "measurementId",
+                (cb, m) -> {
+                    Join<Measurement, Location> l = KeysetQuery.leftJoin(m, "location");
+                    return cb.construct(MeasurementView.class,
+                            m.get("measurementId"), m.get("measurementUnit"), m.get("amount"), m.get("timestamp"),
+                            m.get("deleted"), l.get("locationId"), l.get("postalCode"), l.get("cityName"),
+                            l.get("latitude"), l.get("longitude"), l.get("deleted"), l.get("geohash"));
+                },
+                countLimit);
+        this.fields = new FieldsetQuery<>(entityManager, Measurement.class, "measurementId");
+    }
+
+    @Override
+    public KeysetPage<MeasurementView> findViewPage(boolean deleted, String measurementUnit, LocalDateTime start,
+                                                    LocalDateTime end, String cityName, KeysetRequest request) {
+        return views.page(filter(deleted, measurementUnit, start, end, cityName), request);
+    }
+
+    @Override
+    public List<Map<String, Object>> findFields(boolean deleted, String measurementUnit, LocalDateTime start,
+                                                LocalDateTime end, String cityName, Fieldset fieldset) {
+        return fields.list(filter(deleted, measurementUnit, start, end, cityName), fieldset);
+    }
+
+    private static Specification<Measurement> filter(boolean deleted, String measurementUnit, LocalDateTime start,
+                                                     LocalDateTime end, String cityName) {
+        Specification<Measurement> filter = (m, query, cb) -> cb.equal(m.get("deleted"), deleted);
+        if (measurementUnit != null) {
+            filter = filter.and((m, query, cb) -> cb.like(cb.lower(m.get("measurementUnit")),
+                    "%" + measurementUnit.toLowerCase() + "%"));
+        }
+        if (start != null) {
+            filter = filter.and((m, query, cb) -> cb.greaterThanOrEqualTo(m.get("timestamp"), start));
+        }
+        if (end != null) {
+            filter = filter.and((m, query, cb) -> cb.lessThanOrEqualTo(m.get("timestamp"), end));
+        }
+        if (cityName != null) {
+            filter = filter.and((m, query, cb) -> cb.like(
+                    cb.lower(KeysetQuery.<Measurement, Location>leftJoin(m, "location").get("cityName")),
+                    "%" + cityName.toLowerCase() + "%"));
+        }
+        return filter;
+    }
+}
@@ -0,0 +1,55 @@
+package com.wefky.RESTfulWeb.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.wefky.RESTfulWeb.entity.OutboxEvent;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Retrieves the outbox events after the given position, in (txid, event_id) order.
+     *
+     * Only events of transactions older than the oldest transaction still running are returned:
+     * those transactions have all finished, and every later transaction gets a higher txid, so no
+     * event can still appear before the last position returned.
+     *
+     * @param txid    the txid of the last event already read (0 to start at the beginning)
+     * @param eventId the event_id of the last event already read (0 to start at the beginning)
+     * @param limit   the maximum number of events to return
+     * @return the committed events after the position
+     */
+    @Query(value = """
+        SELECT * FROM outbox_events
+        WHERE (txid, event_id) > (:txid, :eventId)
+          AND txid < txid_snapshot_xmin(txid_current_snapshot())
+        ORDER BY txid, event_id
+        LIMIT :limit
+    """, nativeQuery = true)
+    List<OutboxEvent> findCommittedAfter(@Param("txid") long txid, @Param("eventId") long eventId,
+                                         @Param("limit") int limit);
+
+    /**
+     * Deletes up to {@code limit} outbox events written before the cutoff, oldest first.
+     *
+     * @param cutoff the time before which events are deleted
+     * @param limit  the maximum number of events to delete
+     * @return the number of events deleted
+     */
+    @Modifying
+    @Query(value = """
+        DELETE FROM outbox_events
+        WHERE event_id IN (
+            SELECT event_id FROM outbox_events
+            WHERE occurred_at < :cutoff
+            ORDER BY occurred_at
+            LIMIT :limit
+        )
+    """, nativeQuery = true)
+    int deleteOccurredBefore(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+}
@@ -0,0 +1,81 @@
+package com.wefky.RESTfulWeb.service;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.authentication.CachingUserDetailsService;
+import org.springframework.security.authentication.DisabledException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.stereotype.Service;
+
+import com.wefky.RESTfulWeb.config.ApiTokenConfig;
+import com.wefky.RESTfulWeb.dto.ApiToken;
+
+/**
+ * Issues the short-lived bearer tokens of the API and turns verified tokens into an authentication.
+ *
+ * A token only names its user and expiry; the signature is checked by the resource server's
+ * JwtDecoder (HMAC, in memory). The user's roles and enabled flag are looked up in the
+ * {@link UserDetailsCache} on each request, so a role change or a disabled account takes
+ * effect immediately while the database is only read after such a change.
+ */
+@Service
+public class ApiTokenService {
+
+    private final JwtEncoder apiTokenEncoder;
+    private final CachingUserDetailsService cachedUserDetailsService;
+    private final Duration ttl;
+
+    public ApiTokenService(JwtEncoder apiTokenEncoder,
+                           MyUserDetailsService myUserDetailsService,
+                           UserDetailsCache userDetailsCache,
+                           @Value("${app.security.token.ttl:15m}") Duration ttl) {
+        this.apiTokenEncoder = apiTokenEncoder;
+        this.cachedUserDetailsService = new CachingUserDetailsService(myUserDetailsService);
+        this.cachedUserDetailsService.setUserCache(userDetailsCache);
+        this.ttl = ttl;
+    }
+
+    /**
+     * Issues a token for an authenticated user.
+     *
+     * @param user the user whose password has been checked
+     * @return the signed token and its lifetime
+     */
+    public ApiToken issue(UserDetails user) {
+        Instant now = Instant.now();
+        JwtClaimsSet claims = JwtClaimsSet.builder()
+                .issuer(ApiTokenConfig.ISSUER)
+                .subject(user.getUsername())
+                .issuedAt(now)
+                .expiresAt(now.plus(ttl))
+                .build();
+        JwsHeader header = JwsHeader.with(MacAlgorithm.HS256).build();
+        String token = apiTokenEncoder.encode(JwtEncoderParameters.from(header, claims)).getTokenValue();
+        return new ApiToken(token, "Bearer", ttl.toSeconds());
+    }
+
+    /**
+     * Resolves the user of a verified token, for the resource server's JWT authentication.
+     *
+     * @param jwt the token, with signature, issuer and expiry already checked
+     * @return an authentication with the user's current authorities
+     * @throws org.springframework.security.core.AuthenticationException if the user no longer exists or is disabled
+     */
+    public AbstractAuthenticationToken authenticate(Jwt jwt) {
+        UserDetails user = cachedUserDetailsService.loadUserByUsername(jwt.getSubject());
+        if (!user.isEnabled()) {
+            throw new DisabledException("User is disabled");
+        }
+        return UsernamePasswordAuthenticationToken.authenticated(user, null, user.getAuthorities());
+    }
+}
@@ -0,0 +1,107 @@
+package com.wefky.RESTfulWeb.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wefky.RESTfulWeb.dto.ChangePage;
+import com.wefky.RESTfulWeb.dto.ChangeView;
+import com.wefky.RESTfulWeb.dto.LocationView;
+import com.wefky.RESTfulWeb.entity.OutboxEvent;
+import com.wefky.RESTfulWeb.event.ChangeType;
+import com.wefky.RESTfulWeb.event.ImageChangedEvent;
+import com.wefky.RESTfulWeb.event.LocationChangedEvent;
+import com.wefky.RESTfulWeb.event.MeasurementChangedEvent;
+import com.wefky.RESTfulWeb.repository.OutboxEventRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Transactional outbox of all location, measurement and image changes, and the change feed
+ * read from it (GET /api/changes).
+ *
+ * The change events are handled synchronously, so each outbox row is written in the
+ * transaction of the change it records: it commits or rolls back together with it. Clients
+ * keep the position of the last change they saw and ask only for what came after it, so an
+ * incremental sync reads the changes since then instead of the whole tables.
+ */
+@Service
+@RequiredArgsConstructor
+public class ChangeOutboxService {
+
+    public static final String LOCATION = "location";
+    public static final String MEASUREMENT = "measurement";
+    public static final String IMAGE = "image";
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+
+    @EventListener
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onLocationChanged(LocationChangedEvent event) {
+        record(LOCATION, event.locationId(), event.type(), LocationView.from(event.location()));
+    }
+
+    @EventListener
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onMeasurementChanged(MeasurementChangedEvent event) {
+        // A purged measurement's event carries its last state for the stream; the feed only needs the ID.
+        record(MEASUREMENT, event.measurementId(), event.type(),
+                event.type() == ChangeType.PURGED ? null : event.measurement());
+    }
+
+    @EventListener
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onImageChanged(ImageChangedEvent event) {
+        record(IMAGE, event.imageId(), event.type(), event.image());
+    }
+
+    private void record(String entityType, Long entityId, ChangeType type, Object view) {
+        OutboxEvent event = OutboxEvent.builder()
+                .entityType(entityType)
+                .entityId(entityId)
+                .changeType(type)
+                .occurredAt(LocalDateTime.now())
+                .payload(view == null ? null : objectMapper.valueToTree(view))
+                .build();
+        outboxEventRepository.save(event);
+    }
+
+    /**
+     * Retrieves the committed changes after a position of the feed, oldest first.
+     *
+     * @param txid    the transaction part of the position
+     * @param eventId the event part of the position
+     * @param limit   the maximum number of changes to return
+     * @return the changes, the position to continue from and whether more changes are available
+     */
+    @Transactional(readOnly = true)
+    public ChangePage getChanges(long txid, long eventId, int limit) {
+        List<OutboxEvent> events = outboxEventRepository.findCommittedAfter(txid, eventId, limit + 1);
+        boolean more = events.size() > limit;
+        List<ChangeView> changes = events.stream().limit(limit).map(ChangeView::from).toList();
+        String next = changes.isEmpty()
+                ? ChangePage.position(txid, eventId)
+                : changes.get(changes.size() - 1).position();
+        return new ChangePage(changes, next, more);
+    }
+
+    /**
+     * Deletes up to {@code limit} outbox events written before the cutoff, for the retention purge.
+     * A client whose position is older than the retention period misses those changes and should
+     * reload the lists before following the feed again.
+     *
+     * @param cutoff the time before which events are deleted
+     * @param limit  the maximum number of events to delete
+     * @return the number of events deleted
+     */
+    @Transactional
+    public int purgeBefore(LocalDateTime cutoff, int limit) {
+        return outboxEventRepository.deleteOccurredBefore(cutoff, limit);
+    }
+}
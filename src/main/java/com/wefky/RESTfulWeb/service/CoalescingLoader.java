@@ -0,0 +1,125 @@
+package com.wefky.RESTfulWeb.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Merges concurrent lookups of single rows by ID into one query per round trip.
+ *
+ * At most one query runs at a time. A lookup that arrives while it runs joins the next batch
+ * instead of starting its own query, and the first lookup of that batch runs it as soon as the
+ * running query returns; an idle loader queries at once, so a lone lookup never waits for a timer.
+ * Lookups of the same ID in one batch share its result. This turns a burst of single-ID requests
+ * (a client rendering a list row by row) into a few IN queries and leaves the connection pool to
+ * the other requests.
+ *
+ * Callers should not hold a transaction while they wait, or each waiting caller keeps a
+ * connection it does not use.
+ *
+ * Metrics: app.lookups.batch.size{entity}, whose count is the number of queries and whose total
+ * is the number of IDs looked up.
+ *
+ * @param <V> the type of the rows
+ */
+final class CoalescingLoader<V> {
+
+    private static final class Batch<V> {
+        private final Map<Long, CompletableFuture<Optional<V>>> lookups = new LinkedHashMap<>();
+    }
+
+    private final Function<List<Long>, Map<Long, V>> loader;
+    private final int maxBatchSize;
+    private final DistributionSummary batchSizes;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ReentrantLock running = new ReentrantLock();
+    private Batch<V> open;
+
+    /**
+     * @param entity       the entity name of the metrics
+     * @param loader       loads the rows of the given IDs with one query, by ID; missing IDs are left out
+     * @param maxBatchSize the most IDs per query
+     */
+    CoalescingLoader(String entity, Function<List<Long>, Map<Long, V>> loader, int maxBatchSize,
+                     MeterRegistry meterRegistry) {
+        this.loader = loader;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.batchSizes = DistributionSummary.builder("app.lookups.batch.size")
+                .description("IDs per query of coalesced single-row lookups")
+                .tag("entity", entity)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the row with the given ID, or empty when there is none.
+     */
+    Optional<V> get(Long id) {
+        Batch<V> batch;
+        CompletableFuture<Optional<V>> lookup;
+        boolean first;
+        lock.lock();
+        try {
+            first = open == null || (open.lookups.size() >= maxBatchSize && !open.lookups.containsKey(id));
+            if (first) {
+                open = new Batch<>();
+            }
+            batch = open;
+            lookup = batch.lookups.computeIfAbsent(id, key -> new CompletableFuture<>());
+        } finally {
+            lock.unlock();
+        }
+        if (first) {
+            run(batch);
+        }
+        try {
+            return lookup.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Waits for the running query, closes the batch to new lookups and queries its IDs.
+     */
+    private void run(Batch<V> batch) {
+        running.lock();
+        try {
+            List<Long> ids;
+            lock.lock();
+            try {
+                if (open == batch) {
+                    open = null;
+                }
+                ids = new ArrayList<>(batch.lookups.keySet());
+            } finally {
+                lock.unlock();
+            }
+            batchSizes.record(ids.size());
+            try {
+                Map<Long, V> found = loader.apply(ids);
+                batch.lookups.forEach((id, lookup) -> lookup.complete(Optional.ofNullable(found.get(id))));
+            } catch (Throwable e) {
+                // Errors too: every lookup of the batch waits on its future without a timeout.
+                batch.lookups.values().forEach(lookup -> lookup.completeExceptionally(e));
+            }
+        } finally {
+            running.unlock();
+        }
+    }
+}
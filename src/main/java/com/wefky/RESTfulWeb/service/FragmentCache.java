@@ -0,0 +1,84 @@
+package com.wefky.RESTfulWeb.service;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.Context;
+
+import com.wefky.RESTfulWeb.event.ImageChangedEvent;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Output cache for template fragments that are expensive to build and rarely change, such as the
+ * content-type suggestions of the image pages (a DISTINCT over all images).
+ *
+ * A fragment is rendered once with its own variables and the resulting HTML is reused by every
+ * page until a committed write drops it; pages insert it with th:utext. Only fragments that do not
+ * depend on the request or the user (no links, CSRF tokens or sec: attributes) belong here.
+ * A render that overlaps with an invalidation is returned but not stored, so a write is never
+ * hidden by an older render. The data of a fragment usually comes from {@link ReferenceDataCache},
+ * which drops its lists before this cache drops the fragments built from them.
+ *
+ * Enabled with app.web.fragment-cache.enabled (the prod profile); otherwise every request renders.
+ * Metrics: the {@link MeteredCache} metrics with cache=fragments.
+ */
+@Component
+public class FragmentCache {
+
+    /** Options of the content types of active images; variable contentTypes. */
+    public static final String CONTENT_TYPES = "fragments/contentTypes :: options";
+
+    private final ITemplateEngine templateEngine;
+    private final boolean enabled;
+    private final MeteredCache<String, String> fragments;
+
+    public FragmentCache(ITemplateEngine templateEngine,
+                         MeterRegistry meterRegistry,
+                         @Value("${app.web.fragment-cache.enabled:false}") boolean enabled) {
+        this.templateEngine = templateEngine;
+        this.enabled = enabled;
+        this.fragments = new MeteredCache<>("fragments", meterRegistry);
+    }
+
+    /**
+     * Returns the rendered fragment, rendering it on a miss.
+     *
+     * @param fragment  the fragment as "template :: selector", e.g. {@link #CONTENT_TYPES}
+     * @param variables the variables of the fragment, only called on a miss
+     * @return the fragment's HTML
+     */
+    public String get(String fragment, Supplier<Map<String, Object>> variables) {
+        if (!enabled) {
+            return render(fragment, variables.get());
+        }
+        return fragments.get(fragment, () -> render(fragment, variables.get()));
+    }
+
+    /**
+     * Drops the fragment; the next page renders it again.
+     */
+    public void invalidate(String fragment) {
+        fragments.invalidate(fragment);
+    }
+
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onImageChanged(ImageChangedEvent event) {
+        invalidate(CONTENT_TYPES);
+    }
+
+    private String render(String fragment, Map<String, Object> variables) {
+        int separator = fragment.indexOf("::");
+        String template = fragment.substring(0, separator).trim();
+        String selector = fragment.substring(separator + 2).trim();
+        return templateEngine.process(template, Set.of(selector), new Context(null, variables));
+    }
+}
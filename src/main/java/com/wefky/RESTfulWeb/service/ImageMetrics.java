@@ -0,0 +1,44 @@
+package com.wefky.RESTfulWeb.service;
+
+import org.springframework.stereotype.Component;
+
+import com.wefky.RESTfulWeb.entity.Image;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Counts image (blob) bytes served by the file endpoints and received by uploads.
+ */
+@Component
+public class ImageMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary uploaded;
+
+    public ImageMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.uploaded = DistributionSummary.builder("app.images.bytes.uploaded")
+                .description("Size of uploaded image files")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Records a file response.
+     *
+     * @param endpoint the serving endpoint, e.g. "file" or "file-all"
+     */
+    public void served(Image image, String endpoint) {
+        DistributionSummary.builder("app.images.bytes.served")
+                .description("Size of image files served")
+                .baseUnit("bytes")
+                .tag("endpoint", endpoint)
+                .register(meterRegistry)
+                .record(image.getData() == null ? 0 : image.getData().length);
+    }
+
+    public void uploaded(long bytes) {
+        uploaded.record(bytes);
+    }
+}
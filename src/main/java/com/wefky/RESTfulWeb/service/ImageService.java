@@ -1,16 +1,31 @@
 package com.wefky.RESTfulWeb.service;
 
+import java.time.LocalDateTime;
 import java.util.Base64;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.wefky.RESTfulWeb.dto.BulkResult;
+import com.wefky.RESTfulWeb.dto.Fieldset;
+import com.wefky.RESTfulWeb.dto.ImageView;
+import com.wefky.RESTfulWeb.dto.KeysetPage;
+import com.wefky.RESTfulWeb.dto.KeysetRequest;
+import com.wefky.RESTfulWeb.dto.MultiGetResult;
 import com.wefky.RESTfulWeb.entity.Image;
+import com.wefky.RESTfulWeb.event.ChangeType;
+import com.wefky.RESTfulWeb.event.ImageChangedEvent;
 import com.wefky.RESTfulWeb.repository.ImageRepository;
+import com.wefky.RESTfulWeb.util.Chunks;
 
 import lombok.RequiredArgsConstructor;
 
@@ -20,7 +35,12 @@ import lombok.RequiredArgsConstructor;
 public class ImageService {
 
     private static final Logger logger = LoggerFactory.getLogger(ImageService.class);
+
+    /** IDs per statement of a bulk change. */
+    private static final int BULK_CHUNK_SIZE = 1000;
+
     private final ImageRepository imageRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Searches for images based on the provided search criteria.
@@ -54,37 +74,95 @@ public class ImageService {
     }
 
     /**
-     * Searches for deleted images based on the provided search criteria.
+     * Searches for images using the same search rules as {@link #searchImages(String)},
+     * without loading their file data or a Base64 representation.
      *
-     * If the search parameter is null or blank, the method retrieves all deleted images.
-     * Otherwise, it attempts to parse the search string as a Long. If parsing is successful,
-     * it uses the numeric value along with the search term; if parsing fails, it treats the
-     * search term as text (after trimming).
+     * The images page links to each file through /api/images/{id}/file, so listings only
+     * need the metadata.
      *
-     * Before returning the results, the method populates each Image with a Base64 representation.</p>
+     * @param search the search term, which may be either a numeric identifier or text.
+     * @return the matching images as views.
+     */
+    @Transactional(readOnly = true)
+    public List<ImageView> searchImageViews(String search) {
+        if (search == null || search.isBlank()) {
+            return imageRepository.findActiveViews();
+        }
+        Long searchId = parseSearchId(search);
+        return (searchId != null)
+                ? imageRepository.searchImageViews(searchId, search)
+                : imageRepository.searchImageViews(null, search.trim());
+    }
+
+    /**
+     * Searches for active images one page at a time, using the same search rules as
+     * {@link #searchImageViews(String)}.
      *
-     * @param search the search criterion, which may be a numeric ID in string form or text.
-     *         If null or blank, all deleted images are retrieved.
-     * @return a list of deleted Image objects matching the search criteria.
+     * @param search the search criterion (numeric ID or text); null or blank for all active images.
+     * @param request the sort order, page size and cursor of the page.
+     * @return a page of active images matching the search criteria, as views.
      */
     @Transactional(readOnly = true)
-    public List<Image> searchDeletedImages(String search) {
+    public KeysetPage<ImageView> searchImagesPage(String search, KeysetRequest request) {
+        return findViewPage(false, search, request);
+    }
+
+    /**
+     * Searches for deleted images one page at a time, using the same search rules as
+     * {@link #searchImagesPage(String, KeysetRequest)}.
+     *
+     * The trash page links to each file through /api/images/{id}/file-all, so only the
+     * metadata is selected.
+     *
+     * @param search the search criterion (numeric ID or text); null or blank for all deleted images.
+     * @param request the sort order, page size and cursor of the page.
+     * @return a page of deleted images matching the search criteria, as views.
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<ImageView> searchDeletedImagesPage(String search, KeysetRequest request) {
+        return findViewPage(true, search, request);
+    }
+
+    /**
+     * Searches for active images like {@link #searchImageViews(String)}, selecting only the requested
+     * properties.
+     *
+     * @param search the search criterion (numeric ID or text); null or blank for all active images.
+     * @param fieldset the properties to select.
+     * @return one map of property to value per image, ordered by ID.
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> searchImageFields(String search, Fieldset fieldset) {
         if (search == null || search.isBlank()) {
-            List<Image> images = imageRepository.findAllDeleted();
-            populateBase64(images);
-            return images;
+            return imageRepository.findFields(false, null, null, fieldset);
         }
-        Long searchId = null;
-        try {
-            searchId = Long.parseLong(search);
-        } catch (NumberFormatException e) {
-            // Not a number; treat search as text.
+        Long searchId = parseSearchId(search);
+        return (searchId != null)
+                ? imageRepository.findFields(false, searchId, search, fieldset)
+                : imageRepository.findFields(false, null, search.trim(), fieldset);
+    }
+
+    /**
+     * Retrieves the requested properties of an active image; unlike {@link #getImageById(Long)} the
+     * file is not read.
+     *
+     * @param id the unique identifier of the image
+     * @param fieldset the properties to select
+     * @return the properties of the image, or empty if it is not found or marked as deleted
+     */
+    @Transactional(readOnly = true)
+    public Optional<Map<String, Object>> getImageFields(Long id, Fieldset fieldset) {
+        return imageRepository.findFields(false, id, null, fieldset).stream().findFirst();
+    }
+
+    private KeysetPage<ImageView> findViewPage(boolean deleted, String search, KeysetRequest request) {
+        if (search == null || search.isBlank()) {
+            return imageRepository.findViewPage(deleted, null, null, request);
         }
-        List<Image> images = (searchId != null)
-                ? imageRepository.searchDeletedImages(searchId, search)
-                : imageRepository.searchDeletedImages(null, search.trim());
-        populateBase64(images);
-        return images;
+        Long searchId = parseSearchId(search);
+        return (searchId != null)
+                ? imageRepository.findViewPage(deleted, searchId, search, request)
+                : imageRepository.findViewPage(deleted, null, search.trim(), request);
     }
 
     /**
@@ -109,6 +187,19 @@ public class ImageService {
         return Optional.empty();
     }
 
+    /**
+     * Retrieves the metadata of the active images with the given IDs with one query, without their files.
+     *
+     * @param ids the IDs of the images
+     * @return the active images in the order of the IDs, and the IDs that are unknown or deleted
+     */
+    @Transactional(readOnly = true)
+    public MultiGetResult<ImageView> getImageViews(List<Long> ids) {
+        return MultiGetResult.of(ids, imageRepository.findViewsByIds(ids).stream()
+                .filter(view -> !view.deleted())
+                .collect(Collectors.toMap(ImageView::imageId, Function.identity())));
+    }
+
     /**
      * Persists the given Image entity using the image repository.
      * If the provided Image object is new (i.e., its imageId is {null}),
@@ -120,10 +211,12 @@ public class ImageService {
      *         a populated base64 representation, and a non-null imageId if it was generated
      */
     public Image saveImage(Image image) {
+        ChangeType type = image.getImageId() == null ? ChangeType.CREATED : ChangeType.UPDATED;
         if (image.getImageId() == null) {
             image.setUploadDate(java.time.LocalDateTime.now());
         }
         Image saved = imageRepository.save(image);
+        publish(saved, type);
         populateBase64(saved);
         return saved;
     }
@@ -137,9 +230,11 @@ public class ImageService {
      * @param id the unique identifier of the image to be soft-deleted
      */
     public void softDeleteImage(Long id) {
-        imageRepository.findById(id).ifPresent(image -> {
+        imageRepository.findById(id).filter(image -> !image.isDeleted()).ifPresent(image -> {
             image.setDeleted(true);
+            image.setDeletedAt(LocalDateTime.now());
             imageRepository.save(image);
+            publish(image, ChangeType.SOFT_DELETED);
             logger.info("Image with ID {} soft-deleted.", id);
         });
     }
@@ -154,7 +249,9 @@ public class ImageService {
      */
     public void permanentlyDeleteImage(Long id) {
         if (imageRepository.existsById(id)) {
+            imageRepository.unlinkData(List.of(id));
             imageRepository.deleteById(id);
+            eventPublisher.publishEvent(new ImageChangedEvent(id, ChangeType.PURGED, null));
             logger.info("Image with ID {} permanently deleted.", id);
         } else {
             logger.warn("Attempt to delete non-existent image with ID {}.", id);
@@ -170,13 +267,159 @@ public class ImageService {
      * @param id the unique identifier of the image to be restored
      */
     public void restoreImage(Long id) {
-        imageRepository.findById(id).ifPresent(image -> {
+        imageRepository.findById(id).filter(Image::isDeleted).ifPresent(image -> {
             image.setDeleted(false);
+            image.setDeletedAt(null);
             imageRepository.save(image);
+            publish(image, ChangeType.RESTORED);
             logger.info("Image with ID {} restored.", id);
         });
     }
     
+    /**
+     * Soft deletes the given images with set-based statements, 1000 IDs at a time.
+     * Missing and already deleted images are skipped; no file is read.
+     *
+     * @param ids the IDs of the images to soft delete
+     * @return the number of distinct IDs given and of images soft deleted
+     */
+    public BulkResult softDeleteImages(Collection<Long> ids) {
+        return setDeleted(Chunks.of(ids, BULK_CHUNK_SIZE), true);
+    }
+
+    /**
+     * Soft deletes the active images matching the search (numeric ID or text, as in {@link #searchImageViews}).
+     *
+     * @param search the search term; must not be blank
+     * @return the number of matching images and of images soft deleted
+     */
+    public BulkResult softDeleteMatchingImages(String search) {
+        return setDeleted(Chunks.of(findIds(false, search), BULK_CHUNK_SIZE), true);
+    }
+
+    /**
+     * Restores the given soft-deleted images with set-based statements, 1000 IDs at a time.
+     * Missing and active images are skipped.
+     *
+     * @param ids the IDs of the images to restore
+     * @return the number of distinct IDs given and of images restored
+     */
+    public BulkResult restoreImages(Collection<Long> ids) {
+        return setDeleted(Chunks.of(ids, BULK_CHUNK_SIZE), false);
+    }
+
+    /**
+     * Restores the deleted images matching the search (numeric ID or text).
+     *
+     * @param search the search term; must not be blank
+     * @return the number of matching images and of images restored
+     */
+    public BulkResult restoreMatchingImages(String search) {
+        return setDeleted(Chunks.of(findIds(true, search), BULK_CHUNK_SIZE), false);
+    }
+
+    /**
+     * Permanently deletes the given images, active or deleted, with set-based statements,
+     * 1000 IDs at a time. Missing images are skipped.
+     *
+     * @param ids the IDs of the images to permanently delete
+     * @return the number of distinct IDs given and of images deleted
+     */
+    public BulkResult permanentlyDeleteImages(Collection<Long> ids) {
+        return purge(Chunks.of(ids, BULK_CHUNK_SIZE), null);
+    }
+
+    /**
+     * Permanently deletes the deleted images matching the search, i.e. empties that part of the trash.
+     *
+     * @param search the search term; must not be blank
+     * @return the number of matching images and of images deleted
+     */
+    public BulkResult permanentlyDeleteMatchingImages(String search) {
+        return purge(Chunks.of(findIds(true, search), BULK_CHUNK_SIZE), true);
+    }
+
+    private List<Long> findIds(boolean deleted, String search) {
+        Long searchId = parseSearchId(search.trim());
+        return imageRepository.findIds(deleted, searchId, search.trim());
+    }
+
+    /**
+     * Per chunk: locks the rows still in the opposite state, flips their flag with one UPDATE and
+     * publishes one event per image from their updated metadata.
+     */
+    private BulkResult setDeleted(List<List<Long>> chunks, boolean deleted) {
+        ChangeType type = deleted ? ChangeType.SOFT_DELETED : ChangeType.RESTORED;
+        int affected = 0;
+        for (List<Long> chunk : chunks) {
+            List<Long> locked = imageRepository.lockIds(chunk, !deleted);
+            if (locked.isEmpty()) {
+                continue;
+            }
+            affected += imageRepository.updateDeleted(locked, deleted, deleted ? LocalDateTime.now() : null);
+            imageRepository.findViewsByIds(locked).forEach(view -> eventPublisher.publishEvent(
+                    new ImageChangedEvent(view.imageId(), type, view)));
+        }
+        logger.info("Bulk {} of {} images.", type, affected);
+        return new BulkResult(Chunks.count(chunks), affected);
+    }
+
+    /**
+     * Per chunk: locks the rows (in the given state, or any when null) and deletes them with one DELETE.
+     */
+    private BulkResult purge(List<List<Long>> chunks, Boolean deleted) {
+        int affected = 0;
+        for (List<Long> chunk : chunks) {
+            List<Long> locked = deleted == null
+                    ? imageRepository.lockIds(chunk)
+                    : imageRepository.lockIds(chunk, deleted);
+            affected += deleteLocked(locked);
+        }
+        logger.info("Bulk permanent delete of {} images.", affected);
+        return new BulkResult(Chunks.count(chunks), affected);
+    }
+
+    /**
+     * Permanently deletes up to {@code limit} images that were soft deleted before the cutoff,
+     * for the retention purge. Images locked by a running request are left for the next call.
+     *
+     * @param cutoff the deletion time before which images are purged
+     * @param limit the maximum number of images to delete
+     * @return the number of images deleted
+     */
+    public int purgeDeletedBefore(LocalDateTime cutoff, int limit) {
+        return deleteLocked(imageRepository.lockDeletedBefore(cutoff, limit));
+    }
+
+    /**
+     * Starts the retention period of images deleted before their deletion time was recorded.
+     *
+     * @return the number of images stamped
+     */
+    public int stampUntimedDeletions() {
+        return imageRepository.stampUntimedDeletions(LocalDateTime.now());
+    }
+
+    /**
+     * Counts the images in the trash.
+     *
+     * @return the number of deleted images
+     */
+    @Transactional(readOnly = true)
+    public long countDeletedImages() {
+        return imageRepository.countByDeletedTrue();
+    }
+
+    private int deleteLocked(List<Long> locked) {
+        if (locked.isEmpty()) {
+            return 0;
+        }
+        imageRepository.unlinkData(locked);
+        int deleted = imageRepository.deleteByIds(locked);
+        locked.forEach(id -> eventPublisher.publishEvent(new ImageChangedEvent(id, ChangeType.PURGED, null)));
+        return deleted;
+    }
+
     /**
      * Retrieves a list of distinct content types for all images in the repository.
      * This method executes a query to retrieve a list of distinct content types from the image repository.
@@ -189,6 +432,27 @@ public class ImageService {
         return imageRepository.findDistinctContentTypes();
     }
 
+    /**
+     * Publishes the change with the image's metadata; the file itself is left out.
+     */
+    private void publish(Image image, ChangeType type) {
+        eventPublisher.publishEvent(new ImageChangedEvent(image.getImageId(), type,
+                new ImageView(image.getImageId(), image.getOwner(), image.getContentType(), image.getTitle(),
+                        image.getDescription(), image.getUploadDate(), image.isDeleted())));
+    }
+
+    /**
+     * Parses the search term as an image ID, or returns null if it is text.
+     */
+    private Long parseSearchId(String search) {
+        try {
+            return Long.parseLong(search);
+        } catch (NumberFormatException e) {
+            // Not a number; treat search as text.
+            return null;
+        }
+    }
+
     // Helper Methods to populate Base64 data. 28.1.2025
     /**
      * Populates the Base64 encoded data field of the given image.
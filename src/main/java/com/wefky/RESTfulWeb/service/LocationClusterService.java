@@ -0,0 +1,226 @@
+package com.wefky.RESTfulWeb.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.wefky.RESTfulWeb.entity.Location;
+import com.wefky.RESTfulWeb.event.ChangeType;
+import com.wefky.RESTfulWeb.event.LocationChangedEvent;
+import com.wefky.RESTfulWeb.repository.LocationRepository;
+import com.wefky.RESTfulWeb.util.GeoHash;
+
+/**
+ * Builds map marker clusters for active locations.
+ *
+ * Locations are kept in a geohash-ordered prefix index, so all locations inside a geohash
+ * cell are one contiguous range. A request is split into Web Mercator tiles (z/x/y); each tile
+ * is clustered by geohash cells sized to a quarter of the tile width and the result is cached
+ * per tile until a location inside that tile changes. The number of clusters per tile is
+ * bounded by the cell grid, not by the number of locations.
+ */
+@Service
+public class LocationClusterService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocationClusterService.class);
+
+    /** Highest zoom level served (beyond it geohash cells are smaller than a marker anyway). */
+    public static final int MAX_ZOOM = 20;
+
+    /** Upper bound on tiles touched by one request. */
+    public static final int MAX_TILES_PER_REQUEST = 64;
+
+    /** Web Mercator latitude limit. */
+    private static final double MAX_MERCATOR_LAT = 85.05112878;
+
+    private final LocationRepository locationRepository;
+    private final int maxCachedTiles;
+
+    /** Geohash prefix index: "geohash:id" -> location coordinates, ordered by geohash. */
+    private final NavigableMap<String, Point> prefixIndex = new ConcurrentSkipListMap<>();
+    /** Location ID -> key in the prefix index, used to move or remove entries. */
+    private final Map<Long, String> keysById = new ConcurrentHashMap<>();
+    private final Map<Tile, List<Cluster>> tileCache = new ConcurrentHashMap<>();
+
+    public LocationClusterService(LocationRepository locationRepository,
+                                  @Value("${app.locations.clusters.max-cached-tiles:10000}") int maxCachedTiles) {
+        this.locationRepository = locationRepository;
+        this.maxCachedTiles = maxCachedTiles;
+    }
+
+    /**
+     * A group of nearby locations, rendered as a single marker.
+     *
+     * @param geohash    the geohash cell the cluster was built from
+     * @param latitude   centroid latitude
+     * @param longitude  centroid longitude
+     * @param count      number of locations in the cluster
+     * @param locationId the location ID when the cluster holds a single location, otherwise null
+     */
+    public record Cluster(String geohash, double latitude, double longitude, int count, Long locationId) {
+    }
+
+    private record Point(long id, double lat, double lon) {
+    }
+
+    private record Tile(int zoom, int x, int y) {
+    }
+
+    /**
+     * Loads all active locations into the prefix index once the application has started.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        locationRepository.findAllActive().forEach(this::upsert);
+        logger.info("Location cluster index loaded with {} locations.", keysById.size());
+    }
+
+    /**
+     * Applies committed location writes to the prefix index and evicts the tiles they touch.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLocationChanged(LocationChangedEvent event) {
+        remove(event.locationId());
+        Location location = event.location();
+        if (event.type() != ChangeType.PURGED && location != null && !location.isDeleted()) {
+            upsert(location);
+        }
+    }
+
+    /**
+     * Returns the clusters for every tile intersecting the bounding box at the given zoom.
+     *
+     * @param lonMin western edge
+     * @param latMin southern edge
+     * @param lonMax eastern edge; less than lonMin for a box crossing the antimeridian
+     * @param latMax northern edge
+     * @param zoom   map zoom level (0..20)
+     * @return clusters with their centroids and counts
+     * @throws IllegalArgumentException if the box is invalid or spans more than 64 tiles
+     */
+    public List<Cluster> clusters(double lonMin, double latMin, double lonMax, double latMax, int zoom) {
+        if (zoom < 0 || zoom > MAX_ZOOM || latMin > latMax) {
+            throw new IllegalArgumentException("Invalid bounding box or zoom.");
+        }
+        int n = 1 << zoom;
+        int xMin = tileX(lonMin, n), xMax = tileX(lonMax, n);
+        int yMin = tileY(latMax, n), yMax = tileY(latMin, n);
+        // A box crossing the antimeridian runs from its western edge to the last tile column and on from the first.
+        int columns = lonMin <= lonMax ? xMax - xMin + 1 : Math.min(n, n - xMin + xMax + 1);
+        if ((long) columns * (yMax - yMin + 1) > MAX_TILES_PER_REQUEST) {
+            throw new IllegalArgumentException("Bounding box covers too many tiles for this zoom level.");
+        }
+        if (tileCache.size() > maxCachedTiles) {
+            tileCache.clear();
+        }
+        List<Cluster> result = new ArrayList<>();
+        for (int i = 0; i < columns; i++) {
+            int x = (xMin + i) % n;
+            for (int y = yMin; y <= yMax; y++) {
+                result.addAll(tileCache.computeIfAbsent(new Tile(zoom, x, y), this::computeTile));
+            }
+        }
+        return result;
+    }
+
+    private List<Cluster> computeTile(Tile tile) {
+        int n = 1 << tile.zoom();
+        double lonMin = tile.x() * 360.0 / n - 180;
+        double lonMax = (tile.x() + 1) * 360.0 / n - 180;
+        // The outermost tile rows also take the polar caps Web Mercator cannot show.
+        double latMax = tile.y() == 0 ? 90 : tileLat(tile.y(), n);
+        double latMin = tile.y() == n - 1 ? -90 : tileLat(tile.y() + 1, n);
+        int precision = precisionForTileWidth(360.0 / n);
+
+        List<Cluster> clusters = new ArrayList<>();
+        for (String cell : GeoHash.cover(latMin, lonMin, latMax, lonMax, precision)) {
+            String upper = GeoHash.upperBound(cell);
+            NavigableMap<String, Point> range = upper == null
+                    ? prefixIndex.tailMap(cell, true)
+                    : prefixIndex.subMap(cell, true, upper, false);
+            int count = 0;
+            double sumLat = 0, sumLon = 0;
+            long lastId = 0;
+            for (Point p : range.values()) {
+                // Tiles are half-open on their east/south edges so a point is counted once.
+                boolean inTile = p.lat() <= latMax && (p.lat() > latMin || latMin == -90)
+                        && p.lon() >= lonMin && (p.lon() < lonMax || lonMax == 180);
+                if (inTile) {
+                    count++;
+                    sumLat += p.lat();
+                    sumLon += p.lon();
+                    lastId = p.id();
+                }
+            }
+            if (count > 0) {
+                clusters.add(new Cluster(cell, sumLat / count, sumLon / count, count, count == 1 ? lastId : null));
+            }
+        }
+        return List.copyOf(clusters);
+    }
+
+    private void upsert(Location location) {
+        if (location.getLocationId() == null || location.getLatitude() == null || location.getLongitude() == null) {
+            return;
+        }
+        String geohash = GeoHash.encode(location.getLatitude(), location.getLongitude(), GeoHash.MAX_PRECISION);
+        String key = geohash + ":" + location.getLocationId();
+        Point point = new Point(location.getLocationId(), location.getLatitude(), location.getLongitude());
+        prefixIndex.put(key, point);
+        keysById.put(point.id(), key);
+        evictTilesContaining(point);
+    }
+
+    private void remove(Long locationId) {
+        String key = keysById.remove(locationId);
+        if (key != null) {
+            Point old = prefixIndex.remove(key);
+            if (old != null) {
+                evictTilesContaining(old);
+            }
+        }
+    }
+
+    private void evictTilesContaining(Point point) {
+        for (int zoom = 0; zoom <= MAX_ZOOM; zoom++) {
+            int n = 1 << zoom;
+            tileCache.remove(new Tile(zoom, tileX(point.lon(), n), tileY(point.lat(), n)));
+        }
+    }
+
+    private static int precisionForTileWidth(double tileWidthDegrees) {
+        for (int p = 1; p < GeoHash.MAX_PRECISION; p++) {
+            if (GeoHash.cellSize(p)[1] <= tileWidthDegrees / 4) {
+                return p;
+            }
+        }
+        return GeoHash.MAX_PRECISION;
+    }
+
+    private static int tileX(double lon, int n) {
+        int x = (int) Math.floor((lon + 180) / 360 * n);
+        return Math.max(0, Math.min(n - 1, x));
+    }
+
+    private static int tileY(double lat, int n) {
+        double clamped = Math.max(-MAX_MERCATOR_LAT, Math.min(MAX_MERCATOR_LAT, lat));
+        double rad = Math.toRadians(clamped);
+        int y = (int) Math.floor((1 - Math.log(Math.tan(rad) + 1 / Math.cos(rad)) / Math.PI) / 2 * n);
+        return Math.max(0, Math.min(n - 1, y));
+    }
+
+    private static double tileLat(int y, int n) {
+        return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2.0 * y / n))));
+    }
+}
@@ -0,0 +1,276 @@
+package com.wefky.RESTfulWeb.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.wefky.RESTfulWeb.entity.Location;
+import com.wefky.RESTfulWeb.event.ChangeType;
+import com.wefky.RESTfulWeb.event.LocationChangedEvent;
+import com.wefky.RESTfulWeb.repository.LocationRepository;
+
+/**
+ * In-memory autocomplete index over the city name and postal code of active locations.
+ *
+ * Two structures back the lookups:
+ * - a sorted term map (whole value and each word) for exact and prefix matches, and
+ * - a trigram posting list for substring and typo-tolerant matches.
+ *
+ * Results are ranked exact > prefix > word prefix > substring > trigram similarity.
+ * The index is updated per location from committed {@link LocationChangedEvent}s.
+ */
+@Component
+public class LocationSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocationSearchIndex.class);
+
+    /** Minimum trigram (Jaccard) similarity for a fuzzy match. */
+    private static final double MIN_SIMILARITY = 0.3;
+
+    private static final double SCORE_EXACT = 1.0;
+    private static final double SCORE_PREFIX = 0.9;
+    private static final double SCORE_WORD_PREFIX = 0.8;
+    private static final double SCORE_SUBSTRING = 0.7;
+    /** Trigram matches score between 0 and this value, scaled by similarity. */
+    private static final double SCORE_TRIGRAM_MAX = 0.6;
+
+    public enum Field { CITY_NAME, POSTAL_CODE }
+
+    /**
+     * An autocomplete result.
+     *
+     * @param locationId the matching location
+     * @param cityName   its city name
+     * @param postalCode its postal code
+     * @param field      the field that matched
+     * @param score      match quality between 0 and 1
+     */
+    public record Suggestion(long locationId, String cityName, String postalCode, Field field, double score) {
+    }
+
+    private record Entry(long id, String cityName, String postalCode, String city, String postal) {
+    }
+
+    /** Posting key: the field a term or trigram came from, plus the location. */
+    private record Posting(long id, Field field) {
+    }
+
+    private final LocationRepository locationRepository;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final NavigableMap<String, Set<Posting>> terms = new ConcurrentSkipListMap<>();
+    private final Map<String, Set<Posting>> trigrams = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes = new ReentrantLock[64];
+
+    public LocationSearchIndex(LocationRepository locationRepository) {
+        this.locationRepository = locationRepository;
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Loads all active locations once the application has started.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        locationRepository.findAllActive().forEach(this::add);
+        logger.info("Location search index loaded with {} locations and {} trigrams.", entries.size(), trigrams.size());
+    }
+
+    /**
+     * Applies a committed location write: the old postings are removed and, unless the
+     * location was deleted, the new values are indexed.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLocationChanged(LocationChangedEvent event) {
+        remove(event.locationId());
+        Location location = event.location();
+        if (event.type() != ChangeType.PURGED && location != null && !location.isDeleted()) {
+            add(location);
+        }
+    }
+
+    /**
+     * Returns the best matches for a query typed into a city or postal code field.
+     *
+     * @param query the text typed so far
+     * @param limit maximum number of suggestions
+     * @return suggestions ordered by descending score
+     */
+    public List<Suggestion> suggest(String query, int limit) {
+        String q = normalize(query);
+        if (q.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        Map<Posting, Double> scores = new HashMap<>();
+
+        // Exact and prefix matches from the sorted term map. The whole prefix range is scored:
+        // its keys are in term order, not rank order, so a whole-value prefix match can sort
+        // after many word prefix matches.
+        for (Map.Entry<String, Set<Posting>> term : terms.subMap(q, true, q + Character.MAX_VALUE, false).entrySet()) {
+            for (Posting posting : term.getValue()) {
+                Entry entry = entries.get(posting.id());
+                if (entry == null) {
+                    continue;
+                }
+                String value = posting.field() == Field.CITY_NAME ? entry.city() : entry.postal();
+                double score = value.equals(q) ? SCORE_EXACT
+                        : value.startsWith(q) ? SCORE_PREFIX
+                        : SCORE_WORD_PREFIX;
+                scores.merge(posting, score, Math::max);
+            }
+        }
+
+        // Substring and fuzzy matches from trigram postings, only when prefixes are not enough.
+        if (scores.size() < limit && q.length() >= 3) {
+            Set<String> queryGrams = trigramsOf(q);
+            Map<Posting, Integer> shared = new HashMap<>();
+            for (String gram : queryGrams) {
+                Set<Posting> postings = trigrams.get(gram);
+                if (postings != null) {
+                    postings.forEach(p -> shared.merge(p, 1, Integer::sum));
+                }
+            }
+            shared.forEach((posting, count) -> {
+                Entry entry = entries.get(posting.id());
+                if (entry == null) {
+                    return;
+                }
+                String value = posting.field() == Field.CITY_NAME ? entry.city() : entry.postal();
+                double score;
+                if (value.contains(q)) {
+                    score = SCORE_SUBSTRING;
+                } else {
+                    int total = queryGrams.size() + trigramsOf(value).size() - count;
+                    double similarity = (double) count / total;
+                    if (similarity < MIN_SIMILARITY) {
+                        return;
+                    }
+                    score = SCORE_TRIGRAM_MAX * similarity;
+                }
+                scores.merge(posting, score, Math::max);
+            });
+        }
+
+        // Keep the best field per location, then rank.
+        Map<Long, Suggestion> best = new HashMap<>();
+        scores.forEach((posting, score) -> {
+            Entry entry = entries.get(posting.id());
+            if (entry == null) {
+                return;
+            }
+            Suggestion candidate = new Suggestion(entry.id(), entry.cityName(), entry.postalCode(), posting.field(), score);
+            best.merge(entry.id(), candidate, (a, b) -> a.score() >= b.score() ? a : b);
+        });
+        List<Suggestion> ranked = new ArrayList<>(best.values());
+        ranked.sort(Comparator.comparingDouble(Suggestion::score).reversed()
+                .thenComparing(s -> s.field() == Field.CITY_NAME ? s.cityName().length() : s.postalCode().length())
+                .thenComparing(Suggestion::cityName)
+                .thenComparingLong(Suggestion::locationId));
+        return ranked.size() > limit ? List.copyOf(ranked.subList(0, limit)) : List.copyOf(ranked);
+    }
+
+    private void add(Location location) {
+        if (location.getLocationId() == null) {
+            return;
+        }
+        String cityName = location.getCityName() == null ? "" : location.getCityName();
+        String postalCode = location.getPostalCode() == null ? "" : location.getPostalCode();
+        Entry entry = new Entry(location.getLocationId(), cityName, postalCode, normalize(cityName), normalize(postalCode));
+        entries.put(entry.id(), entry);
+        index(entry, true);
+    }
+
+    private void remove(Long locationId) {
+        Entry entry = entries.remove(locationId);
+        if (entry != null) {
+            index(entry, false);
+        }
+    }
+
+    private void index(Entry entry, boolean add) {
+        for (Field field : Field.values()) {
+            String value = field == Field.CITY_NAME ? entry.city() : entry.postal();
+            if (value.isEmpty()) {
+                continue;
+            }
+            Posting posting = new Posting(entry.id(), field);
+            Set<String> keys = new HashSet<>();
+            keys.add(value);
+            for (String word : value.split("[\\s\\-']+")) {
+                if (!word.isEmpty()) {
+                    keys.add(word);
+                }
+            }
+            keys.forEach(term -> update(terms, term, posting, add));
+            trigramsOf(value).forEach(gram -> update(trigrams, gram, posting, add));
+        }
+    }
+
+    private void update(Map<String, Set<Posting>> map, String key, Posting posting, boolean add) {
+        // Writers of a key are serialized by its stripe, so a removal that empties a set and
+        // drops it cannot race an addition to the same set (ConcurrentSkipListMap.compute is
+        // not atomic). Readers iterate the concurrent sets without locking.
+        ReentrantLock lock = stripes[Math.floorMod(key.hashCode(), stripes.length)];
+        lock.lock();
+        try {
+            Set<Posting> postings = map.get(key);
+            if (add) {
+                if (postings == null) {
+                    postings = ConcurrentHashMap.newKeySet();
+                    map.put(key, postings);
+                }
+                postings.add(posting);
+            } else if (postings != null) {
+                postings.remove(posting);
+                if (postings.isEmpty()) {
+                    map.remove(key);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Trigrams of a value padded with two leading spaces and one trailing space,
+     * so short values and word starts still produce distinctive grams.
+     */
+    private static Set<String> trigramsOf(String value) {
+        String padded = "  " + value + " ";
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    /**
+     * Lower-cases, strips accents and collapses whitespace so "Zürich " matches "zurich".
+     */
+    static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        String stripped = Normalizer.normalize(value, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        return stripped.toLowerCase(Locale.ROOT).trim().replaceAll("\\s+", " ");
+    }
+}
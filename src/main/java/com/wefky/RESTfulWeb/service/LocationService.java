@@ -1,14 +1,33 @@
 package com.wefky.RESTfulWeb.service;
 
+import com.wefky.RESTfulWeb.dto.BulkResult;
+import com.wefky.RESTfulWeb.dto.Fieldset;
+import com.wefky.RESTfulWeb.dto.KeysetPage;
+import com.wefky.RESTfulWeb.dto.KeysetRequest;
+import com.wefky.RESTfulWeb.dto.LocationView;
+import com.wefky.RESTfulWeb.dto.MultiGetResult;
 import com.wefky.RESTfulWeb.entity.Location;
+import com.wefky.RESTfulWeb.event.ChangeType;
+import com.wefky.RESTfulWeb.event.LocationChangedEvent;
 import com.wefky.RESTfulWeb.repository.LocationRepository;
+import com.wefky.RESTfulWeb.util.Chunks;
+import com.wefky.RESTfulWeb.util.GeoHash;
+import com.wefky.RESTfulWeb.util.GeoUtils;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -20,7 +39,13 @@ import java.util.Optional;
 public class LocationService {
 
     private static final Logger logger = LoggerFactory.getLogger(LocationService.class);
+
+    /** IDs per statement of a bulk change. */
+    private static final int BULK_CHUNK_SIZE = 1000;
+
     private final LocationRepository locationRepository;
+    private final LocationSpatialIndex spatialIndex;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Retrieves all active locations.
@@ -43,7 +68,174 @@ public class LocationService {
      */
     @Transactional(readOnly = true)
     public List<Location> filterLocations(String cityName, String postalCode, Float latMin, Float latMax) {
-        return locationRepository.filterLocations(cityName, postalCode, latMin, latMax);
+        return filterLocations(cityName, postalCode, latMin, latMax, null, null);
+    }
+
+    /**
+     * Filters locations based on the provided criteria, including a longitude range.
+     *
+     * @param cityName the name of the city to filter by (optional).
+     * @param postalCode the postal code to filter by (optional).
+     * @param latMin the minimum latitude to filter by (optional).
+     * @param latMax the maximum latitude to filter by (optional).
+     * @param lonMin the minimum longitude to filter by (optional).
+     * @param lonMax the maximum longitude to filter by (optional).
+     * @return a list of locations that match the criteria.
+     */
+    @Transactional(readOnly = true)
+    public List<Location> filterLocations(String cityName, String postalCode, Float latMin, Float latMax,
+                                          Float lonMin, Float lonMax) {
+        return locationRepository.filterLocations(cityName, postalCode, latMin, latMax, lonMin, lonMax);
+    }
+
+    /**
+     * Filters active locations like {@link #filterLocations(String, String, Float, Float, Float, Float)},
+     * but selects only the columns of {@link LocationView}. With all filters null, returns every
+     * active location.
+     *
+     * @param cityName the name of the city to filter by (optional).
+     * @param postalCode the postal code to filter by (optional).
+     * @param latMin the minimum latitude to filter by (optional).
+     * @param latMax the maximum latitude to filter by (optional).
+     * @param lonMin the minimum longitude to filter by (optional).
+     * @param lonMax the maximum longitude to filter by (optional).
+     * @return the matching locations as views.
+     */
+    @Transactional(readOnly = true)
+    public List<LocationView> getActiveLocationViews(String cityName, String postalCode, Float latMin, Float latMax,
+                                                     Float lonMin, Float lonMax) {
+        return locationRepository.findActiveViews(cityName, postalCode, latMin, latMax, lonMin, lonMax);
+    }
+
+    /**
+     * Retrieves only the requested properties of the active locations matching the provided criteria.
+     *
+     * @param cityName the name of the city to filter by (optional).
+     * @param postalCode the postal code to filter by (optional).
+     * @param latMin the minimum latitude to filter by (optional).
+     * @param latMax the maximum latitude to filter by (optional).
+     * @param lonMin the minimum longitude to filter by (optional).
+     * @param lonMax the maximum longitude to filter by (optional).
+     * @param fieldset the properties to select.
+     * @return one map of property to value per location, ordered by ID.
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getActiveLocationFields(String cityName, String postalCode, Float latMin,
+                                                             Float latMax, Float lonMin, Float lonMax,
+                                                             Fieldset fieldset) {
+        return locationRepository.findFields(false, cityName, postalCode, latMin, latMax, lonMin, lonMax, fieldset);
+    }
+
+    /**
+     * Retrieves one page of active locations matching the provided criteria.
+     *
+     * @param cityName the name of the city to filter by (optional).
+     * @param postalCode the postal code to filter by (optional).
+     * @param latMin the minimum latitude to filter by (optional).
+     * @param latMax the maximum latitude to filter by (optional).
+     * @param request the sort order, page size and cursor of the page.
+     * @return a page of active locations that match the criteria, as views.
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<LocationView> getActiveLocationsPage(String cityName, String postalCode, Float latMin,
+                                                           Float latMax, KeysetRequest request) {
+        return locationRepository.findViewPage(false, cityName, postalCode, latMin, latMax, null, null, request);
+    }
+
+    /**
+     * Finds active locations near a point, nearest first.
+     * Served from the in-memory spatial index; falls back to geohash range scans
+     * on the database while the index is not available.
+     *
+     * @param lat the latitude of the query point.
+     * @param lon the longitude of the query point.
+     * @param radiusMeters the maximum distance in metres (optional when k is given).
+     * @param k the maximum number of results (optional when radius is given).
+     * @return the matching locations ordered by ascending distance.
+     */
+    @Transactional(readOnly = true)
+    public List<Location> findNearby(double lat, double lon, Double radiusMeters, Integer k) {
+        if (radiusMeters == null && k == null) {
+            throw new IllegalArgumentException("Either radius or k is required.");
+        }
+        if (!spatialIndex.isReady()) {
+            return findNearbyFromDatabase(lat, lon, radiusMeters, k);
+        }
+        List<LocationSpatialIndex.Neighbour> neighbours = (k != null)
+                ? spatialIndex.nearest(lat, lon, k, radiusMeters)
+                : spatialIndex.withinRadius(lat, lon, radiusMeters);
+        return loadInOrder(neighbours.stream().map(LocationSpatialIndex.Neighbour::locationId).toList());
+    }
+
+    /**
+     * Finds active locations inside a latitude/longitude bounding box.
+     *
+     * @param latMin the southern edge of the box.
+     * @param lonMin the western edge of the box.
+     * @param latMax the northern edge of the box.
+     * @param lonMax the eastern edge of the box; less than lonMin for a box crossing the antimeridian.
+     * @return the locations inside the box.
+     */
+    @Transactional(readOnly = true)
+    public List<Location> findInBoundingBox(double latMin, double lonMin, double latMax, double lonMax) {
+        if (!spatialIndex.isReady()) {
+            if (lonMin > lonMax) {
+                List<Location> found = new ArrayList<>(findInBoundingBox(latMin, lonMin, latMax, 180));
+                found.addAll(findInBoundingBox(latMin, -180, latMax, lonMax));
+                return found;
+            }
+            return locationRepository.filterLocations(null, null,
+                    (float) latMin, (float) latMax, (float) lonMin, (float) lonMax);
+        }
+        return loadInOrder(spatialIndex.withinBoundingBox(latMin, lonMin, latMax, lonMax));
+    }
+
+    /**
+     * Database-side proximity search: scans the geohash cells covering the search area
+     * through the geohash index and ranks the candidates by exact distance.
+     * Without a radius, the search area grows until k candidates are found.
+     */
+    private List<Location> findNearbyFromDatabase(double lat, double lon, Double radiusMeters, Integer k) {
+        double radius = radiusMeters != null ? radiusMeters : 1_000;
+        while (true) {
+            double[] box = GeoUtils.boundingBox(lat, lon, radius);
+            Map<Long, Location> candidates = new HashMap<>();
+            for (String cell : GeoHash.cover(box[0], box[1], box[2], box[3], GeoHash.precisionForRadius(radius))) {
+                locationRepository.findActiveByGeohashRange(cell, GeoHash.upperBound(cell))
+                        .forEach(l -> candidates.put(l.getLocationId(), l));
+            }
+            final double limit = radius;
+            List<Location> ranked = candidates.values().stream()
+                    .filter(l -> distance(lat, lon, l) <= limit)
+                    .sorted(Comparator.comparingDouble(l -> distance(lat, lon, l)))
+                    .toList();
+            boolean enough = k == null || ranked.size() >= k;
+            boolean wholeWorld = radius >= Math.PI * GeoUtils.EARTH_RADIUS_METERS;
+            if (radiusMeters != null || enough || wholeWorld) {
+                return k != null && ranked.size() > k ? ranked.subList(0, k) : ranked;
+            }
+            radius *= 4;
+        }
+    }
+
+    private static double distance(double lat, double lon, Location location) {
+        return GeoUtils.distanceMeters(lat, lon, location.getLatitude(), location.getLongitude());
+    }
+
+    /**
+     * Loads locations by ID with a single query, preserving the order of the given IDs.
+     */
+    private List<Location> loadInOrder(List<Long> ids) {
+        Map<Long, Location> byId = new LinkedHashMap<>();
+        locationRepository.findAllById(ids).forEach(l -> byId.put(l.getLocationId(), l));
+        List<Location> ordered = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Location location = byId.get(id);
+            if (location != null && !location.isDeleted()) {
+                ordered.add(location);
+            }
+        }
+        return ordered;
     }
 
     /**
@@ -57,6 +249,24 @@ public class LocationService {
         return locationRepository.findById(id);
     }
 
+    /**
+     * Retrieves the active locations with the given IDs in one round trip at most; locations in the
+     * second-level cache need none.
+     *
+     * @param ids the IDs of the locations.
+     * @return the active locations in the order of the IDs, and the IDs that are unknown or deleted.
+     */
+    @Transactional(readOnly = true)
+    public MultiGetResult<LocationView> getLocationViews(List<Long> ids) {
+        Map<Long, LocationView> found = new HashMap<>();
+        for (Location location : locationRepository.loadAllById(ids)) {
+            if (!location.isDeleted()) {
+                found.put(location.getLocationId(), LocationView.from(location));
+            }
+        }
+        return MultiGetResult.of(ids, found);
+    }
+
     /**
      * Saves a location.
      *
@@ -65,19 +275,25 @@ public class LocationService {
      */
     @Transactional
     public Location saveLocation(Location location) {
-        return locationRepository.save(location);
+        ChangeType type = location.getLocationId() == null ? ChangeType.CREATED : ChangeType.UPDATED;
+        Location saved = locationRepository.save(location);
+        eventPublisher.publishEvent(new LocationChangedEvent(saved.getLocationId(), type, saved));
+        return saved;
     }
 
     /**
-     * Soft deletes a location by setting its deleted flag to true.
+     * Soft deletes a location by setting its deleted flag to true. A location already in the trash
+     * keeps its deletion time, so deleting it again does not postpone its purge.
      *
      * @param id the ID of the location to soft delete.
      */
     @Transactional
     public void softDeleteLocation(Long id) {
-        locationRepository.findById(id).ifPresent(location -> {
+        locationRepository.findById(id).filter(location -> !location.isDeleted()).ifPresent(location -> {
             location.setDeleted(true);
+            location.setDeletedAt(LocalDateTime.now());
             locationRepository.save(location);
+            eventPublisher.publishEvent(new LocationChangedEvent(id, ChangeType.SOFT_DELETED, location));
             logger.info("Location with ID {} soft deleted.", id);
         });
     }
@@ -91,22 +307,13 @@ public class LocationService {
     public void permanentlyDeleteLocation(Long id) {
         if (locationRepository.existsById(id)) {
             locationRepository.deleteById(id);
+            eventPublisher.publishEvent(new LocationChangedEvent(id, ChangeType.PURGED, null));
             logger.info("Location with ID {} permanently deleted.", id);
         } else {
             logger.warn("Attempted to permanently delete non-existent Location with ID {}.", id);
         }
     }
 
-    /**
-     * Retrieves all deleted locations.
-     *
-     * @return a list of deleted locations.
-     */
-    @Transactional(readOnly = true)
-    public List<Location> getAllDeletedLocations() {
-        return locationRepository.findAllDeleted();
-    }
-
     /**
      * Restores a soft-deleted location by setting its deleted flag to false.
      *
@@ -116,27 +323,195 @@ public class LocationService {
     public void restoreLocation(Long id) {
         locationRepository.findById(id).ifPresent(location -> {
             location.setDeleted(false);
+            location.setDeletedAt(null);
             locationRepository.save(location);
+            eventPublisher.publishEvent(new LocationChangedEvent(id, ChangeType.RESTORED, location));
             logger.info("Location with ID {} restored.", id);
         });
     }
 
     /**
-     * Filters deleted locations based on the provided criteria.
+     * Soft deletes the given locations with set-based statements, 1000 IDs at a time.
+     * Missing and already deleted locations are skipped.
+     *
+     * @param ids the IDs of the locations to soft delete.
+     * @return the number of distinct IDs given and of locations soft deleted.
+     */
+    @Transactional
+    public BulkResult softDeleteLocations(Collection<Long> ids) {
+        return setDeleted(Chunks.of(ids, BULK_CHUNK_SIZE), true);
+    }
+
+    /**
+     * Soft deletes the active locations matching the criteria (see {@link #softDeleteLocations(Collection)}).
+     *
+     * @param cityName the name of the city to filter by (optional).
+     * @param postalCode the postal code to filter by (optional).
+     * @param latMin the minimum latitude to filter by (optional).
+     * @param latMax the maximum latitude to filter by (optional).
+     * @param lonMin the minimum longitude to filter by (optional).
+     * @param lonMax the maximum longitude to filter by (optional).
+     * @return the number of matching locations and of locations soft deleted.
+     */
+    @Transactional
+    public BulkResult softDeleteMatchingLocations(String cityName, String postalCode, Float latMin, Float latMax,
+                                                  Float lonMin, Float lonMax) {
+        return setDeleted(Chunks.of(locationRepository.findIds(false, cityName, postalCode, latMin, latMax,
+                lonMin, lonMax), BULK_CHUNK_SIZE), true);
+    }
+
+    /**
+     * Restores the given soft-deleted locations with set-based statements, 1000 IDs at a time.
+     * Missing and active locations are skipped.
+     *
+     * @param ids the IDs of the locations to restore.
+     * @return the number of distinct IDs given and of locations restored.
+     */
+    @Transactional
+    public BulkResult restoreLocations(Collection<Long> ids) {
+        return setDeleted(Chunks.of(ids, BULK_CHUNK_SIZE), false);
+    }
+
+    /**
+     * Restores the deleted locations matching the criteria (see {@link #restoreLocations(Collection)}).
+     *
+     * @param cityName the name of the city to filter by (optional).
+     * @param postalCode the postal code to filter by (optional).
+     * @param latMin the minimum latitude to filter by (optional).
+     * @param latMax the maximum latitude to filter by (optional).
+     * @param lonMin the minimum longitude to filter by (optional).
+     * @param lonMax the maximum longitude to filter by (optional).
+     * @return the number of matching locations and of locations restored.
+     */
+    @Transactional
+    public BulkResult restoreMatchingLocations(String cityName, String postalCode, Float latMin, Float latMax,
+                                               Float lonMin, Float lonMax) {
+        return setDeleted(Chunks.of(locationRepository.findIds(true, cityName, postalCode, latMin, latMax,
+                lonMin, lonMax), BULK_CHUNK_SIZE), false);
+    }
+
+    /**
+     * Permanently deletes the given locations, active or deleted, with set-based statements,
+     * 1000 IDs at a time. Missing locations are skipped. Like {@link #permanentlyDeleteLocation(Long)},
+     * this fails (and changes nothing) if a measurement still refers to one of them.
+     *
+     * @param ids the IDs of the locations to permanently delete.
+     * @return the number of distinct IDs given and of locations deleted.
+     */
+    @Transactional
+    public BulkResult permanentlyDeleteLocations(Collection<Long> ids) {
+        return purge(Chunks.of(ids, BULK_CHUNK_SIZE), null);
+    }
+
+    /**
+     * Permanently deletes the deleted locations matching the criteria, i.e. empties that part of the trash.
+     *
+     * @param cityName the name of the city to filter by (optional).
+     * @param postalCode the postal code to filter by (optional).
+     * @param latMin the minimum latitude to filter by (optional).
+     * @param latMax the maximum latitude to filter by (optional).
+     * @param lonMin the minimum longitude to filter by (optional).
+     * @param lonMax the maximum longitude to filter by (optional).
+     * @return the number of matching locations and of locations deleted.
+     */
+    @Transactional
+    public BulkResult permanentlyDeleteMatchingLocations(String cityName, String postalCode, Float latMin,
+                                                         Float latMax, Float lonMin, Float lonMax) {
+        return purge(Chunks.of(locationRepository.findIds(true, cityName, postalCode, latMin, latMax,
+                lonMin, lonMax), BULK_CHUNK_SIZE), true);
+    }
+
+    /**
+     * Per chunk: locks the rows still in the opposite state, flips their flag with one UPDATE and
+     * publishes one event per location, so the in-memory indexes follow.
+     */
+    private BulkResult setDeleted(List<List<Long>> chunks, boolean deleted) {
+        ChangeType type = deleted ? ChangeType.SOFT_DELETED : ChangeType.RESTORED;
+        int affected = 0;
+        for (List<Long> chunk : chunks) {
+            List<Long> locked = locationRepository.lockIds(chunk, !deleted);
+            if (locked.isEmpty()) {
+                continue;
+            }
+            affected += locationRepository.updateDeleted(locked, deleted, deleted ? LocalDateTime.now() : null);
+            locationRepository.findAllById(locked).forEach(location -> eventPublisher.publishEvent(
+                    new LocationChangedEvent(location.getLocationId(), type, location)));
+        }
+        logger.info("Bulk {} of {} locations.", type, affected);
+        return new BulkResult(Chunks.count(chunks), affected);
+    }
+
+    /**
+     * Per chunk: locks the rows (in the given state, or any when null) and deletes them with one DELETE.
+     */
+    private BulkResult purge(List<List<Long>> chunks, Boolean deleted) {
+        int affected = 0;
+        for (List<Long> chunk : chunks) {
+            List<Long> locked = deleted == null
+                    ? locationRepository.lockIds(chunk)
+                    : locationRepository.lockIds(chunk, deleted);
+            affected += deleteLocked(locked);
+        }
+        logger.info("Bulk permanent delete of {} locations.", affected);
+        return new BulkResult(Chunks.count(chunks), affected);
+    }
+
+    /**
+     * Permanently deletes up to {@code limit} locations that were soft deleted before the cutoff and
+     * that no measurement refers to, for the retention purge. Locations locked by a running request
+     * are left for the next call.
+     *
+     * @param cutoff the deletion time before which locations are purged.
+     * @param limit the maximum number of locations to delete.
+     * @return the number of locations deleted.
+     */
+    @Transactional
+    public int purgeDeletedBefore(LocalDateTime cutoff, int limit) {
+        return deleteLocked(locationRepository.lockDeletedBefore(cutoff, limit));
+    }
+
+    /**
+     * Starts the retention period of locations deleted before their deletion time was recorded.
+     *
+     * @return the number of locations stamped.
+     */
+    @Transactional
+    public int stampUntimedDeletions() {
+        return locationRepository.stampUntimedDeletions(LocalDateTime.now());
+    }
+
+    /**
+     * Counts the locations in the trash.
+     *
+     * @return the number of deleted locations.
+     */
+    @Transactional(readOnly = true)
+    public long countDeletedLocations() {
+        return locationRepository.countByDeletedTrue();
+    }
+
+    private int deleteLocked(List<Long> locked) {
+        if (locked.isEmpty()) {
+            return 0;
+        }
+        int deleted = locationRepository.deleteByIds(locked);
+        locked.forEach(id -> eventPublisher.publishEvent(new LocationChangedEvent(id, ChangeType.PURGED, null)));
+        return deleted;
+    }
+
+    /**
+     * Retrieves one page of deleted locations matching the provided criteria.
      *
      * @param cityName the name of the city to filter by (optional).
      * @param postalCode the postal code to filter by (optional).
      * @param latMin the minimum latitude to filter by (optional).
      * @param latMax the maximum latitude to filter by (optional).
-     * @return a list of deleted locations that match the criteria.
-     */
-    public List<Location> filterDeletedLocations(String cityName, String postalCode, Float latMin, Float latMax) {
-        List<Location> allDeleted = getAllDeletedLocations();
-        return allDeleted.stream()
-            .filter(loc -> (cityName == null || loc.getCityName().toLowerCase().contains(cityName.toLowerCase())))
-            .filter(loc -> (postalCode == null || loc.getPostalCode().toLowerCase().contains(postalCode.toLowerCase())))
-            .filter(loc -> (latMin == null || loc.getLatitude() >= latMin))
-            .filter(loc -> (latMax == null || loc.getLatitude() <= latMax))
-            .toList();
+     * @param request the sort order, page size and cursor of the page.
+     * @return a page of deleted locations that match the criteria, as views.
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<LocationView> getDeletedLocationsPage(String cityName, String postalCode, Float latMin,
+                                                            Float latMax, KeysetRequest request) {
+        return locationRepository.findViewPage(true, cityName, postalCode, latMin, latMax, null, null, request);
     }
 }
@@ -0,0 +1,338 @@
+package com.wefky.RESTfulWeb.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.wefky.RESTfulWeb.entity.Location;
+import com.wefky.RESTfulWeb.event.ChangeType;
+import com.wefky.RESTfulWeb.event.LocationChangedEvent;
+import com.wefky.RESTfulWeb.repository.LocationRepository;
+import com.wefky.RESTfulWeb.util.GeoUtils;
+
+/**
+ * In-memory KD-tree over all active locations, used for radius, bounding-box and
+ * k-nearest-neighbour queries without touching the database.
+ *
+ * Points are stored as unit vectors on the sphere, so the Euclidean (chord) distance
+ * used by the tree is monotonic with the great-circle distance and the index behaves
+ * correctly near the poles and across the antimeridian.
+ *
+ * The tree itself is immutable. Writes update the point map and mark the tree stale;
+ * the next query rebuilds it once, so bursts of writes cost a single rebuild.
+ */
+@Component
+public class LocationSpatialIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocationSpatialIndex.class);
+
+    private final LocationRepository locationRepository;
+    private final boolean enabled;
+
+    private final Map<Long, Point> points = new ConcurrentHashMap<>();
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private volatile KdTree tree = KdTree.EMPTY;
+    private volatile boolean stale = false;
+    private volatile boolean ready = false;
+
+    public LocationSpatialIndex(LocationRepository locationRepository,
+                                @Value("${app.locations.spatial-index.enabled:true}") boolean enabled) {
+        this.locationRepository = locationRepository;
+        this.enabled = enabled;
+    }
+
+    /**
+     * A location found by a proximity query.
+     *
+     * @param locationId     the location ID
+     * @param distanceMeters great-circle distance from the query point
+     */
+    public record Neighbour(long locationId, double distanceMeters) {
+    }
+
+    /**
+     * Loads all active locations once the application has started.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            logger.info("Location spatial index disabled; proximity queries will use the geohash column.");
+            return;
+        }
+        List<Location> active = locationRepository.findAllActive();
+        active.forEach(this::upsert);
+        stale = true;
+        ready = true;
+        logger.info("Location spatial index loaded with {} locations.", points.size());
+    }
+
+    /**
+     * Applies committed location writes to the index.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLocationChanged(LocationChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        Location location = event.location();
+        if (event.type() == ChangeType.PURGED || location == null || location.isDeleted()) {
+            points.remove(event.locationId());
+        } else {
+            upsert(location);
+        }
+        stale = true;
+    }
+
+    /**
+     * @return true once the index has been loaded and can answer queries
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @return number of indexed locations
+     */
+    public int size() {
+        return points.size();
+    }
+
+    /**
+     * Finds the k locations closest to a point, nearest first.
+     *
+     * @param lat            query latitude
+     * @param lon            query longitude
+     * @param k              maximum number of results
+     * @param maxDistanceMeters optional upper bound on the distance (null for unbounded)
+     * @return neighbours ordered by ascending distance
+     */
+    public List<Neighbour> nearest(double lat, double lon, int k, Double maxDistanceMeters) {
+        double maxChord2 = maxDistanceMeters == null ? Double.MAX_VALUE : chordSquared(maxDistanceMeters);
+        return currentTree().nearest(toVector(lat, lon), k, maxChord2).stream()
+                .map(p -> new Neighbour(p.id, GeoUtils.distanceMeters(lat, lon, p.lat, p.lon)))
+                .toList();
+    }
+
+    /**
+     * Finds all locations within a radius of a point, nearest first.
+     *
+     * @param lat          query latitude
+     * @param lon          query longitude
+     * @param radiusMeters search radius in metres
+     * @return neighbours ordered by ascending distance
+     */
+    public List<Neighbour> withinRadius(double lat, double lon, double radiusMeters) {
+        List<Point> found = new ArrayList<>();
+        currentTree().range(toVector(lat, lon), chordSquared(radiusMeters), found);
+        return found.stream()
+                .map(p -> new Neighbour(p.id, GeoUtils.distanceMeters(lat, lon, p.lat, p.lon)))
+                .sorted(Comparator.comparingDouble(Neighbour::distanceMeters))
+                .toList();
+    }
+
+    /**
+     * Finds all locations inside a latitude/longitude box.
+     * The tree is searched with a spherical cap enclosing the box and the candidates are
+     * then filtered exactly. A box with {@code lonMin > lonMax} crosses the antimeridian
+     * and is searched as its eastern and western parts.
+     *
+     * @return IDs of the locations inside the box
+     */
+    public List<Long> withinBoundingBox(double latMin, double lonMin, double latMax, double lonMax) {
+        if (lonMin > lonMax) {
+            List<Long> ids = new ArrayList<>(withinBoundingBox(latMin, lonMin, latMax, 180));
+            ids.addAll(withinBoundingBox(latMin, -180, latMax, lonMax));
+            return ids;
+        }
+        double centerLat = (latMin + latMax) / 2;
+        double centerLon = (lonMin + lonMax) / 2;
+        double radius = 0;
+        if (lonMax - lonMin > 180) {
+            // The farthest point of a box wider than a hemisphere can lie mid-way along its
+            // meridian edges rather than on a corner; search the whole sphere instead.
+            radius = Math.PI * GeoUtils.EARTH_RADIUS_METERS;
+        } else {
+            for (double cornerLat : new double[] { latMin, latMax }) {
+                for (double cornerLon : new double[] { lonMin, lonMax }) {
+                    radius = Math.max(radius, GeoUtils.distanceMeters(centerLat, centerLon, cornerLat, cornerLon));
+                }
+            }
+        }
+        List<Point> found = new ArrayList<>();
+        // Pad by a metre to absorb floating point error on the box edges.
+        currentTree().range(toVector(centerLat, centerLon), chordSquared(radius + 1), found);
+        return found.stream()
+                .filter(p -> p.lat >= latMin && p.lat <= latMax && p.lon >= lonMin && p.lon <= lonMax)
+                .map(p -> p.id)
+                .toList();
+    }
+
+    private void upsert(Location location) {
+        if (location.getLocationId() == null || location.getLatitude() == null || location.getLongitude() == null) {
+            return;
+        }
+        points.put(location.getLocationId(),
+                Point.of(location.getLocationId(), location.getLatitude(), location.getLongitude()));
+    }
+
+    private KdTree currentTree() {
+        if (stale) {
+            rebuildLock.lock();
+            try {
+                if (stale) {
+                    stale = false;
+                    tree = KdTree.build(points.values().toArray(new Point[0]));
+                }
+            } finally {
+                rebuildLock.unlock();
+            }
+        }
+        return tree;
+    }
+
+    private static double chordSquared(double meters) {
+        double angle = meters / GeoUtils.EARTH_RADIUS_METERS;
+        if (angle >= Math.PI) {
+            return 4.0;
+        }
+        double chord = 2 * Math.sin(angle / 2);
+        return chord * chord;
+    }
+
+    private static double[] toVector(double lat, double lon) {
+        double phi = Math.toRadians(lat);
+        double lambda = Math.toRadians(lon);
+        return new double[] {
+                Math.cos(phi) * Math.cos(lambda),
+                Math.cos(phi) * Math.sin(lambda),
+                Math.sin(phi)
+        };
+    }
+
+    /**
+     * An indexed location reduced to its ID, coordinates and unit vector.
+     */
+    private record Point(long id, double lat, double lon, double[] v) {
+        static Point of(long id, double lat, double lon) {
+            return new Point(id, lat, lon, toVector(lat, lon));
+        }
+
+        double distanceSquared(double[] q) {
+            double dx = v[0] - q[0], dy = v[1] - q[1], dz = v[2] - q[2];
+            return dx * dx + dy * dy + dz * dz;
+        }
+    }
+
+    /**
+     * Implicit KD-tree: the points array is arranged so that the median of every
+     * sub-range is its node and the halves are its children, splitting on x, y, z in turn.
+     */
+    private static final class KdTree {
+
+        static final KdTree EMPTY = new KdTree(new Point[0]);
+
+        private final Point[] nodes;
+
+        private KdTree(Point[] nodes) {
+            this.nodes = nodes;
+        }
+
+        static KdTree build(Point[] points) {
+            arrange(points, 0, points.length, 0);
+            return new KdTree(points);
+        }
+
+        private static void arrange(Point[] points, int from, int to, int axis) {
+            if (to - from <= 1) {
+                return;
+            }
+            Arrays.sort(points, from, to, Comparator.comparingDouble(p -> p.v[axis]));
+            int mid = (from + to) >>> 1;
+            int next = (axis + 1) % 3;
+            arrange(points, from, mid, next);
+            arrange(points, mid + 1, to, next);
+        }
+
+        List<Point> nearest(double[] q, int k, double maxDistanceSquared) {
+            if (k <= 0 || nodes.length == 0) {
+                return List.of();
+            }
+            PriorityQueue<Point> best = new PriorityQueue<>(
+                    Comparator.comparingDouble((Point p) -> p.distanceSquared(q)).reversed());
+            nearest(q, k, maxDistanceSquared, 0, nodes.length, 0, best);
+            List<Point> result = new ArrayList<>(best);
+            result.sort(Comparator.comparingDouble(p -> p.distanceSquared(q)));
+            return result;
+        }
+
+        private void nearest(double[] q, int k, double maxDistanceSquared, int from, int to, int axis,
+                             PriorityQueue<Point> best) {
+            if (from >= to) {
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            Point node = nodes[mid];
+            double d = node.distanceSquared(q);
+            if (d <= maxDistanceSquared) {
+                if (best.size() < k) {
+                    best.add(node);
+                } else if (d < best.peek().distanceSquared(q)) {
+                    best.poll();
+                    best.add(node);
+                }
+            }
+            double diff = q[axis] - node.v[axis];
+            int next = (axis + 1) % 3;
+            boolean leftFirst = diff < 0;
+            if (leftFirst) {
+                nearest(q, k, maxDistanceSquared, from, mid, next, best);
+            } else {
+                nearest(q, k, maxDistanceSquared, mid + 1, to, next, best);
+            }
+            double bound = best.size() < k ? maxDistanceSquared : best.peek().distanceSquared(q);
+            if (diff * diff <= bound) {
+                if (leftFirst) {
+                    nearest(q, k, maxDistanceSquared, mid + 1, to, next, best);
+                } else {
+                    nearest(q, k, maxDistanceSquared, from, mid, next, best);
+                }
+            }
+        }
+
+        void range(double[] q, double radiusSquared, List<Point> out) {
+            range(q, radiusSquared, 0, nodes.length, 0, out);
+        }
+
+        private void range(double[] q, double radiusSquared, int from, int to, int axis, List<Point> out) {
+            if (from >= to) {
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            Point node = nodes[mid];
+            if (node.distanceSquared(q) <= radiusSquared) {
+                out.add(node);
+            }
+            double diff = q[axis] - node.v[axis];
+            int next = (axis + 1) % 3;
+            if (diff <= 0 || diff * diff <= radiusSquared) {
+                range(q, radiusSquared, from, mid, next, out);
+            }
+            if (diff >= 0 || diff * diff <= radiusSquared) {
+                range(q, radiusSquared, mid + 1, to, next, out);
+            }
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.wefky.RESTfulWeb.service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.wefky.RESTfulWeb.exception.LoginThrottledException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * In-memory sliding-window limits on failed logins, per username and per client address.
+ *
+ * Once a username (or an address) has failed {@code max-failures} times within the window,
+ * further attempts are refused before any password is hashed, until the oldest failure
+ * leaves the window. A successful login clears the username's failures. Each key keeps
+ * only its last {@code max-failures} timestamps, and keys without recent failures are
+ * dropped when more than {@value #MAX_KEYS} are tracked.
+ *
+ * The limits are per instance: with several dynos an attacker gets the limit once per dyno.
+ *
+ * Metrics: app.security.login.throttled{key=username|address}.
+ */
+@Component
+public class LoginThrottle {
+
+    static final int MAX_KEYS = 10_000;
+
+    private final long windowNanos;
+    private final LongSupplier nanoTime;
+    private final Limiter usernames;
+    private final Limiter addresses;
+
+    @Autowired
+    public LoginThrottle(@Value("${app.security.login.window:5m}") Duration window,
+                         @Value("${app.security.login.username.max-failures:10}") int maxUsernameFailures,
+                         @Value("${app.security.login.address.max-failures:50}") int maxAddressFailures,
+                         MeterRegistry meterRegistry) {
+        this(window, maxUsernameFailures, maxAddressFailures, meterRegistry, System::nanoTime);
+    }
+
+    /**
+     * @param nanoTime the clock of the window, in nanoseconds like {@link System#nanoTime()}
+     */
+    LoginThrottle(Duration window, int maxUsernameFailures, int maxAddressFailures, MeterRegistry meterRegistry,
+                  LongSupplier nanoTime) {
+        this.windowNanos = window.toNanos();
+        this.nanoTime = nanoTime;
+        this.usernames = new Limiter(maxUsernameFailures, throttledCounter(meterRegistry, "username"));
+        this.addresses = new Limiter(maxAddressFailures, throttledCounter(meterRegistry, "address"));
+    }
+
+    /**
+     * @param username      the username being logged in
+     * @param remoteAddress the client's address, or null if unknown
+     * @throws LoginThrottledException if either has too many recent failures
+     */
+    public void check(String username, String remoteAddress) {
+        long now = nanoTime.getAsLong();
+        long retryAfter = Math.max(usernames.retryAfter(username, now), addresses.retryAfter(remoteAddress, now));
+        if (retryAfter > 0) {
+            throw new LoginThrottledException("Too many failed logins; try again later.",
+                    Math.max(1, TimeUnit.NANOSECONDS.toSeconds(retryAfter)));
+        }
+    }
+
+    public void recordFailure(String username, String remoteAddress) {
+        long now = nanoTime.getAsLong();
+        usernames.record(username, now);
+        addresses.record(remoteAddress, now);
+    }
+
+    public void recordSuccess(String username) {
+        usernames.clear(username);
+    }
+
+    private static Counter throttledCounter(MeterRegistry meterRegistry, String key) {
+        return Counter.builder("app.security.login.throttled")
+                .description("Login attempts refused because of too many recent failures")
+                .tag("key", key)
+                .register(meterRegistry);
+    }
+
+    private final class Limiter {
+
+        private final int maxFailures;
+        private final Counter throttled;
+        private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+        Limiter(int maxFailures, Counter throttled) {
+            this.maxFailures = maxFailures;
+            this.throttled = throttled;
+        }
+
+        long retryAfter(String key, long now) {
+            Window window = key == null || maxFailures <= 0 ? null : windows.get(key);
+            long retryAfter = window == null ? 0 : window.retryAfter(now);
+            if (retryAfter > 0) {
+                throttled.increment();
+            }
+            return retryAfter;
+        }
+
+        void record(String key, long now) {
+            if (key == null || maxFailures <= 0) {
+                return;
+            }
+            Window window = windows.get(key);
+            if (window == null) {
+                if (windows.size() >= MAX_KEYS) {
+                    windows.values().removeIf(w -> w.isIdle(now));
+                    if (windows.size() >= MAX_KEYS) {
+                        // Still full of active keys: the address limit keeps covering this attempt.
+                        return;
+                    }
+                }
+                window = windows.computeIfAbsent(key, k -> new Window(maxFailures));
+            }
+            window.record(now);
+        }
+
+        void clear(String key) {
+            if (key != null) {
+                windows.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Timestamps of the most recent failures of one key, oldest first, in a ring.
+     */
+    private final class Window {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final long[] failures;
+        private int head;
+        private int size;
+
+        Window(int capacity) {
+            this.failures = new long[capacity];
+        }
+
+        long retryAfter(long now) {
+            lock.lock();
+            try {
+                expire(now);
+                return size < failures.length ? 0 : failures[head] + windowNanos - now;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void record(long now) {
+            lock.lock();
+            try {
+                expire(now);
+                if (size == failures.length) {
+                    head = (head + 1) % failures.length;
+                    size--;
+                }
+                failures[(head + size) % failures.length] = now;
+                size++;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean isIdle(long now) {
+            lock.lock();
+            try {
+                expire(now);
+                return size == 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void expire(long now) {
+            while (size > 0 && now - failures[head] >= windowNanos) {
+                head = (head + 1) % failures.length;
+                size--;
+            }
+        }
+    }
+}
@@ -1,26 +1,75 @@
 package com.wefky.RESTfulWeb.service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.wefky.RESTfulWeb.dto.BulkResult;
+import com.wefky.RESTfulWeb.dto.Fieldset;
+import com.wefky.RESTfulWeb.dto.KeysetPage;
+import com.wefky.RESTfulWeb.dto.KeysetRequest;
+import com.wefky.RESTfulWeb.dto.MeasurementBatchResult;
+import com.wefky.RESTfulWeb.dto.MeasurementView;
+import com.wefky.RESTfulWeb.dto.MultiGetResult;
+import com.wefky.RESTfulWeb.entity.Location;
 import com.wefky.RESTfulWeb.entity.Measurement;
+import com.wefky.RESTfulWeb.event.ChangeType;
+import com.wefky.RESTfulWeb.event.MeasurementChangedEvent;
+import com.wefky.RESTfulWeb.repository.LocationRepository;
 import com.wefky.RESTfulWeb.repository.MeasurementRepository;
+import com.wefky.RESTfulWeb.util.Chunks;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 
 @Service
-@RequiredArgsConstructor
 @Transactional
 public class MeasurementService {
 
     private static final Logger logger = LoggerFactory.getLogger(MeasurementService.class);
+
+    /** IDs per statement of a bulk change. */
+    private static final int BULK_CHUNK_SIZE = 1000;
+
     private final MeasurementRepository measurementRepository;
+    private final LocationRepository locationRepository;
+    private final Validator validator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int maxBatchSize;
+    private final CoalescingLoader<MeasurementView> viewLoader;
+
+    public MeasurementService(MeasurementRepository measurementRepository,
+                              LocationRepository locationRepository,
+                              Validator validator,
+                              ApplicationEventPublisher eventPublisher,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.measurements.batch.max-size:10000}") int maxBatchSize) {
+        this.measurementRepository = measurementRepository;
+        this.locationRepository = locationRepository;
+        this.validator = validator;
+        this.eventPublisher = eventPublisher;
+        this.maxBatchSize = maxBatchSize;
+        this.viewLoader = new CoalescingLoader<>("measurement",
+                ids -> byId(measurementRepository.findViewsByIds(ids)), BULK_CHUNK_SIZE, meterRegistry);
+    }
 
     /**
      * Retrieves all active measurements.
@@ -32,6 +81,16 @@ public class MeasurementService {
         return measurementRepository.findAllActive();
     }
 
+    /**
+     * Retrieves the distinct units of the active measurements.
+     *
+     * @return the units in alphabetical order.
+     */
+    @Transactional(readOnly = true)
+    public List<String> getDistinctMeasurementUnits() {
+        return measurementRepository.findDistinctMeasurementUnits();
+    }
+
     /**
      * Filters measurements based on the provided criteria.
      *
@@ -46,6 +105,76 @@ public class MeasurementService {
         return measurementRepository.filterMeasurementsNative(measurementUnit, startDate, endDate, cityName);
     }
 
+    /**
+     * Retrieves active measurements matching the criteria as views, each with its location
+     * selected in the same query. With all criteria null, returns every active measurement.
+     *
+     * @param measurementUnit the unit of measurement to filter by (optional).
+     * @param startDate the start date to filter by (optional).
+     * @param endDate the end date to filter by (optional).
+     * @param cityName the name of the city to filter by (optional).
+     * @return a list of measurement views that match the criteria.
+     */
+    @Transactional(readOnly = true)
+    public List<MeasurementView> getActiveMeasurementViews(String measurementUnit, LocalDateTime startDate,
+                                                           LocalDateTime endDate, String cityName) {
+        return measurementRepository.findActiveViews(measurementUnit, startDate, endDate, cityName);
+    }
+
+    /**
+     * Retrieves only the requested properties of the active measurements matching the filters;
+     * the location is only joined when it is embedded or filtered by city.
+     *
+     * @param measurementUnit the unit of measurement to filter by (optional).
+     * @param startDate the start date of the range to filter by (optional).
+     * @param endDate the end date of the range to filter by (optional).
+     * @param cityName the name of the city to filter by (optional).
+     * @param fieldset the properties to select.
+     * @return one map of property to value per measurement, ordered by ID.
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getActiveMeasurementFields(String measurementUnit, LocalDateTime startDate,
+                                                                LocalDateTime endDate, String cityName,
+                                                                Fieldset fieldset) {
+        return measurementRepository.findFields(false, measurementUnit, startDate, endDate, cityName, fieldset);
+    }
+
+    /**
+     * Retrieves one page of active measurements matching the criteria, as views with their location.
+     *
+     * @param measurementUnit the unit of measurement to filter by (optional).
+     * @param startDate the start date to filter by (optional).
+     * @param endDate the end date to filter by (optional).
+     * @param cityName the name of the city to filter by (optional).
+     * @param request the sort order, page size and cursor of the page.
+     * @return a page of active measurements that match the criteria, as views.
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<MeasurementView> getActiveMeasurementsPage(String measurementUnit, LocalDateTime startDate,
+                                                                 LocalDateTime endDate, String cityName,
+                                                                 KeysetRequest request) {
+        return measurementRepository.findViewPage(false, measurementUnit, startDate, endDate, cityName, request);
+    }
+
+    /**
+     * Passes every active measurement matching the criteria to the consumer, as a view and in ID order,
+     * while the rows are read from the database, so an export does not hold the whole result in memory.
+     *
+     * @param measurementUnit the unit of measurement to filter by (optional).
+     * @param startDate the start date to filter by (optional).
+     * @param endDate the end date to filter by (optional).
+     * @param cityName the name of the city to filter by (optional).
+     * @param consumer receives each matching measurement view.
+     */
+    @Transactional(readOnly = true)
+    public void forEachActiveMeasurementView(String measurementUnit, LocalDateTime startDate, LocalDateTime endDate,
+                                             String cityName, Consumer<MeasurementView> consumer) {
+        try (Stream<MeasurementView> views = measurementRepository.streamActiveViews(
+                measurementUnit, startDate, endDate, cityName)) {
+            views.forEach(consumer);
+        }
+    }
+
     /**
      * Retrieves a measurement by its ID.
      *
@@ -57,6 +186,31 @@ public class MeasurementService {
         return measurementRepository.findById(id);
     }
 
+    /**
+     * Retrieves an active measurement as a view. Concurrent calls are answered together by one
+     * query (see {@link CoalescingLoader}), so no transaction is held while waiting for it.
+     *
+     * @param id the ID of the measurement.
+     * @return the measurement, or empty if it is not found or deleted.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Optional<MeasurementView> getActiveMeasurementView(Long id) {
+        return viewLoader.get(id).filter(view -> !view.deleted());
+    }
+
+    /**
+     * Retrieves the active measurements with the given IDs with one query.
+     *
+     * @param ids the IDs of the measurements.
+     * @return the active measurements in the order of the IDs, and the IDs that are unknown or deleted.
+     */
+    @Transactional(readOnly = true)
+    public MultiGetResult<MeasurementView> getMeasurementViews(List<Long> ids) {
+        return MultiGetResult.of(ids, byId(measurementRepository.findViewsByIds(ids).stream()
+                .filter(view -> !view.deleted())
+                .toList()));
+    }
+
     /**
      * Saves a measurement.
      *
@@ -69,73 +223,358 @@ public class MeasurementService {
         if (measurement.getTimestamp() == null) {
             measurement.setTimestamp(LocalDateTime.now());
         }
-        return measurementRepository.save(measurement);
+        ChangeType type = measurement.getMeasurementId() == null ? ChangeType.CREATED : ChangeType.UPDATED;
+        resolveLocation(measurement);
+        Measurement saved = measurementRepository.save(measurement);
+        publish(saved, type);
+        return saved;
+    }
+
+    /**
+     * Updates the unit, amount, timestamp and location of an active measurement.
+     *
+     * @param id the ID of the measurement to update.
+     * @param updated the new values.
+     * @return the updated measurement, or empty if it does not exist or is deleted.
+     */
+    @Transactional
+    public Optional<Measurement> updateMeasurement(Long id, Measurement updated) {
+        return measurementRepository.findById(id)
+                .filter(existing -> !existing.isDeleted())
+                .map(existing -> {
+                    existing.setMeasurementUnit(updated.getMeasurementUnit());
+                    existing.setAmount(updated.getAmount());
+                    existing.setTimestamp(updated.getTimestamp());
+                    existing.setLocation(updated.getLocation());
+                    resolveLocation(existing);
+                    Measurement saved = measurementRepository.save(existing);
+                    publish(saved, ChangeType.UPDATED);
+                    return saved;
+                });
+    }
+
+    /**
+     * Saves a batch of new measurements in one transaction (inserted in JDBC batches).
+     * Each item gets a new ID and the current time if it has no timestamp; its location is
+     * referenced by ID and must exist and not be deleted. If any item is invalid, or the batch
+     * is larger than app.measurements.batch.max-size, nothing is saved.
+     *
+     * @param batch the measurements to save.
+     * @return the new IDs in request order, or the problems found.
+     */
+    @Transactional
+    public MeasurementBatchResult ingestMeasurements(List<Measurement> batch) {
+        if (batch.size() > maxBatchSize) {
+            return MeasurementBatchResult.rejected(List.of(
+                    "Batch of " + batch.size() + " measurements exceeds the maximum of " + maxBatchSize + "."));
+        }
+        Set<Long> locationIds = batch.stream()
+                .filter(Objects::nonNull)
+                .map(Measurement::getLocation)
+                .filter(Objects::nonNull)
+                .map(Location::getLocationId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, Location> locations = locationRepository.findAllById(locationIds).stream()
+                .filter(location -> !location.isDeleted())
+                .collect(Collectors.toMap(Location::getLocationId, Function.identity()));
+
+        LocalDateTime now = LocalDateTime.now();
+        List<String> errors = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            Measurement measurement = batch.get(i);
+            if (measurement == null) {
+                errors.add("[" + i + "] measurement is missing.");
+                continue;
+            }
+            measurement.setMeasurementId(null);
+            measurement.setDeleted(false);
+            if (measurement.getTimestamp() == null) {
+                measurement.setTimestamp(now);
+            }
+            if (measurement.getLocation() != null) {
+                Long locationId = measurement.getLocation().getLocationId();
+                Location location = locationId == null ? null : locations.get(locationId);
+                if (location == null) {
+                    errors.add("[" + i + "] location: unknown or deleted location " + locationId + ".");
+                }
+                measurement.setLocation(location);
+            }
+            for (ConstraintViolation<Measurement> violation : validator.validate(measurement)) {
+                errors.add("[" + i + "] " + violation.getPropertyPath() + ": " + violation.getMessage());
+            }
+        }
+        if (!errors.isEmpty()) {
+            logger.warn("Rejected a batch of {} measurements with {} problems.", batch.size(), errors.size());
+            return MeasurementBatchResult.rejected(errors);
+        }
+        List<Measurement> saved = measurementRepository.saveAll(batch);
+        saved.forEach(measurement -> publish(measurement, ChangeType.CREATED));
+        List<Long> ids = saved.stream()
+                .map(Measurement::getMeasurementId)
+                .toList();
+        logger.info("Saved a batch of {} measurements.", ids.size());
+        return MeasurementBatchResult.created(ids);
     }
 
     /**
      * Soft deletes a measurement by setting its deleted flag to true.
      *
      * @param id the ID of the measurement to soft delete.
+     * @return true if the measurement was active and is now deleted, false if it does not exist or is already deleted.
      */
     @Transactional
-    public void softDeleteMeasurement(Long id) {
-        measurementRepository.findById(id).ifPresent(measurement -> {
+    public boolean softDeleteMeasurement(Long id) {
+        Optional<Measurement> opt = measurementRepository.findById(id).filter(measurement -> !measurement.isDeleted());
+        opt.ifPresent(measurement -> {
             measurement.setDeleted(true);
+            measurement.setDeletedAt(LocalDateTime.now());
             measurementRepository.save(measurement);
+            publish(measurement, ChangeType.SOFT_DELETED);
             logger.info("Measurement with ID {} soft deleted.", id);
         });
+        return opt.isPresent();
     }
 
     /**
      * Permanently deletes a measurement.
      *
      * @param id the ID of the measurement to permanently delete.
+     * @return true if the measurement existed and was deleted.
      */
     @Transactional
-    public void permanentlyDeleteMeasurement(Long id) {
-        if (measurementRepository.existsById(id)) {
-            measurementRepository.deleteById(id);
+    public boolean permanentlyDeleteMeasurement(Long id) {
+        Optional<Measurement> opt = measurementRepository.findById(id);
+        if (opt.isPresent()) {
+            MeasurementView snapshot = MeasurementView.from(opt.get());
+            measurementRepository.delete(opt.get());
+            eventPublisher.publishEvent(new MeasurementChangedEvent(id, ChangeType.PURGED, snapshot));
             logger.info("Measurement with ID {} permanently deleted.", id);
         } else {
             logger.warn("Attempted to permanently delete non-existent Measurement with ID {}.", id);
         }
+        return opt.isPresent();
     }
 
     /**
-     * Retrieves all deleted measurements.
-     *
-     * @return a list of deleted measurements.
-     */
-    @Transactional(readOnly = true)
-    public List<Measurement> getAllDeletedMeasurements() {
-        return measurementRepository.findAllDeleted();
-    }
-
-    /**
-     * Filters deleted measurements based on the provided criteria.
+     * Retrieves one page of deleted measurements matching the provided criteria.
      *
      * @param measurementUnit the unit of measurement to filter by (optional).
      * @param start the start date to filter by (optional).
      * @param end the end date to filter by (optional).
      * @param cityName the name of the city to filter by (optional).
-     * @return a list of deleted measurements that match the criteria.
+     * @param request the sort order, page size and cursor of the page.
+     * @return a page of deleted measurements that match the criteria, as views.
      */
     @Transactional(readOnly = true)
-    public List<Measurement> filterDeletedMeasurements(String measurementUnit, LocalDateTime start, LocalDateTime end, String cityName) {
-        return measurementRepository.findAllDeleted(measurementUnit, start, end, cityName);
+    public KeysetPage<MeasurementView> getDeletedMeasurementsPage(String measurementUnit, LocalDateTime start,
+                                                                  LocalDateTime end, String cityName,
+                                                                  KeysetRequest request) {
+        return measurementRepository.findViewPage(true, measurementUnit, start, end, cityName, request);
     }
 
     /**
      * Restores a soft-deleted measurement by setting its deleted flag to false.
      *
      * @param id the ID of the measurement to restore.
+     * @return the restored measurement, or empty if it does not exist or is not deleted.
      */
     @Transactional
-    public void restoreMeasurement(Long id) {
-        measurementRepository.findById(id).ifPresent(measurement -> {
+    public Optional<Measurement> restoreMeasurement(Long id) {
+        Optional<Measurement> opt = measurementRepository.findById(id).filter(Measurement::isDeleted);
+        opt.ifPresent(measurement -> {
             measurement.setDeleted(false);
+            measurement.setDeletedAt(null);
             measurementRepository.save(measurement);
+            publish(measurement, ChangeType.RESTORED);
             logger.info("Measurement with ID {} restored.", id);
         });
+        return opt;
+    }
+
+    /**
+     * Soft deletes the given measurements with set-based statements, 1000 IDs at a time.
+     * Missing and already deleted measurements are skipped.
+     *
+     * @param ids the IDs of the measurements to soft delete.
+     * @return the number of distinct IDs given and of measurements soft deleted.
+     */
+    @Transactional
+    public BulkResult softDeleteMeasurements(Collection<Long> ids) {
+        return setDeleted(Chunks.of(ids, BULK_CHUNK_SIZE), true);
+    }
+
+    /**
+     * Soft deletes the active measurements matching the criteria (see {@link #softDeleteMeasurements(Collection)}).
+     *
+     * @param measurementUnit the unit of measurement to filter by (optional).
+     * @param start the start date to filter by (optional).
+     * @param end the end date to filter by (optional).
+     * @param cityName the name of the city to filter by (optional).
+     * @return the number of matching measurements and of measurements soft deleted.
+     */
+    @Transactional
+    public BulkResult softDeleteMatchingMeasurements(String measurementUnit, LocalDateTime start, LocalDateTime end,
+                                                     String cityName) {
+        return setDeleted(Chunks.of(measurementRepository.findIds(false, measurementUnit, start, end, cityName),
+                BULK_CHUNK_SIZE), true);
+    }
+
+    /**
+     * Restores the given soft-deleted measurements with set-based statements, 1000 IDs at a time.
+     * Missing and active measurements are skipped.
+     *
+     * @param ids the IDs of the measurements to restore.
+     * @return the number of distinct IDs given and of measurements restored.
+     */
+    @Transactional
+    public BulkResult restoreMeasurements(Collection<Long> ids) {
+        return setDeleted(Chunks.of(ids, BULK_CHUNK_SIZE), false);
+    }
+
+    /**
+     * Restores the deleted measurements matching the criteria (see {@link #restoreMeasurements(Collection)}).
+     *
+     * @param measurementUnit the unit of measurement to filter by (optional).
+     * @param start the start date to filter by (optional).
+     * @param end the end date to filter by (optional).
+     * @param cityName the name of the city to filter by (optional).
+     * @return the number of matching measurements and of measurements restored.
+     */
+    @Transactional
+    public BulkResult restoreMatchingMeasurements(String measurementUnit, LocalDateTime start, LocalDateTime end,
+                                                  String cityName) {
+        return setDeleted(Chunks.of(measurementRepository.findIds(true, measurementUnit, start, end, cityName),
+                BULK_CHUNK_SIZE), false);
+    }
+
+    /**
+     * Permanently deletes the given measurements, active or deleted, with set-based statements,
+     * 1000 IDs at a time. Missing measurements are skipped.
+     *
+     * @param ids the IDs of the measurements to permanently delete.
+     * @return the number of distinct IDs given and of measurements deleted.
+     */
+    @Transactional
+    public BulkResult permanentlyDeleteMeasurements(Collection<Long> ids) {
+        return purge(Chunks.of(ids, BULK_CHUNK_SIZE), null);
+    }
+
+    /**
+     * Permanently deletes the deleted measurements matching the criteria, i.e. empties that part of the trash.
+     *
+     * @param measurementUnit the unit of measurement to filter by (optional).
+     * @param start the start date to filter by (optional).
+     * @param end the end date to filter by (optional).
+     * @param cityName the name of the city to filter by (optional).
+     * @return the number of matching measurements and of measurements deleted.
+     */
+    @Transactional
+    public BulkResult permanentlyDeleteMatchingMeasurements(String measurementUnit, LocalDateTime start,
+                                                            LocalDateTime end, String cityName) {
+        return purge(Chunks.of(measurementRepository.findIds(true, measurementUnit, start, end, cityName),
+                BULK_CHUNK_SIZE), true);
+    }
+
+    /**
+     * Per chunk: locks the rows still in the opposite state, flips their flag with one UPDATE and
+     * publishes one event per row from their updated views.
+     */
+    private BulkResult setDeleted(List<List<Long>> chunks, boolean deleted) {
+        ChangeType type = deleted ? ChangeType.SOFT_DELETED : ChangeType.RESTORED;
+        int affected = 0;
+        for (List<Long> chunk : chunks) {
+            List<Long> locked = measurementRepository.lockIds(chunk, !deleted);
+            if (locked.isEmpty()) {
+                continue;
+            }
+            affected += measurementRepository.updateDeleted(locked, deleted, deleted ? LocalDateTime.now() : null);
+            measurementRepository.findViewsByIds(locked).forEach(view -> eventPublisher.publishEvent(
+                    new MeasurementChangedEvent(view.measurementId(), type, view)));
+        }
+        logger.info("Bulk {} of {} measurements.", type, affected);
+        return new BulkResult(Chunks.count(chunks), affected);
+    }
+
+    /**
+     * Per chunk: locks the rows (in the given state, or any when null) and deletes them.
+     */
+    private BulkResult purge(List<List<Long>> chunks, Boolean deleted) {
+        int affected = 0;
+        for (List<Long> chunk : chunks) {
+            List<Long> locked = deleted == null
+                    ? measurementRepository.lockIds(chunk)
+                    : measurementRepository.lockIds(chunk, deleted);
+            affected += deleteLocked(locked);
+        }
+        logger.info("Bulk permanent delete of {} measurements.", affected);
+        return new BulkResult(Chunks.count(chunks), affected);
+    }
+
+    /**
+     * Permanently deletes up to {@code limit} measurements that were soft deleted before the cutoff,
+     * for the retention purge. Measurements locked by a running request are left for the next call.
+     *
+     * @param cutoff the deletion time before which measurements are purged.
+     * @param limit the maximum number of measurements to delete.
+     * @return the number of measurements deleted.
+     */
+    @Transactional
+    public int purgeDeletedBefore(LocalDateTime cutoff, int limit) {
+        return deleteLocked(measurementRepository.lockDeletedBefore(cutoff, limit));
+    }
+
+    /**
+     * Starts the retention period of measurements deleted before their deletion time was recorded.
+     *
+     * @return the number of measurements stamped.
+     */
+    @Transactional
+    public int stampUntimedDeletions() {
+        return measurementRepository.stampUntimedDeletions(LocalDateTime.now());
+    }
+
+    /**
+     * Counts the measurements in the trash.
+     *
+     * @return the number of deleted measurements.
+     */
+    @Transactional(readOnly = true)
+    public long countDeletedMeasurements() {
+        return measurementRepository.countByDeletedTrue();
+    }
+
+    /**
+     * Reads the views of the locked rows for the events, then deletes them with one DELETE.
+     */
+    private int deleteLocked(List<Long> locked) {
+        if (locked.isEmpty()) {
+            return 0;
+        }
+        List<MeasurementView> snapshots = measurementRepository.findViewsByIds(locked);
+        int deleted = measurementRepository.deleteByIds(locked);
+        snapshots.forEach(view -> eventPublisher.publishEvent(
+                new MeasurementChangedEvent(view.measurementId(), ChangeType.PURGED, view)));
+        return deleted;
+    }
+
+    /**
+     * Replaces a location given by ID only (request bodies, form fields) with the stored location,
+     * so the saved measurement and its published snapshot carry the full location.
+     */
+    private void resolveLocation(Measurement measurement) {
+        Location location = measurement.getLocation();
+        if (location != null && location.getLocationId() != null) {
+            locationRepository.findById(location.getLocationId()).ifPresent(measurement::setLocation);
+        }
+    }
+
+    private void publish(Measurement measurement, ChangeType type) {
+        eventPublisher.publishEvent(new MeasurementChangedEvent(measurement.getMeasurementId(), type,
+                MeasurementView.from(measurement)));
+    }
+
+    private static Map<Long, MeasurementView> byId(List<MeasurementView> views) {
+        return views.stream().collect(Collectors.toMap(MeasurementView::measurementId, Function.identity()));
     }
 }
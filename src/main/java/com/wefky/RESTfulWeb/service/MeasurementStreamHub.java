@@ -0,0 +1,308 @@
+package com.wefky.RESTfulWeb.service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wefky.RESTfulWeb.dto.MeasurementView;
+import com.wefky.RESTfulWeb.event.MeasurementChangedEvent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * In-process fan-out of committed measurement changes to Server-Sent Events subscribers
+ * (GET /api/measurements/stream).
+ *
+ * Each change is encoded to JSON once, numbered and appended to a replay ring of the last
+ * {@code replay-size} events, then offered to the bounded buffer of every subscriber whose filter
+ * matches. Every subscriber has its own writer thread that drains its buffer into the response,
+ * so a slow client never holds up a commit or the other subscribers: a subscriber whose buffer is
+ * full is dropped, and its browser reconnects with Last-Event-ID and catches up from the ring.
+ * The writers are platform threads with a small stack rather than virtual threads: SseEmitter.send
+ * is synchronized, and on Java 21 a virtual thread blocked inside it on a slow client's socket
+ * pins its carrier, so a few slow clients would stall every other stream.
+ * When the requested event is no longer in the ring (or comes from before a restart), a
+ * {@code reset} event tells the client to reload with GET /api/measurements instead.
+ *
+ * Event IDs start at the startup time in microseconds, so IDs from an earlier run are always
+ * older than the ring. Idle connections get a comment every {@code heartbeat} to keep proxies
+ * (the Heroku router closes connections after 55 idle seconds) from closing them.
+ *
+ * Metrics: app.measurements.stream.subscribers, app.measurements.stream.events and
+ * app.measurements.stream.dropped.
+ */
+@Component
+public class MeasurementStreamHub {
+
+    private static final long RECONNECT_MILLIS = 3_000;
+
+    /**
+     * Optional filters of a subscription, with the semantics of GET /api/measurements:
+     * case-insensitive substrings of the unit and the city, and an exact location ID.
+     */
+    public record Filter(String measurementUnit, String cityName, Long locationId) {
+
+        boolean matches(MeasurementView measurement) {
+            return contains(measurement.measurementUnit(), measurementUnit)
+                    && (cityName == null
+                        || (measurement.location() != null && contains(measurement.location().cityName(), cityName)))
+                    && (locationId == null
+                        || (measurement.location() != null && locationId.equals(measurement.location().locationId())));
+        }
+
+        private static boolean contains(String value, String part) {
+            return part == null
+                    || (value != null && value.toLowerCase(Locale.ROOT).contains(part.toLowerCase(Locale.ROOT)));
+        }
+    }
+
+    private record Entry(long id, String name, MeasurementView measurement, String json) {
+    }
+
+    private final ObjectMapper objectMapper;
+    private final int bufferSize;
+    private final int maxSubscribers;
+    private final long timeoutMillis;
+    private final long heartbeatMillis;
+    private final ThreadFactory writerThreads = Thread.ofPlatform().name("measurement-stream-", 0)
+            .daemon().stackSize(256 * 1024).factory();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Entry[] ring;
+    private final long firstId;
+    private long lastId;
+    private final Set<Subscriber> subscribers = new LinkedHashSet<>();
+
+    private final Counter events;
+    private final Counter dropped;
+
+    public MeasurementStreamHub(ObjectMapper objectMapper,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.measurements.stream.replay-size:4096}") int replaySize,
+                                @Value("${app.measurements.stream.buffer-size:1024}") int bufferSize,
+                                @Value("${app.measurements.stream.max-subscribers:1000}") int maxSubscribers,
+                                @Value("${app.measurements.stream.timeout:30m}") Duration timeout,
+                                @Value("${app.measurements.stream.heartbeat:30s}") Duration heartbeat) {
+        this.objectMapper = objectMapper;
+        this.ring = new Entry[Math.max(1, replaySize)];
+        this.bufferSize = Math.max(1, bufferSize);
+        this.maxSubscribers = maxSubscribers;
+        this.timeoutMillis = timeout.toMillis();
+        this.heartbeatMillis = heartbeat.toMillis();
+        this.lastId = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+        this.firstId = lastId + 1;
+        this.events = Counter.builder("app.measurements.stream.events")
+                .description("Measurement changes published to the event stream")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("app.measurements.stream.dropped")
+                .description("Stream subscribers disconnected because their buffer was full")
+                .register(meterRegistry);
+        Gauge.builder("app.measurements.stream.subscribers", this, MeasurementStreamHub::subscriberCount)
+                .description("Open measurement event streams")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Opens a stream of the committed changes matching the filter.
+     *
+     * @param filter      which changes to send
+     * @param lastEventId the ID of the last event the client received, to resume after it; null for live events only
+     * @return the emitter to return from the handler, or empty if the maximum number of subscribers is reached
+     */
+    public Optional<SseEmitter> subscribe(Filter filter, Long lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber;
+        lock.lock();
+        try {
+            if (subscribers.size() >= maxSubscribers) {
+                return Optional.empty();
+            }
+            List<Entry> replay = new ArrayList<>();
+            boolean reset = false;
+            if (lastEventId != null) {
+                long oldestId = Math.max(firstId, lastId - ring.length + 1);
+                if (lastEventId >= oldestId - 1 && lastEventId <= lastId) {
+                    for (long id = lastEventId + 1; id <= lastId; id++) {
+                        Entry entry = ring[(int) (id % ring.length)];
+                        if (filter.matches(entry.measurement())) {
+                            replay.add(entry);
+                        }
+                    }
+                } else {
+                    reset = true;
+                }
+            }
+            // Registered under the same lock as the replay is taken, so no event is missed or sent twice.
+            subscriber = new Subscriber(filter, emitter, replay, reset);
+            subscribers.add(subscriber);
+        } finally {
+            lock.unlock();
+        }
+        emitter.onTimeout(() -> {
+            close(subscriber);
+            emitter.complete();
+        });
+        emitter.onCompletion(() -> close(subscriber));
+        emitter.onError(e -> close(subscriber));
+        subscriber.writer = writerThreads.newThread(() -> write(subscriber));
+        subscriber.writer.start();
+        return Optional.of(emitter);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMeasurementChanged(MeasurementChangedEvent event) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not encode measurement change " + event.measurementId(), e);
+        }
+        String name = event.type().name().toLowerCase(Locale.ROOT);
+        lock.lock();
+        try {
+            Entry entry = new Entry(++lastId, name, event.measurement(), json);
+            ring[(int) (entry.id() % ring.length)] = entry;
+            Iterator<Subscriber> it = subscribers.iterator();
+            while (it.hasNext()) {
+                Subscriber subscriber = it.next();
+                if (subscriber.filter.matches(entry.measurement()) && !subscriber.buffer.offer(entry)) {
+                    it.remove();
+                    subscriber.dropped = true;
+                    subscriber.closed = true;
+                    dropped.increment();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        events.increment();
+    }
+
+    /**
+     * Sends the replay, then the buffered events as they arrive, until the stream closes.
+     * A dropped subscriber's response is completed here, so the publishing thread never waits
+     * for a client.
+     */
+    private void write(Subscriber subscriber) {
+        SseEmitter emitter = subscriber.emitter;
+        try {
+            emitter.send(SseEmitter.event().reconnectTime(RECONNECT_MILLIS).comment("connected"));
+            if (subscriber.reset) {
+                emitter.send(SseEmitter.event().name("reset")
+                        .data("The requested events are no longer available; reload the measurements."));
+            }
+            for (Entry entry : subscriber.replay) {
+                send(emitter, entry);
+            }
+            while (!subscriber.closed) {
+                Entry entry = subscriber.buffer.poll(heartbeatMillis, TimeUnit.MILLISECONDS);
+                if (subscriber.closed) {
+                    break;
+                }
+                if (entry == null) {
+                    emitter.send(SseEmitter.event().comment("keep-alive"));
+                } else {
+                    send(emitter, entry);
+                }
+            }
+            if (subscriber.dropped) {
+                emitter.complete();
+            }
+        } catch (IOException | IllegalStateException e) {
+            // The client went away or the response was completed; the emitter callbacks clean up.
+            close(subscriber);
+        } catch (InterruptedException e) {
+            close(subscriber);
+        }
+    }
+
+    private static void send(SseEmitter emitter, Entry entry) throws IOException {
+        emitter.send(SseEmitter.event()
+                .id(String.valueOf(entry.id()))
+                .name(entry.name())
+                .data(entry.json(), MediaType.APPLICATION_JSON));
+    }
+
+    private void close(Subscriber subscriber) {
+        subscriber.closed = true;
+        lock.lock();
+        try {
+            subscribers.remove(subscriber);
+        } finally {
+            lock.unlock();
+        }
+        Thread writer = subscriber.writer;
+        if (writer != null && writer != Thread.currentThread()) {
+            writer.interrupt();
+        }
+    }
+
+    private int subscriberCount() {
+        lock.lock();
+        try {
+            return subscribers.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ends all streams so a shutdown does not wait for their timeout.
+     */
+    @PreDestroy
+    void shutdown() {
+        List<Subscriber> open;
+        lock.lock();
+        try {
+            open = new ArrayList<>(subscribers);
+            subscribers.clear();
+        } finally {
+            lock.unlock();
+        }
+        for (Subscriber subscriber : open) {
+            close(subscriber);
+            subscriber.emitter.complete();
+        }
+    }
+
+    private final class Subscriber {
+
+        final Filter filter;
+        final SseEmitter emitter;
+        final List<Entry> replay;
+        final boolean reset;
+        final BlockingQueue<Entry> buffer = new ArrayBlockingQueue<>(bufferSize);
+        volatile boolean closed;
+        volatile boolean dropped;
+        volatile Thread writer;
+
+        Subscriber(Filter filter, SseEmitter emitter, List<Entry> replay, boolean reset) {
+            this.filter = filter;
+            this.emitter = emitter;
+            this.replay = replay;
+            this.reset = reset;
+        }
+    }
+}
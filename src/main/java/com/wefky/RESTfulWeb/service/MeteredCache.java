@@ -0,0 +1,113 @@
+package com.wefky.RESTfulWeb.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Small in-memory cache for values that are expensive to load and only change through this
+ * application's own writes, so entries never expire and are dropped by the write's listener.
+ *
+ * A value that is loaded while an invalidation happens is returned but not stored, so a committed
+ * write is never hidden by a load that read the data before it. Loads of the same key may run
+ * concurrently; both results are equal, and only the values that are cached must be immutable.
+ *
+ * Metrics: app.cache.gets{cache, result=hit|miss}, app.cache.invalidations{cache} and the
+ * app.cache.entries{cache} gauge.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+final class MeteredCache<K, V> {
+
+    private final Map<K, V> entries = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private long invalidationCount;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter invalidations;
+
+    MeteredCache(String name, MeterRegistry meterRegistry) {
+        this.hits = Counter.builder("app.cache.gets")
+                .description("Lookups served from an in-memory cache or loaded")
+                .tag("cache", name)
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("app.cache.gets")
+                .description("Lookups served from an in-memory cache or loaded")
+                .tag("cache", name)
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.invalidations = Counter.builder("app.cache.invalidations")
+                .description("Writes that dropped entries of an in-memory cache")
+                .tag("cache", name)
+                .register(meterRegistry);
+        Gauge.builder("app.cache.entries", entries, Map::size)
+                .description("Entries held by an in-memory cache")
+                .tag("cache", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the cached value, loading it on a miss.
+     *
+     * @param key    the key
+     * @param loader loads the value, only called on a miss; must not return null
+     * @return the value
+     */
+    V get(K key, Supplier<V> loader) {
+        V value = entries.get(key);
+        if (value != null) {
+            hits.increment();
+            return value;
+        }
+        misses.increment();
+        long seen = invalidationCount();
+        value = loader.get();
+        lock.lock();
+        try {
+            if (invalidationCount == seen) {
+                entries.put(key, value);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return value;
+    }
+
+    /**
+     * Returns the cached value without loading it or counting the lookup, or null.
+     */
+    V peek(K key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Drops the key; the next lookup loads it again.
+     */
+    void invalidate(K key) {
+        lock.lock();
+        try {
+            invalidationCount++;
+            entries.remove(key);
+        } finally {
+            lock.unlock();
+        }
+        invalidations.increment();
+    }
+
+    private long invalidationCount() {
+        lock.lock();
+        try {
+            return invalidationCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
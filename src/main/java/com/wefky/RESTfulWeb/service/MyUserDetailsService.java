@@ -3,14 +3,17 @@ package com.wefky.RESTfulWeb.service;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
 import com.wefky.RESTfulWeb.entity.User;
+import com.wefky.RESTfulWeb.event.UserChangedEvent;
 import com.wefky.RESTfulWeb.repository.UserRepository;
 
 /**
@@ -18,20 +21,24 @@ import com.wefky.RESTfulWeb.repository.UserRepository;
  * to provide custom user authentication logic for Spring Security.
  * 
  * This service is annotated with @Service to indicate that it's a Spring-managed bean.
- * It uses a UserRepository to fetch user details from the database.
+ * It uses a UserRepository to fetch user details from the database, and stores the
+ * rehashed password when a login finds the hash made with another BCrypt cost factor.
  */
 @Service
-public class MyUserDetailsService implements UserDetailsService {
+public class MyUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Constructor for MyUserDetailsService.
      * 
      * @param userRepository the UserRepository used to fetch user details from the database
+     * @param eventPublisher publishes a UserChangedEvent when a password is rehashed
      */
-    public MyUserDetailsService(UserRepository userRepository) {
+    public MyUserDetailsService(UserRepository userRepository, ApplicationEventPublisher eventPublisher) {
         this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -63,4 +70,24 @@ public class MyUserDetailsService implements UserDetailsService {
                 .disabled(!user.isEnabled())
                 .build();
     }
+
+    /**
+     * Stores a password rehashed at login (called by Spring Security after a successful login
+     * when the stored hash uses another cost factor than the configured one).
+     *
+     * @param userDetails the authenticated user
+     * @param newPassword the new hash of the user's password
+     * @return the user details with the new hash
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        User user = userRepository.findByUsername(userDetails.getUsername())
+                        .orElseThrow(() -> new UsernameNotFoundException("User not found"));
+        user.setPassword(newPassword);
+        userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(user.getUsername()));
+        return org.springframework.security.core.userdetails.User.withUserDetails(userDetails)
+                .password(newPassword)
+                .build();
+    }
 }
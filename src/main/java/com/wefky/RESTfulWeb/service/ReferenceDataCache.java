@@ -0,0 +1,116 @@
+package com.wefky.RESTfulWeb.service;
+
+import java.util.List;
+import java.util.Objects;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.wefky.RESTfulWeb.dto.LocationView;
+import com.wefky.RESTfulWeb.event.ChangeType;
+import com.wefky.RESTfulWeb.event.ImageChangedEvent;
+import com.wefky.RESTfulWeb.event.LocationChangedEvent;
+import com.wefky.RESTfulWeb.event.MeasurementChangedEvent;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Reference data of the forms and filters: the content types of the active images, the active
+ * locations of the measurement form's dropdown and the vocabulary of measurement units.
+ *
+ * Each list is loaded once and kept until a committed write may have changed it. A new image or
+ * measurement whose content type or unit is already listed (the common case of an upload or an
+ * ingested batch) leaves the list alone; updates, deletions and unknown values drop it. The
+ * listeners run before the other listeners of the same events, so {@link FragmentCache} never
+ * renders a fragment from a list that is about to be dropped.
+ *
+ * The lists are unmodifiable. Metrics: the {@link MeteredCache} metrics with cache=content-types,
+ * cache=locations and cache=measurement-units.
+ */
+@Component
+public class ReferenceDataCache {
+
+    private static final String ALL = "all";
+
+    private final ImageService imageService;
+    private final LocationService locationService;
+    private final MeasurementService measurementService;
+
+    private final MeteredCache<String, List<String>> contentTypes;
+    private final MeteredCache<String, List<LocationView>> locations;
+    private final MeteredCache<String, List<String>> measurementUnits;
+
+    public ReferenceDataCache(ImageService imageService,
+                              LocationService locationService,
+                              MeasurementService measurementService,
+                              MeterRegistry meterRegistry) {
+        this.imageService = imageService;
+        this.locationService = locationService;
+        this.measurementService = measurementService;
+        this.contentTypes = new MeteredCache<>("content-types", meterRegistry);
+        this.locations = new MeteredCache<>("locations", meterRegistry);
+        this.measurementUnits = new MeteredCache<>("measurement-units", meterRegistry);
+    }
+
+    /**
+     * Returns the distinct content types of the active images.
+     */
+    public List<String> getContentTypes() {
+        return contentTypes.get(ALL, () -> withoutNulls(imageService.getDistinctContentTypes()));
+    }
+
+    /**
+     * Returns the active locations, ordered by ID.
+     */
+    public List<LocationView> getActiveLocations() {
+        return locations.get(ALL,
+                () -> List.copyOf(locationService.getActiveLocationViews(null, null, null, null, null, null)));
+    }
+
+    /**
+     * Returns the distinct units of the active measurements in alphabetical order.
+     */
+    public List<String> getMeasurementUnits() {
+        return measurementUnits.get(ALL, () -> withoutNulls(measurementService.getDistinctMeasurementUnits()));
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onImageChanged(ImageChangedEvent event) {
+        String contentType = event.image() == null ? null : event.image().contentType();
+        invalidateUnlessListed(contentTypes, event.type(), contentType);
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLocationChanged(LocationChangedEvent event) {
+        locations.invalidate(ALL);
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMeasurementChanged(MeasurementChangedEvent event) {
+        String unit = event.measurement() == null ? null : event.measurement().measurementUnit();
+        invalidateUnlessListed(measurementUnits, event.type(), unit);
+    }
+
+    /**
+     * Drops the list unless a row was added with a value it already holds; any other change may
+     * add a value or remove the last row of one.
+     */
+    private static void invalidateUnlessListed(MeteredCache<String, List<String>> cache, ChangeType type,
+                                               String value) {
+        boolean added = type == ChangeType.CREATED || type == ChangeType.RESTORED;
+        List<String> listed = cache.peek(ALL);
+        if (added && listed != null && value != null && listed.contains(value)) {
+            return;
+        }
+        cache.invalidate(ALL);
+    }
+
+    private static List<String> withoutNulls(List<String> values) {
+        return values.stream().filter(Objects::nonNull).toList();
+    }
+}
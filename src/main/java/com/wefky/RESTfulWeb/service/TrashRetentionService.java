@@ -0,0 +1,195 @@
+package com.wefky.RESTfulWeb.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Retention policy of the trash: permanently deletes measurements, images and locations that were
+ * soft deleted more than the configured number of days ago, and outbox events older than theirs.
+ *
+ * The purge runs in the background every {@code app.retention.interval}. Each entity is purged in
+ * chunks of {@code chunk-size} rows, one short transaction per chunk with a pause in between, and
+ * rows locked by a running request are skipped (FOR UPDATE SKIP LOCKED), so the purge neither holds
+ * long locks on the tables nor waits for the application. Every purged row publishes the same
+ * event as a permanent delete, so the stream, the in-memory indexes and the change feed follow.
+ * Measurements are purged before locations, and a location is only purged once no measurement
+ * refers to it. A policy of 0 days keeps that entity's trash forever.
+ *
+ * Rows deleted before deletedAt was recorded get the time of the first run as their deletion time.
+ *
+ * Metrics: app.retention.purged (tag entity). The admin page shows {@link #getStats()}.
+ */
+@Service
+public class TrashRetentionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrashRetentionService.class);
+
+    /**
+     * State of one entity's policy, as shown on the admin page.
+     *
+     * @param entity         measurements, images, locations or outbox events
+     * @param retentionDays  days a deleted row is kept; 0 keeps it forever
+     * @param inTrash        rows currently in the trash, or null where there is no trash
+     * @param lastRunAt      when the last purge of this entity started, or null before the first run
+     * @param lastRunMillis  how long the last purge took
+     * @param lastRunPurged  rows purged by the last run
+     * @param totalPurged    rows purged since startup
+     * @param lastError      the last run's failure, or null if it succeeded
+     */
+    public record PolicyStats(String entity, int retentionDays, Long inTrash, LocalDateTime lastRunAt,
+                              long lastRunMillis, long lastRunPurged, long totalPurged, String lastError) {
+    }
+
+    /** Deletes up to limit expired rows in one transaction and returns how many it deleted. */
+    @FunctionalInterface
+    private interface PurgeStep {
+        int purge(LocalDateTime cutoff, int limit);
+    }
+
+    private final int chunkSize;
+    private final long pauseMillis;
+    private final List<Policy> policies;
+    private final ReentrantLock running = new ReentrantLock();
+
+    public TrashRetentionService(MeasurementService measurementService,
+                                 ImageService imageService,
+                                 LocationService locationService,
+                                 ChangeOutboxService changeOutboxService,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.retention.measurements.days:0}") int measurementDays,
+                                 @Value("${app.retention.images.days:0}") int imageDays,
+                                 @Value("${app.retention.locations.days:0}") int locationDays,
+                                 @Value("${app.retention.outbox.days:7}") int outboxDays,
+                                 @Value("${app.retention.chunk-size:500}") int chunkSize,
+                                 @Value("${app.retention.pause:200ms}") Duration pause) {
+        this.chunkSize = Math.max(1, chunkSize);
+        this.pauseMillis = pause.toMillis();
+        this.policies = List.of(
+                new Policy("measurements", measurementDays, meterRegistry, measurementService::purgeDeletedBefore,
+                        measurementService::stampUntimedDeletions, measurementService::countDeletedMeasurements),
+                new Policy("images", imageDays, meterRegistry, imageService::purgeDeletedBefore,
+                        imageService::stampUntimedDeletions, imageService::countDeletedImages),
+                new Policy("locations", locationDays, meterRegistry, locationService::purgeDeletedBefore,
+                        locationService::stampUntimedDeletions, locationService::countDeletedLocations),
+                new Policy("outbox events", outboxDays, meterRegistry, changeOutboxService::purgeBefore,
+                        null, null));
+    }
+
+    /**
+     * Purges every entity whose policy is enabled. Skipped if a purge is still running.
+     */
+    @Scheduled(fixedDelayString = "${app.retention.interval:1h}",
+               initialDelayString = "${app.retention.initial-delay:5m}")
+    public void purgeExpired() {
+        if (!running.tryLock()) {
+            return;
+        }
+        try {
+            for (Policy policy : policies) {
+                if (policy.retentionDays > 0 && !purge(policy)) {
+                    return;
+                }
+            }
+        } finally {
+            running.unlock();
+        }
+    }
+
+    /**
+     * Purges one entity chunk by chunk until a chunk comes back short.
+     *
+     * @return false if the thread was interrupted (shutdown) and the run should stop
+     */
+    private boolean purge(Policy policy) {
+        LocalDateTime startedAt = LocalDateTime.now();
+        long started = System.nanoTime();
+        LocalDateTime cutoff = startedAt.minusDays(policy.retentionDays);
+        long purged = 0;
+        boolean completed = true;
+        String error = null;
+        try {
+            if (policy.stamp != null) {
+                int stamped = policy.stamp.getAsInt();
+                if (stamped > 0) {
+                    logger.info("Started the retention period of {} {} deleted without a deletion time.",
+                            stamped, policy.entity);
+                }
+            }
+            while (true) {
+                int deleted = policy.step.purge(cutoff, chunkSize);
+                purged += deleted;
+                policy.purged.increment(deleted);
+                if (deleted < chunkSize) {
+                    break;
+                }
+                Thread.sleep(pauseMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            completed = false;
+        } catch (RuntimeException e) {
+            logger.error("Retention purge of {} failed after {} rows.", policy.entity, purged, e);
+            error = e.getMessage();
+        }
+        if (purged > 0) {
+            logger.info("Retention purge removed {} {} deleted before {}.", purged, policy.entity, cutoff);
+        }
+        policy.total.addAndGet(purged);
+        policy.lastRun = new PolicyStats(policy.entity, policy.retentionDays, null, startedAt,
+                (System.nanoTime() - started) / 1_000_000, purged, policy.total.get(), error);
+        return completed;
+    }
+
+    /**
+     * Returns the policy, trash size and last run of each entity.
+     */
+    public List<PolicyStats> getStats() {
+        return policies.stream().map(policy -> {
+            PolicyStats run = policy.lastRun;
+            Long inTrash = policy.trashCount == null ? null : policy.trashCount.getAsLong();
+            return run == null
+                    ? new PolicyStats(policy.entity, policy.retentionDays, inTrash, null, 0, 0, 0, null)
+                    : new PolicyStats(policy.entity, policy.retentionDays, inTrash, run.lastRunAt(),
+                            run.lastRunMillis(), run.lastRunPurged(), run.totalPurged(), run.lastError());
+        }).toList();
+    }
+
+    private static final class Policy {
+
+        final String entity;
+        final int retentionDays;
+        final PurgeStep step;
+        final IntSupplier stamp;
+        final LongSupplier trashCount;
+        final Counter purged;
+        final AtomicLong total = new AtomicLong();
+        volatile PolicyStats lastRun;
+
+        Policy(String entity, int retentionDays, MeterRegistry meterRegistry, PurgeStep step, IntSupplier stamp,
+               LongSupplier trashCount) {
+            this.entity = entity;
+            this.retentionDays = retentionDays;
+            this.step = step;
+            this.stamp = stamp;
+            this.trashCount = trashCount;
+            this.purged = Counter.builder("app.retention.purged")
+                    .description("Rows permanently deleted by the retention purge")
+                    .tag("entity", entity.replace(' ', '_'))
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.wefky.RESTfulWeb.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserCache;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.wefky.RESTfulWeb.event.UserChangedEvent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * In-memory cache of the UserDetails loaded by {@link MyUserDetailsService}, keyed by username.
+ *
+ * Bearer-token requests resolve their user here without any database work. Password logins
+ * (form login, HTTP Basic, the token endpoint) do not use it: on a wrong password a cached user
+ * is reloaded and checked with BCrypt again, which would double the cost of failed logins.
+ * A user is dropped when
+ * {@link UserService} changes it. Copies are stored and handed out, because Spring Security
+ * erases the password of the principal after authentication.
+ *
+ * Metrics: app.security.users.cache{result=hit|miss} and the app.security.users.cached gauge.
+ */
+@Component
+public class UserDetailsCache implements UserCache {
+
+    private final Map<String, UserDetails> users = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+
+    public UserDetailsCache(MeterRegistry meterRegistry) {
+        this.hits = Counter.builder("app.security.users.cache")
+                .description("User details lookups served from memory or loaded from the database")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("app.security.users.cache")
+                .description("User details lookups served from memory or loaded from the database")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("app.security.users.cached", users, Map::size)
+                .description("Users whose details are held in memory")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public UserDetails getUserFromCache(String username) {
+        UserDetails user = users.get(username);
+        if (user == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return copy(user);
+    }
+
+    @Override
+    public void putUserInCache(UserDetails user) {
+        if (user.getPassword() != null) {
+            users.put(user.getUsername(), copy(user));
+        }
+    }
+
+    @Override
+    public void removeUserFromCache(String username) {
+        users.remove(username);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        removeUserFromCache(event.username());
+    }
+
+    private static UserDetails copy(UserDetails user) {
+        return User.withUserDetails(user).build();
+    }
+}
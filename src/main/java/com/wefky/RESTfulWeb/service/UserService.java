@@ -2,11 +2,13 @@ package com.wefky.RESTfulWeb.service;
 
 import com.wefky.RESTfulWeb.entity.Role;
 import com.wefky.RESTfulWeb.entity.User;
+import com.wefky.RESTfulWeb.event.UserChangedEvent;
 import com.wefky.RESTfulWeb.repository.RoleRepository;
 import com.wefky.RESTfulWeb.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 
@@ -23,6 +25,7 @@ public class UserService {
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
     private final BCryptPasswordEncoder passwordEncoder;
+    private final ApplicationEventPublisher eventPublisher;
     private static final Logger logger = LoggerFactory.getLogger(UserService.class);
 
     /**
@@ -59,7 +62,21 @@ public class UserService {
                 .build();
 
         userRepository.save(newUser);
+        eventPublisher.publishEvent(new UserChangedEvent(username));
         logger.info("User '{}' registered successfully with roles: {}", username, roleNames);
         return true;
     }
+
+    /**
+     * Replaces the roles of a user. Cached authentication details of the user are dropped,
+     * so the new roles apply from the next request, also for bearer tokens already issued.
+     *
+     * @param user  the user to change
+     * @param roles the user's new roles
+     */
+    public void updateRoles(User user, Set<Role> roles) {
+        user.setRoles(roles);
+        userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(user.getUsername()));
+    }
 }
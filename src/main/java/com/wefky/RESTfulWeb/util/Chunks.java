@@ -0,0 +1,36 @@
+package com.wefky.RESTfulWeb.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Splits ID lists for set-based statements, so an IN list never exceeds the driver's bind
+ * parameter limit and each statement stays a bounded amount of work.
+ */
+public final class Chunks {
+
+    private Chunks() {
+    }
+
+    /**
+     * Splits the distinct non-null IDs into consecutive chunks of at most {@code size}, keeping their order.
+     */
+    public static List<List<Long>> of(Collection<Long> ids, int size) {
+        List<Long> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        distinct.removeIf(id -> id == null);
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < distinct.size(); from += size) {
+            chunks.add(distinct.subList(from, Math.min(from + size, distinct.size())));
+        }
+        return chunks;
+    }
+
+    /**
+     * Returns the number of distinct non-null IDs.
+     */
+    public static int count(List<List<Long>> chunks) {
+        return chunks.stream().mapToInt(List::size).sum();
+    }
+}
@@ -0,0 +1,193 @@
+package com.wefky.RESTfulWeb.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Minimal geohash encoder used to index locations by a sortable string prefix.
+ *
+ * A geohash of length n identifies a latitude/longitude cell; every cell shares its prefix with the
+ * cells it contains, so a B-tree range scan over a prefix returns all points inside that cell.
+ */
+public final class GeoHash {
+
+    /** Base32 alphabet used by geohashes, in ascending ASCII order. */
+    private static final String BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+
+    /** Default precision stored on locations (~3.7cm x 1.9cm cells). */
+    public static final int MAX_PRECISION = 12;
+
+    /** Upper bound on the number of cells returned by {@link #cover}. */
+    private static final int MAX_COVER_CELLS = 64;
+
+    private GeoHash() {
+    }
+
+    /**
+     * Encodes a coordinate into a geohash of the given precision.
+     *
+     * @param latitude  latitude in degrees (-90..90)
+     * @param longitude longitude in degrees (-180..180)
+     * @param precision number of characters (1..12)
+     * @return the geohash string
+     */
+    public static String encode(double latitude, double longitude, int precision) {
+        if (precision < 1 || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Geohash precision must be between 1 and " + MAX_PRECISION);
+        }
+        double latLo = -90, latHi = 90, lonLo = -180, lonHi = 180;
+        StringBuilder hash = new StringBuilder(precision);
+        boolean evenBit = true;
+        int bit = 0, ch = 0;
+        while (hash.length() < precision) {
+            if (evenBit) {
+                double mid = (lonLo + lonHi) / 2;
+                if (longitude >= mid) {
+                    ch = (ch << 1) | 1;
+                    lonLo = mid;
+                } else {
+                    ch <<= 1;
+                    lonHi = mid;
+                }
+            } else {
+                double mid = (latLo + latHi) / 2;
+                if (latitude >= mid) {
+                    ch = (ch << 1) | 1;
+                    latLo = mid;
+                } else {
+                    ch <<= 1;
+                    latHi = mid;
+                }
+            }
+            evenBit = !evenBit;
+            if (++bit == 5) {
+                hash.append(BASE32.charAt(ch));
+                bit = 0;
+                ch = 0;
+            }
+        }
+        return hash.toString();
+    }
+
+    /**
+     * Decodes a geohash into the bounds of its cell.
+     *
+     * @param hash the geohash
+     * @return {@code [latMin, lonMin, latMax, lonMax]}
+     */
+    public static double[] bounds(String hash) {
+        double latLo = -90, latHi = 90, lonLo = -180, lonHi = 180;
+        boolean evenBit = true;
+        for (int i = 0; i < hash.length(); i++) {
+            int idx = BASE32.indexOf(hash.charAt(i));
+            if (idx < 0) {
+                throw new IllegalArgumentException("Invalid geohash: " + hash);
+            }
+            for (int b = 4; b >= 0; b--) {
+                boolean set = ((idx >> b) & 1) == 1;
+                if (evenBit) {
+                    double mid = (lonLo + lonHi) / 2;
+                    if (set) lonLo = mid; else lonHi = mid;
+                } else {
+                    double mid = (latLo + latHi) / 2;
+                    if (set) latLo = mid; else latHi = mid;
+                }
+                evenBit = !evenBit;
+            }
+        }
+        return new double[] { latLo, lonLo, latHi, lonHi };
+    }
+
+    /**
+     * Returns the height and width in degrees of a cell of the given precision.
+     *
+     * @param precision geohash length
+     * @return {@code [latDegrees, lonDegrees]}
+     */
+    public static double[] cellSize(int precision) {
+        int bits = precision * 5;
+        int lonBits = (bits + 1) / 2;
+        int latBits = bits / 2;
+        return new double[] { 180.0 / (1L << latBits), 360.0 / (1L << lonBits) };
+    }
+
+    /**
+     * Returns the geohash cells of the given precision that intersect a bounding box.
+     * The precision is lowered automatically until the cover needs no more than 64 cells,
+     * so the result is always small enough to issue one range scan per cell.
+     *
+     * @return the covering geohash prefixes (possibly of lower precision than requested)
+     * @throws IllegalArgumentException if the box is inverted; a box crossing the antimeridian
+     *         must be covered as its eastern and western parts
+     */
+    public static List<String> cover(double latMin, double lonMin, double latMax, double lonMax, int precision) {
+        if (latMin > latMax || lonMin > lonMax) {
+            throw new IllegalArgumentException("Bounding box is inverted: [" + latMin + ", " + lonMin + ", "
+                    + latMax + ", " + lonMax + "]");
+        }
+        latMin = Math.max(-90, latMin);
+        latMax = Math.min(90, latMax);
+        lonMin = Math.max(-180, lonMin);
+        lonMax = Math.min(180, lonMax);
+        int p = Math.max(1, Math.min(precision, MAX_PRECISION));
+        while (p > 1) {
+            double[] size = cellSize(p);
+            long rows = (long) Math.ceil((latMax - latMin) / size[0]) + 1;
+            long cols = (long) Math.ceil((lonMax - lonMin) / size[1]) + 1;
+            if (rows * cols <= MAX_COVER_CELLS) {
+                break;
+            }
+            p--;
+        }
+        double[] size = cellSize(p);
+        Set<String> cells = new LinkedHashSet<>();
+        for (double lat = latMin; ; lat += size[0]) {
+            double rowLat = Math.min(lat, latMax);
+            for (double lon = lonMin; ; lon += size[1]) {
+                double colLon = Math.min(lon, lonMax);
+                cells.add(encode(rowLat, colLon, p));
+                if (colLon >= lonMax) break;
+            }
+            if (rowLat >= latMax) break;
+        }
+        return new ArrayList<>(cells);
+    }
+
+    /**
+     * Returns the smallest string that sorts after every geohash starting with {@code prefix},
+     * or {@code null} when the prefix is the last cell ("zzz...") and no upper bound exists.
+     * Used to turn a prefix match into an index-friendly {@code >= lo AND < hi} range.
+     */
+    public static String upperBound(String prefix) {
+        char[] chars = prefix.toCharArray();
+        for (int i = chars.length - 1; i >= 0; i--) {
+            int idx = BASE32.indexOf(chars[i]);
+            if (idx < BASE32.length() - 1) {
+                chars[i] = BASE32.charAt(idx + 1);
+                return new String(chars, 0, i + 1);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Picks a geohash precision whose cells are at least as large as the given radius,
+     * so a radius query needs to inspect only a handful of neighbouring cells.
+     *
+     * @param radiusMeters search radius in metres
+     * @return geohash precision between 1 and 12
+     */
+    public static int precisionForRadius(double radiusMeters) {
+        for (int p = MAX_PRECISION; p > 1; p--) {
+            double[] size = cellSize(p);
+            // Latitude degrees are ~111km everywhere; use the smaller cell side.
+            double cellMeters = Math.min(size[0], size[1]) * 111_320.0;
+            if (cellMeters >= radiusMeters) {
+                return p;
+            }
+        }
+        return 1;
+    }
+}
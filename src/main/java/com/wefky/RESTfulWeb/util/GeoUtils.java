@@ -0,0 +1,53 @@
+package com.wefky.RESTfulWeb.util;
+
+/**
+ * Spherical geometry helpers shared by the location search features.
+ */
+public final class GeoUtils {
+
+    /** Mean Earth radius in metres. */
+    public static final double EARTH_RADIUS_METERS = 6_371_008.8;
+
+    private GeoUtils() {
+    }
+
+    /**
+     * Great-circle distance between two coordinates using the haversine formula.
+     *
+     * @return distance in metres
+     */
+    public static double distanceMeters(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    /**
+     * Returns the bounding box enclosing a circle on the sphere.
+     * Boxes that would cross a pole or the antimeridian are widened to the full longitude range.
+     *
+     * @return {@code [latMin, lonMin, latMax, lonMax]}
+     */
+    public static double[] boundingBox(double lat, double lon, double radiusMeters) {
+        double angular = radiusMeters / EARTH_RADIUS_METERS;
+        double latMin = lat - Math.toDegrees(angular);
+        double latMax = lat + Math.toDegrees(angular);
+        if (latMin <= -90 || latMax >= 90) {
+            return new double[] { Math.max(latMin, -90), -180, Math.min(latMax, 90), 180 };
+        }
+        double ratio = Math.sin(angular) / Math.cos(Math.toRadians(lat));
+        if (angular >= Math.PI / 2 || ratio >= 1) {
+            return new double[] { latMin, -180, latMax, 180 };
+        }
+        double dLon = Math.toDegrees(Math.asin(ratio));
+        double lonMin = lon - dLon;
+        double lonMax = lon + dLon;
+        if (lonMin < -180 || lonMax > 180) {
+            return new double[] { latMin, -180, latMax, 180 };
+        }
+        return new double[] { latMin, lonMin, latMax, lonMax };
+    }
+}
@@ -10,165 +10,358 @@ document.addEventListener('DOMContentLoaded', function () {
         return { csrfToken, csrfHeader };
     }
 
+    // Autocomplete for inputs with a data-autocomplete-url (fills the input's datalist)
+    const autocompleteInputs = document.querySelectorAll('input[data-autocomplete-url]');
+    autocompleteInputs.forEach(function (input) {
+        const datalist = document.getElementById(input.getAttribute('list'));
+        const field = input.getAttribute('data-autocomplete-field');
+        let timer = null;
+        input.addEventListener('input', function () {
+            clearTimeout(timer);
+            const query = input.value.trim();
+            if (!query || !datalist) {
+                return;
+            }
+            timer = setTimeout(function () {
+                const url = input.getAttribute('data-autocomplete-url') + '?limit=10&q=' + encodeURIComponent(query);
+                fetch(url, { credentials: 'same-origin' })
+                    .then(response => response.ok ? response.json() : [])
+                    .then(suggestions => {
+                        const values = new Set(suggestions
+                            .filter(s => s.field === field)
+                            .map(s => field === 'POSTAL_CODE' ? s.postalCode : s.cityName));
+                        datalist.innerHTML = '';
+                        values.forEach(value => {
+                            const option = document.createElement('option');
+                            option.value = value;
+                            datalist.appendChild(option);
+                        });
+                    })
+                    .catch(() => { datalist.innerHTML = ''; });
+            }, 150);
+        });
+    });
+
     // SweetAlert for Delete Buttons
-    const deleteButtons = document.querySelectorAll('.delete-button');
-    deleteButtons.forEach(function (button) {
-        button.addEventListener('click', function (e) {
-            e.preventDefault();
-            const deleteUrl = button.getAttribute('data-delete-url');
-            const itemType = button.getAttribute('data-item-type');
-            const itemDetails = button.getAttribute('data-item-details');
+    // Delegated from the document, so rows the gallery appends while scrolling are covered too
+    document.addEventListener('click', function (e) {
+        const button = e.target.closest('.delete-button');
+        if (!button) {
+            return;
+        }
+        e.preventDefault();
+        const deleteUrl = button.getAttribute('data-delete-url');
+        const itemType = button.getAttribute('data-item-type');
+        const itemDetails = button.getAttribute('data-item-details');
 
-            Swal.fire({
-                title: `Are you sure you want to delete this ${itemType}?`,
-                text: `Item: ${itemDetails}`,
-                icon: 'warning',
-                showCancelButton: true,
-                confirmButtonText: 'Yes, delete it!',
-                cancelButtonText: 'Cancel'
-            }).then((result) => {
-                if (result.isConfirmed) {
-                    const { csrfToken, csrfHeader } = getCsrfToken();
-                    fetch(deleteUrl, {
-                        method: 'POST',
-                        headers: {
-                            ...(csrfHeader && csrfToken ? { [csrfHeader]: csrfToken } : {}),
-                            'Content-Type': 'application/x-www-form-urlencoded'
-                        },
-                        credentials: 'same-origin'
-                    })
-                    .then(response => {
-                        if (response.redirected) {
-                            window.location.href = response.url;
-                        } else if (response.ok) {
-                            Swal.fire(
-                                'Deleted!',
-                                `The ${itemType.toLowerCase()} has been deleted.`,
-                                'success'
-                            ).then(() => {
-                                window.location.href = '/web/images';
-                            });
-                        } else {
-                            return response.text().then(text => { throw new Error(text) });
-                        }
-                    })
-                    .catch(error => {
+        Swal.fire({
+            title: `Are you sure you want to delete this ${itemType}?`,
+            text: `Item: ${itemDetails}`,
+            icon: 'warning',
+            showCancelButton: true,
+            confirmButtonText: 'Yes, delete it!',
+            cancelButtonText: 'Cancel'
+        }).then((result) => {
+            if (result.isConfirmed) {
+                const { csrfToken, csrfHeader } = getCsrfToken();
+                fetch(deleteUrl, {
+                    method: 'POST',
+                    headers: {
+                        ...(csrfHeader && csrfToken ? { [csrfHeader]: csrfToken } : {}),
+                        'Content-Type': 'application/x-www-form-urlencoded'
+                    },
+                    credentials: 'same-origin'
+                })
+                .then(response => {
+                    if (response.redirected) {
+                        window.location.href = response.url;
+                    } else if (response.ok) {
                         Swal.fire(
-                            'Error!',
-                            `Failed to delete the ${itemType.toLowerCase()}: ${error.message}`,
-                            'error'
-                        );
-                    });
-                }
-            });
+                            'Deleted!',
+                            `The ${itemType.toLowerCase()} has been deleted.`,
+                            'success'
+                        ).then(() => {
+                            window.location.href = '/web/images';
+                        });
+                    } else {
+                        return response.text().then(text => { throw new Error(text) });
+                    }
+                })
+                .catch(error => {
+                    Swal.fire(
+                        'Error!',
+                        `Failed to delete the ${itemType.toLowerCase()}: ${error.message}`,
+                        'error'
+                    );
+                });
+            }
         });
     });
 
     // SweetAlert for Restore Buttons
-    const restoreButtons = document.querySelectorAll('.restore-button');
-    restoreButtons.forEach(function (button) {
-        button.addEventListener('click', function (e) {
-            e.preventDefault();
-            const restoreUrl = button.getAttribute('data-restore-url');
-            const itemType = button.getAttribute('data-item-type');
-            const itemDetails = button.getAttribute('data-item-details');
+    // Delegated from the document, so rows the gallery appends while scrolling are covered too
+    document.addEventListener('click', function (e) {
+        const button = e.target.closest('.restore-button');
+        if (!button) {
+            return;
+        }
+        e.preventDefault();
+        const restoreUrl = button.getAttribute('data-restore-url');
+        const itemType = button.getAttribute('data-item-type');
+        const itemDetails = button.getAttribute('data-item-details');
 
-            Swal.fire({
-                title: `Are you sure you want to restore this ${itemType}?`,
-                text: `Item: ${itemDetails}`,
-                icon: 'question',
-                showCancelButton: true,
-                confirmButtonText: 'Yes, restore it!',
-                cancelButtonText: 'Cancel'
-            }).then((result) => {
-                if (result.isConfirmed) {
-                    const { csrfToken, csrfHeader } = getCsrfToken();
-                    fetch(restoreUrl, {
-                        method: 'POST',
-                        headers: {
-                            ...(csrfHeader && csrfToken ? { [csrfHeader]: csrfToken } : {}),
-                            'Content-Type': 'application/x-www-form-urlencoded'
-                        },
-                        credentials: 'same-origin'
-                    })
-                    .then(response => {
-                        if (response.redirected) {
-                            window.location.href = response.url;
-                        } else if (response.ok) {
-                            Swal.fire(
-                                'Restored!',
-                                `The ${itemType.toLowerCase()} has been restored.`,
-                                'success'
-                            ).then(() => {
-                                window.location.reload();
-                            });
-                        } else {
-                            return response.text().then(text => { throw new Error(text) });
-                        }
-                    })
-                    .catch(error => {
+        Swal.fire({
+            title: `Are you sure you want to restore this ${itemType}?`,
+            text: `Item: ${itemDetails}`,
+            icon: 'question',
+            showCancelButton: true,
+            confirmButtonText: 'Yes, restore it!',
+            cancelButtonText: 'Cancel'
+        }).then((result) => {
+            if (result.isConfirmed) {
+                const { csrfToken, csrfHeader } = getCsrfToken();
+                fetch(restoreUrl, {
+                    method: 'POST',
+                    headers: {
+                        ...(csrfHeader && csrfToken ? { [csrfHeader]: csrfToken } : {}),
+                        'Content-Type': 'application/x-www-form-urlencoded'
+                    },
+                    credentials: 'same-origin'
+                })
+                .then(response => {
+                    if (response.redirected) {
+                        window.location.href = response.url;
+                    } else if (response.ok) {
                         Swal.fire(
-                            'Error!',
-                            `Failed to restore the ${itemType.toLowerCase()}: ${error.message}`,
-                            'error'
-                        );
-                    });
-                }
-            });
+                            'Restored!',
+                            `The ${itemType.toLowerCase()} has been restored.`,
+                            'success'
+                        ).then(() => {
+                            window.location.reload();
+                        });
+                    } else {
+                        return response.text().then(text => { throw new Error(text) });
+                    }
+                })
+                .catch(error => {
+                    Swal.fire(
+                        'Error!',
+                        `Failed to restore the ${itemType.toLowerCase()}: ${error.message}`,
+                        'error'
+                    );
+                });
+            }
         });
     });
 
     // SweetAlert for Permanently Delete Buttons (ADMIN ONLY)
-    const deletePermanentButtons = document.querySelectorAll('.delete-permanent-button');
-    deletePermanentButtons.forEach(function (button) {
-        button.addEventListener('click', function (e) {
-            e.preventDefault();
-            const deleteUrl = button.getAttribute('data-delete-url');
-            const itemType = button.getAttribute('data-item-type');
-            const itemDetails = button.getAttribute('data-item-details');
+    // Delegated from the document, so rows the gallery appends while scrolling are covered too
+    document.addEventListener('click', function (e) {
+        const button = e.target.closest('.delete-permanent-button');
+        if (!button) {
+            return;
+        }
+        e.preventDefault();
+        const deleteUrl = button.getAttribute('data-delete-url');
+        const itemType = button.getAttribute('data-item-type');
+        const itemDetails = button.getAttribute('data-item-details');
 
-            Swal.fire({
-                title: `Are you sure you want to permanently delete this ${itemType}?`,
-                text: `Item: ${itemDetails}`,
-                icon: 'warning',
-                showCancelButton: true,
-                confirmButtonText: 'Yes, permanently delete it!',
-                cancelButtonText: 'Cancel'
-            }).then((result) => {
-                if (result.isConfirmed) {
-                    const { csrfToken, csrfHeader } = getCsrfToken();
-                    fetch(deleteUrl, {
-                        method: 'POST',
-                        headers: {
-                            ...(csrfHeader && csrfToken ? { [csrfHeader]: csrfToken } : {}),
-                            'Content-Type': 'application/x-www-form-urlencoded'
-                        },
-                        credentials: 'same-origin'
-                    })
-                    .then(response => {
-                        if (response.redirected) {
-                            window.location.href = response.url;
-                        } else if (response.ok) {
-                            Swal.fire(
-                                'Permanently Deleted!',
-                                `The ${itemType.toLowerCase()} has been permanently deleted.`,
-                                'success'
-                            ).then(() => {
-                                window.location.reload();
-                            });
-                        } else {
-                            return response.text().then(text => { throw new Error(text) });
-                        }
-                    })
-                    .catch(error => {
+        Swal.fire({
+            title: `Are you sure you want to permanently delete this ${itemType}?`,
+            text: `Item: ${itemDetails}`,
+            icon: 'warning',
+            showCancelButton: true,
+            confirmButtonText: 'Yes, permanently delete it!',
+            cancelButtonText: 'Cancel'
+        }).then((result) => {
+            if (result.isConfirmed) {
+                const { csrfToken, csrfHeader } = getCsrfToken();
+                fetch(deleteUrl, {
+                    method: 'POST',
+                    headers: {
+                        ...(csrfHeader && csrfToken ? { [csrfHeader]: csrfToken } : {}),
+                        'Content-Type': 'application/x-www-form-urlencoded'
+                    },
+                    credentials: 'same-origin'
+                })
+                .then(response => {
+                    if (response.redirected) {
+                        window.location.href = response.url;
+                    } else if (response.ok) {
                         Swal.fire(
-                            'Error!',
-                            `Failed to permanently delete the ${itemType.toLowerCase()}: ${error.message}`,
-                            'error'
-                        );
-                    });
-                }
-            });
+                            'Permanently Deleted!',
+                            `The ${itemType.toLowerCase()} has been permanently deleted.`,
+                            'success'
+                        ).then(() => {
+                            window.location.reload();
+                        });
+                    } else {
+                        return response.text().then(text => { throw new Error(text) });
+                    }
+                })
+                .catch(error => {
+                    Swal.fire(
+                        'Error!',
+                        `Failed to permanently delete the ${itemType.toLowerCase()}: ${error.message}`,
+                        'error'
+                    );
+                });
+            }
         });
     });
+
+    // File previews for the gallery pages: a thumbnail (or icon) in the table, the file itself in the preview modal
+    function filePreview(contentType, fileUrl, inModal) {
+        const fragment = document.createDocumentFragment();
+        if (!contentType) {
+            return fragment;
+        }
+        if (contentType.startsWith('image/')) {
+            const img = document.createElement('img');
+            img.src = fileUrl;
+            img.loading = 'lazy';
+            img.decoding = 'async';
+            img.className = inModal ? 'img-fluid' : 'img-thumbnail img-thumb';
+            img.alt = inModal ? 'Image Preview' : 'Thumbnail';
+            fragment.appendChild(img);
+        } else if (contentType === 'application/pdf') {
+            if (!inModal) {
+                fragment.appendChild(icon('fas fa-file-pdf fa-2x'));
+                return fragment;
+            }
+            const frame = document.createElement('iframe');
+            frame.src = fileUrl;
+            frame.style.width = '100%';
+            frame.style.height = '500px';
+            frame.style.border = '0';
+            fragment.appendChild(frame);
+            const hint = document.createElement('p');
+            hint.append('If the PDF does not display, ', link(fileUrl, 'click here to open it in a new tab'), '.');
+            fragment.appendChild(hint);
+        } else if (contentType === 'application/msword'
+                || contentType === 'application/vnd.openxmlformats-officedocument.wordprocessingml.document') {
+            if (!inModal) {
+                fragment.appendChild(icon('fas fa-file-word fa-2x'));
+                return fragment;
+            }
+            const paragraph = document.createElement('p');
+            paragraph.append(icon('fas fa-file-word fa-2x'), ' ', link(fileUrl, 'View Document'));
+            fragment.appendChild(paragraph);
+        }
+        return fragment;
+    }
+
+    function icon(className) {
+        const element = document.createElement('i');
+        element.className = className;
+        return element;
+    }
+
+    function link(href, text) {
+        const anchor = document.createElement('a');
+        anchor.href = href;
+        anchor.target = '_blank';
+        anchor.textContent = text;
+        return anchor;
+    }
+
+    // One preview modal per page, filled from the data attributes of the View button that opened it;
+    // emptied on close so an open PDF viewer does not keep running.
+    const previewModal = document.getElementById('previewModal');
+    if (previewModal) {
+        const previewTitle = previewModal.querySelector('.modal-title');
+        const previewBody = previewModal.querySelector('[data-preview-body]');
+        const previewDescription = previewModal.querySelector('[data-preview-description]');
+        previewModal.addEventListener('show.bs.modal', function (event) {
+            const button = event.relatedTarget;
+            previewTitle.textContent = 'Preview: ' + (button.dataset.title || 'File');
+            previewBody.replaceChildren(filePreview(button.dataset.contentType, button.dataset.fileUrl, true));
+            previewDescription.textContent = button.dataset.description || '';
+        });
+        previewModal.addEventListener('hidden.bs.modal', function () {
+            previewBody.replaceChildren();
+        });
+    }
+
+    // Infinite scroll for the gallery pages: the page renders its first rows, and the next ones are fetched
+    // from the JSON page endpoint (data-next-url, metadata only) when the end of the table comes into view.
+    // The rows are built from the page's row template; the pagination links remain as a fallback.
+    const galleryRows = document.getElementById('gallery-rows');
+    const rowTemplate = document.getElementById('gallery-row');
+    const gallerySentinel = document.getElementById('gallery-sentinel');
+    if (galleryRows && rowTemplate && gallerySentinel && galleryRows.dataset.nextUrl
+            && 'IntersectionObserver' in window) {
+        const pageLinks = document.querySelectorAll('nav[aria-label="Pages"] .pagination');
+        pageLinks.forEach(links => links.classList.add('d-none'));
+        let nextUrl = galleryRows.dataset.nextUrl;
+        let loading = false;
+
+        const galleryRow = function (image) {
+            const row = rowTemplate.content.firstElementChild.cloneNode(true);
+            const fileUrl = rowTemplate.dataset.fileUrl.replace(':id', image.imageId);
+            const text = {
+                imageId: image.imageId,
+                owner: image.owner != null ? image.owner : 'N/A',
+                title: image.title != null ? image.title : 'No Title',
+                contentType: image.contentType,
+                uploadDate: image.uploadDate ? image.uploadDate.replace('T', ' ').substring(0, 16) : 'N/A'
+            };
+            Object.entries(text).forEach(([field, value]) => {
+                row.querySelector(`[data-field="${field}"]`).textContent = value;
+            });
+            row.querySelector('[data-field="preview"]').appendChild(filePreview(image.contentType, fileUrl, false));
+            row.querySelectorAll('[href], [data-delete-url], [data-restore-url]').forEach(element => {
+                ['href', 'data-delete-url', 'data-restore-url'].forEach(attribute => {
+                    if (element.hasAttribute(attribute)) {
+                        element.setAttribute(attribute, element.getAttribute(attribute).replace(':id', image.imageId));
+                    }
+                });
+            });
+            row.querySelectorAll('[data-item-details]').forEach(element => {
+                element.setAttribute('data-item-details', image.title != null ? image.title : 'File');
+            });
+            const viewButton = row.querySelector('[data-bs-target="#previewModal"]');
+            viewButton.dataset.fileUrl = fileUrl;
+            viewButton.dataset.contentType = image.contentType || '';
+            viewButton.dataset.title = image.title || '';
+            viewButton.dataset.description = image.description || '';
+            return row;
+        };
+
+        const observer = new IntersectionObserver(function (entries) {
+            if (!entries.some(entry => entry.isIntersecting) || loading || !nextUrl) {
+                return;
+            }
+            loading = true;
+            fetch(nextUrl, { credentials: 'same-origin', headers: { 'Accept': 'application/json' } })
+                .then(response => {
+                    if (!response.ok) {
+                        throw new Error(`HTTP ${response.status}`);
+                    }
+                    return response.json();
+                })
+                .then(page => {
+                    page.content.forEach(image => galleryRows.appendChild(galleryRow(image)));
+                    if (page.next) {
+                        const url = new URL(nextUrl, window.location.href);
+                        url.searchParams.set('after', page.next);
+                        nextUrl = url.toString();
+                        // Observe again: fires at once if the sentinel is still in view after a short page.
+                        observer.unobserve(gallerySentinel);
+                        observer.observe(gallerySentinel);
+                    } else {
+                        nextUrl = null;
+                        observer.disconnect();
+                    }
+                })
+                .catch(() => {
+                    // Leave the rest to the pagination links.
+                    nextUrl = null;
+                    observer.disconnect();
+                    pageLinks.forEach(links => links.classList.remove('d-none'));
+                })
+                .finally(() => { loading = false; });
+        }, { rootMargin: '600px 0px' });
+        observer.observe(gallerySentinel);
+    }
 });
@@ -1,13 +1,23 @@
 package com.wefky.RESTfulWeb;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
 
 @SpringBootTest
+@ExtendWith(OutputCaptureExtension.class)
 class ResTfulWebApplicationTests {
 
 	@Test
-	void contextLoads() {
+	void contextLoads(CapturedOutput output) {
+		// The password login goes through the AuthenticationManager bean; Spring Security does not
+		// warn about a UserDetailsService it would ignore.
+		assertThat(output.getAll()).doesNotContain("InitializeUserDetailsBeanManagerConfigurer")
+				.doesNotContain("UserDetailsService beans will not be used");
 	}
 
 }
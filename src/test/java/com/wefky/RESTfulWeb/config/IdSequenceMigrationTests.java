@@ -0,0 +1,140 @@
+package com.wefky.RESTfulWeb.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.wefky.RESTfulWeb.entity.Image;
+import com.wefky.RESTfulWeb.entity.Location;
+import com.wefky.RESTfulWeb.entity.Measurement;
+import com.wefky.RESTfulWeb.repository.ImageRepository;
+import com.wefky.RESTfulWeb.repository.LocationRepository;
+import com.wefky.RESTfulWeb.repository.MeasurementRepository;
+import com.wefky.RESTfulWeb.repository.PostgresRepositoryTests;
+
+/**
+ * Rows written with IDs the sequences have not handed out yet, as by the IDENTITY columns of an older
+ * schema: after the migration the next generated IDs must not collide with them.
+ */
+@Import(IdSequenceMigration.class)
+class IdSequenceMigrationTests extends PostgresRepositoryTests {
+
+    /** More than two allocation blocks, so the next blocks of an unmoved sequence are all taken. */
+    private static final int SEEDED = 120;
+
+    @Autowired
+    private IdSequenceMigration idSequenceMigration;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private LocationRepository locationRepository;
+
+    @Autowired
+    private MeasurementRepository measurementRepository;
+
+    @Autowired
+    private ImageRepository imageRepository;
+
+    @Test
+    void generatedIdsDoNotCollideWithRowsAboveTheSequence() {
+        Set<Long> locations = seed("locations_seq", """
+                INSERT INTO locations (location_id, postal_code, city_name, latitude, longitude, deleted)
+                SELECT g, '1010', 'Seeded', 48.2, 16.4, false FROM generate_series(?, ?) g
+                """);
+        Set<Long> measurements = seed("measurements_seq", """
+                INSERT INTO measurements (measurement_id, measurement_unit, amount, timestamp, deleted)
+                SELECT g, '°C', 1, TIMESTAMP '2025-01-01 00:00', false FROM generate_series(?, ?) g
+                """);
+        Set<Long> images = seed("images_seq", """
+                INSERT INTO images (image_id, owner, content_type, data, upload_date, deleted)
+                SELECT g, 'owner', 'image/png', lo_from_bytea(0, '\\x01'), TIMESTAMP '2025-01-01 00:00', false
+                FROM generate_series(?, ?) g
+                """);
+
+        idSequenceMigration.migrate();
+
+        List<Long> locationIds = locationRepository.saveAllAndFlush(IntStream.range(0, SEEDED).mapToObj(i -> {
+            Location location = new Location();
+            location.setPostalCode("1010");
+            location.setCityName("Generated");
+            location.setLatitude(48.2f);
+            location.setLongitude(16.4f);
+            return location;
+        }).toList()).stream().map(Location::getLocationId).toList();
+        List<Long> measurementIds = measurementRepository.saveAllAndFlush(IntStream.range(0, SEEDED).mapToObj(i -> {
+            Measurement measurement = new Measurement();
+            measurement.setMeasurementUnit("°C");
+            measurement.setAmount(1.0);
+            measurement.setTimestamp(LocalDateTime.of(2025, 1, 1, 0, 0));
+            return measurement;
+        }).toList()).stream().map(Measurement::getMeasurementId).toList();
+        List<Long> imageIds = imageRepository.saveAllAndFlush(IntStream.range(0, SEEDED).mapToObj(i -> Image.builder()
+                .owner("owner")
+                .contentType("image/png")
+                .data(new byte[] { 1 })
+                .uploadDate(LocalDateTime.of(2025, 1, 1, 0, 0))
+                .build()).toList()).stream().map(Image::getImageId).toList();
+
+        assertThat(locationIds).doesNotHaveDuplicates().doesNotContainAnyElementsOf(locations);
+        assertThat(measurementIds).doesNotHaveDuplicates().doesNotContainAnyElementsOf(measurements);
+        assertThat(imageIds).doesNotHaveDuplicates().doesNotContainAnyElementsOf(images);
+        assertThat(locationRepository.count()).isGreaterThanOrEqualTo(2L * SEEDED);
+    }
+
+    @Test
+    void identityColumnIsDroppedAndTheSequenceMovedPastItsRows() {
+        jdbcTemplate.execute("ALTER TABLE locations ALTER COLUMN location_id ADD GENERATED BY DEFAULT AS IDENTITY");
+        Set<Long> seeded = seed("locations_seq", """
+                INSERT INTO locations (location_id, postal_code, city_name, latitude, longitude, deleted)
+                SELECT g, '1010', 'Seeded', 48.2, 16.4, false FROM generate_series(?, ?) g
+                """);
+
+        idSequenceMigration.migrate();
+        // A table already migrated is left alone.
+        idSequenceMigration.migrate();
+
+        assertThat(jdbcTemplate.queryForObject("""
+                SELECT is_identity FROM information_schema.columns
+                WHERE table_schema = current_schema() AND table_name = 'locations' AND column_name = 'location_id'
+                """, String.class)).isEqualTo("NO");
+        assertThat(jdbcTemplate.queryForObject("SELECT last_value FROM locations_seq", Long.class))
+                .isGreaterThanOrEqualTo(seeded.stream().mapToLong(Long::longValue).max().orElseThrow());
+        Location location = new Location();
+        location.setPostalCode("1010");
+        location.setCityName("Generated");
+        location.setLatitude(48.2f);
+        location.setLongitude(16.4f);
+        assertThat(seeded).doesNotContain(locationRepository.saveAndFlush(location).getLocationId());
+    }
+
+    /**
+     * Inserts rows with the IDs the sequence has not handed out yet, so that without the migration
+     * the next blocks it hands out are taken.
+     *
+     * @return the seeded IDs
+     */
+    private Set<Long> seed(String sequence, String insert) {
+        Map<String, Object> state = jdbcTemplate.queryForMap("SELECT last_value, is_called FROM " + sequence);
+        long lastValue = ((Number) state.get("last_value")).longValue();
+        long from = Boolean.TRUE.equals(state.get("is_called")) ? lastValue + 1 : lastValue;
+        long to = from + SEEDED - 1;
+        jdbcTemplate.update(insert, from, to);
+        Set<Long> ids = new HashSet<>();
+        for (long id = from; id <= to; id++) {
+            ids.add(id);
+        }
+        return ids;
+    }
+}
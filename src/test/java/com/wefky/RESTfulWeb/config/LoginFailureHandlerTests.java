@@ -0,0 +1,43 @@
+package com.wefky.RESTfulWeb.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.web.authentication.AuthenticationFailureHandler;
+
+import com.wefky.RESTfulWeb.exception.LoginThrottledException;
+import com.wefky.RESTfulWeb.exception.PasswordHashingBusyException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class LoginFailureHandlerTests {
+
+    private final AuthenticationFailureHandler handler =
+            new SecurityConfig(null, new SimpleMeterRegistry()).loginFailureHandler();
+
+    @Test
+    void throttledLoginGetsItsOwnMessage() throws Exception {
+        assertThat(redirectFor(new LoginThrottledException("Too many failed logins", 60)))
+                .isEqualTo("/login?throttled");
+    }
+
+    @Test
+    void busyHashingPoolGetsItsOwnMessage() throws Exception {
+        assertThat(redirectFor(new PasswordHashingBusyException("Busy"))).isEqualTo("/login?busy");
+    }
+
+    @Test
+    void otherFailuresAreWrongCredentials() throws Exception {
+        assertThat(redirectFor(new BadCredentialsException("Bad credentials"))).isEqualTo("/login?error");
+    }
+
+    private String redirectFor(AuthenticationException exception) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        handler.onAuthenticationFailure(new MockHttpServletRequest("POST", "/login"), response, exception);
+        return response.getRedirectedUrl();
+    }
+}
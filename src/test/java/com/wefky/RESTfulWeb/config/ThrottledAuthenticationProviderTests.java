@@ -0,0 +1,116 @@
+package com.wefky.RESTfulWeb.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
+
+import com.wefky.RESTfulWeb.exception.LoginThrottledException;
+import com.wefky.RESTfulWeb.exception.PasswordHashingBusyException;
+import com.wefky.RESTfulWeb.service.LoginThrottle;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ThrottledAuthenticationProviderTests {
+
+    /** Answers each attempt with the next queued outcome: an exception to throw, or success. */
+    private static final class StubProvider implements AuthenticationProvider {
+
+        private final Deque<AuthenticationException> outcomes = new ArrayDeque<>();
+        private int calls;
+
+        @Override
+        public Authentication authenticate(Authentication authentication) {
+            calls++;
+            AuthenticationException outcome = outcomes.poll();
+            if (outcome != null) {
+                throw outcome;
+            }
+            return UsernamePasswordAuthenticationToken.authenticated(authentication.getName(), null, List.of());
+        }
+
+        @Override
+        public boolean supports(Class<?> authentication) {
+            return true;
+        }
+    }
+
+    private final StubProvider delegate = new StubProvider();
+    private final LoginThrottle throttle = new LoginThrottle(Duration.ofMinutes(5), 3, 5, new SimpleMeterRegistry());
+    private final ThrottledAuthenticationProvider provider = new ThrottledAuthenticationProvider(delegate, throttle);
+
+    @Test
+    void wrongPasswordsThrottleTheUsernameBeforeTheDelegate() {
+        for (int i = 0; i < 3; i++) {
+            delegate.outcomes.add(new BadCredentialsException("Bad credentials"));
+            assertThatThrownBy(() -> provider.authenticate(login("alice", "10.0.0.1")))
+                    .isInstanceOf(BadCredentialsException.class);
+        }
+
+        assertThatThrownBy(() -> provider.authenticate(login("alice", "10.0.0.2")))
+                .isInstanceOf(LoginThrottledException.class);
+        assertThat(delegate.calls).isEqualTo(3);
+    }
+
+    @Test
+    void wrongPasswordsThrottleTheAddress() {
+        for (int i = 0; i < 5; i++) {
+            delegate.outcomes.add(new BadCredentialsException("Bad credentials"));
+            String username = "user" + i;
+            assertThatThrownBy(() -> provider.authenticate(login(username, "10.0.0.1")))
+                    .isInstanceOf(BadCredentialsException.class);
+        }
+
+        assertThatThrownBy(() -> provider.authenticate(login("alice", "10.0.0.1")))
+                .isInstanceOf(LoginThrottledException.class);
+        assertThat(provider.authenticate(login("alice", "10.0.0.2")).isAuthenticated()).isTrue();
+    }
+
+    @Test
+    void successClearsTheUsernamesFailures() {
+        for (int i = 0; i < 2; i++) {
+            delegate.outcomes.add(new BadCredentialsException("Bad credentials"));
+            assertThatThrownBy(() -> provider.authenticate(login("alice", null)))
+                    .isInstanceOf(BadCredentialsException.class);
+        }
+        assertThat(provider.authenticate(login("alice", null)).isAuthenticated()).isTrue();
+
+        for (int i = 0; i < 2; i++) {
+            delegate.outcomes.add(new BadCredentialsException("Bad credentials"));
+            assertThatThrownBy(() -> provider.authenticate(login("alice", null)))
+                    .isInstanceOf(BadCredentialsException.class);
+        }
+        assertThat(provider.authenticate(login("alice", null)).isAuthenticated()).isTrue();
+    }
+
+    @Test
+    void busyHashingPoolIsNotAFailure() {
+        for (int i = 0; i < 5; i++) {
+            delegate.outcomes.add(new PasswordHashingBusyException("Busy"));
+            assertThatThrownBy(() -> provider.authenticate(login("alice", "10.0.0.1")))
+                    .isInstanceOf(PasswordHashingBusyException.class);
+        }
+
+        assertThat(provider.authenticate(login("alice", "10.0.0.1")).isAuthenticated()).isTrue();
+    }
+
+    private static Authentication login(String username, String remoteAddress) {
+        UsernamePasswordAuthenticationToken token =
+                UsernamePasswordAuthenticationToken.unauthenticated(username, "password");
+        if (remoteAddress != null) {
+            token.setDetails(new WebAuthenticationDetails(remoteAddress, null));
+        }
+        return token;
+    }
+}
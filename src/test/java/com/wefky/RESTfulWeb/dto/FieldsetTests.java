@@ -0,0 +1,76 @@
+package com.wefky.RESTfulWeb.dto;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class FieldsetTests {
+
+    private static final List<String> PROPERTIES = List.of("measurementId", "amount", "timestamp");
+    private static final Map<String, List<String>> EMBEDDABLE =
+            Map.of("location", List.of("locationId", "cityName", "geohash"));
+
+    @Test
+    void withoutParametersTheFullRepresentationIsWanted() {
+        assertThat(Fieldset.of(null, null, PROPERTIES, EMBEDDABLE)).isNull();
+    }
+
+    @Test
+    void selectsTheRequestedPropertiesInRequestOrder() {
+        Fieldset fieldset = Fieldset.of(" timestamp , amount,timestamp", null, PROPERTIES, EMBEDDABLE);
+
+        assertThat(fieldset.fields()).containsExactly("timestamp", "amount");
+        assertThat(fieldset.embedded()).isEmpty();
+    }
+
+    @Test
+    void unknownFieldIsRejected() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> Fieldset.of("amount,colour", null, PROPERTIES, EMBEDDABLE))
+                .withMessage("Unknown field colour");
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> Fieldset.of("location.colour", null, PROPERTIES, EMBEDDABLE))
+                .withMessage("Unknown field location.colour");
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> Fieldset.of("sensor.name", null, PROPERTIES, EMBEDDABLE))
+                .withMessage("Unknown field sensor.name");
+    }
+
+    @Test
+    void unknownEmbedIsRejected() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> Fieldset.of(null, "sensor", PROPERTIES, EMBEDDABLE))
+                .withMessage("Cannot embed sensor");
+    }
+
+    @Test
+    void embeddedResourceAloneSelectsAllOfBoth() {
+        Fieldset fieldset = Fieldset.of("location", null, PROPERTIES, EMBEDDABLE);
+
+        assertThat(fieldset.fields()).isEqualTo(PROPERTIES);
+        assertThat(fieldset.embedded()).containsExactly(Map.entry("location", EMBEDDABLE.get("location")));
+    }
+
+    @Test
+    void prefixedFieldsSelectPartOfTheEmbeddedResource() {
+        Fieldset fieldset = Fieldset.of("amount,location.geohash,location.cityName", "location",
+                PROPERTIES, EMBEDDABLE);
+
+        assertThat(fieldset.fields()).containsExactly("amount");
+        assertThat(fieldset.embedded()).containsExactly(Map.entry("location", List.of("geohash", "cityName")));
+    }
+
+    @Test
+    void blankFieldsSelectsAllProperties() {
+        for (String fields : List.of("", " ", ",,")) {
+            Fieldset fieldset = Fieldset.of(fields, null, PROPERTIES, EMBEDDABLE);
+
+            assertThat(fieldset.fields()).as("fields=%s", fields).isEqualTo(PROPERTIES);
+            assertThat(fieldset.embedded()).isEmpty();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.wefky.RESTfulWeb.dto;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class MultiGetResultTests {
+
+    @Test
+    void keepsTheRequestOrder() {
+        MultiGetResult<String> result = MultiGetResult.of(List.of(3L, 1L, 2L), Map.of(1L, "a", 2L, "b", 3L, "c"));
+
+        assertThat(result.content()).containsExactly("c", "a", "b");
+        assertThat(result.missing()).isEmpty();
+    }
+
+    @Test
+    void answersARepeatedIdOnce() {
+        MultiGetResult<String> result = MultiGetResult.of(List.of(2L, 1L, 2L, 4L, 4L), Map.of(1L, "a", 2L, "b"));
+
+        assertThat(result.content()).containsExactly("b", "a");
+        assertThat(result.missing()).containsExactly(4L);
+    }
+
+    @Test
+    void listsMissingIdsInRequestOrder() {
+        MultiGetResult<String> result = MultiGetResult.of(List.of(5L, 1L, 7L, 6L), Map.of(1L, "a"));
+
+        assertThat(result.content()).containsExactly("a");
+        assertThat(result.missing()).containsExactly(5L, 7L, 6L);
+    }
+
+    @Test
+    void nothingFound() {
+        MultiGetResult<String> result = MultiGetResult.of(List.of(1L, 2L), Map.of());
+
+        assertThat(result.content()).isEmpty();
+        assertThat(result.missing()).containsExactly(1L, 2L);
+    }
+}
@@ -0,0 +1,94 @@
+package com.wefky.RESTfulWeb.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import com.wefky.RESTfulWeb.dto.Fieldset;
+import com.wefky.RESTfulWeb.entity.Location;
+import com.wefky.RESTfulWeb.entity.Measurement;
+
+class FieldsetQueryTests extends PostgresRepositoryTests {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private LocationRepository locationRepository;
+
+    @Autowired
+    private MeasurementRepository measurementRepository;
+
+    @Test
+    void embeddedResourceWithOnlyNullColumnsIsPresent() {
+        Location location = locationRepository.save(berlin());
+        Measurement located = measurementRepository.save(measurement(location));
+        Measurement unlocated = measurementRepository.save(measurement(null));
+        measurementRepository.flush();
+        // A location without a geohash, like the rows from before geohashes were stored.
+        entityManager.getEntityManager()
+                .createNativeQuery("UPDATE locations SET geohash = NULL WHERE location_id = :id")
+                .setParameter("id", location.getLocationId())
+                .executeUpdate();
+
+        List<Map<String, Object>> rows = measurementRepository.findFields(false, null, null, null, null,
+                Fieldset.of("measurementId,location.geohash", null, MeasurementRepositoryCustom.FIELDS,
+                        MeasurementRepositoryCustom.EMBEDDABLE));
+
+        assertThat(rows).hasSize(2);
+        Map<String, Object> withLocation = rows.get(0);
+        assertThat(withLocation.get("measurementId")).isEqualTo(located.getMeasurementId());
+        assertThat(location(withLocation)).containsExactly(entry("geohash", null));
+        Map<String, Object> withoutLocation = rows.get(1);
+        assertThat(withoutLocation.get("measurementId")).isEqualTo(unlocated.getMeasurementId());
+        assertThat(withoutLocation).containsEntry("location", null);
+    }
+
+    @Test
+    void embeddedIdIsShownOnlyWhenRequested() {
+        Location location = locationRepository.save(berlin());
+        measurementRepository.saveAndFlush(measurement(location));
+
+        Map<String, Object> withoutId = measurementRepository.findFields(false, null, null, null, null,
+                Fieldset.of("amount,location.cityName", null, MeasurementRepositoryCustom.FIELDS,
+                        MeasurementRepositoryCustom.EMBEDDABLE)).get(0);
+        Map<String, Object> withId = measurementRepository.findFields(false, null, null, null, null,
+                Fieldset.of("amount,location.cityName,location.locationId", null, MeasurementRepositoryCustom.FIELDS,
+                        MeasurementRepositoryCustom.EMBEDDABLE)).get(0);
+
+        assertThat(location(withoutId)).containsOnlyKeys("cityName");
+        assertThat(location(withId))
+                .containsExactly(entry("cityName", "Berlin"), entry("locationId", location.getLocationId()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> location(Map<String, Object> row) {
+        assertThat(row.get("location")).isInstanceOf(Map.class);
+        return (Map<String, Object>) row.get("location");
+    }
+
+    private static Location berlin() {
+        Location location = new Location();
+        location.setPostalCode("10115");
+        location.setCityName("Berlin");
+        location.setLatitude(52.53f);
+        location.setLongitude(13.38f);
+        return location;
+    }
+
+    private static Measurement measurement(Location location) {
+        Measurement measurement = new Measurement();
+        measurement.setMeasurementUnit("Celsius");
+        measurement.setAmount(21.5);
+        measurement.setTimestamp(LocalDateTime.of(2024, 1, 1, 12, 0));
+        measurement.setLocation(location);
+        return measurement;
+    }
+}
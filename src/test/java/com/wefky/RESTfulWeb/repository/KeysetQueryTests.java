@@ -0,0 +1,201 @@
+package com.wefky.RESTfulWeb.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.wefky.RESTfulWeb.dto.ImageView;
+import com.wefky.RESTfulWeb.dto.KeysetPage;
+import com.wefky.RESTfulWeb.dto.KeysetRequest;
+import com.wefky.RESTfulWeb.entity.Image;
+
+/**
+ * Keyset pagination through the image listing, whose title is a nullable sort column and whose
+ * owner repeats, so pages cross the null boundary and break ties by ID.
+ */
+class KeysetQueryTests extends PostgresRepositoryTests {
+
+    @Autowired
+    private ImageRepository imageRepository;
+
+    @Test
+    void pagesAcrossTheNullBoundaryAscending() {
+        List<Image> images = saveTitled("Charlie", null, "Alpha", null, "Bravo", null, "Delta");
+
+        List<List<Long>> pages = walk("title", false, 2);
+
+        assertThat(flatten(pages)).containsExactlyElementsOf(ids(images, Comparator.comparing(Image::getTitle,
+                Comparator.nullsLast(Comparator.<String>naturalOrder())).thenComparing(Image::getImageId)));
+        assertThat(pages).hasSize(4);
+    }
+
+    @Test
+    void pagesAcrossTheNullBoundaryDescending() {
+        List<Image> images = saveTitled("Charlie", null, "Alpha", null, "Bravo", null, "Delta");
+
+        List<List<Long>> pages = walk("title", true, 2);
+
+        // Descending reads the ascending index backwards, so the nulls come first.
+        assertThat(flatten(pages)).containsExactlyElementsOf(ids(images, Comparator.comparing(Image::getTitle,
+                Comparator.nullsLast(Comparator.<String>naturalOrder())).thenComparing(Image::getImageId).reversed()));
+        assertThat(pages).hasSize(4);
+    }
+
+    @Test
+    void pageEndingOnTheLastValueContinuesWithTheNulls() {
+        List<Image> images = saveTitled(null, "Alpha", null, "Bravo");
+
+        KeysetPage<ImageView> first = page(KeysetRequest.firstPage("title", false, 2));
+        KeysetPage<ImageView> second = page(new KeysetRequest("title", false, 2, first.next(), null));
+
+        assertThat(ids(first)).containsExactly(images.get(1).getImageId(), images.get(3).getImageId());
+        assertThat(ids(second)).containsExactly(images.get(0).getImageId(), images.get(2).getImageId());
+        assertThat(second.next()).isNull();
+    }
+
+    @Test
+    void tiesOnTheSortValueAreBrokenById() {
+        List<Image> images = saveOwned("zoe", "bob", "bob", "amy", "bob", "bob", "amy");
+
+        Comparator<Image> byOwner = Comparator.comparing(Image::getOwner).thenComparing(Image::getImageId);
+        assertThat(flatten(walk("owner", false, 2))).containsExactlyElementsOf(ids(images, byOwner));
+        assertThat(flatten(walk("owner", true, 3))).containsExactlyElementsOf(ids(images, byOwner.reversed()));
+    }
+
+    @Test
+    void beforeCursorOfTheSecondPageReturnsTheFirstPage() {
+        saveTitled("Alpha", "Bravo", "Charlie", "Delta", "Echo");
+        KeysetPage<ImageView> first = page(KeysetRequest.firstPage("title", false, 2));
+        KeysetPage<ImageView> second = page(new KeysetRequest("title", false, 2, first.next(), null));
+
+        KeysetPage<ImageView> back = page(new KeysetRequest("title", false, 2, null, second.previous()));
+
+        assertThat(ids(back)).isEqualTo(ids(first));
+        assertThat(back.isFirst()).isTrue();
+        assertThat(back.next()).isEqualTo(first.next());
+    }
+
+    @Test
+    void shortPageBeforeTheFirstRowsFallsBackToTheFirstPage() {
+        // Page 2 begins one row in, e.g. after a row of page 1 was deleted: there is no full page before it.
+        List<Image> images = saveTitled("Alpha", "Bravo", "Charlie", "Delta");
+        KeysetPage<ImageView> fromSecondRow = page(new KeysetRequest("title", false, 2, null,
+                page(new KeysetRequest("title", false, 2, cursorOf(images.get(0)), null)).previous()));
+
+        assertThat(ids(fromSecondRow)).containsExactly(images.get(0).getImageId(), images.get(1).getImageId());
+        assertThat(fromSecondRow.isFirst()).isTrue();
+    }
+
+    @Test
+    void unreadableOrForeignCursorReturnsTheFirstPage() {
+        saveTitled("Alpha", "Bravo", "Charlie");
+        List<Long> firstPage = ids(page(KeysetRequest.firstPage("uploadDate", false, 2)));
+        String titleCursor = page(KeysetRequest.firstPage("title", false, 2)).next();
+
+        for (String cursor : List.of("not a cursor!", "bm90IGEgY3Vyc29y", token("abc:=x"), token("12:x"),
+                titleCursor)) {
+            KeysetPage<ImageView> after = page(new KeysetRequest("uploadDate", false, 2, cursor, null));
+            KeysetPage<ImageView> before = page(new KeysetRequest("uploadDate", false, 2, null, cursor));
+
+            assertThat(ids(after)).as("after=%s", cursor).isEqualTo(firstPage);
+            assertThat(ids(before)).as("before=%s", cursor).isEqualTo(firstPage);
+            assertThat(after.isFirst()).isTrue();
+        }
+    }
+
+    @Test
+    void cursorPastTheLastRowReturnsTheFirstPage() {
+        List<Image> images = saveTitled("Alpha", "Bravo", "Charlie");
+        Image last = images.get(2);
+        imageRepository.delete(last);
+        imageRepository.flush();
+
+        KeysetPage<ImageView> page = page(new KeysetRequest("title", false, 2, cursorOf(last), null));
+
+        assertThat(ids(page)).containsExactly(images.get(0).getImageId(), images.get(1).getImageId());
+        assertThat(page.isFirst()).isTrue();
+    }
+
+    /**
+     * Pages forward to the last page, then back to the first with the previous cursors, and checks
+     * that both directions return the same pages.
+     */
+    private List<List<Long>> walk(String sort, boolean descending, int size) {
+        List<KeysetPage<ImageView>> pages = new ArrayList<>();
+        KeysetPage<ImageView> page = page(KeysetRequest.firstPage(sort, descending, size));
+        pages.add(page);
+        while (page.next() != null) {
+            page = page(new KeysetRequest(sort, descending, size, page.next(), null));
+            pages.add(page);
+        }
+        assertThat(pages.get(0).isFirst()).isTrue();
+        for (int i = pages.size() - 1; i > 0; i--) {
+            assertThat(pages.get(i).isFirst()).isFalse();
+            KeysetPage<ImageView> previous = page(new KeysetRequest(sort, descending, size, null,
+                    pages.get(i).previous()));
+            assertThat(ids(previous)).as("page %d, paging back", i).isEqualTo(ids(pages.get(i - 1)));
+        }
+        return pages.stream().map(KeysetQueryTests::ids).toList();
+    }
+
+    private KeysetPage<ImageView> page(KeysetRequest request) {
+        return imageRepository.findViewPage(false, null, null, request);
+    }
+
+    private List<Image> saveTitled(String... titles) {
+        return save(titles, title -> image("owner", title));
+    }
+
+    private List<Image> saveOwned(String... owners) {
+        return save(owners, owner -> image(owner, "Title"));
+    }
+
+    private List<Image> save(String[] values, Function<String, Image> image) {
+        List<Image> images = new ArrayList<>();
+        for (String value : values) {
+            images.add(imageRepository.save(image.apply(value)));
+        }
+        imageRepository.flush();
+        return images;
+    }
+
+    private static Image image(String owner, String title) {
+        return Image.builder()
+                .owner(owner)
+                .title(title)
+                .contentType("image/png")
+                .data(new byte[] { 1 })
+                .uploadDate(LocalDateTime.of(2024, 1, 1, 0, 0))
+                .build();
+    }
+
+    /** The cursor KeysetQuery writes for a row sorted by title. */
+    private static String cursorOf(Image image) {
+        return token(image.getImageId() + ":" + (image.getTitle() == null ? "-" : "=" + image.getTitle()));
+    }
+
+    private static String token(String text) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<Long> ids(KeysetPage<ImageView> page) {
+        return page.content().stream().map(ImageView::imageId).toList();
+    }
+
+    private static List<Long> ids(List<Image> images, Comparator<Image> order) {
+        return images.stream().sorted(order).map(Image::getImageId).toList();
+    }
+
+    private static List<Long> flatten(List<List<Long>> pages) {
+        return pages.stream().flatMap(List::stream).toList();
+    }
+}
@@ -0,0 +1,173 @@
+package com.wefky.RESTfulWeb.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.wefky.RESTfulWeb.entity.OutboxEvent;
+import com.wefky.RESTfulWeb.event.ChangeType;
+
+/**
+ * The change feed cursor against concurrent writers. The tests commit real transactions from
+ * several threads, so they run outside the rolled back test transaction and clean up after themselves.
+ */
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OutboxEventRepositoryTests extends PostgresRepositoryTests {
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactions;
+    private final ExecutorService writers = Executors.newFixedThreadPool(4);
+
+    @BeforeEach
+    void emptyOutbox() {
+        transactions = new TransactionTemplate(transactionManager);
+        outboxEventRepository.deleteAllInBatch();
+    }
+
+    @AfterEach
+    void cleanUp() throws InterruptedException {
+        writers.shutdownNow();
+        writers.awaitTermination(10, TimeUnit.SECONDS);
+        outboxEventRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void eventOfAnOlderTransactionCommittingLaterIsNotSkipped() throws Exception {
+        CountDownLatch written = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        // The first transaction writes its event, and so takes the lower txid, but stays open.
+        Future<Long> slow = writers.submit(() -> transactions.execute(status -> {
+            OutboxEvent event = outboxEventRepository.saveAndFlush(event(1));
+            written.countDown();
+            await(commit);
+            return event.getEventId();
+        }));
+        assertThat(written.await(10, TimeUnit.SECONDS)).isTrue();
+        Long fast = transactions.execute(status -> outboxEventRepository.saveAndFlush(event(2)).getEventId());
+
+        // The later transaction has committed, but returning its event now would move the cursor
+        // past the txid of the one still running.
+        assertThat(outboxEventRepository.findCommittedAfter(0, 0, 10)).isEmpty();
+
+        commit.countDown();
+        Long slowId = slow.get(10, TimeUnit.SECONDS);
+        List<OutboxEvent> events = outboxEventRepository.findCommittedAfter(0, 0, 10);
+
+        assertThat(events).extracting(OutboxEvent::getEventId).containsExactly(slowId, fast);
+        assertThat(events.get(0).getTxid()).isLessThan(events.get(1).getTxid());
+    }
+
+    @Test
+    void rolledBackEventsNeverAppearAndDoNotHoldUpTheFeed() {
+        transactions.execute(status -> {
+            outboxEventRepository.saveAndFlush(event(1));
+            status.setRollbackOnly();
+            return null;
+        });
+        Long committed = transactions.execute(status -> outboxEventRepository.saveAndFlush(event(2)).getEventId());
+
+        assertThat(outboxEventRepository.findCommittedAfter(0, 0, 10))
+                .extracting(OutboxEvent::getEventId).containsExactly(committed);
+    }
+
+    @Test
+    void cursorAdvancesMonotonicallyAndSeesEveryEventOfConcurrentWriters() throws Exception {
+        int writerCount = 4, transactionsPerWriter = 25;
+        List<Future<List<Long>>> written = new ArrayList<>();
+        for (int w = 0; w < writerCount; w++) {
+            int writer = w;
+            written.add(writers.submit(() -> {
+                List<Long> ids = new ArrayList<>();
+                for (int t = 0; t < transactionsPerWriter; t++) {
+                    int n = writer * transactionsPerWriter + t;
+                    ids.addAll(transactions.execute(status -> {
+                        List<Long> inTransaction = new ArrayList<>();
+                        for (int e = 0; e < 1 + n % 3; e++) {
+                            inTransaction.add(outboxEventRepository.saveAndFlush(event(n)).getEventId());
+                            // Keep transactions open for a while, so they overlap and commit out of txid order.
+                            pause(ThreadLocalRandom.current().nextInt(3));
+                        }
+                        return inTransaction;
+                    }));
+                }
+                return ids;
+            }));
+        }
+
+        // Follow the feed in small pages while the writers are running.
+        long txid = 0, eventId = 0;
+        List<Long> seen = new ArrayList<>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (!(allDone(written) && outboxEventRepository.findCommittedAfter(txid, eventId, 1).isEmpty())) {
+            assertThat(System.nanoTime()).as("feed caught up before the deadline").isLessThan(deadline);
+            for (OutboxEvent event : outboxEventRepository.findCommittedAfter(txid, eventId, 7)) {
+                assertThat(event.getTxid() > txid || (event.getTxid() == txid && event.getEventId() > eventId))
+                        .as("position (%s, %s) after (%s, %s)", event.getTxid(), event.getEventId(), txid, eventId)
+                        .isTrue();
+                txid = event.getTxid();
+                eventId = event.getEventId();
+                seen.add(eventId);
+            }
+        }
+
+        Set<Long> expected = new HashSet<>();
+        for (Future<List<Long>> ids : written) {
+            expected.addAll(ids.get());
+        }
+        assertThat(seen).doesNotHaveDuplicates();
+        assertThat(seen).containsExactlyInAnyOrderElementsOf(expected);
+    }
+
+    private static boolean allDone(List<? extends Future<?>> futures) {
+        return futures.stream().allMatch(Future::isDone);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void pause(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static OutboxEvent event(long entityId) {
+        return OutboxEvent.builder()
+                .entityType("measurement")
+                .entityId(entityId)
+                .changeType(ChangeType.UPDATED)
+                .occurredAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,185 @@
+package com.wefky.RESTfulWeb.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class CoalescingLoaderTests {
+
+    private static final long MISSING = 99L;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<List<Long>> queries = new CopyOnWriteArrayList<>();
+    private final CountDownLatch firstQueryEntered = new CountDownLatch(1);
+    private final CountDownLatch firstQueryReleased = new CountDownLatch(1);
+    private final List<Thread> threads = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void releaseAndJoin() throws InterruptedException {
+        firstQueryReleased.countDown();
+        for (Thread thread : threads) {
+            thread.join(5000);
+        }
+    }
+
+    @Test
+    void loneLookupQueriesAtOnce() {
+        CoalescingLoader<String> loader = loader(ids -> rows(ids), 10);
+
+        assertThat(loader.get(1L)).contains("row-1");
+        assertThat(loader.get(MISSING)).isEmpty();
+        assertThat(queries).containsExactly(List.of(1L), List.of(MISSING));
+        assertThat(meterRegistry.get("app.lookups.batch.size").summary().count()).isEqualTo(2);
+    }
+
+    @Test
+    void lookupsArrivingDuringAQueryShareTheNextOne() throws Exception {
+        CoalescingLoader<String> loader = loader(blockingFirstQuery(this::rows), 10);
+
+        CompletableFuture<Optional<String>> first = lookup(loader, 1L);
+        assertThat(firstQueryEntered.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Optional<String>> second = lookupAndWait(loader, 2L);
+        CompletableFuture<Optional<String>> third = lookupAndWait(loader, MISSING);
+        CompletableFuture<Optional<String>> duplicate = lookupAndWait(loader, 2L);
+        assertThat(queries).hasSize(1);
+
+        firstQueryReleased.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).contains("row-1");
+        assertThat(second.get(5, TimeUnit.SECONDS)).contains("row-2");
+        assertThat(third.get(5, TimeUnit.SECONDS)).isEmpty();
+        assertThat(duplicate.get(5, TimeUnit.SECONDS).get()).isSameAs(second.get().get());
+        assertThat(queries).containsExactly(List.of(1L), List.of(2L, MISSING));
+        assertThat(meterRegistry.get("app.lookups.batch.size").summary().totalAmount()).isEqualTo(3);
+    }
+
+    @Test
+    void fullBatchOverflowsIntoANewOne() throws Exception {
+        CoalescingLoader<String> loader = loader(blockingFirstQuery(this::rows), 2);
+
+        CompletableFuture<Optional<String>> first = lookup(loader, 1L);
+        assertThat(firstQueryEntered.await(5, TimeUnit.SECONDS)).isTrue();
+        List<CompletableFuture<Optional<String>>> waiting = List.of(
+                lookupAndWait(loader, 2L),
+                lookupAndWait(loader, 3L),
+                lookupAndWait(loader, 4L),
+                lookupAndWait(loader, 3L));
+
+        firstQueryReleased.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).contains("row-1");
+        assertThat(waiting.get(0).get(5, TimeUnit.SECONDS)).contains("row-2");
+        assertThat(waiting.get(1).get(5, TimeUnit.SECONDS)).contains("row-3");
+        assertThat(waiting.get(2).get(5, TimeUnit.SECONDS)).contains("row-4");
+        assertThat(waiting.get(3).get(5, TimeUnit.SECONDS)).contains("row-3");
+        // 4 overflows the full batch and opens the next one, which the second 3 then joins;
+        // the two batches may run in either order once the first query returns.
+        assertThat(queries).hasSize(3).first().isEqualTo(List.of(1L));
+        assertThat(queries.subList(1, 3)).containsExactlyInAnyOrder(List.of(2L, 3L), List.of(4L, 3L));
+    }
+
+    @Test
+    void failedQueryFailsEveryLookupOfItsBatch() throws Exception {
+        CoalescingLoader<String> loader = loader(blockingFirstQuery(ids -> {
+            throw new IllegalStateException("connection reset");
+        }), 10);
+
+        CompletableFuture<Optional<String>> first = lookup(loader, 1L);
+        assertThat(firstQueryEntered.await(5, TimeUnit.SECONDS)).isTrue();
+        firstQueryReleased.countDown();
+
+        assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void errorInTheLoaderDoesNotStrandWaitingLookups() throws Exception {
+        CoalescingLoader<String> loader = loader(blockingFirstQuery(ids -> {
+            throw new StackOverflowError();
+        }), 10);
+
+        CompletableFuture<Optional<String>> first = lookup(loader, 1L);
+        assertThat(firstQueryEntered.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Optional<String>> second = lookupAndWait(loader, 2L);
+        CompletableFuture<Optional<String>> third = lookupAndWait(loader, 3L);
+        firstQueryReleased.countDown();
+
+        for (CompletableFuture<Optional<String>> lookup : List.of(first, second, third)) {
+            assertThatThrownBy(() -> lookup.get(5, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(StackOverflowError.class);
+        }
+        assertThat(queries).containsExactly(List.of(1L), List.of(2L, 3L));
+    }
+
+    private CoalescingLoader<String> loader(Function<List<Long>, Map<Long, String>> rows, int maxBatchSize) {
+        return new CoalescingLoader<>("test", ids -> {
+            queries.add(List.copyOf(ids));
+            return rows.apply(ids);
+        }, maxBatchSize, meterRegistry);
+    }
+
+    /** Blocks the first query until the test releases it, so later lookups queue up behind it. */
+    private Function<List<Long>, Map<Long, String>> blockingFirstQuery(Function<List<Long>, Map<Long, String>> rows) {
+        return ids -> {
+            if (queries.size() == 1) {
+                firstQueryEntered.countDown();
+                try {
+                    firstQueryReleased.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return rows.apply(ids);
+        };
+    }
+
+    private Map<Long, String> rows(List<Long> ids) {
+        return ids.stream()
+                .filter(id -> id != MISSING)
+                .collect(Collectors.toMap(id -> id, id -> "row-" + id));
+    }
+
+    private CompletableFuture<Optional<String>> lookup(CoalescingLoader<String> loader, long id) {
+        CompletableFuture<Optional<String>> result = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try {
+                result.complete(loader.get(id));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        }, "lookup-" + id);
+        threads.add(thread);
+        thread.start();
+        return result;
+    }
+
+    /** Starts a lookup and waits until it is parked behind the running query. */
+    private CompletableFuture<Optional<String>> lookupAndWait(CoalescingLoader<String> loader, long id)
+            throws InterruptedException {
+        CompletableFuture<Optional<String>> result = lookup(loader, id);
+        Thread thread = threads.get(threads.size() - 1);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (thread.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertThat(thread.getState()).isEqualTo(Thread.State.WAITING);
+        return result;
+    }
+}
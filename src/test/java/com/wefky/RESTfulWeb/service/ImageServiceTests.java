@@ -0,0 +1,145 @@
+package com.wefky.RESTfulWeb.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import com.wefky.RESTfulWeb.dto.BulkResult;
+import com.wefky.RESTfulWeb.entity.Image;
+import com.wefky.RESTfulWeb.event.ChangeType;
+import com.wefky.RESTfulWeb.event.ImageChangedEvent;
+import com.wefky.RESTfulWeb.repository.ImageRepository;
+import com.wefky.RESTfulWeb.repository.PostgresRepositoryTests;
+
+@Import(ImageService.class)
+@RecordApplicationEvents
+class ImageServiceTests extends PostgresRepositoryTests {
+
+    @Autowired
+    private ImageService imageService;
+
+    @Autowired
+    private ImageRepository imageRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ApplicationEvents events;
+
+    @Test
+    void retentionPurgeUnlinksTheFileData() {
+        Image purged = imageRepository.saveAndFlush(image(true, LocalDateTime.now().minusDays(40)));
+        Image kept = imageRepository.saveAndFlush(image(true, LocalDateTime.now()));
+        long purgedData = dataOid(purged);
+        long keptData = dataOid(kept);
+        assertThat(largeObjectExists(purgedData)).isTrue();
+
+        int deleted = imageService.purgeDeletedBefore(LocalDateTime.now().minusDays(30), 100);
+
+        assertThat(deleted).isEqualTo(1);
+        assertThat(imageRepository.existsById(purged.getImageId())).isFalse();
+        assertThat(largeObjectExists(purgedData)).isFalse();
+        assertThat(largeObjectExists(keptData)).isTrue();
+    }
+
+    @Test
+    void permanentDeleteUnlinksTheFileData() {
+        Image image = imageRepository.saveAndFlush(image(true, LocalDateTime.now()));
+        long data = dataOid(image);
+
+        imageService.permanentlyDeleteImage(image.getImageId());
+        imageRepository.flush();
+
+        assertThat(largeObjectExists(data)).isFalse();
+    }
+
+    @Test
+    void bulkPurgeUnlinksTheFileData() {
+        Image image = imageRepository.saveAndFlush(image(true, LocalDateTime.now()));
+        long data = dataOid(image);
+
+        imageService.permanentlyDeleteImages(List.of(image.getImageId()));
+
+        assertThat(largeObjectExists(data)).isFalse();
+    }
+
+    @Test
+    void bulkSoftDeleteRunsInChunksAndCountsDistinctIds() {
+        List<Long> ids = IntStream.range(0, 1_001)
+                .mapToObj(i -> imageRepository.save(image(false, null)).getImageId())
+                .toList();
+        imageRepository.flush();
+        List<Long> requested = new ArrayList<>(ids);
+        requested.add(ids.get(1_000));
+        requested.add(null);
+        requested.add(-1L);
+
+        assertThat(imageService.softDeleteImages(requested)).isEqualTo(new BulkResult(1_002, 1_001));
+        assertThat(imageService.softDeleteImages(requested)).isEqualTo(new BulkResult(1_002, 0));
+        assertThat(imageService.countDeletedImages()).isEqualTo(1_001);
+        assertThat(changes(ChangeType.SOFT_DELETED)).containsExactlyElementsOf(ids);
+    }
+
+    @Test
+    void bulkChangesSkipRowsAlreadyInTheTargetState() {
+        Image active = imageRepository.saveAndFlush(image(false, null));
+        Image trashed = imageRepository.saveAndFlush(image(true, LocalDateTime.now()));
+        long trashedData = dataOid(trashed);
+        List<Long> requested = List.of(active.getImageId(), trashed.getImageId(), -1L);
+
+        assertThat(imageService.restoreImages(requested)).isEqualTo(new BulkResult(3, 1));
+        assertThat(changes(ChangeType.RESTORED)).containsExactly(trashed.getImageId());
+        assertThat(imageService.softDeleteImages(List.of(trashed.getImageId()))).isEqualTo(new BulkResult(1, 1));
+
+        // Only the trash is emptied by a filtered permanent delete, and its file data with it.
+        assertThat(imageService.permanentlyDeleteMatchingImages("")).isEqualTo(new BulkResult(1, 1));
+        assertThat(changes(ChangeType.PURGED)).containsExactly(trashed.getImageId());
+        assertThat(largeObjectExists(trashedData)).isFalse();
+        assertThat(imageService.permanentlyDeleteImages(requested)).isEqualTo(new BulkResult(3, 1));
+        assertThat(imageRepository.count()).isZero();
+    }
+
+    private List<Long> changes(ChangeType type) {
+        return events.stream(ImageChangedEvent.class)
+                .filter(e -> e.type() == type)
+                .map(ImageChangedEvent::imageId)
+                .toList();
+    }
+
+    private long dataOid(Image image) {
+        return ((Number) entityManager.getEntityManager()
+                .createNativeQuery("SELECT data FROM images WHERE image_id = :id")
+                .setParameter("id", image.getImageId())
+                .getSingleResult()).longValue();
+    }
+
+    private boolean largeObjectExists(long oid) {
+        return ((Number) entityManager.getEntityManager()
+                .createNativeQuery("SELECT count(*) FROM pg_largeobject_metadata WHERE oid = CAST(:oid AS oid)")
+                .setParameter("oid", oid)
+                .getSingleResult()).longValue() > 0;
+    }
+
+    static Image image(boolean deleted, LocalDateTime deletedAt) {
+        return Image.builder()
+                .owner("owner")
+                .title("Title")
+                .contentType("image/png")
+                .data(new byte[] { 1, 2, 3 })
+                .uploadDate(LocalDateTime.of(2024, 1, 1, 0, 0))
+                .deleted(deleted)
+                .deletedAt(deleted ? deletedAt : null)
+                .build();
+    }
+}
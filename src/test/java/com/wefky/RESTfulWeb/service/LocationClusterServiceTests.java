@@ -0,0 +1,202 @@
+package com.wefky.RESTfulWeb.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.wefky.RESTfulWeb.entity.Location;
+import com.wefky.RESTfulWeb.event.ChangeType;
+import com.wefky.RESTfulWeb.event.LocationChangedEvent;
+import com.wefky.RESTfulWeb.repository.LocationRepository;
+import com.wefky.RESTfulWeb.service.LocationClusterService.Cluster;
+import com.wefky.RESTfulWeb.util.GeoHash;
+
+class LocationClusterServiceTests {
+
+    private final LocationRepository locationRepository = mock(LocationRepository.class);
+    private final LocationClusterService clusterService = new LocationClusterService(locationRepository, 10_000);
+    private final List<Location> locations = new ArrayList<>();
+
+    @Test
+    void clustersMatchBruteForceAtSeveralZoomLevels() {
+        Random random = new Random(42);
+        long id = 1;
+        // Spread over the world, plus a dense city and the polar caps Web Mercator cannot show.
+        for (int i = 0; i < 2000; i++) {
+            locations.add(location(id++, 180 * random.nextDouble() - 90, 360 * random.nextDouble() - 180));
+        }
+        for (int i = 0; i < 1000; i++) {
+            locations.add(location(id++, 48.2 + 0.1 * random.nextGaussian(), 16.4 + 0.1 * random.nextGaussian()));
+        }
+        for (int i = 0; i < 100; i++) {
+            locations.add(location(id++, (random.nextBoolean() ? 1 : -1) * (86 + 4 * random.nextDouble()),
+                    360 * random.nextDouble() - 180));
+        }
+        load();
+
+        for (int zoom : new int[] { 0, 2, 4 }) {
+            int n = 1 << zoom;
+            int total = 0;
+            for (int x = 0; x < n; x++) {
+                for (int y = 0; y < n; y++) {
+                    total += assertTileMatchesBruteForce(zoom, x, y);
+                }
+            }
+            assertThat(total).as("locations at zoom %s", zoom).isEqualTo(locations.size());
+        }
+        // Zoomed in on the city, where its locations are split over many cells and tiles.
+        int n = 1 << 10;
+        int x0 = (int) Math.floor((16.4 + 180) / 360 * n);
+        int y0 = (int) Math.floor((1 - Math.log(Math.tan(Math.toRadians(48.2)) + 1 / Math.cos(Math.toRadians(48.2))) / Math.PI) / 2 * n);
+        for (int x = x0 - 2; x <= x0 + 2; x++) {
+            for (int y = y0 - 2; y <= y0 + 2; y++) {
+                assertTileMatchesBruteForce(10, x, y);
+            }
+        }
+    }
+
+    @Test
+    void wholeWorldClustersCountEveryLocationOnce() {
+        locations.add(location(1, 48.2, 16.4));
+        locations.add(location(2, 48.21, 16.41));
+        locations.add(location(3, -33.9, 151.2));
+        load();
+
+        List<Cluster> world = clusterService.clusters(-180, -90, 180, 90, 0);
+        List<Cluster> zoomed = clusterService.clusters(-180, -90, 180, 90, 3);
+
+        assertThat(world).extracting(Cluster::count).containsExactlyInAnyOrder(2, 1);
+        Cluster vienna = world.stream().filter(c -> c.count() == 2).findFirst().orElseThrow();
+        assertThat(vienna.locationId()).isNull();
+        assertThat(vienna.latitude()).isCloseTo(48.205, within(1e-4));
+        assertThat(vienna.longitude()).isCloseTo(16.405, within(1e-4));
+        assertThat(world).filteredOn(c -> c.count() == 1).extracting(Cluster::locationId).containsExactly(3L);
+        assertThat(zoomed).extracting(Cluster::count).containsExactlyInAnyOrder(2, 1);
+    }
+
+    @Test
+    void tilesOnEitherSideOfTheAntimeridianCountTheirOwnLocations() {
+        locations.add(location(1, 10, 180));
+        locations.add(location(2, 10, 179.99));
+        locations.add(location(3, 10, -180));
+        locations.add(location(4, 10, -179.99));
+        locations.add(location(5, 10, 100));
+        load();
+
+        for (int zoom : new int[] { 3, 8, 14 }) {
+            // The easternmost tile column keeps locations on the meridian itself, the westernmost starts there.
+            List<Cluster> east = clusterService.clusters(179.9, 9.9, 180, 10.1, zoom);
+            List<Cluster> west = clusterService.clusters(-180, 9.9, -179.9, 10.1, zoom);
+
+            assertThat(east.stream().mapToInt(Cluster::count).sum()).as("east at zoom %s", zoom).isEqualTo(2);
+            assertThat(west.stream().mapToInt(Cluster::count).sum()).as("west at zoom %s", zoom).isEqualTo(2);
+            assertThat(east).allSatisfy(c -> assertThat(c.longitude()).isGreaterThan(179.9));
+            assertThat(west).allSatisfy(c -> assertThat(c.longitude()).isLessThan(-179.9));
+        }
+        int n = 1 << 8;
+        assertTileMatchesBruteForce(8, n - 1, (int) Math.floor((1 - Math.log(Math.tan(Math.toRadians(10))
+                + 1 / Math.cos(Math.toRadians(10))) / Math.PI) / 2 * n));
+        assertTileMatchesBruteForce(8, 0, (int) Math.floor((1 - Math.log(Math.tan(Math.toRadians(10))
+                + 1 / Math.cos(Math.toRadians(10))) / Math.PI) / 2 * n));
+    }
+
+    @Test
+    void boxCrossingTheAntimeridianTakesTheTilesOnBothSides() {
+        locations.add(location(1, 10, 179.5));
+        locations.add(location(2, 10, -179.5));
+        locations.add(location(3, 10, 0));
+        load();
+
+        List<Cluster> clusters = clusterService.clusters(179, 9, -179, 11, 6);
+
+        assertThat(clusters).extracting(Cluster::locationId).containsExactlyInAnyOrder(1L, 2L);
+        // The long way round, and at zoom 0 the one tile only once.
+        assertThat(clusterService.clusters(10, 9, -10, 11, 0)).extracting(Cluster::locationId)
+                .containsExactlyInAnyOrder(1L, 2L, 3L);
+        assertThatThrownBy(() -> clusterService.clusters(10, 9, -10, 11, 8))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void writesEvictTheCachedTiles() {
+        locations.add(location(1, 48.2, 16.4));
+        load();
+        assertThat(clusterService.clusters(16, 48, 17, 49, 8)).extracting(Cluster::count).containsExactly(1);
+
+        Location added = location(2, 48.2001, 16.4001);
+        clusterService.onLocationChanged(new LocationChangedEvent(2L, ChangeType.CREATED, added));
+        assertThat(clusterService.clusters(16, 48, 17, 49, 8)).extracting(Cluster::count).containsExactly(2);
+
+        clusterService.onLocationChanged(new LocationChangedEvent(1L, ChangeType.PURGED, null));
+        assertThat(clusterService.clusters(16, 48, 17, 49, 8)).extracting(Cluster::locationId).containsExactly(2L);
+    }
+
+    /**
+     * Compares the clusters of one tile with the locations inside it, grouped by hand.
+     *
+     * @return the number of locations in the tile
+     */
+    private int assertTileMatchesBruteForce(int zoom, int x, int y) {
+        int n = 1 << zoom;
+        double lonMin = x * 360.0 / n - 180, lonMax = (x + 1) * 360.0 / n - 180;
+        double latMax = y == 0 ? 90 : tileLat(y, n), latMin = y == n - 1 ? -90 : tileLat(y + 1, n);
+        double lonCentre = (lonMin + lonMax) / 2, latCentre = tileLat(y + 0.5, n);
+
+        List<Cluster> clusters = clusterService.clusters(lonCentre, latCentre, lonCentre, latCentre, zoom);
+
+        int inTile = 0;
+        for (Location l : locations) {
+            double lat = l.getLatitude(), lon = l.getLongitude();
+            if (lat <= latMax && (lat > latMin || latMin == -90) && lon >= lonMin && (lon < lonMax || lonMax == 180)) {
+                inTile++;
+            }
+        }
+        for (Cluster cluster : clusters) {
+            List<Location> members = locations.stream().filter(l -> {
+                double lat = l.getLatitude(), lon = l.getLongitude();
+                return GeoHash.encode(lat, lon, GeoHash.MAX_PRECISION).startsWith(cluster.geohash())
+                        && lat <= latMax && (lat > latMin || latMin == -90)
+                        && lon >= lonMin && (lon < lonMax || lonMax == 180);
+            }).toList();
+            String tile = zoom + "/" + x + "/" + y + " " + cluster.geohash();
+            assertThat(cluster.count()).as("count of %s", tile).isEqualTo(members.size());
+            assertThat(cluster.latitude()).as("latitude of %s", tile)
+                    .isCloseTo(members.stream().mapToDouble(Location::getLatitude).average().orElseThrow(), within(1e-9));
+            assertThat(cluster.longitude()).as("longitude of %s", tile)
+                    .isCloseTo(members.stream().mapToDouble(Location::getLongitude).average().orElseThrow(), within(1e-9));
+            assertThat(cluster.locationId()).isEqualTo(members.size() == 1 ? members.get(0).getLocationId() : null);
+        }
+        assertThat(clusters).extracting(Cluster::geohash).doesNotHaveDuplicates();
+        assertThat(clusters.stream().mapToInt(Cluster::count).sum()).as("tile %s/%s/%s", zoom, x, y).isEqualTo(inTile);
+        // At most one cluster per cell of a grid a quarter of the tile wide.
+        assertThat(clusters.size()).isLessThanOrEqualTo(64);
+        return inTile;
+    }
+
+    private void load() {
+        when(locationRepository.findAllActive()).thenReturn(locations);
+        clusterService.load();
+    }
+
+    private static double tileLat(double y, int n) {
+        return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2.0 * y / n))));
+    }
+
+    private static Location location(long id, double lat, double lon) {
+        Location location = new Location();
+        location.setLocationId(id);
+        location.setCityName("City " + id);
+        location.setPostalCode("1000");
+        location.setLatitude((float) lat);
+        location.setLongitude((float) lon);
+        return location;
+    }
+}
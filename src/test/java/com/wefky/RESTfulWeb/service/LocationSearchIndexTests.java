@@ -0,0 +1,179 @@
+package com.wefky.RESTfulWeb.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.wefky.RESTfulWeb.entity.Location;
+import com.wefky.RESTfulWeb.event.ChangeType;
+import com.wefky.RESTfulWeb.event.LocationChangedEvent;
+import com.wefky.RESTfulWeb.repository.LocationRepository;
+import com.wefky.RESTfulWeb.service.LocationSearchIndex.Field;
+import com.wefky.RESTfulWeb.service.LocationSearchIndex.Suggestion;
+
+class LocationSearchIndexTests {
+
+    private final LocationRepository locationRepository = mock(LocationRepository.class);
+    private final LocationSearchIndex index = new LocationSearchIndex(locationRepository);
+
+    @Test
+    void ranksExactThenPrefixThenWordPrefixThenSubstring() {
+        load(location(1, "Oberndorf", "78727"),
+                location(2, "Bad Bernstadt", "89182"),
+                location(3, "Bernau", "16321"),
+                location(4, "Bern", "3011"),
+                location(5, "Brno", "60200"));
+
+        List<Suggestion> suggestions = index.suggest("Bern", 10);
+
+        // Brno shares too few trigrams with "bern" to be suggested.
+        assertThat(suggestions).extracting(Suggestion::locationId).containsExactly(4L, 3L, 2L, 1L);
+        assertThat(suggestions).extracting(Suggestion::score).containsExactly(1.0, 0.9, 0.8, 0.7);
+    }
+
+    @Test
+    void typoFindsTheLocationByTrigramSimilarity() {
+        load(location(1, "Muenchen", "80331"), location(2, "Hamburg", "20095"));
+
+        List<Suggestion> suggestions = index.suggest("munchen", 5);
+
+        assertThat(suggestions).extracting(Suggestion::locationId).containsExactly(1L);
+        assertThat(suggestions.get(0).score()).isBetween(0.0, 0.6);
+    }
+
+    @Test
+    void accentsAndCaseAreIgnored() {
+        load(location(1, "Zürich", "8001"));
+
+        assertThat(index.suggest("  ZURICH ", 5)).extracting(Suggestion::score).containsExactly(1.0);
+    }
+
+    @Test
+    void postalCodeMatchesReportTheirField() {
+        load(location(1, "Berlin", "10115"), location(2, "Bonn", "53111"));
+
+        List<Suggestion> suggestions = index.suggest("101", 5);
+
+        assertThat(suggestions).extracting(Suggestion::locationId).containsExactly(1L);
+        assertThat(suggestions.get(0).field()).isEqualTo(Field.POSTAL_CODE);
+    }
+
+    @Test
+    void prefixMatchOutranksWordPrefixMatchesThatSortBeforeIt() {
+        // Twenty word prefix matches under the term "berg" sort before the prefix match "berzdorf".
+        List<Location> locations = new ArrayList<>();
+        for (long id = 1; id <= 20; id++) {
+            locations.add(location(id, "Alt Berg", "0000" + id));
+        }
+        locations.add(location(100, "Berzdorf", "02627"));
+        load(locations.toArray(Location[]::new));
+
+        List<Suggestion> suggestions = index.suggest("ber", 2);
+
+        assertThat(suggestions.get(0).locationId()).isEqualTo(100L);
+        assertThat(suggestions.get(0).score()).isEqualTo(0.9);
+    }
+
+    @Test
+    void limitCutsTheRanking() {
+        load(location(1, "Bern", "3011"), location(2, "Bernau", "16321"), location(3, "Bernburg", "06406"));
+
+        assertThat(index.suggest("bern", 2)).extracting(Suggestion::locationId).containsExactly(1L, 2L);
+        assertThat(index.suggest("bern", 0)).isEmpty();
+        assertThat(index.suggest(" ", 5)).isEmpty();
+    }
+
+    @Test
+    void appliesAdditionsUpdatesAndRemovals() {
+        load();
+        Location location = location(1, "Hamburg", "20095");
+
+        index.onLocationChanged(new LocationChangedEvent(1L, ChangeType.CREATED, location));
+        assertThat(index.suggest("hamb", 5)).extracting(Suggestion::locationId).containsExactly(1L);
+
+        location.setCityName("Bremen");
+        location.setPostalCode("28195");
+        index.onLocationChanged(new LocationChangedEvent(1L, ChangeType.UPDATED, location));
+        assertThat(index.suggest("hamb", 5)).isEmpty();
+        assertThat(index.suggest("20095", 5)).isEmpty();
+        assertThat(index.suggest("brem", 5)).extracting(Suggestion::locationId).containsExactly(1L);
+
+        location.setDeleted(true);
+        index.onLocationChanged(new LocationChangedEvent(1L, ChangeType.SOFT_DELETED, location));
+        assertThat(index.suggest("brem", 5)).isEmpty();
+
+        location.setDeleted(false);
+        index.onLocationChanged(new LocationChangedEvent(1L, ChangeType.RESTORED, location));
+        assertThat(index.suggest("brem", 5)).extracting(Suggestion::locationId).containsExactly(1L);
+
+        index.onLocationChanged(new LocationChangedEvent(1L, ChangeType.PURGED, null));
+        assertThat(index.suggest("brem", 5)).isEmpty();
+        assertThat(index.suggest("bremen", 5)).isEmpty();
+    }
+
+    @Test
+    void removingOneLocationKeepsTheOthersOfTheSameTerm() {
+        load(location(1, "Berlin", "10115"), location(2, "Berlin", "10117"));
+
+        index.onLocationChanged(new LocationChangedEvent(1L, ChangeType.PURGED, null));
+
+        assertThat(index.suggest("berlin", 5)).extracting(Suggestion::locationId).containsExactly(2L);
+    }
+
+    @Test
+    void concurrentAdditionsAndRemovalsOfOneTermLoseNoPosting() throws Exception {
+        load();
+        int threads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (long id = 1; id <= threads; id++) {
+            long locationId = id;
+            futures.add(executor.submit(() -> {
+                start.await();
+                // Each thread adds and removes its own location under the same terms and trigrams,
+                // so the posting sets keep emptying while other threads add to them.
+                for (int i = 0; i < 20_000; i++) {
+                    index.onLocationChanged(new LocationChangedEvent(locationId, ChangeType.PURGED, null));
+                    index.onLocationChanged(new LocationChangedEvent(locationId, ChangeType.CREATED,
+                            location(locationId, "Paris", "75001")));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        List<Long> all = LongStream.rangeClosed(1, threads).boxed().toList();
+        assertThat(index.suggest("paris", 10)).extracting(Suggestion::locationId).containsExactlyElementsOf(all);
+        assertThat(index.suggest("pariz", 10)).extracting(Suggestion::locationId).containsExactlyElementsOf(all);
+    }
+
+    private void load(Location... locations) {
+        when(locationRepository.findAllActive()).thenReturn(List.of(locations));
+        index.load();
+    }
+
+    private static Location location(long id, String cityName, String postalCode) {
+        Location location = new Location();
+        location.setLocationId(id);
+        location.setCityName(cityName);
+        location.setPostalCode(postalCode);
+        location.setLatitude(0f);
+        location.setLongitude(0f);
+        return location;
+    }
+}
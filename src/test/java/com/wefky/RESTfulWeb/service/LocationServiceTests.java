@@ -0,0 +1,114 @@
+package com.wefky.RESTfulWeb.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import com.wefky.RESTfulWeb.dto.BulkResult;
+import com.wefky.RESTfulWeb.entity.Location;
+import com.wefky.RESTfulWeb.entity.Measurement;
+import com.wefky.RESTfulWeb.event.ChangeType;
+import com.wefky.RESTfulWeb.event.LocationChangedEvent;
+import com.wefky.RESTfulWeb.repository.LocationRepository;
+import com.wefky.RESTfulWeb.repository.PostgresRepositoryTests;
+
+@Import({ LocationService.class, LocationSpatialIndex.class })
+@RecordApplicationEvents
+class LocationServiceTests extends PostgresRepositoryTests {
+
+    @Autowired
+    private LocationService locationService;
+
+    @Autowired
+    private LocationRepository locationRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ApplicationEvents events;
+
+    @Test
+    void bulkSoftDeleteAndRestoreRunInChunksAndCountDistinctIds() {
+        List<Long> ids = ids(save(1_001, false, null));
+        List<Long> requested = new ArrayList<>(ids);
+        requested.add(ids.get(0));
+        requested.add(-1L);
+
+        assertThat(locationService.softDeleteLocations(requested)).isEqualTo(new BulkResult(1_002, 1_001));
+        assertThat(locationService.softDeleteLocations(requested)).isEqualTo(new BulkResult(1_002, 0));
+        assertThat(locationService.countDeletedLocations()).isEqualTo(1_001);
+        assertThat(changes(ChangeType.SOFT_DELETED)).containsExactlyElementsOf(ids);
+
+        assertThat(locationService.restoreLocations(requested.subList(1_000, requested.size())))
+                .isEqualTo(new BulkResult(3, 2));
+        assertThat(changes(ChangeType.RESTORED)).containsExactlyInAnyOrder(ids.get(1_000), ids.get(0));
+    }
+
+    @Test
+    void bulkPermanentDeleteCountsOnlyExistingRows() {
+        List<Long> active = ids(save(2, false, null));
+        List<Long> trashed = ids(save(3, true, LocalDateTime.now()));
+        List<Long> requested = new ArrayList<>(active);
+        requested.addAll(trashed);
+        requested.add(-1L);
+
+        assertThat(locationService.permanentlyDeleteMatchingLocations(null, null, null, null, null, null))
+                .isEqualTo(new BulkResult(3, 3));
+        assertThat(locationService.permanentlyDeleteLocations(requested)).isEqualTo(new BulkResult(6, 2));
+        assertThat(changes(ChangeType.PURGED)).containsExactlyInAnyOrderElementsOf(requested.subList(0, 5));
+        assertThat(locationRepository.count()).isZero();
+    }
+
+    @Test
+    void retentionPurgeKeepsLocationsThatMeasurementsStillReferTo() {
+        List<Location> trashed = save(3, true, LocalDateTime.now().minusDays(40));
+        Measurement measurement = new Measurement();
+        measurement.setMeasurementUnit("°C");
+        measurement.setAmount(1.0);
+        measurement.setTimestamp(LocalDateTime.of(2025, 1, 1, 0, 0));
+        measurement.setLocation(trashed.get(0));
+        entityManager.persistAndFlush(measurement);
+
+        assertThat(locationService.purgeDeletedBefore(LocalDateTime.now().minusDays(30), 1)).isEqualTo(1);
+        assertThat(locationService.purgeDeletedBefore(LocalDateTime.now().minusDays(30), 100)).isEqualTo(1);
+        assertThat(locationService.purgeDeletedBefore(LocalDateTime.now().minusDays(30), 100)).isZero();
+        assertThat(locationRepository.findAll()).extracting(Location::getLocationId)
+                .containsExactly(trashed.get(0).getLocationId());
+    }
+
+    private List<Location> save(int count, boolean deleted, LocalDateTime deletedAt) {
+        List<Location> locations = IntStream.range(0, count).mapToObj(i -> {
+            Location location = new Location();
+            location.setCityName("City " + i);
+            location.setPostalCode(String.valueOf(1000 + i));
+            location.setLatitude(48f + i / 10_000f);
+            location.setLongitude(16f);
+            location.setDeleted(deleted);
+            location.setDeletedAt(deletedAt);
+            return location;
+        }).toList();
+        return locationRepository.saveAllAndFlush(locations);
+    }
+
+    private List<Long> changes(ChangeType type) {
+        return events.stream(LocationChangedEvent.class)
+                .filter(e -> e.type() == type)
+                .map(LocationChangedEvent::locationId)
+                .toList();
+    }
+
+    private static List<Long> ids(List<Location> locations) {
+        return locations.stream().map(Location::getLocationId).toList();
+    }
+}
@@ -0,0 +1,175 @@
+package com.wefky.RESTfulWeb.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.wefky.RESTfulWeb.entity.Location;
+import com.wefky.RESTfulWeb.event.ChangeType;
+import com.wefky.RESTfulWeb.event.LocationChangedEvent;
+import com.wefky.RESTfulWeb.repository.LocationRepository;
+import com.wefky.RESTfulWeb.service.LocationSpatialIndex.Neighbour;
+import com.wefky.RESTfulWeb.util.GeoUtils;
+
+class LocationSpatialIndexTests {
+
+    /** Query points: ordinary, at and near both poles, and on both sides of the antimeridian. */
+    private static final double[][] QUERIES = {
+            { 48.2, 16.4 }, { -33.9, 151.2 }, { 0, 0 },
+            { 90, 0 }, { 89.95, -120 }, { -90, 45 }, { -89.9, 170 },
+            { 0, 180 }, { 10, -180 }, { -5, 179.99 }, { 65, -179.5 },
+    };
+
+    private final LocationRepository locationRepository = mock(LocationRepository.class);
+    private final LocationSpatialIndex index = new LocationSpatialIndex(locationRepository, true);
+    private final List<Location> locations = new ArrayList<>();
+
+    @BeforeEach
+    void loadRandomLocations() {
+        Random random = new Random(42);
+        long id = 1;
+        // Uniform on the sphere, plus dense clusters around the poles and the antimeridian.
+        for (int i = 0; i < 1500; i++) {
+            double lat = Math.toDegrees(Math.asin(2 * random.nextDouble() - 1));
+            locations.add(location(id++, lat, 360 * random.nextDouble() - 180));
+        }
+        for (int i = 0; i < 300; i++) {
+            double lat = 88 + 2 * random.nextDouble();
+            locations.add(location(id++, random.nextBoolean() ? lat : -lat, 360 * random.nextDouble() - 180));
+        }
+        for (int i = 0; i < 300; i++) {
+            double lon = 179 + random.nextDouble();
+            locations.add(location(id++, 180 * random.nextDouble() - 90, random.nextBoolean() ? lon : -lon));
+        }
+        when(locationRepository.findAllActive()).thenReturn(locations);
+        index.load();
+    }
+
+    @Test
+    void nearestMatchesBruteForce() {
+        for (double[] q : QUERIES) {
+            assertThat(ids(index.nearest(q[0], q[1], 15, null)))
+                    .as("nearest to %s, %s", q[0], q[1])
+                    .containsExactlyElementsOf(bruteForceByDistance(q[0], q[1], Double.MAX_VALUE).subList(0, 15));
+        }
+    }
+
+    @Test
+    void nearestStopsAtTheMaximumDistance() {
+        for (double[] q : QUERIES) {
+            List<Long> expected = bruteForceByDistance(q[0], q[1], 400_000);
+            assertThat(ids(index.nearest(q[0], q[1], 1000, 400_000.0)))
+                    .as("nearest to %s, %s", q[0], q[1])
+                    .containsExactlyElementsOf(expected);
+        }
+    }
+
+    @Test
+    void nearestReportsGreatCircleDistances() {
+        List<Neighbour> neighbours = index.nearest(89.95, -120, 5, null);
+
+        for (Neighbour neighbour : neighbours) {
+            Location location = locations.get((int) neighbour.locationId() - 1);
+            assertThat(neighbour.distanceMeters()).isEqualTo(
+                    GeoUtils.distanceMeters(89.95, -120, location.getLatitude(), location.getLongitude()));
+        }
+    }
+
+    @Test
+    void withinRadiusMatchesBruteForce() {
+        for (double[] q : QUERIES) {
+            for (double radius : new double[] { 50_000, 300_000, 2_500_000 }) {
+                assertThat(ids(index.withinRadius(q[0], q[1], radius)))
+                        .as("within %s m of %s, %s", radius, q[0], q[1])
+                        .containsExactlyElementsOf(bruteForceByDistance(q[0], q[1], radius));
+            }
+        }
+    }
+
+    @Test
+    void withinBoundingBoxMatchesBruteForce() {
+        double[][] boxes = {
+                { 40, 5, 55, 25 },          // ordinary
+                { 85, -180, 90, 180 },      // polar cap
+                { -90, -10, -87, 60 },      // touching the south pole
+                { -10, -170, 10, 170 },     // wider than a hemisphere
+                { -30, 170, 30, -170 },     // crossing the antimeridian
+                { 60, 179.5, 90, -179.5 },  // crossing the antimeridian near the pole
+                { -90, 0, 90, -0.0001 },    // crossing the antimeridian, almost the whole world
+        };
+        for (double[] box : boxes) {
+            assertThat(index.withinBoundingBox(box[0], box[1], box[2], box[3]))
+                    .as("box %s, %s, %s, %s", box[0], box[1], box[2], box[3])
+                    .containsExactlyInAnyOrderElementsOf(bruteForceInBox(box[0], box[1], box[2], box[3]));
+        }
+    }
+
+    @Test
+    void boundingBoxCrossingTheAntimeridianFindsBothSides() {
+        when(locationRepository.findAllActive()).thenReturn(List.of(
+                location(1, 0, 179.5), location(2, 0, -179.5), location(3, 0, 0)));
+        LocationSpatialIndex small = new LocationSpatialIndex(locationRepository, true);
+        small.load();
+
+        assertThat(small.withinBoundingBox(-10, 179, 10, -179)).containsExactlyInAnyOrder(1L, 2L);
+    }
+
+    @Test
+    void writesAreVisibleToTheNextQuery() {
+        Location moved = location(1, 89.99, 0);
+        index.onLocationChanged(new LocationChangedEvent(1L, ChangeType.UPDATED, moved));
+        index.onLocationChanged(new LocationChangedEvent(2L, ChangeType.PURGED, null));
+        locations.set(0, moved);
+        locations.remove(1);
+
+        assertThat(ids(index.nearest(90, 0, 1, null))).containsExactly(1L);
+        for (double[] q : QUERIES) {
+            assertThat(ids(index.nearest(q[0], q[1], 15, null)))
+                    .containsExactlyElementsOf(bruteForceByDistance(q[0], q[1], Double.MAX_VALUE).subList(0, 15));
+        }
+    }
+
+    private List<Long> bruteForceByDistance(double lat, double lon, double maxMeters) {
+        return locations.stream()
+                .filter(l -> distance(lat, lon, l) <= maxMeters)
+                .sorted(Comparator.comparingDouble(l -> distance(lat, lon, l)))
+                .map(Location::getLocationId)
+                .toList();
+    }
+
+    private List<Long> bruteForceInBox(double latMin, double lonMin, double latMax, double lonMax) {
+        return locations.stream()
+                .filter(l -> l.getLatitude() >= latMin && l.getLatitude() <= latMax)
+                .filter(l -> lonMin <= lonMax
+                        ? l.getLongitude() >= lonMin && l.getLongitude() <= lonMax
+                        : l.getLongitude() >= lonMin || l.getLongitude() <= lonMax)
+                .map(Location::getLocationId)
+                .toList();
+    }
+
+    private static double distance(double lat, double lon, Location location) {
+        return GeoUtils.distanceMeters(lat, lon, location.getLatitude(), location.getLongitude());
+    }
+
+    private static List<Long> ids(List<Neighbour> neighbours) {
+        return neighbours.stream().map(Neighbour::locationId).toList();
+    }
+
+    private static Location location(long id, double lat, double lon) {
+        Location location = new Location();
+        location.setLocationId(id);
+        location.setCityName("City " + id);
+        location.setPostalCode(String.valueOf(id));
+        location.setLatitude((float) lat);
+        location.setLongitude((float) lon);
+        return location;
+    }
+}
@@ -0,0 +1,128 @@
+package com.wefky.RESTfulWeb.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import com.wefky.RESTfulWeb.exception.LoginThrottledException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class LoginThrottleTests {
+
+    private static final Duration WINDOW = Duration.ofMinutes(5);
+
+    private final AtomicLong now = new AtomicLong();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final LoginThrottle throttle = new LoginThrottle(WINDOW, 10, 50, meterRegistry, now::get);
+
+    @Test
+    void usernameIsThrottledAtItsLimit() {
+        fail("alice", "10.0.0.1", 9);
+        assertThatCode(() -> throttle.check("alice", "10.0.0.1")).doesNotThrowAnyException();
+
+        fail("alice", "10.0.0.1", 1);
+
+        assertThatThrownBy(() -> throttle.check("alice", "10.0.0.2"))
+                .isInstanceOf(LoginThrottledException.class)
+                .extracting(e -> ((LoginThrottledException) e).getRetryAfterSeconds())
+                .isEqualTo(WINDOW.toSeconds());
+        assertThatCode(() -> throttle.check("bob", "10.0.0.1")).doesNotThrowAnyException();
+        assertThat(throttled("username")).isEqualTo(1);
+    }
+
+    @Test
+    void addressIsThrottledAtItsLimitWhateverTheUsername() {
+        for (int i = 0; i < 49; i++) {
+            fail("user" + i, "10.0.0.1", 1);
+        }
+        assertThatCode(() -> throttle.check("mallory", "10.0.0.1")).doesNotThrowAnyException();
+
+        fail("user49", "10.0.0.1", 1);
+
+        assertThatThrownBy(() -> throttle.check("mallory", "10.0.0.1")).isInstanceOf(LoginThrottledException.class);
+        assertThatCode(() -> throttle.check("mallory", "10.0.0.2")).doesNotThrowAnyException();
+        assertThat(throttled("address")).isEqualTo(1);
+    }
+
+    @Test
+    void failuresLeaveTheWindowOneByOne() {
+        for (int i = 0; i < 10; i++) {
+            fail("alice", "10.0.0.1", 1);
+            now.addAndGet(Duration.ofSeconds(10).toNanos());
+        }
+        // The first failure was 100 s ago, so it leaves the window in 200 s.
+        assertThatThrownBy(() -> throttle.check("alice", null))
+                .extracting(e -> ((LoginThrottledException) e).getRetryAfterSeconds())
+                .isEqualTo(200L);
+
+        now.addAndGet(Duration.ofSeconds(200).toNanos() - 1);
+        assertThatThrownBy(() -> throttle.check("alice", null)).isInstanceOf(LoginThrottledException.class);
+
+        now.incrementAndGet();
+        assertThatCode(() -> throttle.check("alice", null)).doesNotThrowAnyException();
+
+        // One more failure fills the window again until the second failure leaves it.
+        fail("alice", "10.0.0.1", 1);
+        assertThatThrownBy(() -> throttle.check("alice", null))
+                .extracting(e -> ((LoginThrottledException) e).getRetryAfterSeconds())
+                .isEqualTo(10L);
+    }
+
+    @Test
+    void wholeWindowLaterEverythingIsForgotten() {
+        fail("alice", "10.0.0.1", 50);
+
+        now.addAndGet(WINDOW.toNanos());
+
+        assertThatCode(() -> throttle.check("alice", "10.0.0.1")).doesNotThrowAnyException();
+    }
+
+    @Test
+    void successClearsTheUsernameButNotTheAddress() {
+        fail("alice", "10.0.0.1", 9);
+        throttle.recordSuccess("alice");
+        fail("alice", "10.0.0.1", 9);
+        assertThatCode(() -> throttle.check("alice", "10.0.0.1")).doesNotThrowAnyException();
+
+        fail("bob", "10.0.0.1", 32);
+        throttle.recordSuccess("bob");
+
+        // 9 + 9 + 32 failures from the address: still throttled after the successes.
+        assertThatThrownBy(() -> throttle.check("carol", "10.0.0.1")).isInstanceOf(LoginThrottledException.class);
+    }
+
+    @Test
+    void unknownAddressIsLimitedByUsernameOnly() {
+        fail("alice", null, 9);
+
+        assertThatCode(() -> throttle.check("alice", null)).doesNotThrowAnyException();
+        fail("alice", null, 1);
+        assertThatThrownBy(() -> throttle.check("alice", null)).isInstanceOf(LoginThrottledException.class);
+    }
+
+    @Test
+    void limitOfZeroDisablesThatKey() {
+        LoginThrottle unlimited = new LoginThrottle(WINDOW, 0, 0, meterRegistry, now::get);
+        for (int i = 0; i < 100; i++) {
+            unlimited.recordFailure("alice", "10.0.0.1");
+        }
+
+        assertThatCode(() -> unlimited.check("alice", "10.0.0.1")).doesNotThrowAnyException();
+    }
+
+    private void fail(String username, String remoteAddress, int times) {
+        for (int i = 0; i < times; i++) {
+            throttle.recordFailure(username, remoteAddress);
+        }
+    }
+
+    private double throttled(String key) {
+        return meterRegistry.get("app.security.login.throttled").tag("key", key).counter().count();
+    }
+}
@@ -0,0 +1,278 @@
+package com.wefky.RESTfulWeb.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.verify;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+
+import com.wefky.RESTfulWeb.dto.BulkResult;
+import com.wefky.RESTfulWeb.entity.Measurement;
+import com.wefky.RESTfulWeb.event.ChangeType;
+import com.wefky.RESTfulWeb.event.MeasurementChangedEvent;
+import com.wefky.RESTfulWeb.repository.MeasurementRepository;
+import com.wefky.RESTfulWeb.repository.PostgresRepositoryTests;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Bulk soft delete, restore and permanent delete: chunking, rows that are skipped because they are
+ * missing, already in the target state or locked by another transaction, and the reported counts.
+ */
+@Import({ MeasurementService.class, MeasurementServiceTests.Config.class })
+@RecordApplicationEvents
+class MeasurementServiceTests extends PostgresRepositoryTests {
+
+    @TestConfiguration
+    static class Config {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        LocalValidatorFactoryBean validator() {
+            return new LocalValidatorFactoryBean();
+        }
+    }
+
+    @Autowired
+    private MeasurementService measurementService;
+
+    @MockitoSpyBean
+    private MeasurementRepository measurementRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ApplicationEvents events;
+
+    private final ExecutorService otherTransaction = Executors.newSingleThreadExecutor();
+
+    @AfterEach
+    void stopOtherTransaction() throws InterruptedException {
+        otherTransaction.shutdownNow();
+        otherTransaction.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void bulkSoftDeleteRunsInChunksAndCountsDistinctIds() {
+        List<Long> ids = ids(save(2_301, false));
+        List<Long> requested = new ArrayList<>(ids);
+        requested.addAll(ids.subList(0, 10));  // duplicates
+        requested.add(null);
+        requested.add(-1L);                     // missing
+
+        BulkResult result = measurementService.softDeleteMeasurements(requested);
+
+        assertThat(result).isEqualTo(new BulkResult(2_302, 2_301));
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Long>> chunks = ArgumentCaptor.forClass(List.class);
+        verify(measurementRepository, atLeastOnce()).lockIds(chunks.capture(), eq(false));
+        assertThat(chunks.getAllValues()).extracting(List::size).containsExactly(1_000, 1_000, 302);
+        assertThat(measurementRepository.findIds(true, null, null, null, null)).containsExactlyElementsOf(ids);
+        assertThat(changes(ChangeType.SOFT_DELETED)).hasSize(2_301);
+    }
+
+    @Test
+    void chunkWithRowsAlreadyInTheTargetStateChangesOnlyTheOthers() {
+        List<Long> active = ids(save(3, false));
+        List<Long> trashed = ids(save(2, true));
+        List<Long> requested = new ArrayList<>(active);
+        requested.addAll(trashed);
+        requested.add(-1L);
+
+        assertThat(measurementService.softDeleteMeasurements(requested)).isEqualTo(new BulkResult(6, 3));
+        assertThat(changes(ChangeType.SOFT_DELETED)).containsExactlyElementsOf(active);
+
+        assertThat(measurementService.restoreMeasurements(requested)).isEqualTo(new BulkResult(6, 5));
+        assertThat(measurementService.restoreMeasurements(requested)).isEqualTo(new BulkResult(6, 0));
+        assertThat(changes(ChangeType.RESTORED)).hasSize(5);
+    }
+
+    @Test
+    void matchingBulkChangesCountTheRowsInTheSourceState() {
+        save(4, false);
+        List<Long> trashed = ids(save(3, true));
+
+        // Only the trash is emptied by a filtered permanent delete.
+        assertThat(measurementService.permanentlyDeleteMatchingMeasurements("°C", null, null, null))
+                .isEqualTo(new BulkResult(3, 3));
+        assertThat(changes(ChangeType.PURGED)).containsExactlyElementsOf(trashed);
+        assertThat(measurementService.softDeleteMatchingMeasurements("°C", null, null, null))
+                .isEqualTo(new BulkResult(4, 4));
+        assertThat(measurementService.softDeleteMatchingMeasurements("°C", null, null, null))
+                .isEqualTo(new BulkResult(0, 0));
+    }
+
+    @Test
+    void permanentDeleteByIdsDeletesActiveAndTrashedRows() {
+        List<Long> ids = ids(save(2, false));
+        ids.addAll(ids(save(2, true)));
+        ids.add(-1L);
+
+        assertThat(measurementService.permanentlyDeleteMeasurements(ids)).isEqualTo(new BulkResult(5, 4));
+        assertThat(measurementRepository.count()).isZero();
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void bulkChangeWaitsForLockedRowsAndSkipsThoseChangedMeanwhile() throws Exception {
+        List<Long> ids = committed(() -> ids(save(20, false)));
+        try {
+            // Another transaction soft deletes the first half and commits only once the bulk change waits for it.
+            CountDownLatch locked = new CountDownLatch(1);
+            Future<?> other = otherTransaction.submit(() -> transactions().executeWithoutResult(status -> {
+                measurementRepository.lockIds(ids.subList(0, 10), false);
+                measurementRepository.updateDeleted(ids.subList(0, 10), true, LocalDateTime.now());
+                locked.countDown();
+                awaitLockWaiter();
+            }));
+            assertThat(locked.await(10, TimeUnit.SECONDS)).isTrue();
+
+            BulkResult result = measurementService.softDeleteMeasurements(ids);
+            other.get(10, TimeUnit.SECONDS);
+
+            assertThat(result).isEqualTo(new BulkResult(20, 10));
+            assertThat(changes(ChangeType.SOFT_DELETED)).containsExactlyElementsOf(ids.subList(10, 20));
+            assertThat(measurementRepository.countByDeletedTrue()).isEqualTo(20);
+        } finally {
+            measurementRepository.deleteAllInBatch();
+        }
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void retentionPurgeSkipsRowsLockedByAnotherTransaction() throws Exception {
+        List<Long> ids = committed(() -> ids(save(6, true, LocalDateTime.now().minusDays(40))));
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(30);
+        try {
+            CountDownLatch locked = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            Future<?> other = otherTransaction.submit(() -> transactions().executeWithoutResult(status -> {
+                measurementRepository.lockIds(ids.subList(0, 2));
+                locked.countDown();
+                await(release);
+            }));
+            assertThat(locked.await(10, TimeUnit.SECONDS)).isTrue();
+
+            // A run limited to three rows, then one that finds only the unlocked rest: neither waits.
+            assertThat(measurementService.purgeDeletedBefore(cutoff, 3)).isEqualTo(3);
+            assertThat(measurementService.purgeDeletedBefore(cutoff, 100)).isEqualTo(1);
+            assertThat(measurementRepository.findAllById(ids)).extracting(Measurement::getMeasurementId)
+                    .containsExactlyInAnyOrderElementsOf(ids.subList(0, 2));
+
+            release.countDown();
+            other.get(10, TimeUnit.SECONDS);
+            assertThat(measurementService.purgeDeletedBefore(cutoff, 100)).isEqualTo(2);
+            assertThat(measurementRepository.count()).isZero();
+        } finally {
+            measurementRepository.deleteAllInBatch();
+        }
+    }
+
+    private List<Measurement> save(int count, boolean deleted) {
+        return save(count, deleted, deleted ? LocalDateTime.now() : null);
+    }
+
+    private List<Measurement> save(int count, boolean deleted, LocalDateTime deletedAt) {
+        List<Measurement> measurements = IntStream.range(0, count).mapToObj(i -> {
+            Measurement measurement = new Measurement();
+            measurement.setMeasurementUnit("°C");
+            measurement.setAmount(1.0 + i);
+            measurement.setTimestamp(LocalDateTime.of(2025, 1, 1, 0, 0).plusMinutes(i));
+            measurement.setDeleted(deleted);
+            measurement.setDeletedAt(deletedAt);
+            return measurement;
+        }).toList();
+        return measurementRepository.saveAllAndFlush(measurements);
+    }
+
+    private <T> T committed(Supplier<T> work) {
+        return transactions().execute(status -> work.get());
+    }
+
+    private TransactionTemplate transactions() {
+        return new TransactionTemplate(transactionManager);
+    }
+
+    private List<Long> changes(ChangeType type) {
+        return events.stream(MeasurementChangedEvent.class)
+                .filter(e -> e.type() == type)
+                .map(MeasurementChangedEvent::measurementId)
+                .toList();
+    }
+
+    private static List<Long> ids(List<Measurement> measurements) {
+        return new ArrayList<>(measurements.stream().map(Measurement::getMeasurementId).toList());
+    }
+
+    /**
+     * Waits until another backend is blocked on a row lock, using a connection of its own.
+     */
+    private void awaitLockWaiter() {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            while (System.nanoTime() < deadline) {
+                try (ResultSet rs = statement.executeQuery(
+                        "SELECT count(*) FROM pg_stat_activity WHERE wait_event_type = 'Lock'")) {
+                    rs.next();
+                    if (rs.getLong(1) > 0) {
+                        return;
+                    }
+                }
+                Thread.sleep(10);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.wefky.RESTfulWeb.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.wefky.RESTfulWeb.controller.MeasurementRestController;
+import com.wefky.RESTfulWeb.dto.MeasurementView;
+import com.wefky.RESTfulWeb.event.ChangeType;
+import com.wefky.RESTfulWeb.event.MeasurementChangedEvent;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.Filter;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+class MeasurementStreamHubTests {
+
+    private static final int REPLAY_SIZE = 4;
+    private static final int BUFFER_SIZE = 3;
+    private static final Pattern EVENT_ID = Pattern.compile("(?m)^id:(\\d+)$");
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MeasurementStreamHub hub = new MeasurementStreamHub(Jackson2ObjectMapperBuilder.json().build(),
+            meterRegistry, REPLAY_SIZE, BUFFER_SIZE, 10, Duration.ofMinutes(1), Duration.ofSeconds(30));
+
+    /** Writers of requests with an X-Slow header block on their first write until this is released. */
+    private final CountDownLatch slowClient = new CountDownLatch(1);
+
+    private final MockMvc mockMvc = MockMvcBuilders
+            .standaloneSetup(new MeasurementRestController(mock(MeasurementService.class), hub,
+                    new MappingJackson2HttpMessageConverter(), new MappingJackson2CborHttpMessageConverter(),
+                    new MappingJackson2SmileHttpMessageConverter()))
+            .addFilters(slowResponseFilter())
+            .build();
+
+    @AfterEach
+    void shutdown() {
+        slowClient.countDown();
+        hub.shutdown();
+    }
+
+    @Test
+    void liveSubscriberReceivesMatchingChangesInOrder() throws Exception {
+        MvcResult all = open(get("/api/measurements/stream"));
+        MvcResult celsius = open(get("/api/measurements/stream").param("measurementUnit", "c"));
+
+        publish(1, "C");
+        publish(2, "F");
+        publish(3, "C");
+
+        List<Long> ids = awaitIds(all, 3);
+        assertThat(awaitIds(celsius, 2)).containsExactly(ids.get(0), ids.get(2));
+        assertThat(ids.get(1)).isEqualTo(ids.get(0) + 1);
+        assertThat(all.getResponse().getContentAsString()).contains("event:created");
+    }
+
+    @Test
+    void lastEventIdReplaysTheMissedEventsFromTheRing() throws Exception {
+        MvcResult live = open(get("/api/measurements/stream"));
+        publish(1, "C");
+        publish(2, "F");
+        publish(3, "C");
+        List<Long> ids = awaitIds(live, 3);
+
+        MvcResult resumed = open(get("/api/measurements/stream").header("Last-Event-ID", ids.get(0)));
+        MvcResult filtered = open(get("/api/measurements/stream").param("measurementUnit", "C")
+                .header("Last-Event-ID", ids.get(0)));
+        MvcResult upToDate = open(get("/api/measurements/stream").header("Last-Event-ID", ids.get(2)));
+        publish(4, "C");
+
+        List<Long> expected = List.of(ids.get(1), ids.get(2), ids.get(2) + 1);
+        assertThat(awaitIds(resumed, 3)).isEqualTo(expected);
+        assertThat(awaitIds(filtered, 2)).containsExactly(ids.get(2), ids.get(2) + 1);
+        assertThat(awaitIds(upToDate, 1)).containsExactly(ids.get(2) + 1);
+        for (MvcResult result : List.of(resumed, filtered, upToDate)) {
+            assertThat(result.getResponse().getContentAsString()).doesNotContain("event:reset");
+        }
+    }
+
+    @Test
+    void replayStopsAtTheRingEvictionBoundary() throws Exception {
+        MvcResult live = open(get("/api/measurements/stream"));
+        List<Long> ids = publishInTurn(live, 10);
+
+        // The ring holds the last four events; resuming right before the oldest one still works.
+        long beforeOldest = ids.get(10 - REPLAY_SIZE - 1);
+        MvcResult inRing = open(get("/api/measurements/stream").header("Last-Event-ID", beforeOldest));
+        assertThat(awaitIds(inRing, REPLAY_SIZE)).isEqualTo(ids.subList(10 - REPLAY_SIZE, 10));
+        assertThat(inRing.getResponse().getContentAsString()).doesNotContain("event:reset");
+
+        // One further back, an event is missing: the client is told to reload instead.
+        MvcResult evicted = open(get("/api/measurements/stream").header("Last-Event-ID", beforeOldest - 1));
+        awaitContent(evicted, "event:reset");
+        assertThat(ids(evicted)).isEmpty();
+    }
+
+    @Test
+    void unknownLastEventIdResetsTheClient() throws Exception {
+        MvcResult live = open(get("/api/measurements/stream"));
+        publish(1, "C");
+        long last = awaitIds(live, 1).get(0);
+
+        // From before the restart, from the future, and not one of ours.
+        MvcResult earlierRun = open(get("/api/measurements/stream").header("Last-Event-ID", 42));
+        MvcResult future = open(get("/api/measurements/stream").header("Last-Event-ID", last + 1));
+        MvcResult foreign = open(get("/api/measurements/stream").header("Last-Event-ID", "abc"));
+
+        awaitContent(earlierRun, "event:reset");
+        awaitContent(future, "event:reset");
+        awaitContent(foreign, ":connected");
+        publish(2, "C");
+        assertThat(awaitIds(foreign, 1)).containsExactly(last + 1);
+        assertThat(foreign.getResponse().getContentAsString()).doesNotContain("event:reset");
+    }
+
+    @Test
+    void slowSubscriberIsDroppedWithoutHoldingUpTheOthers() throws Exception {
+        MvcResult live = open(get("/api/measurements/stream"));
+        MvcResult slow = open(get("/api/measurements/stream").header("X-Slow", "true"));
+        assertThat(subscribers()).isEqualTo(2);
+
+        // The slow client's writer is stuck on a write (its first one, or the first event if the
+        // connected comment went out with the response headers), so its buffer fills up.
+        publishInTurn(live, BUFFER_SIZE);
+        assertThat(dropped()).isZero();
+        List<Long> ids = publishInTurn(live, 1);
+        if (dropped() == 0) {
+            ids = publishInTurn(live, 1);
+        }
+
+        assertThat(dropped()).isEqualTo(1);
+        assertThat(subscribers()).isEqualTo(1);
+        assertThat(ids).hasSizeBetween(BUFFER_SIZE + 1, BUFFER_SIZE + 2);
+
+        // Once the client reads again its response is completed, and its reconnect catches up from the ring.
+        slowClient.countDown();
+        slow.getAsyncResult(5_000);
+        List<Long> received = ids(slow);
+        assertThat(received).isEqualTo(ids.subList(0, ids.size() - BUFFER_SIZE - 1));
+        long resumeAfter = received.isEmpty() ? ids.get(0) - 1 : received.get(0);
+        MvcResult reconnected = open(get("/api/measurements/stream").header("Last-Event-ID", resumeAfter));
+        assertThat(awaitIds(reconnected, BUFFER_SIZE + 1)).isEqualTo(ids.subList(received.size(), ids.size()));
+    }
+
+    @Test
+    void subscribersBeyondTheLimitAreRejected() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            open(get("/api/measurements/stream"));
+        }
+
+        mockMvc.perform(get("/api/measurements/stream")).andExpect(status().isServiceUnavailable());
+        assertThat(subscribers()).isEqualTo(10);
+    }
+
+    private MvcResult open(MockHttpServletRequestBuilder request) throws Exception {
+        return mockMvc.perform(request).andExpect(request().asyncStarted()).andReturn();
+    }
+
+    private void publish(long measurementId, String unit) {
+        MeasurementView view = new MeasurementView(measurementId, unit, 1.0, LocalDateTime.of(2025, 1, 1, 12, 0), null, false);
+        hub.onMeasurementChanged(new MeasurementChangedEvent(measurementId, ChangeType.CREATED, view));
+    }
+
+    /**
+     * Publishes changes one at a time, each once the live subscriber has received the one before,
+     * so the live subscriber's buffer never fills.
+     *
+     * @return the IDs the live subscriber has received so far
+     */
+    private List<Long> publishInTurn(MvcResult live, int count) throws IOException {
+        List<Long> ids = ids(live);
+        for (int i = 0; i < count; i++) {
+            publish(ids.size() + 1, "C");
+            ids = awaitIds(live, ids.size() + 1);
+        }
+        return ids;
+    }
+
+    private static List<Long> awaitIds(MvcResult result, int count) throws IOException {
+        await().atMost(Duration.ofSeconds(5)).until(() -> ids(result).size() >= count);
+        return ids(result);
+    }
+
+    private static void awaitContent(MvcResult result, String text) {
+        await().atMost(Duration.ofSeconds(5)).until(() -> result.getResponse().getContentAsString().contains(text));
+    }
+
+    private static List<Long> ids(MvcResult result) throws IOException {
+        Matcher matcher = EVENT_ID.matcher(result.getResponse().getContentAsString());
+        return matcher.results().map(m -> Long.valueOf(m.group(1))).toList();
+    }
+
+    private double dropped() {
+        return meterRegistry.get("app.measurements.stream.dropped").counter().count();
+    }
+
+    private double subscribers() {
+        return meterRegistry.get("app.measurements.stream.subscribers").gauge().value();
+    }
+
+    private Filter slowResponseFilter() {
+        return (request, response, chain) -> {
+            if (((HttpServletRequest) request).getHeader("X-Slow") == null) {
+                chain.doFilter(request, response);
+                return;
+            }
+            HttpServletResponse original = (HttpServletResponse) response;
+            ServletOutputStream out = original.getOutputStream();
+            chain.doFilter(request, new HttpServletResponseWrapper(original) {
+                @Override
+                public ServletOutputStream getOutputStream() {
+                    return new ServletOutputStream() {
+                        @Override
+                        public void write(int b) throws IOException {
+                            awaitSlowClient();
+                            out.write(b);
+                        }
+
+                        @Override
+                        public void write(byte[] b, int off, int len) throws IOException {
+                            awaitSlowClient();
+                            out.write(b, off, len);
+                        }
+
+                        @Override
+                        public boolean isReady() {
+                            return true;
+                        }
+
+                        @Override
+                        public void setWriteListener(WriteListener listener) {
+                        }
+                    };
+                }
+            });
+        };
+    }
+
+    private void awaitSlowClient() throws IOException {
+        // Only the hub's writer threads wait; a write flushed while the request is being handled
+        // must not block MockMvc itself.
+        if (!Thread.currentThread().getName().startsWith("measurement-stream-")) {
+            return;
+        }
+        try {
+            slowClient.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.wefky.RESTfulWeb.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class GeoHashTests {
+
+    private final Random random = new Random(42);
+
+    @Test
+    void encodedPointLiesInsideItsCell() {
+        for (int i = 0; i < 2000; i++) {
+            double lat = 180 * random.nextDouble() - 90;
+            double lon = 360 * random.nextDouble() - 180;
+            for (int precision = 1; precision <= GeoHash.MAX_PRECISION; precision++) {
+                double[] cell = GeoHash.bounds(GeoHash.encode(lat, lon, precision));
+                assertThat(lat).isBetween(cell[0], cell[2]);
+                assertThat(lon).isBetween(cell[1], cell[3]);
+            }
+        }
+        assertThat(GeoHash.encode(90, 180, 3)).isEqualTo("zzz");
+        assertThat(GeoHash.encode(-90, -180, 3)).isEqualTo("000");
+    }
+
+    @Test
+    void coverContainsEveryPointOfTheBox() {
+        double[][] boxes = {
+                { 48.1, 16.2, 48.3, 16.5 },      // city sized
+                { 35, -10, 60, 30 },             // continent sized
+                { 89.5, -180, 90, 180 },         // north polar cap
+                { -90, -45, -89, 45 },           // touching the south pole
+                { -5, 179.5, 5, 180 },           // east of the antimeridian
+                { -5, -180, 5, -179.5 },         // west of the antimeridian
+                { -90, -180, 90, 180 },          // whole world
+        };
+        for (double[] box : boxes) {
+            for (int precision : new int[] { 1, 4, 7, 12 }) {
+                List<String> cells = GeoHash.cover(box[0], box[1], box[2], box[3], precision);
+
+                assertThat(cells).hasSizeLessThanOrEqualTo(64);
+                for (int i = 0; i < 500; i++) {
+                    double lat = box[0] + (box[2] - box[0]) * random.nextDouble();
+                    double lon = box[1] + (box[3] - box[1]) * random.nextDouble();
+                    assertCovered(cells, lat, lon);
+                }
+                // The corners are in the box too.
+                for (double lat : new double[] { box[0], box[2] }) {
+                    for (double lon : new double[] { box[1], box[3] }) {
+                        assertCovered(cells, lat, lon);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void coverCellsIntersectTheBox() {
+        double[] box = { 47, 8, 48, 10 };
+
+        for (String cell : GeoHash.cover(box[0], box[1], box[2], box[3], 5)) {
+            double[] bounds = GeoHash.bounds(cell);
+            assertThat(bounds[0]).isLessThanOrEqualTo(box[2]);
+            assertThat(bounds[2]).isGreaterThanOrEqualTo(box[0]);
+            assertThat(bounds[1]).isLessThanOrEqualTo(box[3]);
+            assertThat(bounds[3]).isGreaterThanOrEqualTo(box[1]);
+        }
+    }
+
+    @Test
+    void coverRejectsABoxCrossingTheAntimeridian() {
+        assertThatThrownBy(() -> GeoHash.cover(-5, 179, 5, -179, 5))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void upperBoundMatchesPrefixSearchByBruteForce() {
+        String[] prefixes = { "u", "u2", "u2e", "tz", "0", "b", "zz", "zzzz", "yz", "gzzz" };
+        for (String prefix : prefixes) {
+            String upper = GeoHash.upperBound(prefix);
+            for (int i = 0; i < 5000; i++) {
+                String hash = GeoHash.encode(180 * random.nextDouble() - 90, 360 * random.nextDouble() - 180, 6);
+                // Bias half the samples towards the prefix cell so both outcomes are exercised.
+                if (i % 2 == 0) {
+                    hash = (prefix + hash).substring(0, Math.max(6, prefix.length()));
+                }
+                boolean inRange = hash.compareTo(prefix) >= 0 && (upper == null || hash.compareTo(upper) < 0);
+                assertThat(inRange).as("%s in range of %s", hash, prefix).isEqualTo(hash.startsWith(prefix));
+            }
+        }
+        assertThat(GeoHash.upperBound("u2e")).isEqualTo("u2f");
+        assertThat(GeoHash.upperBound("gzz")).isEqualTo("h");
+        assertThat(GeoHash.upperBound("zzz")).isNull();
+    }
+
+    @Test
+    void precisionForRadiusPicksTheFinestCellNotSmallerThanTheRadius() {
+        double[] radii = { 0.01, 1, 20, 150, 1_000, 5_000, 40_000, 150_000, 600_000, 2_500_000, 10_000_000 };
+        for (double radius : radii) {
+            int expected = 1;
+            for (int p = GeoHash.MAX_PRECISION; p > 1; p--) {
+                if (smallerSideMeters(p) >= radius) {
+                    expected = p;
+                    break;
+                }
+            }
+            int precision = GeoHash.precisionForRadius(radius);
+
+            assertThat(precision).as("precision for %s m", radius).isEqualTo(expected);
+            if (precision > 1) {
+                assertThat(smallerSideMeters(precision)).isGreaterThanOrEqualTo(radius);
+            }
+            if (precision < GeoHash.MAX_PRECISION) {
+                assertThat(smallerSideMeters(precision + 1)).isLessThan(radius);
+            }
+        }
+    }
+
+    @Test
+    void radiusSearchCellsContainEveryPointInTheCircle() {
+        // The cells LocationService scans for a radius search, near a pole and on the antimeridian.
+        double[][] queries = { { 48.2, 16.4 }, { 89.9, 30 }, { -89.5, -100 }, { 0, 180 }, { 20, -179.99 } };
+        for (double[] q : queries) {
+            for (double radius : new double[] { 500, 25_000, 400_000 }) {
+                double[] box = GeoUtils.boundingBox(q[0], q[1], radius);
+                List<String> cells = GeoHash.cover(box[0], box[1], box[2], box[3], GeoHash.precisionForRadius(radius));
+                for (int i = 0; i < 500; i++) {
+                    double[] point = randomPointWithin(q[0], q[1], radius);
+                    assertCovered(cells, point[0], point[1]);
+                }
+            }
+        }
+    }
+
+    private static void assertCovered(List<String> cells, double lat, double lon) {
+        String hash = GeoHash.encode(lat, lon, GeoHash.MAX_PRECISION);
+        assertThat(cells).as("cover of %s, %s", lat, lon).anyMatch(hash::startsWith);
+    }
+
+    private static double smallerSideMeters(int precision) {
+        double[] size = GeoHash.cellSize(precision);
+        return Math.min(size[0], size[1]) * 111_320.0;
+    }
+
+    /**
+     * Destination point at a random bearing and a random distance up to the radius.
+     */
+    private double[] randomPointWithin(double lat, double lon, double radiusMeters) {
+        double angular = radiusMeters * random.nextDouble() / GeoUtils.EARTH_RADIUS_METERS;
+        double bearing = 2 * Math.PI * random.nextDouble();
+        double phi = Math.toRadians(lat);
+        double phi2 = Math.asin(Math.sin(phi) * Math.cos(angular)
+                + Math.cos(phi) * Math.sin(angular) * Math.cos(bearing));
+        double lambda2 = Math.toRadians(lon) + Math.atan2(Math.sin(bearing) * Math.sin(angular) * Math.cos(phi),
+                Math.cos(angular) - Math.sin(phi) * Math.sin(phi2));
+        double lon2 = ((Math.toDegrees(lambda2) + 540) % 360) - 180;
+        return new double[] { Math.toDegrees(phi2), lon2 };
+    }
+}
@@ -0,0 +1,84 @@
+package com.wefky.RESTfulWeb.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class GeoUtilsTests {
+
+    private final Random random = new Random(42);
+
+    @Test
+    void distanceMetersMatchesKnownDistances() {
+        // Quarter of a great circle, and Vienna to Sydney (~15 980 km).
+        assertThat(GeoUtils.distanceMeters(0, 0, 90, 0)).isCloseTo(Math.PI / 2 * GeoUtils.EARTH_RADIUS_METERS, within(1e-6));
+        assertThat(GeoUtils.distanceMeters(48.2082, 16.3738, -33.8688, 151.2093)).isCloseTo(15_980_000, within(20_000.0));
+        assertThat(GeoUtils.distanceMeters(0, 179.5, 0, -179.5)).isCloseTo(GeoUtils.distanceMeters(0, 0, 0, 1), within(1e-6));
+        assertThat(GeoUtils.distanceMeters(89.9, 0, 89.9, 180)).isCloseTo(GeoUtils.distanceMeters(0, 0, 0.2, 0), within(1e-6));
+    }
+
+    @Test
+    void boundingBoxContainsEveryPointOfTheCircle() {
+        double[][] centres = {
+                { 48.2, 16.4 }, { -33.9, 151.2 }, { 0, 0 },
+                { 89.9, 30 }, { -89.99, -100 }, { 75, 10 },
+                { 0, 180 }, { 20, -179.99 }, { -60, 179.9 },
+        };
+        for (double[] c : centres) {
+            for (double radius : new double[] { 100, 10_000, 300_000, 3_000_000 }) {
+                double[] box = GeoUtils.boundingBox(c[0], c[1], radius);
+                for (int i = 0; i < 2000; i++) {
+                    double[] p = randomPointWithin(c[0], c[1], radius);
+                    assertThat(GeoUtils.distanceMeters(c[0], c[1], p[0], p[1])).isLessThanOrEqualTo(radius * (1 + 1e-9));
+                    assertThat(p[0]).as("latitude around %s, %s r=%s", c[0], c[1], radius)
+                            .isBetween(box[0] - 1e-9, box[2] + 1e-9);
+                    assertThat(p[1]).as("longitude around %s, %s r=%s", c[0], c[1], radius)
+                            .isBetween(box[1] - 1e-9, box[3] + 1e-9);
+                }
+            }
+        }
+    }
+
+    @Test
+    void boundingBoxIsTightAwayFromThePolesAndTheAntimeridian() {
+        double lat = 48.2, lon = 16.4, radius = 50_000;
+        double[] box = GeoUtils.boundingBox(lat, lon, radius);
+
+        // The extreme points of the circle touch the edges of the box.
+        assertThat(GeoUtils.distanceMeters(lat, lon, box[0], lon)).isCloseTo(radius, within(1e-3));
+        assertThat(GeoUtils.distanceMeters(lat, lon, box[2], lon)).isCloseTo(radius, within(1e-3));
+        double maxLonReach = 0;
+        for (int i = 0; i < 10_000; i++) {
+            double[] p = randomPointWithin(lat, lon, radius);
+            maxLonReach = Math.max(maxLonReach, Math.abs(p[1] - lon));
+        }
+        assertThat(box[3] - lon).isCloseTo(lon - box[1], within(1e-9));
+        assertThat(maxLonReach).isCloseTo(box[3] - lon, within((box[3] - lon) * 0.01));
+    }
+
+    @Test
+    void boundingBoxIsWidenedNearThePolesAndAcrossTheAntimeridian() {
+        assertThat(GeoUtils.boundingBox(89.9, 30, 50_000)).containsExactly(89.9 - Math.toDegrees(50_000 / GeoUtils.EARTH_RADIUS_METERS), -180, 90, 180);
+        double[] antimeridian = GeoUtils.boundingBox(0, 179.9, 50_000);
+        assertThat(antimeridian[1]).isEqualTo(-180);
+        assertThat(antimeridian[3]).isEqualTo(180);
+    }
+
+    /**
+     * Destination point at a random bearing and a random distance up to the radius.
+     */
+    private double[] randomPointWithin(double lat, double lon, double radiusMeters) {
+        double angular = radiusMeters * random.nextDouble() / GeoUtils.EARTH_RADIUS_METERS;
+        double bearing = 2 * Math.PI * random.nextDouble();
+        double phi = Math.toRadians(lat);
+        double phi2 = Math.asin(Math.sin(phi) * Math.cos(angular)
+                + Math.cos(phi) * Math.sin(angular) * Math.cos(bearing));
+        double lambda2 = Math.toRadians(lon) + Math.atan2(Math.sin(bearing) * Math.sin(angular) * Math.cos(phi),
+                Math.cos(angular) - Math.sin(phi) * Math.sin(phi2));
+        double lon2 = ((Math.toDegrees(lambda2) + 540) % 360) - 180;
+        return new double[] { Math.toDegrees(phi2), lon2 };
+    }
+}